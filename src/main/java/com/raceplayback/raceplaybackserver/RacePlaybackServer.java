@@ -8,13 +8,22 @@ import com.raceplayback.raceplaybackserver.commands.SuggestionCommand;
 import com.raceplayback.raceplaybackserver.commands.SessionDebugCommand;
 import com.raceplayback.raceplaybackserver.commands.DebugNextCommand;
 import com.raceplayback.raceplaybackserver.commands.FeedbackCommand;
+import com.raceplayback.raceplaybackserver.commands.FollowCommand;
+import com.raceplayback.raceplaybackserver.commands.PerfCommand;
+import com.raceplayback.raceplaybackserver.commands.RecordingCommand;
 import com.raceplayback.raceplaybackserver.commands.ReportBugCommand;
 import com.raceplayback.raceplaybackserver.commands.ScanTrackCommand;
 import com.raceplayback.raceplaybackserver.commands.VisualizeCenterlineCommand;
 import com.raceplayback.raceplaybackserver.data.DataModelType;
 import com.raceplayback.raceplaybackserver.data.SessionType;
 import com.raceplayback.raceplaybackserver.data.TrackName;
+import com.raceplayback.raceplaybackserver.discord.WebhookDispatcher;
+import com.raceplayback.raceplaybackserver.metrics.Histogram;
+import com.raceplayback.raceplaybackserver.metrics.MetricsHttpServer;
+import com.raceplayback.raceplaybackserver.metrics.MetricsRegistry;
 import com.raceplayback.raceplaybackserver.network.F1ApiClient;
+import com.raceplayback.raceplaybackserver.network.local.LocalApiServer;
+import com.raceplayback.raceplaybackserver.util.EnvConfig;
 
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
@@ -26,6 +35,8 @@ import net.minestom.server.entity.Player;
 import net.minestom.server.event.GlobalEventHandler;
 import net.minestom.server.event.player.AsyncPlayerConfigurationEvent;
 import net.minestom.server.event.player.PlayerChatEvent;
+import net.minestom.server.event.player.PlayerDisconnectEvent;
+import net.minestom.server.event.server.ServerTickMonitorEvent;
 import net.minestom.server.instance.*;
 import net.minestom.server.item.ItemStack;
 import net.minestom.server.item.Material;
@@ -36,6 +47,11 @@ import org.everbuild.blocksandstuff.blocks.BlockPlacementRuleRegistrations;
 import org.everbuild.blocksandstuff.blocks.BlockBehaviorRuleRegistrations;
 import org.everbuild.blocksandstuff.blocks.PlacedHandlerRegistration;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import com.sun.management.OperatingSystemMXBean;
+
 public class RacePlaybackServer {
 
     private static RacePlaybackServer instance;
@@ -55,7 +71,17 @@ public class RacePlaybackServer {
 
     public static void main(String[] args) {
         new RacePlaybackServer();
-        MinecraftServer minecraftServer = MinecraftServer.init(new Auth.Online());
+
+        if (EnvConfig.getBoolean("LOCAL_API_ENABLED", false)) {
+            startLocalApi();
+        }
+
+        // Offline mode lets the spectator load test connect without Mojang accounts
+        boolean onlineMode = EnvConfig.getBoolean("ONLINE_MODE", true);
+        MinecraftServer minecraftServer = MinecraftServer.init(onlineMode ? new Auth.Online() : new Auth.Offline());
+        if (!onlineMode) {
+            logger.warn("Running in offline mode, players are not authenticated");
+        }
 
         InstanceManager instanceManager = MinecraftServer.getInstanceManager();
         InstanceContainer instanceContainer = instanceManager.createInstanceContainer();
@@ -76,6 +102,9 @@ public class RacePlaybackServer {
         commandManager.register(new ReportBugCommand());
         commandManager.register(new SuggestionCommand());
         commandManager.register(new FeedbackCommand());
+        commandManager.register(new PerfCommand());
+        commandManager.register(new RecordingCommand());
+        commandManager.register(new FollowCommand());
 
         GlobalEventHandler globalEventHandler = MinecraftServer.getGlobalEventHandler();
         globalEventHandler.addListener(AsyncPlayerConfigurationEvent.class, event -> {
@@ -85,6 +114,10 @@ public class RacePlaybackServer {
             player.setGameMode(GameMode.CREATIVE);
         });
 
+        globalEventHandler.addListener(PlayerDisconnectEvent.class, event -> FollowCommand.stopFollowing(event.getPlayer()));
+
+        registerServerMetrics(globalEventHandler);
+
         globalEventHandler.addListener(PlayerChatEvent.class, event -> {
             if (event.getRawMessage().equals("Hannah")) {
                 event.getPlayer().getInventory().addItemStack(ItemStack.of(Material.COD).withCustomName(Component.text("The fish from Hitman", NamedTextColor.GREEN)));
@@ -93,12 +126,60 @@ public class RacePlaybackServer {
 
         minecraftServer.start("0.0.0.0", 25565);
 
+        startMetricsServer();
+        WebhookDispatcher.start();
+
         testApiClients();
     }
 
+    private static void startLocalApi() {
+        LocalApiServer localApi = LocalApiServer.fromEnv();
+        try {
+            localApi.start();
+            F1ApiClient.setBaseUrl(localApi.getBaseUrl());
+            Runtime.getRuntime().addShutdownHook(new Thread(localApi::stop));
+        } catch (IOException e) {
+            logger.error("Failed to start local race data API, using {}", F1ApiClient.getBaseUrl(), e);
+        }
+    }
+
+    private static void registerServerMetrics(GlobalEventHandler globalEventHandler) {
+        Histogram tickTime = MetricsRegistry.timer("raceplayback_server_tick_seconds", "Time the server spent on a whole tick");
+        Histogram acquisitionTime = MetricsRegistry.timer("raceplayback_server_tick_acquisition_seconds", "Time a tick spent waiting on acquirable locks");
+        globalEventHandler.addListener(ServerTickMonitorEvent.class, event -> {
+            tickTime.record((long) (event.getTickMonitor().getTickTime() * 1_000_000));
+            acquisitionTime.record((long) (event.getTickMonitor().getAcquisitionTime() * 1_000_000));
+        });
+
+        MetricsRegistry.gauge("raceplayback_online_players", "Players currently connected",
+            () -> MinecraftServer.getConnectionManager().getOnlinePlayerCount());
+        MetricsRegistry.gauge("raceplayback_process_cpu_permille", "Process CPU load across all cores, in thousandths",
+            RacePlaybackServer::processCpuPermille);
+        MetricsRegistry.gauge("raceplayback_live_threads", "Live platform threads",
+            () -> ManagementFactory.getThreadMXBean().getThreadCount());
+    }
+
+    private static long processCpuPermille() {
+        OperatingSystemMXBean os = ManagementFactory.getPlatformMXBean(OperatingSystemMXBean.class);
+        double load = os.getProcessCpuLoad();
+        return load < 0 ? 0 : (long) (load * 1000);
+    }
+
+    private static void startMetricsServer() {
+        MetricsHttpServer metricsServer = MetricsHttpServer.fromEnv();
+        if (metricsServer == null) {
+            return;
+        }
+        try {
+            metricsServer.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(metricsServer::stop));
+        } catch (IOException e) {
+            logger.error("Failed to start metrics endpoint", e);
+        }
+    }
+
     private static void testApiClients() {
         F1ApiClient client = new F1ApiClient(
-            "https://raceplayback.com/api/v1/sessions", 
             2024, 
             TrackName.SILVERSTONE, 
             SessionType.R, 
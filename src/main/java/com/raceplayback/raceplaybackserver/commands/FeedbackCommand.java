@@ -2,6 +2,7 @@ package com.raceplayback.raceplaybackserver.commands;
 
 import com.raceplayback.raceplaybackserver.discord.Feedback;
 import com.raceplayback.raceplaybackserver.discord.FeedbackManager;
+import com.raceplayback.raceplaybackserver.util.RateLimiter;
 
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
@@ -11,6 +12,7 @@ import net.minestom.server.entity.Player;
 import net.minestom.server.command.builder.arguments.ArgumentStringArray;
 
 public class FeedbackCommand extends Command {
+    private static final RateLimiter rateLimiter = RateLimiter.fromEnv("feedback", 3, 300);
 
     public FeedbackCommand() {
         super("feedback");
@@ -22,6 +24,14 @@ public class FeedbackCommand extends Command {
         ArgumentStringArray description = ArgumentType.StringArray("description");
 
         addSyntax((sender, context) -> {
+            if (sender instanceof Player player) {
+                long retryAfter = rateLimiter.tryAcquire(player.getUuid());
+                if (retryAfter > 0) {
+                    sender.sendMessage(Component.text("You're sending feedback too quickly. Try again in " + RateLimiter.formatWait(retryAfter) + ".", NamedTextColor.RED));
+                    return;
+                }
+            }
+
             String[] descriptionArray = context.get("description");
             String feedbackDescription = String.join(" ", descriptionArray);
 
@@ -34,15 +44,15 @@ public class FeedbackCommand extends Command {
             }
 
             FeedbackManager.saveFeedback(feedback);
-            boolean sent = FeedbackManager.sendFeedback(feedback);
-
-            if (sent) {
-                sender.sendMessage(Component.text("Feedback created: ", NamedTextColor.GREEN)
-                    .append(Component.text(feedback.getFeedbackId(), NamedTextColor.AQUA)
-                    .append(Component.text(". Thank you!", NamedTextColor.GREEN))));
-            } else {
-                sender.sendMessage(Component.text("Failed to submit feedback", NamedTextColor.RED));
-            }
+            FeedbackManager.sendFeedback(feedback).thenAccept(sent -> {
+                if (!sent) {
+                    sender.sendMessage(Component.text("Failed to deliver feedback " + feedback.getFeedbackId() + " to Discord", NamedTextColor.RED));
+                }
+            });
+
+            sender.sendMessage(Component.text("Feedback created: ", NamedTextColor.GREEN)
+                .append(Component.text(feedback.getFeedbackId(), NamedTextColor.AQUA)
+                .append(Component.text(". Thank you!", NamedTextColor.GREEN))));
         }, description);
     }
 }
\ No newline at end of file
@@ -0,0 +1,126 @@
+package com.raceplayback.raceplaybackserver.commands;
+
+import com.raceplayback.raceplaybackserver.entity.car.F1Car;
+import com.raceplayback.raceplaybackserver.playback.PlaybackController;
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.command.builder.Command;
+import net.minestom.server.command.builder.arguments.ArgumentLiteral;
+import net.minestom.server.command.builder.arguments.ArgumentType;
+import net.minestom.server.command.builder.arguments.ArgumentWord;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.entity.Player;
+import net.minestom.server.timer.Task;
+import net.minestom.server.timer.TaskSchedule;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps a player's camera behind a replay car. Without a driver argument, followers
+ * are spread round-robin across the running replays.
+ */
+public class FollowCommand extends Command {
+    private static final double FOLLOW_DISTANCE = 8.0;
+    private static final double FOLLOW_HEIGHT = 4.0;
+
+    private static final Map<UUID, Task> followTasks = new ConcurrentHashMap<>();
+    private static final AtomicInteger nextCar = new AtomicInteger();
+
+    public FollowCommand() {
+        super("follow");
+
+        ArgumentWord driverArg = ArgumentType.Word("driver");
+        ArgumentLiteral stopArg = ArgumentType.Literal("stop");
+
+        setDefaultExecutor((sender, context) -> {
+            if (!(sender instanceof Player player)) {
+                sender.sendMessage("§cOnly players can use this command!");
+                return;
+            }
+            follow(player, null);
+        });
+
+        addSyntax((sender, context) -> {
+            if (sender instanceof Player player) {
+                stopFollowing(player);
+                player.sendMessage("§7Stopped following.");
+            }
+        }, stopArg);
+
+        addSyntax((sender, context) -> {
+            if (!(sender instanceof Player player)) {
+                sender.sendMessage("§cOnly players can use this command!");
+                return;
+            }
+            follow(player, context.get(driverArg).toUpperCase());
+        }, driverArg);
+    }
+
+    private void follow(Player player, String driverCode) {
+        if (PlaybackController.getRunningControllers().isEmpty()) {
+            player.sendMessage("§cNo replay is running! Use /sessiontest first.");
+            return;
+        }
+
+        stopFollowing(player);
+
+        int slot = nextCar.getAndIncrement();
+        Task task = MinecraftServer.getSchedulerManager().buildTask(() -> {
+            PlaybackController controller = findController(driverCode, slot);
+            if (controller == null || controller.getCar() == null || controller.getCar().getPosition() == null) {
+                return;
+            }
+            player.teleport(cameraPosition(controller.getCar()));
+        }).repeat(TaskSchedule.tick(1)).schedule();
+
+        followTasks.put(player.getUuid(), task);
+        player.sendMessage("§aFollowing " + (driverCode != null ? "§b" + driverCode : "a replay car") + "§a. Use §e/follow stop §ato stop.");
+    }
+
+    private static PlaybackController findController(String driverCode, int slot) {
+        List<PlaybackController> controllers = PlaybackController.getRunningControllers();
+        if (controllers.isEmpty()) {
+            return null;
+        }
+
+        if (driverCode != null) {
+            for (PlaybackController controller : controllers) {
+                if (driverCode.equals(controller.getDriverCode())) {
+                    return controller;
+                }
+            }
+            return null;
+        }
+
+        try {
+            return controllers.get(slot % controllers.size());
+        } catch (IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    private static Pos cameraPosition(F1Car car) {
+        Pos carPosition = car.getPosition();
+        double yawRad = Math.toRadians(carPosition.yaw());
+        double forwardX = -Math.sin(yawRad);
+        double forwardZ = Math.cos(yawRad);
+
+        return new Pos(
+            carPosition.x() - forwardX * FOLLOW_DISTANCE,
+            carPosition.y() + FOLLOW_HEIGHT,
+            carPosition.z() - forwardZ * FOLLOW_DISTANCE,
+            carPosition.yaw(),
+            20f
+        );
+    }
+
+    public static void stopFollowing(Player player) {
+        Task task = followTasks.remove(player.getUuid());
+        if (task != null) {
+            task.cancel();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.raceplayback.raceplaybackserver.commands;
+
+import com.raceplayback.raceplaybackserver.metrics.Counter;
+import com.raceplayback.raceplaybackserver.metrics.Gauge;
+import com.raceplayback.raceplaybackserver.metrics.Histogram;
+import com.raceplayback.raceplaybackserver.metrics.MetricsRegistry;
+import net.minestom.server.command.CommandSender;
+import net.minestom.server.command.builder.Command;
+import net.minestom.server.command.builder.arguments.ArgumentLiteral;
+import net.minestom.server.command.builder.arguments.ArgumentType;
+
+public class PerfCommand extends Command {
+    private static final String PREFIX = "raceplayback_";
+
+    public PerfCommand() {
+        super("perf");
+
+        ArgumentLiteral resetArg = ArgumentType.Literal("reset");
+
+        setDefaultExecutor((sender, context) -> showMetrics(sender));
+
+        addSyntax((sender, context) -> {
+            MetricsRegistry.reset();
+            sender.sendMessage("§aMetrics reset.");
+        }, resetArg);
+    }
+
+    private void showMetrics(CommandSender sender) {
+        sender.sendMessage("§6=== Replay Performance ===");
+
+        for (Histogram histogram : MetricsRegistry.getHistograms()) {
+            Histogram.Snapshot snapshot = histogram.snapshot();
+            if (snapshot.getCount() == 0) {
+                continue;
+            }
+            sender.sendMessage(String.format("§e%s §7n=%d §fp50 §b%s §fp99 §b%s §fmax §c%s",
+                shortName(histogram.getName()),
+                snapshot.getCount(),
+                formatSeconds(snapshot.quantile(0.5)),
+                formatSeconds(snapshot.quantile(0.99)),
+                formatSeconds(snapshot.getMax())
+            ));
+        }
+
+        for (Counter counter : MetricsRegistry.getCounters()) {
+            sender.sendMessage("§e" + shortName(counter.getName()) + " §f" + counter.get());
+        }
+
+        for (Gauge gauge : MetricsRegistry.getGauges()) {
+            sender.sendMessage("§e" + shortName(gauge.getName()) + " §f" + gauge.get());
+        }
+    }
+
+    private String shortName(String name) {
+        return name.startsWith(PREFIX) ? name.substring(PREFIX.length()) : name;
+    }
+
+    private String formatSeconds(double seconds) {
+        if (seconds >= 1.0) {
+            return String.format("%.2fs", seconds);
+        }
+        if (seconds >= 0.001) {
+            return String.format("%.2fms", seconds * 1_000);
+        }
+        return String.format("%.1fµs", seconds * 1_000_000);
+    }
+}
@@ -0,0 +1,53 @@
+package com.raceplayback.raceplaybackserver.commands;
+
+import com.raceplayback.raceplaybackserver.RacePlaybackServer;
+import com.raceplayback.raceplaybackserver.jfr.ReplayRecorder;
+import net.minestom.server.command.builder.Command;
+import net.minestom.server.command.builder.arguments.ArgumentLiteral;
+import net.minestom.server.command.builder.arguments.ArgumentType;
+
+import java.nio.file.Path;
+
+public class RecordingCommand extends Command {
+    private final RacePlaybackServer server = RacePlaybackServer.getInstance();
+
+    public RecordingCommand() {
+        super("recording");
+
+        ArgumentLiteral startArg = ArgumentType.Literal("start");
+        ArgumentLiteral stopArg = ArgumentType.Literal("stop");
+
+        setDefaultExecutor((sender, context) -> {
+            sender.sendMessage("§cUsage: /recording <start|stop>");
+            sender.sendMessage(ReplayRecorder.isRecording() ? "§7A recording is running." : "§7No recording is running.");
+        });
+
+        addSyntax((sender, context) -> {
+            if (ReplayRecorder.isRecording()) {
+                sender.sendMessage("§cA recording is already running!");
+                return;
+            }
+            try {
+                ReplayRecorder.start();
+                sender.sendMessage("§aFlight recording started. Use §e/recording stop §ato save it.");
+            } catch (Exception e) {
+                sender.sendMessage("§cFailed to start recording: " + e.getMessage());
+                server.getLogger().error("Failed to start flight recording", e);
+            }
+        }, startArg);
+
+        addSyntax((sender, context) -> {
+            if (!ReplayRecorder.isRecording()) {
+                sender.sendMessage("§cNo recording is running!");
+                return;
+            }
+            try {
+                Path output = ReplayRecorder.stop();
+                sender.sendMessage("§aRecording saved to §e" + output);
+            } catch (Exception e) {
+                sender.sendMessage("§cFailed to save recording: " + e.getMessage());
+                server.getLogger().error("Failed to save flight recording", e);
+            }
+        }, stopArg);
+    }
+}
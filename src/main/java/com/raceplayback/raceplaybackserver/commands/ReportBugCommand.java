@@ -2,6 +2,7 @@ package com.raceplayback.raceplaybackserver.commands;
 
 import com.raceplayback.raceplaybackserver.discord.BugReport;
 import com.raceplayback.raceplaybackserver.discord.BugReportManager;
+import com.raceplayback.raceplaybackserver.util.RateLimiter;
 
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
@@ -12,6 +13,7 @@ import net.minestom.server.entity.Player;
 import net.minestom.server.command.builder.arguments.ArgumentStringArray;
 
 public class ReportBugCommand extends Command {
+    private static final RateLimiter rateLimiter = RateLimiter.fromEnv("reportbug", 3, 300);
 
     public ReportBugCommand() {
         super("reportbug");
@@ -23,6 +25,14 @@ public class ReportBugCommand extends Command {
         ArgumentStringArray description = ArgumentType.StringArray("description");
 
         addSyntax((sender, context) -> {
+            if (sender instanceof Player player) {
+                long retryAfter = rateLimiter.tryAcquire(player.getUuid());
+                if (retryAfter > 0) {
+                    sender.sendMessage(Component.text("You're sending bug reports too quickly. Try again in " + RateLimiter.formatWait(retryAfter) + ".", NamedTextColor.RED));
+                    return;
+                }
+            }
+
             String[] descriptionArray = context.get("description");
             String bugDescription = String.join(" ", descriptionArray);
 
@@ -35,18 +45,18 @@ public class ReportBugCommand extends Command {
             }
 
             BugReportManager.saveBugReport(bugReport);
-            boolean sent = BugReportManager.sendBugReport(bugReport);
-
-            if (sent) {
-                sender.sendMessage(Component.text("Bug report created: ", NamedTextColor.GREEN)
-                    .append(Component.text(bugReport.getBugReportId(), NamedTextColor.AQUA)
-                    .append(Component.text(" [", NamedTextColor.GREEN)
-                    .append(Component.text("View the report tracker here", NamedTextColor.GREEN, TextDecoration.UNDERLINED)
-                        .clickEvent(net.kyori.adventure.text.event.ClickEvent.openUrl("https://discord.com/channels/1373880732413595678/1373883557692444732")))
-                    .append(Component.text("]", NamedTextColor.GREEN)))));
-            } else {
-                sender.sendMessage(Component.text("Failed to submit bug report", NamedTextColor.RED));
-            }
+            BugReportManager.sendBugReport(bugReport).thenAccept(sent -> {
+                if (!sent) {
+                    sender.sendMessage(Component.text("Failed to deliver bug report " + bugReport.getBugReportId() + " to Discord", NamedTextColor.RED));
+                }
+            });
+
+            sender.sendMessage(Component.text("Bug report created: ", NamedTextColor.GREEN)
+                .append(Component.text(bugReport.getBugReportId(), NamedTextColor.AQUA)
+                .append(Component.text(" [", NamedTextColor.GREEN)
+                .append(Component.text("View the report tracker here", NamedTextColor.GREEN, TextDecoration.UNDERLINED)
+                    .clickEvent(net.kyori.adventure.text.event.ClickEvent.openUrl("https://discord.com/channels/1373880732413595678/1373883557692444732")))
+                .append(Component.text("]", NamedTextColor.GREEN)))));
         }, description);
     }
 }
\ No newline at end of file
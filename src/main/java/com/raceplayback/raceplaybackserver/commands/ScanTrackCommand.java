@@ -70,8 +70,8 @@ public class ScanTrackCommand extends Command {
                 TrackDataManager.saveTrackEdges(trackName, leftEdge, rightEdge);
 
                 player.sendMessage(Component.text("✓ Track scan complete!", NamedTextColor.GREEN));
-                player.sendMessage(Component.text("  Left edge: " + leftEdge.size() + " points (" + String.format("%.1f", leftEdge.getTotalLength()) + " blocks)", NamedTextColor.GRAY));
-                player.sendMessage(Component.text("  Right edge: " + rightEdge.size() + " points (" + String.format("%.1f", rightEdge.getTotalLength()) + " blocks)", NamedTextColor.GRAY));
+                player.sendMessage(Component.text("  Left edge: " + describeEdge(leftEdge), NamedTextColor.GRAY));
+                player.sendMessage(Component.text("  Right edge: " + describeEdge(rightEdge), NamedTextColor.GRAY));
                 player.sendMessage(Component.text("  Centerline: " + String.format("%.1f", centerline.getTotalLength()) + " blocks", NamedTextColor.GRAY));
                 player.sendMessage(Component.text("Track data saved! You can now use this track for playback.", NamedTextColor.GREEN));
 
@@ -81,4 +81,9 @@ public class ScanTrackCommand extends Command {
             }
         });
     }
+
+    private static String describeEdge(TrackEdge edge) {
+        return String.format("%d points from %d blocks (%.1f blocks long, max error %.2f)",
+            edge.size(), edge.getRawPointCount(), edge.getTotalLength(), edge.getMaxError());
+    }
 }
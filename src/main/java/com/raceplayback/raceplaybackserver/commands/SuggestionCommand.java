@@ -2,6 +2,7 @@ package com.raceplayback.raceplaybackserver.commands;
 
 import com.raceplayback.raceplaybackserver.discord.Suggestion;
 import com.raceplayback.raceplaybackserver.discord.SuggestionManager;
+import com.raceplayback.raceplaybackserver.util.RateLimiter;
 
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
@@ -12,6 +13,7 @@ import net.minestom.server.entity.Player;
 import net.minestom.server.command.builder.arguments.ArgumentStringArray;
 
 public class SuggestionCommand extends Command {
+    private static final RateLimiter rateLimiter = RateLimiter.fromEnv("suggest", 3, 300);
 
     public SuggestionCommand() {
         super("suggest");
@@ -23,6 +25,14 @@ public class SuggestionCommand extends Command {
         ArgumentStringArray description = ArgumentType.StringArray("description");
 
         addSyntax((sender, context) -> {
+            if (sender instanceof Player player) {
+                long retryAfter = rateLimiter.tryAcquire(player.getUuid());
+                if (retryAfter > 0) {
+                    sender.sendMessage(Component.text("You're sending suggestions too quickly. Try again in " + RateLimiter.formatWait(retryAfter) + ".", NamedTextColor.RED));
+                    return;
+                }
+            }
+
             String[] descriptionArray = context.get("description");
             String suggestionDescription = String.join(" ", descriptionArray);
 
@@ -35,18 +45,18 @@ public class SuggestionCommand extends Command {
             }
 
             SuggestionManager.saveSuggestion(suggestion);
-            boolean sent = SuggestionManager.sendSuggestion(suggestion);
-
-            if (sent) {
-                sender.sendMessage(Component.text("Suggestion created: ", NamedTextColor.GREEN)
-                    .append(Component.text(suggestion.getSuggestionId(), NamedTextColor.AQUA)
-                    .append(Component.text(" [", NamedTextColor.GREEN)
-                    .append(Component.text("View the suggestion tracker here", NamedTextColor.GREEN, TextDecoration.UNDERLINED)
-                        .clickEvent(net.kyori.adventure.text.event.ClickEvent.openUrl("https://discord.com/channels/1373880732413595678/1373883557692444732")))
-                    .append(Component.text("]", NamedTextColor.GREEN)))));
-            } else {
-                sender.sendMessage(Component.text("Failed to submit suggestion", NamedTextColor.RED));
-            }
+            SuggestionManager.sendSuggestion(suggestion).thenAccept(sent -> {
+                if (!sent) {
+                    sender.sendMessage(Component.text("Failed to deliver suggestion " + suggestion.getSuggestionId() + " to Discord", NamedTextColor.RED));
+                }
+            });
+
+            sender.sendMessage(Component.text("Suggestion created: ", NamedTextColor.GREEN)
+                .append(Component.text(suggestion.getSuggestionId(), NamedTextColor.AQUA)
+                .append(Component.text(" [", NamedTextColor.GREEN)
+                .append(Component.text("View the suggestion tracker here", NamedTextColor.GREEN, TextDecoration.UNDERLINED)
+                    .clickEvent(net.kyori.adventure.text.event.ClickEvent.openUrl("https://discord.com/channels/1373880732413595678/1373883557692444732")))
+                .append(Component.text("]", NamedTextColor.GREEN)))));
         }, description);
     }
 }
\ No newline at end of file
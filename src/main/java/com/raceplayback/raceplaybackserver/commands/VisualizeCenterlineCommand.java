@@ -1,6 +1,7 @@
 package com.raceplayback.raceplaybackserver.commands;
 
 import com.raceplayback.raceplaybackserver.data.TrackName;
+import com.raceplayback.raceplaybackserver.entity.debug.DebugVisualizer;
 import com.raceplayback.raceplaybackserver.mapping.TrackCenterline;
 import com.raceplayback.raceplaybackserver.mapping.TrackDataManager;
 import net.kyori.adventure.text.Component;
@@ -9,11 +10,7 @@ import net.minestom.server.command.CommandSender;
 import net.minestom.server.command.builder.Command;
 import net.minestom.server.command.builder.arguments.ArgumentType;
 import net.minestom.server.coordinate.Pos;
-import net.minestom.server.coordinate.Vec;
-import net.minestom.server.entity.Entity;
-import net.minestom.server.entity.EntityType;
 import net.minestom.server.entity.Player;
-import net.minestom.server.entity.metadata.display.BlockDisplayMeta;
 import net.minestom.server.instance.Instance;
 import net.minestom.server.instance.block.Block;
 
@@ -21,12 +18,11 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class VisualizeCenterlineCommand extends Command {
-    private final Instance instance;
-    private static final List<Entity> visualizationEntities = new ArrayList<>();
+    private final DebugVisualizer visualizer;
 
     public VisualizeCenterlineCommand(Instance instance) {
         super("visualizecenterline", "showcenterline");
-        this.instance = instance;
+        this.visualizer = new DebugVisualizer(instance);
 
         var trackArg = ArgumentType.Enum("track", TrackName.class);
 
@@ -57,19 +53,12 @@ public class VisualizeCenterlineCommand extends Command {
         player.sendMessage(Component.text("Visualizing centerline...", NamedTextColor.YELLOW));
 
         int samples = 500;
+        List<Pos> points = new ArrayList<>(samples + 1);
         for (int i = 0; i <= samples; i++) {
             double percent = i / (double) samples;
-            Pos pos = centerline.getPositionAtPercent(percent);
-
-            Entity blockDisplay = new Entity(EntityType.BLOCK_DISPLAY);
-            BlockDisplayMeta meta = (BlockDisplayMeta) blockDisplay.getEntityMeta();
-            meta.setBlockState(Block.EMERALD_BLOCK);
-            meta.setScale(new Vec(0.3, 0.3, 0.3));
-            meta.setHasNoGravity(true);
-
-            blockDisplay.setInstance(instance, pos.add(0, 1, 0));
-            visualizationEntities.add(blockDisplay);
+            points.add(centerline.getPositionAtPercent(percent).add(0, 1, 0));
         }
+        visualizer.addPolyline(points, Block.EMERALD_BLOCK, 0.3);
 
         player.sendMessage(Component.text("✓ Centerline visualization complete!", NamedTextColor.GREEN));
         player.sendMessage(Component.text("  Total length: " + String.format("%.1f", centerline.getTotalLength()) + " blocks", NamedTextColor.GRAY));
@@ -88,9 +77,6 @@ public class VisualizeCenterlineCommand extends Command {
     }
 
     private void clearVisualization() {
-        for (Entity entity : visualizationEntities) {
-            entity.remove();
-        }
-        visualizationEntities.clear();
+        visualizer.clear();
     }
 }
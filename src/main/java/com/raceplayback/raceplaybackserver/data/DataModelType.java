@@ -3,9 +3,14 @@ package com.raceplayback.raceplaybackserver.data;
 public enum DataModelType {
     SESSION,
     DRIVER,
+    DRIVER_LIST,
     TELEMETRY_POINT,
+    LAP_TELEMETRY,
     LAP_DATA,
+    LAP_TABLE,
     TEAM_RADIO,
     WEATHER_DATA,
+    PIT_STOP,
+    RACE_CONTROL_MESSAGE,
     NULL
 }
@@ -0,0 +1,370 @@
+package com.raceplayback.raceplaybackserver.data;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lap and sector times for a whole session, stored as flat {@code float} arrays indexed by
+ * driver slot and lap number. Driver codes are interned and kept once per driver, and
+ * personal and overall bests are worked out when the table is built, so every lookup is
+ * a couple of array reads. Missing times are NaN.
+ * <p>
+ * Sectors are numbered 1 to 3, laps from 1. Instances are immutable.
+ */
+public final class LapTable {
+    public static final int SECTORS = 3;
+
+    private static final int NO_SLOT = -1;
+
+    private final int[] slotByNumber;
+    private final int[] driverNumbers;
+    private final String[] driverCodes;
+    private final Map<String, Integer> numberByCode;
+    private final int maxLaps;
+
+    private final float[] lapTimes;
+    private final float[][] sectorTimes;
+    private final byte[] personalBestFlags;
+    private final int[] lapCounts;
+
+    private final float[] bestLapTimes;
+    private final int[] bestLapNumbers;
+    private final float[][] bestSectorTimes;
+    private final int fastestSlot;
+    private final int fastestLap;
+    private final float[] overallBestSectorTimes;
+
+    private LapTable(Builder builder) {
+        int drivers = builder.driverCount;
+        int maxNumber = 0;
+        for (int i = 0; i < drivers; i++) {
+            maxNumber = Math.max(maxNumber, builder.driverNumbers[i]);
+        }
+
+        slotByNumber = new int[maxNumber + 1];
+        Arrays.fill(slotByNumber, NO_SLOT);
+        for (int slot = 0; slot < drivers; slot++) {
+            slotByNumber[builder.driverNumbers[slot]] = slot;
+        }
+        driverNumbers = Arrays.copyOf(builder.driverNumbers, drivers);
+        driverCodes = Arrays.copyOf(builder.driverCodes, drivers);
+        Map<String, Integer> numbers = new HashMap<>();
+        for (int slot = 0; slot < drivers; slot++) {
+            numbers.putIfAbsent(driverCodes[slot].toUpperCase(), driverNumbers[slot]);
+        }
+        numberByCode = Map.copyOf(numbers);
+
+        int laps = 0;
+        for (int i = 0; i < builder.rowCount; i++) {
+            laps = Math.max(laps, builder.lapNumbers[i]);
+        }
+        maxLaps = laps;
+
+        int cells = drivers * maxLaps;
+        lapTimes = new float[cells];
+        sectorTimes = new float[SECTORS][cells];
+        personalBestFlags = new byte[cells];
+        lapCounts = new int[drivers];
+        Arrays.fill(lapTimes, Float.NaN);
+        for (float[] sector : sectorTimes) {
+            Arrays.fill(sector, Float.NaN);
+        }
+
+        for (int i = 0; i < builder.rowCount; i++) {
+            int slot = builder.rowSlots[i];
+            int lap = builder.lapNumbers[i];
+            int cell = slot * maxLaps + lap - 1;
+            lapTimes[cell] = builder.lapTimeColumn[i];
+            for (int s = 0; s < SECTORS; s++) {
+                sectorTimes[s][cell] = builder.sectorColumns[s][i];
+            }
+            personalBestFlags[cell] = (byte) (builder.personalBestColumn[i] ? 1 : 0);
+            lapCounts[slot] = Math.max(lapCounts[slot], lap);
+        }
+
+        bestLapTimes = new float[drivers];
+        bestLapNumbers = new int[drivers];
+        bestSectorTimes = new float[SECTORS][drivers];
+        overallBestSectorTimes = new float[SECTORS];
+        Arrays.fill(overallBestSectorTimes, Float.NaN);
+
+        int bestSlot = NO_SLOT;
+        int bestLap = 0;
+        for (int slot = 0; slot < drivers; slot++) {
+            float best = Float.NaN;
+            int bestNumber = 0;
+            float[] sectorBest = {Float.NaN, Float.NaN, Float.NaN};
+
+            for (int lap = 1; lap <= maxLaps; lap++) {
+                int cell = slot * maxLaps + lap - 1;
+                if (isFaster(lapTimes[cell], best)) {
+                    best = lapTimes[cell];
+                    bestNumber = lap;
+                }
+                for (int s = 0; s < SECTORS; s++) {
+                    if (isFaster(sectorTimes[s][cell], sectorBest[s])) {
+                        sectorBest[s] = sectorTimes[s][cell];
+                    }
+                }
+            }
+
+            bestLapTimes[slot] = best;
+            bestLapNumbers[slot] = bestNumber;
+            for (int s = 0; s < SECTORS; s++) {
+                bestSectorTimes[s][slot] = sectorBest[s];
+                if (isFaster(sectorBest[s], overallBestSectorTimes[s])) {
+                    overallBestSectorTimes[s] = sectorBest[s];
+                }
+            }
+            if (bestSlot == NO_SLOT ? !Float.isNaN(best) : isFaster(best, bestLapTimes[bestSlot])) {
+                bestSlot = slot;
+                bestLap = bestNumber;
+            }
+        }
+        fastestSlot = bestSlot;
+        fastestLap = bestLap;
+    }
+
+    public static LapTable fromLaps(List<LapData> laps) {
+        Builder builder = new Builder();
+        for (LapData lap : laps) {
+            builder.add(lap.driverName(), lap.driverNumber(), lap.lapNumber(), (float) lap.lapTime(),
+                (float) lap.sector1Time(), (float) lap.sector2Time(), (float) lap.sector3Time(), lap.isPersonalBest());
+        }
+        return builder.build();
+    }
+
+    private static boolean isFaster(float time, float best) {
+        return !Float.isNaN(time) && (Float.isNaN(best) || time < best);
+    }
+
+    private int slot(int driverNumber) {
+        return driverNumber >= 0 && driverNumber < slotByNumber.length ? slotByNumber[driverNumber] : NO_SLOT;
+    }
+
+    private int cell(int driverNumber, int lap) {
+        int slot = slot(driverNumber);
+        if (slot == NO_SLOT || lap < 1 || lap > maxLaps) {
+            return NO_SLOT;
+        }
+        return slot * maxLaps + lap - 1;
+    }
+
+    public int getDriverCount() {
+        return driverNumbers.length;
+    }
+
+    /**
+     * @return the racing numbers in the table, in the order they first appeared
+     */
+    public int[] getDriverNumbers() {
+        return driverNumbers.clone();
+    }
+
+    public boolean hasDriver(int driverNumber) {
+        return slot(driverNumber) != NO_SLOT;
+    }
+
+    /**
+     * @return the driver's three-letter code, or null if the driver is not in the table
+     */
+    public String getDriverCode(int driverNumber) {
+        int slot = slot(driverNumber);
+        return slot != NO_SLOT ? driverCodes[slot] : null;
+    }
+
+    /**
+     * @return the racing number for a three-letter code, or -1
+     */
+    public int getDriverNumber(String driverCode) {
+        Integer number = driverCode != null ? numberByCode.get(driverCode.toUpperCase()) : null;
+        return number != null ? number : -1;
+    }
+
+    /**
+     * @return the highest lap number of any driver
+     */
+    public int getMaxLaps() {
+        return maxLaps;
+    }
+
+    /**
+     * @return the highest lap number recorded for the driver, or 0
+     */
+    public int getLapCount(int driverNumber) {
+        int slot = slot(driverNumber);
+        return slot != NO_SLOT ? lapCounts[slot] : 0;
+    }
+
+    public boolean hasLap(int driverNumber, int lap) {
+        return !Float.isNaN(getLapTime(driverNumber, lap));
+    }
+
+    /**
+     * @return the lap time in seconds, or NaN
+     */
+    public float getLapTime(int driverNumber, int lap) {
+        int cell = cell(driverNumber, lap);
+        return cell != NO_SLOT ? lapTimes[cell] : Float.NaN;
+    }
+
+    /**
+     * @return the sector time in seconds, or NaN
+     */
+    public float getSectorTime(int driverNumber, int lap, int sector) {
+        int cell = cell(driverNumber, lap);
+        return cell != NO_SLOT ? sectorTimes[sector - 1][cell] : Float.NaN;
+    }
+
+    /**
+     * @return whether the timing feed flagged the lap as a personal best when it was set
+     */
+    public boolean isPersonalBest(int driverNumber, int lap) {
+        int cell = cell(driverNumber, lap);
+        return cell != NO_SLOT && personalBestFlags[cell] != 0;
+    }
+
+    /**
+     * @return the driver's fastest lap time over the session, or NaN
+     */
+    public float getBestLapTime(int driverNumber) {
+        int slot = slot(driverNumber);
+        return slot != NO_SLOT ? bestLapTimes[slot] : Float.NaN;
+    }
+
+    /**
+     * @return the lap on which the driver set their fastest time, or 0
+     */
+    public int getBestLapNumber(int driverNumber) {
+        int slot = slot(driverNumber);
+        return slot != NO_SLOT ? bestLapNumbers[slot] : 0;
+    }
+
+    public float getBestSectorTime(int driverNumber, int sector) {
+        int slot = slot(driverNumber);
+        return slot != NO_SLOT ? bestSectorTimes[sector - 1][slot] : Float.NaN;
+    }
+
+    /**
+     * @return the sum of the driver's best sectors, or NaN if any is missing
+     */
+    public float getTheoreticalBestLapTime(int driverNumber) {
+        float total = 0;
+        for (int s = 1; s <= SECTORS; s++) {
+            total += getBestSectorTime(driverNumber, s);
+        }
+        return total;
+    }
+
+    public float getFastestLapTime() {
+        return fastestSlot != NO_SLOT ? bestLapTimes[fastestSlot] : Float.NaN;
+    }
+
+    /**
+     * @return the racing number of the driver with the fastest lap, or -1
+     */
+    public int getFastestLapDriver() {
+        return fastestSlot != NO_SLOT ? driverNumbers[fastestSlot] : -1;
+    }
+
+    public int getFastestLapNumber() {
+        return fastestLap;
+    }
+
+    public float getOverallBestSectorTime(int sector) {
+        return overallBestSectorTimes[sector - 1];
+    }
+
+    /**
+     * @return the lap as a record, or null if there is no time for it
+     */
+    public LapData toLapData(int driverNumber, int lap) {
+        int cell = cell(driverNumber, lap);
+        if (cell == NO_SLOT || Float.isNaN(lapTimes[cell])) {
+            return null;
+        }
+        return new LapData(driverCodes[slot(driverNumber)], driverNumber, personalBestFlags[cell], lap, toSeconds(lapTimes[cell]),
+            toSeconds(sectorTimes[0][cell]), toSeconds(sectorTimes[1][cell]), toSeconds(sectorTimes[2][cell]));
+    }
+
+    // The feed has millisecond resolution, so round away the float widening noise
+    private static double toSeconds(float time) {
+        return Float.isNaN(time) ? 0.0 : Math.round(time * 1000.0) / 1000.0;
+    }
+
+    public long estimateBytes() {
+        return 64L + slotByNumber.length * 4L + driverNumbers.length * (4L + 8 + 4 + 4 + 4 + SECTORS * 4)
+            + (long) lapTimes.length * (4 + SECTORS * 4 + 1);
+    }
+
+    /**
+     * Collects rows as they are parsed. Times that are zero, negative or NaN are treated as
+     * missing. A later row for the same driver and lap replaces an earlier one.
+     */
+    public static final class Builder {
+        private int driverCount;
+        private int[] driverNumbers = new int[24];
+        private String[] driverCodes = new String[24];
+
+        private int rowCount;
+        private int[] rowSlots = new int[1024];
+        private int[] lapNumbers = new int[1024];
+        private float[] lapTimeColumn = new float[1024];
+        private final float[][] sectorColumns = {new float[1024], new float[1024], new float[1024]};
+        private boolean[] personalBestColumn = new boolean[1024];
+
+        public Builder add(String driverCode, int driverNumber, int lap, float lapTime,
+                           float sector1Time, float sector2Time, float sector3Time, boolean personalBest) {
+            if (driverNumber < 0 || lap < 1) {
+                return this;
+            }
+
+            int slot = slotFor(driverCode, driverNumber);
+            if (rowCount == rowSlots.length) {
+                int capacity = rowCount * 2;
+                rowSlots = Arrays.copyOf(rowSlots, capacity);
+                lapNumbers = Arrays.copyOf(lapNumbers, capacity);
+                lapTimeColumn = Arrays.copyOf(lapTimeColumn, capacity);
+                for (int s = 0; s < SECTORS; s++) {
+                    sectorColumns[s] = Arrays.copyOf(sectorColumns[s], capacity);
+                }
+                personalBestColumn = Arrays.copyOf(personalBestColumn, capacity);
+            }
+
+            rowSlots[rowCount] = slot;
+            lapNumbers[rowCount] = lap;
+            lapTimeColumn[rowCount] = valid(lapTime);
+            sectorColumns[0][rowCount] = valid(sector1Time);
+            sectorColumns[1][rowCount] = valid(sector2Time);
+            sectorColumns[2][rowCount] = valid(sector3Time);
+            personalBestColumn[rowCount] = personalBest;
+            rowCount++;
+            return this;
+        }
+
+        private int slotFor(String driverCode, int driverNumber) {
+            for (int slot = 0; slot < driverCount; slot++) {
+                if (driverNumbers[slot] == driverNumber) {
+                    return slot;
+                }
+            }
+            if (driverCount == driverNumbers.length) {
+                driverNumbers = Arrays.copyOf(driverNumbers, driverCount * 2);
+                driverCodes = Arrays.copyOf(driverCodes, driverCount * 2);
+            }
+            driverNumbers[driverCount] = driverNumber;
+            driverCodes[driverCount] = driverCode != null ? driverCode.intern() : String.valueOf(driverNumber);
+            return driverCount++;
+        }
+
+        private static float valid(float time) {
+            return time > 0 ? time : Float.NaN;
+        }
+
+        public LapTable build() {
+            return new LapTable(this);
+        }
+    }
+}
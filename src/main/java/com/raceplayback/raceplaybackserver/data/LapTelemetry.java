@@ -0,0 +1,185 @@
+package com.raceplayback.raceplaybackserver.data;
+
+import java.math.BigDecimal;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Telemetry samples for one or more laps held as parallel primitive arrays, roughly a tenth of
+ * the heap of the equivalent {@code List<TelemetryPoint>}. The arrays are never exposed, so
+ * instances are immutable and can be shared between replays.
+ */
+public final class LapTelemetry {
+    public static final int FLAG_BRAKING = 1;
+
+    private final long[] sessionTime;
+    private final float[] distance;
+    private final float[] speed;
+    private final float[] rpm;
+    private final float[] throttle;
+    private final float[] x;
+    private final float[] y;
+    private final byte[] gear;
+    private final byte[] drs;
+    private final byte[] compound;
+    private final byte[] flags;
+
+    /**
+     * Takes ownership of the arrays, which must all have the same length and must not be
+     * modified afterwards.
+     */
+    public LapTelemetry(long[] sessionTime, float[] distance, float[] speed, float[] rpm, float[] throttle,
+                        float[] x, float[] y, byte[] gear, byte[] drs, byte[] compound, byte[] flags) {
+        int n = sessionTime.length;
+        if (distance.length != n || speed.length != n || rpm.length != n || throttle.length != n || x.length != n
+            || y.length != n || gear.length != n || drs.length != n || compound.length != n || flags.length != n) {
+            throw new IllegalArgumentException("Telemetry columns differ in length");
+        }
+        this.sessionTime = sessionTime;
+        this.distance = distance;
+        this.speed = speed;
+        this.rpm = rpm;
+        this.throttle = throttle;
+        this.x = x;
+        this.y = y;
+        this.gear = gear;
+        this.drs = drs;
+        this.compound = compound;
+        this.flags = flags;
+    }
+
+    public static LapTelemetry fromPoints(List<TelemetryPoint> points) {
+        int n = points.size();
+        long[] sessionTime = new long[n];
+        float[] distance = new float[n];
+        float[] speed = new float[n];
+        float[] rpm = new float[n];
+        float[] throttle = new float[n];
+        float[] x = new float[n];
+        float[] y = new float[n];
+        byte[] gear = new byte[n];
+        byte[] drs = new byte[n];
+        byte[] compound = new byte[n];
+        byte[] flags = new byte[n];
+
+        for (int i = 0; i < n; i++) {
+            TelemetryPoint point = points.get(i);
+            sessionTime[i] = point.sessionTime();
+            distance[i] = point.distance().floatValue();
+            speed[i] = point.speed().floatValue();
+            rpm[i] = point.rpm().floatValue();
+            throttle[i] = point.throttle().floatValue();
+            x[i] = point.x().floatValue();
+            y[i] = point.y().floatValue();
+            gear[i] = (byte) point.gear();
+            drs[i] = (byte) point.drs();
+            compound[i] = (byte) point.compound().ordinal();
+            flags[i] = (byte) (point.braking() ? FLAG_BRAKING : 0);
+        }
+
+        return new LapTelemetry(sessionTime, distance, speed, rpm, throttle, x, y, gear, drs, compound, flags);
+    }
+
+    public int size() {
+        return sessionTime.length;
+    }
+
+    public long getSessionTime(int i) {
+        return sessionTime[i];
+    }
+
+    public float getDistance(int i) {
+        return distance[i];
+    }
+
+    public float getSpeed(int i) {
+        return speed[i];
+    }
+
+    public float getRpm(int i) {
+        return rpm[i];
+    }
+
+    public float getThrottle(int i) {
+        return throttle[i];
+    }
+
+    public float getX(int i) {
+        return x[i];
+    }
+
+    public float getY(int i) {
+        return y[i];
+    }
+
+    public int getGear(int i) {
+        return gear[i];
+    }
+
+    public int getDrs(int i) {
+        return drs[i];
+    }
+
+    public boolean isDRS(int i) {
+        return drs[i] == 10 || drs[i] == 12 || drs[i] == 14;
+    }
+
+    public Compound getCompound(int i) {
+        return Compound.values()[compound[i]];
+    }
+
+    public boolean isBraking(int i) {
+        return (flags[i] & FLAG_BRAKING) != 0;
+    }
+
+    /**
+     * Copies the X and Y columns into the given arrays, which must hold at least {@link #size()}
+     * values, for batch transforms that work on whole arrays.
+     */
+    public void copyCoordinates(float[] xOut, float[] yOut) {
+        System.arraycopy(x, 0, xOut, 0, x.length);
+        System.arraycopy(y, 0, yOut, 0, y.length);
+    }
+
+    public TelemetryPoint toPoint(int i) {
+        return new TelemetryPoint(
+            isBraking(i),
+            getCompound(i),
+            drs[i],
+            BigDecimal.valueOf(distance[i]),
+            BigDecimal.valueOf(rpm[i]),
+            sessionTime[i],
+            BigDecimal.valueOf(speed[i]),
+            BigDecimal.valueOf(throttle[i]),
+            BigDecimal.valueOf(x[i]),
+            BigDecimal.valueOf(y[i]),
+            gear[i]
+        );
+    }
+
+    /**
+     * @return a read-only view that builds each {@link TelemetryPoint} on access, for code that
+     *         still works on records
+     */
+    public List<TelemetryPoint> asPoints() {
+        return new PointView();
+    }
+
+    public long estimateBytes() {
+        // 8 for the timestamp, 6 float columns and 4 byte columns per sample, plus array headers
+        return 11 * 16L + size() * (8L + 6 * 4 + 4);
+    }
+
+    private class PointView extends AbstractList<TelemetryPoint> implements RandomAccess {
+        @Override
+        public TelemetryPoint get(int index) {
+            return toPoint(index);
+        }
+
+        @Override
+        public int size() {
+            return LapTelemetry.this.size();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.raceplayback.raceplaybackserver.data;
+
+/**
+ * Times are session time in milliseconds and may be null when the timing feed missed the
+ * pit entry or exit.
+ */
+public record PitStop(
+    String driverCode,
+    int lapNumber,
+    Long pitInTime,
+    Long pitOutTime,
+    Long duration
+) {}
@@ -0,0 +1,18 @@
+package com.raceplayback.raceplaybackserver.data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Flag, scope, sector, racing number and lap are null when the message does not carry them.
+ */
+public record RaceControlMessage(
+    LocalDateTime time,
+    String category,
+    String message,
+    String status,
+    String flag,
+    String scope,
+    Integer sector,
+    Integer racingNumber,
+    Integer lap
+) {}
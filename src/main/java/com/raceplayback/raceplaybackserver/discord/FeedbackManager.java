@@ -1,134 +1,51 @@
 package com.raceplayback.raceplaybackserver.discord;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public class FeedbackManager {
     private static final Logger logger = LoggerFactory.getLogger(FeedbackManager.class);
-    private static final String FEEDBACKS_DIR = "data/feedbacks";
-    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private static final String LEGACY_DIR = "data/feedbacks";
+    private static final String WEBHOOK_KEY = "FEEDBACK_WEBHOOK_URL";
 
-    private static final Map<String, Feedback> feedbackCache = new HashMap<>();
+    private static final TicketStore<Feedback> store = new TicketStore<>(
+        "feedbacks", Feedback.class, LEGACY_DIR,
+        Feedback::getFeedbackId, null, Feedback::getSenderUUID);
 
     public static void saveFeedback(Feedback feedback) {
-        try {
-            File dir = new File(FEEDBACKS_DIR);
-            if (!dir.exists()) {
-                dir.mkdirs();
-            }
-
-            File file = new File(FEEDBACKS_DIR, feedback.getFeedbackId() + ".json");
-
-            try (FileWriter writer = new FileWriter(file)) {
-                gson.toJson(feedback, writer);
-            }
-
-            feedbackCache.put(feedback.getFeedbackId(), feedback);
-
-            logger.info("Saved feedback {} to {}", feedback.getFeedbackId(), file.getPath());
-
-        } catch (IOException e) {
-            logger.error("Failed to save feedback {}", feedback.getFeedbackId(), e);
-        }
+        store.put(feedback);
+        logger.info("Saved feedback {}", feedback.getFeedbackId());
     }
 
     public static Feedback loadFeedback(String feedbackId) {
-            if (feedbackCache.containsKey(feedbackId)) {
-            logger.info("Loaded feedback {} from cache", feedbackId);
-            return feedbackCache.get(feedbackId);
-        }
-
-        try {
-            File file = new File(FEEDBACKS_DIR, feedbackId + ".json");
-
-                if (!file.exists()) {
-                logger.error("Feedback file not found: {}", file.getPath());
-                return null;
-            }
-
-            Feedback feedback;
-            try (FileReader reader = new FileReader(file)) {
-                feedback = gson.fromJson(reader, Feedback.class);
-            }
-
-            feedbackCache.put(feedbackId, feedback);
-
-            logger.info("Loaded feedback {} from {}", feedbackId, file.getPath());
-
-            return feedback;
-
-        } catch (Exception e) {
-            logger.error("Failed to load feedback {}", feedbackId, e);
-            return null;
+        Feedback feedback = store.get(feedbackId);
+        if (feedback == null) {
+            logger.error("Feedback not found: {}", feedbackId);
         }
+        return feedback;
     }
 
     public static boolean feedbackExists(String feedbackId) {
-        File file = new File(FEEDBACKS_DIR, feedbackId + ".json");
-        return file.exists();
-    }
-
-    public static void clearCache() {
-        feedbackCache.clear();
-        logger.info("Cleared feedback cache");
+        return store.contains(feedbackId);
     }
 
     public static List<Feedback> getAllFeedbacks() {
-        List<Feedback> feedbacks = new ArrayList<>();
-
-        File dir = new File(FEEDBACKS_DIR);
-        if (!dir.exists()) {
-            return feedbacks;
-        }
-
-        File[] files = dir.listFiles((d, name) -> name.endsWith(".json"));
-        if (files == null) {
-            return feedbacks;
-        }
-
-        for (File file : files) {
-            String feedbackId = file.getName().replace(".json", "");
-            Feedback feedback = loadFeedback(feedbackId);
-            if (feedback != null) {
-                feedbacks.add(feedback);
-            }
-        }
+        return store.getAll();
+    }
 
-        return feedbacks;
+    public static List<Feedback> getFeedbacksBySender(UUID senderUUID) {
+        return store.getBySender(senderUUID);
     }
 
     public static void deleteFeedback(String feedbackId) {
-        try {
-            File file = new File(FEEDBACKS_DIR, feedbackId + ".json");
-
-            if (file.exists() && file.delete()) {
-                feedbackCache.remove(feedbackId);
-                logger.info("Deleted feedback {}", feedbackId);
-            } else {
-                logger.warn("Feedback file not found or could not be deleted: {}", file.getPath());
-            }
-
-        } catch (Exception e) {
-            logger.error("Failed to delete feedback {}", feedbackId, e);
+        if (store.delete(feedbackId)) {
+            logger.info("Deleted feedback {}", feedbackId);
+        } else {
+            logger.warn("Feedback not found: {}", feedbackId);
         }
     }
 
@@ -139,102 +56,40 @@ public class FeedbackManager {
         return input.replace("@", ":KM_SUPPORT_AT: ");
     }
 
-    public static boolean sendFeedback(Feedback feedback) {
-        try {
-            String webhookUrl = loadWebhookUrl();
-            if (webhookUrl == null) {
-                logger.error("Failed to load WEBHOOK_URL from .env file");
-                return false;
-            }
-
-            String feedbackId = feedback.getFeedbackId();
-            String username = feedback.getSender();
-            String description = sanitizeInput(feedback.getDescription());
-
-            String[] words = description.split("\\s+");
-            int wordCount = Math.min(10, words.length);
-            String truncatedDescription = String.join(" ", java.util.Arrays.copyOfRange(words, 0, wordCount));
-            if (words.length > 10) {
-                truncatedDescription += "...";
-            }
-            String threadTitle = "[%s] %s — %s".formatted(feedbackId, username, truncatedDescription);
-
-            if (threadTitle.length() > 100) {
-                threadTitle = threadTitle.substring(0, 97) + "...";
-            }
-
-            StringBuilder threadContents = new StringBuilder();
-            threadContents.append("**Feedback ID**: ").append(feedbackId).append("\n");
-            threadContents.append("**Sender**: ").append(username).append("\n");
-            threadContents.append("**Sender UUID**: ").append(feedback.getSenderUUID()).append("\n");
-            threadContents.append("**Description**: ").append(description).append("\n");
-
-            HttpClient client = HttpClient.newHttpClient();
-
-            JsonObject requestBody = new JsonObject();
-            requestBody.addProperty("thread_name", threadTitle);
-            requestBody.addProperty("content", threadContents.toString());
-
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(webhookUrl + "?wait=true"))
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(requestBody)))
-                    .build();
-
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-
-            if (response.statusCode() != 200) {
-                logger.error("Failed to send feedback to Discord. Status code: {}, Response: {}",
-                        response.statusCode(), response.body());
-                return false;
-            }
-
-            JsonObject responseJson = JsonParser.parseString(response.body()).getAsJsonObject();
-            String threadId = responseJson.get("channel_id").getAsString();
-
-            logger.info("Feedback {} sent to Discord. Thread ID: {}", feedbackId, threadId);
-
-            JsonObject followUpBody = new JsonObject();
-                followUpBody.addProperty("content",
-                    "If you are the author of this feedback and have images or would like to provide additional clarification, please share them here.");
-
-            HttpRequest followUpRequest = HttpRequest.newBuilder()
-                    .uri(URI.create(webhookUrl + "?thread_id=" + threadId))
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(followUpBody)))
-                    .build();
-
-            HttpResponse<String> followUpResponse = client.send(followUpRequest, HttpResponse.BodyHandlers.ofString());
-
-            if (followUpResponse.statusCode() != 204) {
-                logger.warn("Failed to send follow-up message to thread {}. Status code: {}",
-                        threadId, followUpResponse.statusCode());
-            }
-
-            return true;
-
-        } catch (Exception e) {
-            logger.error("Error sending feedback to Discord", e);
-            return false;
+    /**
+     * Queues the feedback for delivery to Discord and returns immediately.
+     */
+    public static CompletableFuture<Boolean> sendFeedback(Feedback feedback) {
+        String feedbackId = feedback.getFeedbackId();
+        String username = feedback.getSender();
+        String description = sanitizeInput(feedback.getDescription());
+
+        String[] words = description.split("\\s+");
+        int wordCount = Math.min(10, words.length);
+        String truncatedDescription = String.join(" ", java.util.Arrays.copyOfRange(words, 0, wordCount));
+        if (words.length > 10) {
+            truncatedDescription += "...";
         }
-    }
+        String threadTitle = "[%s] %s — %s".formatted(feedbackId, username, truncatedDescription);
 
-    private static String loadWebhookUrl() {
-        try {
-            String envContent = Files.readString(Paths.get(".env"));
-            for (String line : envContent.split("\n")) {
-                line = line.trim();
-                if (line.startsWith("FEEDBACK_WEBHOOK_URL=")) {
-                    String value = line.substring("FEEDBACK_WEBHOOK_URL=".length());
-                    if (value.startsWith("\"") && value.endsWith("\"")) {
-                        value = value.substring(1, value.length() - 1);
-                    }
-                    return value;
-                }
-            }
-        } catch (IOException e) {
-            logger.error("Failed to read .env file", e);
+        if (threadTitle.length() > 100) {
+            threadTitle = threadTitle.substring(0, 97) + "...";
         }
-        return null;
+
+        StringBuilder threadContents = new StringBuilder();
+        threadContents.append("**Feedback ID**: ").append(feedbackId).append("\n");
+        threadContents.append("**Sender**: ").append(username).append("\n");
+        threadContents.append("**Sender UUID**: ").append(feedback.getSenderUUID()).append("\n");
+        threadContents.append("**Description**: ").append(description).append("\n");
+
+        WebhookMessage message = new WebhookMessage(
+            "feedback-" + feedbackId,
+            WEBHOOK_KEY,
+            threadTitle,
+            threadContents.toString(),
+            "If you are the author of this feedback and have images or would like to provide additional clarification, please share them here."
+        );
+
+        return WebhookDispatcher.submit(message);
     }
 }
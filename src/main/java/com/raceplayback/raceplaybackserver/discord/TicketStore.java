@@ -0,0 +1,368 @@
+package com.raceplayback.raceplaybackserver.discord;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Function;
+
+/**
+ * Append-only store for tickets (bug reports, suggestions, feedback). Every change is a
+ * single JSON line in data/tickets/&lt;name&gt;.jsonl; on startup the journal is replayed into
+ * in-memory indexes by id, status and sender, and all reads are served from those.
+ * Writes update the indexes immediately and are appended to the journal by a background
+ * thread. The journal is rewritten with only the live tickets once superseded records
+ * outnumber them.
+ */
+public class TicketStore<T> {
+    private static final Logger logger = LoggerFactory.getLogger(TicketStore.class);
+    private static final String TICKETS_DIR = "data/tickets";
+    private static final Gson gson = new Gson();
+
+    private static final int COMPACT_MIN_RECORDS = 1_000;
+    private static final String STOP = "";
+    private static final String PUT = "put";
+    private static final String DELETE = "delete";
+
+    private final String name;
+    private final Class<T> type;
+    private final Type recordType;
+    private final TypeAdapter<Record<T>> recordAdapter;
+    private final Function<T, String> idOf;
+    private final Function<T, String> statusOf;
+    private final Function<T, UUID> senderOf;
+    private final File journal;
+
+    private final Map<String, T> byId = new ConcurrentHashMap<>();
+    private final Map<String, String> statusById = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> byStatus = new ConcurrentHashMap<>();
+    private final Map<UUID, Set<String>> bySender = new ConcurrentHashMap<>();
+
+    private final BlockingQueue<String> pendingWrites = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private long journalRecords;
+
+    /**
+     * @param legacyDir directory holding one pretty-printed JSON file per ticket, imported once
+     *                  if the journal does not exist yet
+     * @param statusOf  status key used for {@link #getByStatus(String)}, or null if the ticket has none
+     */
+    public TicketStore(String name, Class<T> type, String legacyDir,
+                       Function<T, String> idOf, Function<T, String> statusOf, Function<T, UUID> senderOf) {
+        this.name = name;
+        this.type = type;
+        this.recordType = TypeToken.getParameterized(Record.class, type).getType();
+        this.recordAdapter = recordAdapter(recordType);
+        this.idOf = idOf;
+        this.statusOf = statusOf;
+        this.senderOf = senderOf;
+        this.journal = new File(TICKETS_DIR, name + ".jsonl");
+
+        long start = System.nanoTime();
+        if (journal.exists()) {
+            replay();
+        } else {
+            migrate(new File(legacyDir));
+        }
+        logger.info("Loaded {} {} from {} in {} ms", byId.size(), name, journal.getPath(),
+            (System.nanoTime() - start) / 1_000_000);
+
+        if (journalRecords > COMPACT_MIN_RECORDS && journalRecords > 2L * byId.size()) {
+            compact();
+        }
+
+        writer = Thread.ofPlatform().name("ticket-store-" + name).daemon(true).start(this::writeLoop);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close));
+    }
+
+    public void put(T ticket) {
+        String id = idOf.apply(ticket);
+        String record = encode(new Record<>(PUT, null, ticket));
+
+        synchronized (this) {
+            index(id, ticket);
+            pendingWrites.add(record);
+        }
+    }
+
+    public boolean delete(String id) {
+        String record = encode(new Record<>(DELETE, id, null));
+
+        synchronized (this) {
+            if (unindex(id) == null) {
+                return false;
+            }
+            pendingWrites.add(record);
+        }
+        return true;
+    }
+
+    public T get(String id) {
+        return byId.get(id);
+    }
+
+    public boolean contains(String id) {
+        return byId.containsKey(id);
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    public List<T> getAll() {
+        return new ArrayList<>(byId.values());
+    }
+
+    public List<T> getByStatus(String status) {
+        return resolve(byStatus.get(status));
+    }
+
+    public List<T> getBySender(UUID sender) {
+        return resolve(bySender.get(sender));
+    }
+
+    /**
+     * Waits for queued writes to reach the journal and stops the writer thread.
+     */
+    public void close() {
+        if (!writer.isAlive()) {
+            return;
+        }
+        pendingWrites.add(STOP);
+        try {
+            writer.join(5_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<T> resolve(Collection<String> ids) {
+        List<T> tickets = new ArrayList<>();
+        if (ids == null) {
+            return tickets;
+        }
+        for (String id : ids) {
+            T ticket = byId.get(id);
+            if (ticket != null) {
+                tickets.add(ticket);
+            }
+        }
+        return tickets;
+    }
+
+    private void index(String id, T ticket) {
+        T previous = byId.put(id, ticket);
+        if (previous != null) {
+            removeSecondary(id, previous);
+        }
+
+        String status = statusOf != null ? statusOf.apply(ticket) : null;
+        if (status != null) {
+            statusById.put(id, status);
+            byStatus.computeIfAbsent(status, s -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+
+        UUID sender = senderOf.apply(ticket);
+        if (sender != null) {
+            bySender.computeIfAbsent(sender, s -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    private T unindex(String id) {
+        T previous = byId.remove(id);
+        if (previous != null) {
+            removeSecondary(id, previous);
+        }
+        return previous;
+    }
+
+    private void removeSecondary(String id, T previous) {
+        String status = statusById.remove(id);
+        if (status != null) {
+            Set<String> ids = byStatus.get(status);
+            if (ids != null) {
+                ids.remove(id);
+            }
+        }
+
+        UUID sender = senderOf.apply(previous);
+        if (sender != null) {
+            Set<String> ids = bySender.get(sender);
+            if (ids != null) {
+                ids.remove(id);
+            }
+        }
+    }
+
+    private void replay() {
+        try (BufferedReader reader = new BufferedReader(new FileReader(journal, StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                journalRecords++;
+
+                try {
+                    Record<T> record = recordAdapter.fromJson(line);
+                    if (PUT.equals(record.op)) {
+                        index(idOf.apply(record.data), record.data);
+                    } else if (DELETE.equals(record.op)) {
+                        unindex(record.id);
+                    }
+                } catch (RuntimeException e) {
+                    // A torn last line after a crash is expected; anything else is still skipped
+                    logger.warn("Skipping unreadable record {} in {}: {}", lineNumber, journal.getPath(), e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Failed to replay {}", journal.getPath(), e);
+        }
+    }
+
+    private void migrate(File legacyDir) {
+        File[] files = legacyDir.listFiles((d, fileName) -> fileName.endsWith(".json"));
+        if (files == null || files.length == 0) {
+            return;
+        }
+
+        for (File file : files) {
+            try (FileReader reader = new FileReader(file, StandardCharsets.UTF_8)) {
+                T ticket = gson.fromJson(reader, type);
+                if (ticket != null) {
+                    index(idOf.apply(ticket), ticket);
+                }
+            } catch (Exception e) {
+                logger.error("Failed to import {}", file.getPath(), e);
+            }
+        }
+
+        if (compact()) {
+            File migrated = new File(legacyDir.getPath() + ".migrated");
+            if (legacyDir.renameTo(migrated)) {
+                logger.info("Imported {} {} from {}, old files moved to {}", byId.size(), name, legacyDir.getPath(), migrated.getPath());
+            }
+        }
+    }
+
+    private void writeLoop() {
+        List<String> batch = new ArrayList<>();
+        boolean running = true;
+
+        while (running) {
+            try {
+                batch.add(pendingWrites.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            pendingWrites.drainTo(batch);
+
+            running = !batch.remove(STOP);
+            if (!batch.isEmpty()) {
+                append(batch);
+                batch.clear();
+            }
+
+            if (journalRecords > COMPACT_MIN_RECORDS && journalRecords > 2L * byId.size()) {
+                compact();
+            }
+        }
+    }
+
+    private void append(List<String> records) {
+        try {
+            journal.getParentFile().mkdirs();
+            try (FileOutputStream out = new FileOutputStream(journal, true);
+                 BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+                for (String record : records) {
+                    writer.write(record);
+                    writer.newLine();
+                }
+                writer.flush();
+                out.getFD().sync();
+            }
+            journalRecords += records.size();
+        } catch (IOException e) {
+            logger.error("Failed to append {} records to {}", records.size(), journal.getPath(), e);
+        }
+    }
+
+    /**
+     * Rewrites the journal with one put per live ticket. Only called before the writer thread
+     * starts or from it, so nothing is appended concurrently; puts still queued are appended
+     * again afterwards, which replays to the same state.
+     */
+    private boolean compact() {
+        File tmp = new File(TICKETS_DIR, name + ".jsonl.tmp");
+        try {
+            tmp.getParentFile().mkdirs();
+            int written = 0;
+            try (FileOutputStream out = new FileOutputStream(tmp);
+                 BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+                for (T ticket : byId.values()) {
+                    writer.write(encode(new Record<>(PUT, null, ticket)));
+                    writer.newLine();
+                    written++;
+                }
+                writer.flush();
+                out.getFD().sync();
+            }
+            Files.move(tmp.toPath(), journal.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            logger.info("Compacted {} from {} to {} records", journal.getPath(), journalRecords, written);
+            journalRecords = written;
+            return true;
+        } catch (IOException e) {
+            logger.error("Failed to compact {}", journal.getPath(), e);
+            return false;
+        }
+    }
+
+    private String encode(Record<T> record) {
+        return gson.toJson(record, recordType);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> TypeAdapter<Record<T>> recordAdapter(Type recordType) {
+        return (TypeAdapter<Record<T>>) gson.getAdapter(TypeToken.get(recordType));
+    }
+
+    /**
+     * One journal line. Parsed straight into the ticket type, without an intermediate JSON tree.
+     */
+    private static class Record<T> {
+        private String op;
+        private String id;
+        private T data;
+
+        Record(String op, String id, T data) {
+            this.op = op;
+            this.id = id;
+            this.data = data;
+        }
+    }
+}
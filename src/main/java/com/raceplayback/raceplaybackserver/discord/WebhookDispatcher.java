@@ -0,0 +1,350 @@
+package com.raceplayback.raceplaybackserver.discord;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.raceplayback.raceplaybackserver.util.EnvConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Delivers webhook messages off the caller's thread. Each webhook gets its own queue drained
+ * by a virtual thread, so Discord's per-webhook rate limits only ever delay that webhook.
+ * Messages are journaled to data/outbox before being queued and removed once delivered,
+ * so anything still undelivered is picked up again by {@link #start()} after a restart.
+ */
+public class WebhookDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(WebhookDispatcher.class);
+    private static final String OUTBOX_DIR = "data/outbox";
+    private static final String FAILED_DIR = "data/outbox/failed";
+    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+    private static final int MAX_ATTEMPTS = 8;
+    private static final long BASE_BACKOFF_MS = 1_000;
+    private static final long MAX_BACKOFF_MS = 300_000;
+    private static final long DEFAULT_RETRY_AFTER_MS = 1_000;
+
+    private static final HttpClient client = HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(10))
+        .build();
+
+    private static final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+    private static final Map<String, CompletableFuture<Boolean>> pending = new ConcurrentHashMap<>();
+
+    private enum Outcome { DELIVERED, RATE_LIMITED, RETRY, REJECTED, NOT_CONFIGURED }
+
+    /**
+     * Re-queues every message left in the outbox by a previous run.
+     */
+    public static void start() {
+        File dir = new File(OUTBOX_DIR);
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".json"));
+        if (files == null || files.length == 0) {
+            return;
+        }
+
+        List<WebhookMessage> messages = new ArrayList<>();
+        for (File file : files) {
+            try (FileReader reader = new FileReader(file)) {
+                messages.add(gson.fromJson(reader, WebhookMessage.class));
+            } catch (Exception e) {
+                logger.error("Failed to read outbox entry {}", file.getPath(), e);
+            }
+        }
+
+        messages.sort(Comparator.comparingLong(WebhookMessage::getCreatedAt));
+        for (WebhookMessage message : messages) {
+            lane(message.getWebhookKey()).queue.add(message);
+        }
+
+        logger.info("Re-queued {} undelivered webhook messages from {}", messages.size(), OUTBOX_DIR);
+    }
+
+    /**
+     * Journals the message and queues it for delivery.
+     *
+     * @return completes with true once delivered, or false if it was rejected or ran out of attempts
+     */
+    public static CompletableFuture<Boolean> submit(WebhookMessage message) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+
+        if (!writeToOutbox(message)) {
+            future.complete(false);
+            return future;
+        }
+
+        pending.put(message.getMessageId(), future);
+        lane(message.getWebhookKey()).queue.add(message);
+        return future;
+    }
+
+    public static int getQueuedCount() {
+        int queued = 0;
+        for (Lane lane : lanes.values()) {
+            queued += lane.queue.size();
+        }
+        return queued;
+    }
+
+    private static Lane lane(String webhookKey) {
+        return lanes.computeIfAbsent(webhookKey, Lane::new);
+    }
+
+    private static void complete(WebhookMessage message, boolean delivered) {
+        CompletableFuture<Boolean> future = pending.remove(message.getMessageId());
+        if (future != null) {
+            future.complete(delivered);
+        }
+    }
+
+    private static class Lane {
+        private final String webhookKey;
+        private final LinkedBlockingQueue<WebhookMessage> queue = new LinkedBlockingQueue<>();
+        private long pausedUntil;
+
+        Lane(String webhookKey) {
+            this.webhookKey = webhookKey;
+            Thread.ofVirtual().name("webhook-" + webhookKey).start(this::drain);
+        }
+
+        private void drain() {
+            while (true) {
+                try {
+                    deliver(queue.take());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception e) {
+                    logger.error("Unexpected error in webhook dispatcher for {}", webhookKey, e);
+                }
+            }
+        }
+
+        private void deliver(WebhookMessage message) throws InterruptedException {
+            while (true) {
+                long wait = pausedUntil - System.currentTimeMillis();
+                if (wait > 0) {
+                    Thread.sleep(wait);
+                }
+
+                switch (attempt(message)) {
+                    case DELIVERED -> {
+                        deleteFromOutbox(message);
+                        complete(message, true);
+                        return;
+                    }
+                    case RATE_LIMITED -> {
+                        // pausedUntil has been set from retry_after, try again without using up an attempt
+                    }
+                    case RETRY -> {
+                        message.incrementAttempts();
+                        if (message.getAttempts() >= MAX_ATTEMPTS) {
+                            logger.error("Giving up on webhook message {} after {} attempts, it stays in the outbox until the next restart",
+                                message.getMessageId(), message.getAttempts());
+                            complete(message, false);
+                            return;
+                        }
+                        writeToOutbox(message);
+                        Thread.sleep(backoff(message.getAttempts()));
+                    }
+                    case REJECTED -> {
+                        moveToFailed(message);
+                        complete(message, false);
+                        return;
+                    }
+                    case NOT_CONFIGURED -> {
+                        logger.error("{} is not set, webhook message {} stays in the outbox", webhookKey, message.getMessageId());
+                        complete(message, false);
+                        return;
+                    }
+                }
+            }
+        }
+
+        private Outcome attempt(WebhookMessage message) {
+            String webhookUrl = EnvConfig.get(webhookKey);
+            if (webhookUrl == null || webhookUrl.isBlank()) {
+                return Outcome.NOT_CONFIGURED;
+            }
+
+            try {
+                if (message.getThreadId() == null) {
+                    JsonObject body = new JsonObject();
+                    body.addProperty("thread_name", message.getThreadName());
+                    body.addProperty("content", message.getContent());
+
+                    HttpResponse<String> response = post(webhookUrl + "?wait=true", body);
+                    Outcome outcome = classify(response);
+                    if (outcome != Outcome.DELIVERED) {
+                        logFailure(message, response, outcome);
+                        return outcome;
+                    }
+
+                    JsonObject responseJson = JsonParser.parseString(response.body()).getAsJsonObject();
+                    message.setThreadId(responseJson.get("channel_id").getAsString());
+                    writeToOutbox(message);
+
+                    logger.info("Webhook message {} sent to Discord. Thread ID: {}", message.getMessageId(), message.getThreadId());
+                }
+
+                if (message.getFollowUpContent() != null) {
+                    JsonObject body = new JsonObject();
+                    body.addProperty("content", message.getFollowUpContent());
+
+                    HttpResponse<String> response = post(webhookUrl + "?thread_id=" + message.getThreadId(), body);
+                    Outcome outcome = classify(response);
+                    if (outcome == Outcome.RATE_LIMITED || outcome == Outcome.RETRY) {
+                        logFailure(message, response, outcome);
+                        return outcome;
+                    }
+                    if (outcome == Outcome.REJECTED) {
+                        logger.warn("Failed to send follow-up message to thread {}. Status code: {}",
+                            message.getThreadId(), response.statusCode());
+                    }
+                }
+
+                return Outcome.DELIVERED;
+            } catch (IOException e) {
+                logger.warn("Failed to reach Discord for webhook message {}: {}", message.getMessageId(), e.getMessage());
+                return Outcome.RETRY;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Outcome.RETRY;
+            }
+        }
+
+        private HttpResponse<String> post(String url, JsonObject body) throws IOException, InterruptedException {
+            HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(body)))
+                .build();
+
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            updateRateLimit(response);
+            return response;
+        }
+
+        private Outcome classify(HttpResponse<String> response) {
+            int status = response.statusCode();
+            if (status >= 200 && status < 300) {
+                return Outcome.DELIVERED;
+            }
+            if (status == 429) {
+                pausedUntil = System.currentTimeMillis() + retryAfterMillis(response);
+                return Outcome.RATE_LIMITED;
+            }
+            if (status >= 500 || status == 408) {
+                return Outcome.RETRY;
+            }
+            return Outcome.REJECTED;
+        }
+
+        /**
+         * Waits out the bucket before the next request instead of running into a 429.
+         */
+        private void updateRateLimit(HttpResponse<String> response) {
+            String remaining = response.headers().firstValue("X-RateLimit-Remaining").orElse(null);
+            String resetAfter = response.headers().firstValue("X-RateLimit-Reset-After").orElse(null);
+            if ("0".equals(remaining) && resetAfter != null) {
+                try {
+                    pausedUntil = Math.max(pausedUntil, System.currentTimeMillis() + (long) (Double.parseDouble(resetAfter) * 1000));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+
+        private void logFailure(WebhookMessage message, HttpResponse<String> response, Outcome outcome) {
+            logger.warn("Webhook message {} not delivered ({}). Status code: {}, Response: {}",
+                message.getMessageId(), outcome, response.statusCode(), response.body());
+        }
+    }
+
+    private static long retryAfterMillis(HttpResponse<String> response) {
+        try {
+            JsonElement retryAfter = JsonParser.parseString(response.body()).getAsJsonObject().get("retry_after");
+            if (retryAfter != null) {
+                return (long) Math.ceil(retryAfter.getAsDouble() * 1000);
+            }
+        } catch (Exception ignored) {
+        }
+
+        try {
+            return response.headers().firstValue("Retry-After")
+                .map(value -> (long) Math.ceil(Double.parseDouble(value) * 1000))
+                .orElse(DEFAULT_RETRY_AFTER_MS);
+        } catch (NumberFormatException e) {
+            return DEFAULT_RETRY_AFTER_MS;
+        }
+    }
+
+    private static long backoff(int attempts) {
+        long delay = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(attempts - 1, 20));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    private static boolean writeToOutbox(WebhookMessage message) {
+        try {
+            File dir = new File(OUTBOX_DIR);
+            if (!dir.exists()) {
+                dir.mkdirs();
+            }
+
+            File file = new File(OUTBOX_DIR, message.getMessageId() + ".json");
+            File temp = new File(OUTBOX_DIR, message.getMessageId() + ".json.tmp");
+            try (FileWriter writer = new FileWriter(temp)) {
+                gson.toJson(message, writer);
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            logger.error("Failed to journal webhook message {}", message.getMessageId(), e);
+            return false;
+        }
+    }
+
+    private static void deleteFromOutbox(WebhookMessage message) {
+        File file = new File(OUTBOX_DIR, message.getMessageId() + ".json");
+        if (file.exists() && !file.delete()) {
+            logger.warn("Could not delete delivered outbox entry {}", file.getPath());
+        }
+    }
+
+    private static void moveToFailed(WebhookMessage message) {
+        try {
+            File dir = new File(FAILED_DIR);
+            if (!dir.exists()) {
+                dir.mkdirs();
+            }
+            Files.move(new File(OUTBOX_DIR, message.getMessageId() + ".json").toPath(),
+                new File(FAILED_DIR, message.getMessageId() + ".json").toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+            logger.error("Discord rejected webhook message {}, moved to {}", message.getMessageId(), FAILED_DIR);
+        } catch (IOException e) {
+            logger.error("Failed to move rejected webhook message {} out of the outbox", message.getMessageId(), e);
+        }
+    }
+}
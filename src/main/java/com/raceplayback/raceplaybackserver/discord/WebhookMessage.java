@@ -0,0 +1,68 @@
+package com.raceplayback.raceplaybackserver.discord;
+
+/**
+ * A forum thread to be created through a Discord webhook, plus an optional follow-up
+ * message posted into it. Stored in the outbox until both parts are delivered.
+ */
+public class WebhookMessage {
+    private String messageId;
+    private String webhookKey;
+    private String threadName;
+    private String content;
+    private String followUpContent;
+    private String threadId;
+    private int attempts;
+    private long createdAt;
+
+    public WebhookMessage(String messageId, String webhookKey, String threadName, String content, String followUpContent) {
+        this.messageId = messageId;
+        this.webhookKey = webhookKey;
+        this.threadName = threadName;
+        this.content = content;
+        this.followUpContent = followUpContent;
+        this.createdAt = System.currentTimeMillis();
+    }
+
+    public String getMessageId() {
+        return messageId;
+    }
+
+    /**
+     * @return the name of the .env entry holding the webhook URL, so URLs never end up in the outbox
+     */
+    public String getWebhookKey() {
+        return webhookKey;
+    }
+
+    public String getThreadName() {
+        return threadName;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public String getFollowUpContent() {
+        return followUpContent;
+    }
+
+    public String getThreadId() {
+        return threadId;
+    }
+
+    public void setThreadId(String threadId) {
+        this.threadId = threadId;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void incrementAttempts() {
+        this.attempts++;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -15,9 +15,15 @@ public abstract class CarPart {
     protected Vec baseOffset;
     protected float rotationOffset = 0;
     protected Vec currentScale;
+    private int interpolationTicks = 0;
+    // Where the part's data sits in CarTransformSystem, -1 until its car is spawned
+    int transformIndex = -1;
 
     private static final float SCALE = 1.0f;
 
+    // The batched rotation metadata and the teleport
+    public static final int PACKETS_PER_UPDATE = 2;
+
     public CarPart(String modelName, Vec offset) {
         this.offset = offset;
         this.baseOffset = offset;
@@ -32,6 +38,9 @@ public abstract class CarPart {
         meta.setHasNoGravity(true);
 
         meta.setScale(currentScale);
+        // Only takes effect once an interpolation duration is set; from then on every
+        // transformation sent is interpolated from the current one
+        meta.setTransformationInterpolationStartDelta(0);
     }
     
     public void spawn(Instance instance, Pos carPosition, float yaw) {
@@ -41,20 +50,49 @@ public abstract class CarPart {
         entity.setInstance(instance, partPosition);
     }
 
-    public void update(Pos carPosition, float yaw) {
-        Pos partPosition = calculatePosition(carPosition, yaw);
-
+    /**
+     * Sends the part to the position and rotations {@link CarTransformSystem} worked out for it,
+     * as one metadata packet and a teleport. The start delta goes out with the rotations, so
+     * clients restart the interpolation from what they are showing.
+     */
+    void sendTransform(Pos position, float[] leftRotation, float[] rightRotation) {
         ItemDisplayMeta meta = (ItemDisplayMeta) entity.getEntityMeta();
-        meta.setRightRotation(createYawRotation(yaw + rotationOffset));
-
-        entity.teleport(partPosition.withYaw(0));
+        meta.setNotifyAboutChanges(false);
+        meta.setLeftRotation(leftRotation);
+        meta.setRightRotation(rightRotation);
+        meta.setTransformationInterpolationStartDelta(0);
+        prepareTransform(meta);
+        meta.setNotifyAboutChanges(true);
+
+        entity.teleport(position);
+    }
 
-        entity.sendPacketToViewers(entity.getMetadataPacket());
+    /**
+     * Adds anything else the part needs to the metadata sent with its transform.
+     */
+    protected void prepareTransform(ItemDisplayMeta meta) {
     }
 
-    protected void updateRotation(float yaw) {
+    /**
+     * Sets how many ticks clients take to move and turn the part to each new pose sent, 0 to snap.
+     * Must be set before the update it applies to.
+     *
+     * @return how many metadata packets the change sent, 0 if it was already set
+     */
+    public int setInterpolationTicks(int ticks) {
+        if (ticks == interpolationTicks) {
+            return 0;
+        }
+        interpolationTicks = ticks;
+
         ItemDisplayMeta meta = (ItemDisplayMeta) entity.getEntityMeta();
-        meta.setRightRotation(createYawRotation(yaw + rotationOffset));
+        meta.setPosRotInterpolationDuration(ticks);
+        meta.setTransformationInterpolationDuration(ticks);
+        return 2;
+    }
+
+    protected int getInterpolationTicks() {
+        return interpolationTicks;
     }
 
     private float[] createYawRotation(float yaw) {
@@ -95,6 +133,10 @@ public abstract class CarPart {
         return entity;
     }
 
+    public int getViewerCount() {
+        return entity.getViewers().size();
+    }
+
     public float[] getLeftRotation() {
         ItemDisplayMeta meta = (ItemDisplayMeta) entity.getEntityMeta();
         return meta.getLeftRotation();
@@ -120,5 +162,9 @@ public abstract class CarPart {
         );
         ItemDisplayMeta meta = (ItemDisplayMeta) entity.getEntityMeta();
         meta.setScale(scale);
+
+        if (transformIndex >= 0) {
+            CarTransformSystem.setOffset(transformIndex, offset);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,364 @@
+package com.raceplayback.raceplaybackserver.entity.car;
+
+import com.raceplayback.raceplaybackserver.entity.car.parts.FrontWheel;
+import com.raceplayback.raceplaybackserver.entity.car.parts.SteeringWheel;
+import com.raceplayback.raceplaybackserver.entity.car.parts.Wheel;
+import com.raceplayback.raceplaybackserver.jfr.CarFlushEvent;
+import com.raceplayback.raceplaybackserver.metrics.Histogram;
+import com.raceplayback.raceplaybackserver.metrics.MetricsRegistry;
+import com.raceplayback.raceplaybackserver.util.EnvConfig;
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.coordinate.Vec;
+import net.minestom.server.timer.ExecutionType;
+import net.minestom.server.timer.Task;
+import net.minestom.server.timer.TaskSchedule;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Works out where every part of every car goes, in one pass over flat arrays. During the tick a
+ * car only records its pose; at the end of the tick the pose of every car is gathered, each
+ * part's world position and rotations are computed from its offset and a handful of per-part
+ * coefficients, and each car then sends its parts from the results.
+ * <p>
+ * Every kind of part is described by the same two rotations, so the loop has no per-part
+ * branches or virtual calls:
+ *
+ * <pre>
+ * left  = Y(leftYawGain * yaw + leftYawBias + wheelAngleGain * wheelAngle) * Z(steeringGain * steering)
+ * right = Y(rightYawGain * yaw + rightYawBias) * X(spinGain * spin)
+ * </pre>
+ *
+ * The gains are -1, 0 or 1, so sines and cosines are only taken once per car; each part combines
+ * them with its own biases through the angle sum identities.
+ * <p>
+ * Once a grid has more than CAR_TRANSFORM_PARALLEL_PARTS parts, it is split by car across the
+ * common fork/join pool.
+ */
+public final class CarTransformSystem {
+    private static final Histogram transformTime = MetricsRegistry.timer("raceplayback_car_transform_seconds", "Time spent working out the part transforms of every car");
+    private static final Histogram flushTime = MetricsRegistry.timer("raceplayback_car_flush_seconds", "Time spent working out and sending the parts of every car at the end of a tick");
+
+    public static final int PARTS_PER_CAR = 17;
+    private static final int PARALLEL_MIN_PARTS = EnvConfig.getInt("CAR_TRANSFORM_PARALLEL_PARTS", 4096);
+    private static final int CARS_PER_TASK = 16;
+
+    private static F1Car[] cars = new F1Car[0];
+
+    // Per car
+    private static double[] carX = new double[0];
+    private static double[] carY = new double[0];
+    private static double[] carZ = new double[0];
+    private static float[] carYaw = new float[0];
+    private static float[] carSteering = new float[0];
+    private static float[] carWheelAngle = new float[0];
+    private static float[] carSpin = new float[0];
+
+    // Per part, PARTS_PER_CAR in a row for each car
+    private static float[] offsetX = new float[0];
+    private static float[] offsetY = new float[0];
+    private static float[] offsetZ = new float[0];
+    private static float[] leftYawGain = new float[0];
+    private static float[] wheelAngleGain = new float[0];
+    private static float[] steeringGain = new float[0];
+    private static float[] rightYawGain = new float[0];
+    private static float[] spinGain = new float[0];
+    // Sine and cosine of half of each bias
+    private static float[] leftBiasSin = new float[0];
+    private static float[] leftBiasCos = new float[0];
+    private static float[] rightBiasSin = new float[0];
+    private static float[] rightBiasCos = new float[0];
+
+    // Results per part, the rotations as x, y, z, w
+    private static double[] worldX = new double[0];
+    private static double[] worldY = new double[0];
+    private static double[] worldZ = new double[0];
+    private static float[] leftRotation = new float[0];
+    private static float[] rightRotation = new float[0];
+
+    private static long tick;
+    private static Task task;
+
+    private CarTransformSystem() {}
+
+    /**
+     * Takes on a car's parts, which must already be spawned at the given yaw, and starts
+     * flushing at the end of every tick if it is the first car.
+     *
+     * @return the car's slot
+     */
+    static synchronized int register(F1Car car, List<CarPart> parts, float spawnYaw) {
+        if (parts.size() != PARTS_PER_CAR) {
+            throw new IllegalArgumentException("Expected " + PARTS_PER_CAR + " car parts, got " + parts.size());
+        }
+
+        int slot = 0;
+        while (slot < cars.length && cars[slot] != null) {
+            slot++;
+        }
+        if (slot == cars.length) {
+            grow(Math.max(8, cars.length * 2));
+        }
+        cars[slot] = car;
+
+        for (int i = 0; i < PARTS_PER_CAR; i++) {
+            CarPart part = parts.get(i);
+            int index = slot * PARTS_PER_CAR + i;
+            part.transformIndex = index;
+            setOffset(index, part.offset);
+
+            float rotationOffset = part.rotationOffset;
+            float leftYawBias = 0;
+            float rightYawBias = 0;
+            leftYawGain[index] = 0;
+            wheelAngleGain[index] = 0;
+            steeringGain[index] = 0;
+            rightYawGain[index] = 0;
+            spinGain[index] = 0;
+
+            if (part instanceof Wheel) {
+                leftYawGain[index] = 1;
+                leftYawBias = rotationOffset;
+                wheelAngleGain[index] = part instanceof FrontWheel ? 1 : 0;
+                spinGain[index] = 1;
+            } else if (part instanceof SteeringWheel) {
+                leftYawGain[index] = -1;
+                leftYawBias = -rotationOffset;
+                steeringGain[index] = 1;
+                // Keeps the right rotation it was spawned with
+                rightYawBias = spawnYaw + rotationOffset;
+            } else {
+                rightYawGain[index] = 1;
+                rightYawBias = rotationOffset;
+            }
+
+            leftBiasSin[index] = (float) Math.sin(Math.toRadians(leftYawBias) / 2.0);
+            leftBiasCos[index] = (float) Math.cos(Math.toRadians(leftYawBias) / 2.0);
+            rightBiasSin[index] = (float) Math.sin(Math.toRadians(rightYawBias) / 2.0);
+            rightBiasCos[index] = (float) Math.cos(Math.toRadians(rightYawBias) / 2.0);
+        }
+
+        if (task == null) {
+            task = MinecraftServer.getSchedulerManager().buildTask(CarTransformSystem::tick)
+                .executionType(ExecutionType.TICK_END)
+                .repeat(TaskSchedule.nextTick())
+                .schedule();
+        }
+        return slot;
+    }
+
+    static synchronized void unregister(int slot) {
+        cars[slot] = null;
+
+        if (task != null && Arrays.stream(cars).allMatch(car -> car == null)) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    static synchronized void setOffset(int index, Vec offset) {
+        offsetX[index] = (float) offset.x();
+        offsetY[index] = (float) offset.y();
+        offsetZ[index] = (float) offset.z();
+    }
+
+    /**
+     * Works out and sends every car that changed since the last flush. Runs at the end of every
+     * tick; call it directly to send cars straight away. Each flush is timed and reported as a
+     * {@link CarFlushEvent} with the parts and packets it sent.
+     */
+    public static synchronized void flush() {
+        CarFlushEvent flushEvent = new CarFlushEvent();
+        flushEvent.begin();
+        long flushStart = System.nanoTime();
+
+        int activeCars = 0;
+        for (int c = 0; c < cars.length; c++) {
+            F1Car car = cars[c];
+            if (car == null || car.getPosition() == null) {
+                continue;
+            }
+            Pos position = car.getPosition();
+            carX[c] = position.x();
+            carY[c] = position.y();
+            carZ[c] = position.z();
+            carYaw[c] = car.getYaw();
+            carSteering[c] = car.getSteeringAngle();
+            carWheelAngle[c] = car.getWheelAngle();
+            carSpin[c] = car.planSpin(tick);
+            activeCars++;
+        }
+        if (activeCars == 0) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        if ((long) activeCars * PARTS_PER_CAR >= PARALLEL_MIN_PARTS) {
+            ForkJoinPool.commonPool().invoke(new TransformTask(0, cars.length));
+        } else {
+            compute(0, cars.length);
+        }
+        transformTime.recordSince(start);
+
+        int partsUpdated = 0;
+        long packets = 0;
+        for (F1Car car : cars) {
+            if (car != null && car.getPosition() != null) {
+                car.sendUpdates();
+                // Includes any interpolation changes the car sent earlier in the tick
+                partsUpdated += car.getPartsUpdated();
+                packets += car.getPacketsSent();
+                car.resetUpdateStats();
+            }
+        }
+        flushTime.recordSince(flushStart);
+
+        flushEvent.end();
+        if (flushEvent.shouldCommit()) {
+            flushEvent.cars = activeCars;
+            flushEvent.partsUpdated = partsUpdated;
+            flushEvent.packets = packets;
+            flushEvent.commit();
+        }
+    }
+
+    static Pos getPosition(int index) {
+        return new Pos(worldX[index], worldY[index], worldZ[index]);
+    }
+
+    static float[] getLeftRotation(int index) {
+        return Arrays.copyOfRange(leftRotation, index * 4, index * 4 + 4);
+    }
+
+    static float[] getRightRotation(int index) {
+        return Arrays.copyOfRange(rightRotation, index * 4, index * 4 + 4);
+    }
+
+    private static synchronized void tick() {
+        tick++;
+        flush();
+    }
+
+    private static void compute(int fromCar, int toCar) {
+        for (int c = fromCar; c < toCar; c++) {
+            if (cars[c] == null) {
+                continue;
+            }
+
+            double x = carX[c];
+            double y = carY[c];
+            double z = carZ[c];
+            double rad = Math.toRadians(-carYaw[c]);
+            float cos = (float) Math.cos(rad);
+            float sin = (float) Math.sin(rad);
+
+            // Half angles, as quaternions use them
+            float yawSin = (float) Math.sin(Math.toRadians(carYaw[c]) / 2.0);
+            float yawCos = (float) Math.cos(Math.toRadians(carYaw[c]) / 2.0);
+            float wheelSin = (float) Math.sin(Math.toRadians(carWheelAngle[c]) / 2.0);
+            float wheelCos = (float) Math.cos(Math.toRadians(carWheelAngle[c]) / 2.0);
+            float steeringSin = (float) Math.sin(Math.toRadians(carSteering[c]) / 2.0);
+            float steeringCos = (float) Math.cos(Math.toRadians(carSteering[c]) / 2.0);
+            float spinSin = (float) Math.sin(Math.toRadians(carSpin[c]) / 2.0);
+            float spinCos = (float) Math.cos(Math.toRadians(carSpin[c]) / 2.0);
+
+            int end = (c + 1) * PARTS_PER_CAR;
+            for (int p = c * PARTS_PER_CAR; p < end; p++) {
+                worldX[p] = x + offsetX[p] * cos - offsetZ[p] * sin;
+                worldY[p] = y + offsetY[p];
+                worldZ[p] = z + offsetX[p] * sin + offsetZ[p] * cos;
+
+                // sin(g * a) = g * sin(a) and cos(g * a) = cos(a), or 1 when g is 0
+                float gain = leftYawGain[p];
+                float s1 = gain * yawSin;
+                float c1 = 1 + Math.abs(gain) * (yawCos - 1);
+                float s2 = s1 * leftBiasCos[p] + c1 * leftBiasSin[p];
+                float c2 = c1 * leftBiasCos[p] - s1 * leftBiasSin[p];
+                gain = wheelAngleGain[p];
+                float ws = gain * wheelSin;
+                float wc = 1 + Math.abs(gain) * (wheelCos - 1);
+                float sy = s2 * wc + c2 * ws;
+                float cy = c2 * wc - s2 * ws;
+                gain = steeringGain[p];
+                float sz = gain * steeringSin;
+                float cz = 1 + Math.abs(gain) * (steeringCos - 1);
+
+                int q = p * 4;
+                leftRotation[q] = sy * sz;
+                leftRotation[q + 1] = sy * cz;
+                leftRotation[q + 2] = cy * sz;
+                leftRotation[q + 3] = cy * cz;
+
+                gain = rightYawGain[p];
+                s1 = gain * yawSin;
+                c1 = 1 + Math.abs(gain) * (yawCos - 1);
+                sy = s1 * rightBiasCos[p] + c1 * rightBiasSin[p];
+                cy = c1 * rightBiasCos[p] - s1 * rightBiasSin[p];
+                gain = spinGain[p];
+                float sx = gain * spinSin;
+                float cx = 1 + Math.abs(gain) * (spinCos - 1);
+
+                rightRotation[q] = cy * sx;
+                rightRotation[q + 1] = sy * cx;
+                rightRotation[q + 2] = -sy * sx;
+                rightRotation[q + 3] = cy * cx;
+            }
+        }
+    }
+
+    private static void grow(int capacity) {
+        int parts = capacity * PARTS_PER_CAR;
+
+        cars = Arrays.copyOf(cars, capacity);
+        carX = Arrays.copyOf(carX, capacity);
+        carY = Arrays.copyOf(carY, capacity);
+        carZ = Arrays.copyOf(carZ, capacity);
+        carYaw = Arrays.copyOf(carYaw, capacity);
+        carSteering = Arrays.copyOf(carSteering, capacity);
+        carWheelAngle = Arrays.copyOf(carWheelAngle, capacity);
+        carSpin = Arrays.copyOf(carSpin, capacity);
+
+        offsetX = Arrays.copyOf(offsetX, parts);
+        offsetY = Arrays.copyOf(offsetY, parts);
+        offsetZ = Arrays.copyOf(offsetZ, parts);
+        leftYawGain = Arrays.copyOf(leftYawGain, parts);
+        wheelAngleGain = Arrays.copyOf(wheelAngleGain, parts);
+        steeringGain = Arrays.copyOf(steeringGain, parts);
+        rightYawGain = Arrays.copyOf(rightYawGain, parts);
+        spinGain = Arrays.copyOf(spinGain, parts);
+        leftBiasSin = Arrays.copyOf(leftBiasSin, parts);
+        leftBiasCos = Arrays.copyOf(leftBiasCos, parts);
+        rightBiasSin = Arrays.copyOf(rightBiasSin, parts);
+        rightBiasCos = Arrays.copyOf(rightBiasCos, parts);
+
+        worldX = Arrays.copyOf(worldX, parts);
+        worldY = Arrays.copyOf(worldY, parts);
+        worldZ = Arrays.copyOf(worldZ, parts);
+        leftRotation = Arrays.copyOf(leftRotation, parts * 4);
+        rightRotation = Arrays.copyOf(rightRotation, parts * 4);
+    }
+
+    private static final class TransformTask extends RecursiveAction {
+        private final int fromCar;
+        private final int toCar;
+
+        TransformTask(int fromCar, int toCar) {
+            this.fromCar = fromCar;
+            this.toCar = toCar;
+        }
+
+        @Override
+        protected void compute() {
+            if (toCar - fromCar <= CARS_PER_TASK) {
+                CarTransformSystem.compute(fromCar, toCar);
+                return;
+            }
+            int middle = (fromCar + toCar) >>> 1;
+            invokeAll(new TransformTask(fromCar, middle), new TransformTask(middle, toCar));
+        }
+    }
+}
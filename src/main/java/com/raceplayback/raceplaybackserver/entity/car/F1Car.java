@@ -2,6 +2,9 @@ package com.raceplayback.raceplaybackserver.entity.car;
 
 import com.raceplayback.raceplaybackserver.data.Compound;
 import com.raceplayback.raceplaybackserver.entity.car.parts.*;
+import com.raceplayback.raceplaybackserver.metrics.Counter;
+import com.raceplayback.raceplaybackserver.metrics.Histogram;
+import com.raceplayback.raceplaybackserver.metrics.MetricsRegistry;
 import net.minestom.server.coordinate.Pos;
 import net.minestom.server.coordinate.Vec;
 import net.minestom.server.instance.Instance;
@@ -10,6 +13,10 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class F1Car {
+    private static final Histogram updateTime = MetricsRegistry.timer("raceplayback_car_update_seconds", "Time spent sending every part of a car");
+    private static final Counter packetsSent = MetricsRegistry.counter("raceplayback_car_packets_total", "Packets sent to viewers by car part updates");
+    private static final Counter spinKeyframes = MetricsRegistry.counter("raceplayback_wheel_spin_keyframes_total", "Wheel roll keyframes sent on their own, one packet per wheel per viewer");
+
     private final CockpitLeft cockpitLeft;
     private final CockpitMiddle cockpitMiddle;
     private final CockpitRight cockpitRight;
@@ -32,14 +39,31 @@ public class F1Car {
     private final RearWing rearWing;
 
     private final List<CarPart> allParts;
+    private final int[] wheelIndices;
+
+    // Null when wheel spin is turned off
+    private final WheelSpin wheelSpin;
+    private double wheelSpeed;
+    private boolean spinStarted;
 
     private Pos position;
     private float yaw;
+    private float steeringAngle;
+    private float wheelAngle;
+    private int interpolationTicks;
     private String driverCode;
+
+    // Slot in CarTransformSystem once spawned, and whether the pose changed since it last sent the car
+    private int slot = -1;
+    private boolean dirty;
+
+    private int partsUpdated;
+    private long packetsSentSinceReset;
     
     public F1Car(String driverCode, Compound compound) {
         this.driverCode = driverCode;
         this.allParts = new ArrayList<>();
+        this.wheelSpin = WheelSpin.fromConfig();
 
         cockpitLeft = new CockpitLeft();
         cockpitMiddle = new CockpitMiddle();
@@ -79,6 +103,10 @@ public class F1Car {
         allParts.add(wheelRR);
         allParts.add(steeringWheel);
         allParts.add(rearWing);
+
+        wheelIndices = new int[] {
+            allParts.indexOf(wheelFL), allParts.indexOf(wheelFR), allParts.indexOf(wheelRL), allParts.indexOf(wheelRR)
+        };
     }
     
     public void spawn(Instance instance, Pos position) {
@@ -88,22 +116,125 @@ public class F1Car {
         for (CarPart part : allParts) {
             part.spawn(instance, position, yaw);
         }
+        slot = CarTransformSystem.register(this, allParts, yaw);
 
         instance.scheduleNextTick(inst -> {
             this.setScale(new Vec(1.28f, 1.01f, 1.24f));
         });
     }
 
+    /**
+     * Moves the car to the given pose. Parts are sent by {@link CarTransformSystem} at the end
+     * of the tick, so steering set in the same tick goes out with it.
+     */
     public void update(Pos newPosition) {
         this.position = newPosition;
         this.yaw = newPosition.yaw();
+        dirty = true;
+    }
+    
+    /**
+     * Moves every part towards the given pose in one go, for clients to interpolate to over the
+     * given number of ticks.
+     */
+    public void moveTo(Pos target, float steeringAngle, float wheelAngle, int interpolationTicks) {
+        this.position = target;
+        this.yaw = target.yaw();
+        this.steeringAngle = steeringAngle;
+        this.wheelAngle = wheelAngle;
+        this.interpolationTicks = interpolationTicks;
+        dirty = true;
 
         for (CarPart part : allParts) {
-            part.update(position, yaw);
+            // One packet per interpolation duration that changed
+            long packets = (long) part.setInterpolationTicks(interpolationTicks) * part.getViewerCount();
+            packetsSentSinceReset += packets;
+            packetsSent.add(packets);
         }
     }
-    
+
+    /**
+     * Sets the speed the wheels roll at. Wheels are only sent when the roll viewers are
+     * animating has run out or no longer matches the speed.
+     */
+    public void setWheelSpeed(double speedKmh) {
+        this.wheelSpeed = speedKmh;
+    }
+
+    /**
+     * Works out the roll for this tick's send: one over the car's own interpolation if the car
+     * changed, otherwise a new roll keyframe if one is due.
+     *
+     * @return the angle the wheels are rolling to
+     */
+    float planSpin(long tick) {
+        if (wheelSpin == null) {
+            return 0f;
+        }
+        if (dirty) {
+            wheelSpin.follow(tick, interpolationTicks, wheelSpeed);
+        } else if (wheelSpin.isDue(tick, wheelSpeed)) {
+            wheelSpin.start(tick, wheelSpeed);
+            spinStarted = true;
+        }
+        return wheelSpin.getTargetAngle();
+    }
+
+    /**
+     * Sends the parts from the transforms {@link CarTransformSystem} has just worked out: all of
+     * them if the car changed, otherwise just the wheels if they started a new roll.
+     */
+    void sendUpdates() {
+        int base = slot * CarTransformSystem.PARTS_PER_CAR;
+
+        if (dirty) {
+            dirty = false;
+            long updateStart = System.nanoTime();
+            for (int i = 0; i < allParts.size(); i++) {
+                CarPart part = allParts.get(i);
+                part.sendTransform(CarTransformSystem.getPosition(base + i),
+                    CarTransformSystem.getLeftRotation(base + i), CarTransformSystem.getRightRotation(base + i));
+
+                long packets = (long) CarPart.PACKETS_PER_UPDATE * part.getViewerCount();
+                partsUpdated++;
+                packetsSentSinceReset += packets;
+                packetsSent.add(packets);
+            }
+            updateTime.recordSince(updateStart);
+        } else if (spinStarted) {
+            for (int index : wheelIndices) {
+                Wheel wheel = (Wheel) allParts.get(index);
+                wheel.sendSpin(CarTransformSystem.getRightRotation(base + index), wheelSpin.getDurationTicks());
+
+                long packets = wheel.getViewerCount();
+                packetsSentSinceReset += packets;
+                packetsSent.add(packets);
+            }
+            spinKeyframes.increment();
+        }
+        spinStarted = false;
+    }
+
+    /**
+     * Clears the counts reported by {@link #getPartsUpdated()} and {@link #getPacketsSent()}.
+     */
+    public void resetUpdateStats() {
+        partsUpdated = 0;
+        packetsSentSinceReset = 0;
+    }
+
+    public int getPartsUpdated() {
+        return partsUpdated;
+    }
+
+    public long getPacketsSent() {
+        return packetsSentSinceReset;
+    }
+
     public void setDRS(boolean open) {
+        if (open == rearWing.isDRSOpen()) {
+            return;
+        }
         rearWing.setDRS(open);
     }
 
@@ -111,15 +242,10 @@ public class F1Car {
         return rearWing.isDRSOpen();
     }
     
-    public void setSteeringAngle(float angle) {
-         steeringWheel.setSteeringAngle(angle);
-         steeringWheel.update(position, yaw);
-
-         float wheelAngle = angle / 36.0f;
-         wheelFL.setWheelSteeringAngle(wheelAngle);
-         wheelFL.update(position, yaw);
-         wheelFR.setWheelSteeringAngle(wheelAngle);
-         wheelFR.update(position, yaw);
+    public void setSteering(float steeringAngle, float wheelAngle) {
+        this.steeringAngle = steeringAngle;
+        this.wheelAngle = wheelAngle;
+        dirty = true;
     }
     
     public void setVisible(boolean visible) {
@@ -129,6 +255,10 @@ public class F1Car {
     }
     
     public void remove() {
+        if (slot >= 0) {
+            CarTransformSystem.unregister(slot);
+            slot = -1;
+        }
         for (CarPart part : allParts) {
             part.remove();
         }
@@ -144,19 +274,29 @@ public class F1Car {
 
     public void setScale(Vec scale) {
         for (CarPart part : allParts) {
-            if (part instanceof FrontWheel || part instanceof RearWheel || part instanceof SteeringWheel) {
+            if (part instanceof Wheel || part instanceof SteeringWheel) {
                 continue;
             }
             part.setCustomScale(scale);
-            part.update(position, yaw);
         }
+        dirty = true;
     }
 
     public void rotate(float yaw) {
         this.yaw = yaw;
-        for (CarPart part : allParts) {
-            part.update(position, yaw);
-        }
+        dirty = true;
+    }
+
+    float getYaw() {
+        return yaw;
+    }
+
+    float getSteeringAngle() {
+        return steeringAngle;
+    }
+
+    float getWheelAngle() {
+        return wheelAngle;
     }
 
     public CarPart getCockpitMiddle() {
@@ -0,0 +1,113 @@
+package com.raceplayback.raceplaybackserver.entity.car;
+
+import com.raceplayback.raceplaybackserver.util.EnvConfig;
+
+/**
+ * Plans how a car's wheels roll as keyframes: each one turns the wheels from where viewers are
+ * showing them to an angle a few ticks ahead, and clients interpolate the turn themselves. A new
+ * keyframe is only needed when the last one has run out or the speed has moved away from it.
+ * <p>
+ * Real wheels at racing speed turn well over a full revolution per frame, which no client can
+ * show, so the roll grows with speed up to a rate that still reads as turning.
+ */
+final class WheelSpin {
+    // Interpolation takes the short way round, so each keyframe has to stay well under half a turn
+    private static final double MAX_KEYFRAME_DEGREES = 150.0;
+    private static final int MAX_KEYFRAME_TICKS = 20;
+    private static final double FULL_SPIN_SPEED_KMH = 350.0;
+    // How far the rate may move from a keyframe's before it is replaced early, as a fraction and in degrees per tick
+    private static final double RATE_TOLERANCE = 0.2;
+    private static final double MIN_RATE_CHANGE = 0.5;
+
+    private final double maxDegreesPerTick;
+
+    private double fromAngle;
+    private double toAngle;
+    private long startTick;
+    private int durationTicks;
+    private double degreesPerTick;
+
+    WheelSpin(double maxDegreesPerTick) {
+        this.maxDegreesPerTick = maxDegreesPerTick;
+    }
+
+    /**
+     * @return the configured spin, or null if WHEEL_SPIN_ENABLED is off and the wheels stay still
+     */
+    static WheelSpin fromConfig() {
+        if (!EnvConfig.getBoolean("WHEEL_SPIN_ENABLED", true)) {
+            return null;
+        }
+        return new WheelSpin(EnvConfig.getDouble("WHEEL_SPIN_MAX_DEGREES_PER_TICK", 20.0));
+    }
+
+    /**
+     * @return whether the wheels need a new keyframe for the given speed on this tick
+     */
+    boolean isDue(long tick, double speedKmh) {
+        double rate = rateFor(speedKmh);
+        if (rate == 0 && degreesPerTick == 0) {
+            return false;
+        }
+        if (tick >= startTick + durationTicks) {
+            return true;
+        }
+        double change = Math.abs(rate - degreesPerTick);
+        return change > MIN_RATE_CHANGE && change > RATE_TOLERANCE * Math.max(rate, degreesPerTick);
+    }
+
+    /**
+     * Starts a keyframe from the angle viewers are showing on the given tick.
+     */
+    void start(long tick, double speedKmh) {
+        double shown = shownAt(tick) % 360.0;
+        degreesPerTick = rateFor(speedKmh);
+        durationTicks = degreesPerTick > 0
+            ? (int) Math.max(1, Math.min(MAX_KEYFRAME_TICKS, Math.floor(MAX_KEYFRAME_DEGREES / degreesPerTick)))
+            : 0;
+
+        fromAngle = shown;
+        toAngle = shown + degreesPerTick * durationTicks;
+        startTick = tick;
+    }
+
+    /**
+     * Rolls the wheels along with a full send of the car, which clients interpolate over the
+     * car's own ticks: the keyframe ends on the roll at the end of those ticks. A send that snaps
+     * still moves the wheels on by one tick's roll.
+     */
+    void follow(long tick, int ticks, double speedKmh) {
+        double shown = shownAt(tick) % 360.0;
+        degreesPerTick = rateFor(speedKmh);
+        durationTicks = ticks;
+
+        fromAngle = shown;
+        toAngle = shown + Math.min(MAX_KEYFRAME_DEGREES, degreesPerTick * Math.max(1, ticks));
+        startTick = tick;
+    }
+
+    /**
+     * @return the angle the current keyframe ends on
+     */
+    float getTargetAngle() {
+        return (float) toAngle;
+    }
+
+    /**
+     * @return how many ticks the current keyframe takes
+     */
+    int getDurationTicks() {
+        return durationTicks;
+    }
+
+    private double shownAt(long tick) {
+        if (durationTicks == 0 || tick >= startTick + durationTicks) {
+            return toAngle;
+        }
+        return fromAngle + (toAngle - fromAngle) * (tick - startTick) / durationTicks;
+    }
+
+    private double rateFor(double speedKmh) {
+        return maxDegreesPerTick * Math.max(0.0, Math.min(1.0, speedKmh / FULL_SPIN_SPEED_KMH));
+    }
+}
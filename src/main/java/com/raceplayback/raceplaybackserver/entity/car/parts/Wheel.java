@@ -0,0 +1,51 @@
+package com.raceplayback.raceplaybackserver.entity.car.parts;
+
+import com.raceplayback.raceplaybackserver.entity.car.CarPart;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.coordinate.Vec;
+import net.minestom.server.entity.metadata.display.ItemDisplayMeta;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.item.ItemStack;
+
+/**
+ * A wheel, turned with the car and steering in the left rotation and rolled about its axle in the
+ * right rotation. Full sends turn and roll it over the car's own interpolation like every other
+ * part; between them the roll is sent on its own, timed by the roll keyframe, and clients turn
+ * the wheel themselves until the next one.
+ */
+public abstract class Wheel extends CarPart {
+    private final Vec wheelScale;
+
+    protected Wheel(Vec offset, Vec wheelScale, ItemStack model) {
+        super("temp", offset);
+        this.wheelScale = wheelScale;
+
+        ItemDisplayMeta meta = (ItemDisplayMeta) entity.getEntityMeta();
+        meta.setItemStack(model);
+    }
+
+    /**
+     * Sends just the roll, as a single metadata packet, for clients to reach over the given ticks.
+     */
+    public void sendSpin(float[] rightRotation, int ticks) {
+        ItemDisplayMeta meta = (ItemDisplayMeta) entity.getEntityMeta();
+        meta.setNotifyAboutChanges(false);
+        meta.setRightRotation(rightRotation);
+        meta.setTransformationInterpolationDuration(ticks);
+        meta.setTransformationInterpolationStartDelta(0);
+        meta.setNotifyAboutChanges(true);
+    }
+
+    @Override
+    protected void prepareTransform(ItemDisplayMeta meta) {
+        // A roll sent on its own may have left its own duration behind
+        meta.setTransformationInterpolationDuration(getInterpolationTicks());
+    }
+
+    @Override
+    public void spawn(Instance instance, Pos carPosition, float yaw) {
+        super.spawn(instance, carPosition, yaw);
+
+        instance.scheduleNextTick(inst -> setCustomScale(wheelScale));
+    }
+}
@@ -0,0 +1,250 @@
+package com.raceplayback.raceplaybackserver.entity.debug;
+
+import com.raceplayback.raceplaybackserver.metrics.Gauge;
+import com.raceplayback.raceplaybackserver.metrics.MetricsRegistry;
+import com.raceplayback.raceplaybackserver.util.EnvConfig;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.coordinate.Vec;
+import net.minestom.server.entity.Entity;
+import net.minestom.server.entity.EntityType;
+import net.minestom.server.entity.Metadata;
+import net.minestom.server.entity.Player;
+import net.minestom.server.entity.metadata.display.BlockDisplayMeta;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.instance.block.Block;
+import net.minestom.server.network.packet.server.play.DestroyEntitiesPacket;
+import net.minestom.server.network.packet.server.play.EntityMetaDataPacket;
+import net.minestom.server.network.packet.server.play.SpawnEntityPacket;
+import net.minestom.server.timer.Task;
+import net.minestom.server.timer.TaskSchedule;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Debug markers drawn as block displays that only exist on the clients. The server sends each
+ * viewer the spawn and metadata packets of the markers in chunks near it and destroys them again
+ * as it moves away, so markers are never entities the server has to track or tick. Markers of
+ * the same look share one set of metadata, entity ids come from a pool shared by every
+ * visualizer, and clearing sends each viewer a single destroy packet.
+ */
+public final class DebugVisualizer {
+    private static final Gauge markersShown = MetricsRegistry.gauge("raceplayback_debug_markers", "Debug markers currently drawn, across all visualizers");
+
+    private static final int VIEW_CHUNKS = EnvConfig.getInt("DEBUG_MARKER_VIEW_CHUNKS", 8);
+    private static final int REFRESH_TICKS = 10;
+    // Marks the UUIDs of markers, which only need to differ from each other and from real entities
+    private static final long UUID_PREFIX = 0x5250_4442_4700_0000L;
+
+    private static final ArrayDeque<Integer> freeIds = new ArrayDeque<>();
+    private static final Map<String, Map<Integer, Metadata.Entry<?>>> looks = new HashMap<>();
+
+    private final Instance instance;
+
+    private final List<Pos> positions = new ArrayList<>();
+    private final List<Integer> ids = new ArrayList<>();
+    private final List<Map<Integer, Metadata.Entry<?>>> metadata = new ArrayList<>();
+    private final Map<Long, List<Integer>> markersByChunk = new HashMap<>();
+
+    private final Map<UUID, Viewer> viewers = new HashMap<>();
+    private Task refreshTask;
+
+    public DebugVisualizer(Instance instance) {
+        this.instance = instance;
+    }
+
+    public synchronized void addMarker(Pos position, Block block, double scale) {
+        int marker = positions.size();
+        int id = allocateId();
+        Map<Integer, Metadata.Entry<?>> look = look(block, scale);
+        positions.add(position);
+        ids.add(id);
+        metadata.add(look);
+
+        long chunk = chunkIndex(position);
+        markersByChunk.computeIfAbsent(chunk, key -> new ArrayList<>()).add(marker);
+        markersShown.increment();
+
+        for (Player player : instance.getPlayers()) {
+            Viewer viewer = viewers.get(player.getUuid());
+            if (viewer != null && viewer.sees(chunk)) {
+                spawn(player, marker);
+            }
+        }
+
+        if (refreshTask == null) {
+            refreshTask = instance.scheduler().buildTask(this::refresh)
+                .repeat(TaskSchedule.tick(REFRESH_TICKS))
+                .schedule();
+        }
+    }
+
+    /**
+     * Draws a marker at every point of the line.
+     */
+    public synchronized void addPolyline(List<Pos> points, Block block, double scale) {
+        for (Pos point : points) {
+            addMarker(point, block, scale);
+        }
+        // Players who have not been seen yet get the whole line now rather than on the next refresh
+        refresh();
+    }
+
+    /**
+     * Removes every marker from every viewer straight away and returns their ids to the pool.
+     */
+    public synchronized void clear() {
+        if (refreshTask != null) {
+            refreshTask.cancel();
+            refreshTask = null;
+        }
+
+        for (Player player : instance.getPlayers()) {
+            Viewer viewer = viewers.get(player.getUuid());
+            if (viewer == null) {
+                continue;
+            }
+            List<Integer> shown = idsIn(viewer.visibleChunks(markersByChunk.keySet()));
+            if (!shown.isEmpty()) {
+                player.sendPacket(new DestroyEntitiesPacket(shown));
+            }
+        }
+        viewers.clear();
+
+        markersShown.set(markersShown.get() - positions.size());
+        synchronized (freeIds) {
+            freeIds.addAll(ids);
+        }
+        positions.clear();
+        ids.clear();
+        metadata.clear();
+        markersByChunk.clear();
+    }
+
+    public synchronized int size() {
+        return positions.size();
+    }
+
+    /**
+     * Shows each player the markers that came into range since the last refresh and removes the
+     * ones that went out of it. Players that stay in the same chunk cost nothing.
+     */
+    private synchronized void refresh() {
+        Set<UUID> present = new HashSet<>();
+        for (Player player : instance.getPlayers()) {
+            present.add(player.getUuid());
+            Viewer now = new Viewer(chunkCoordinate(player.getPosition().x()), chunkCoordinate(player.getPosition().z()));
+
+            Viewer viewer = viewers.get(player.getUuid());
+            if (now.equals(viewer)) {
+                continue;
+            }
+
+            List<Integer> gone = new ArrayList<>();
+            for (long chunk : markersByChunk.keySet()) {
+                boolean before = viewer != null && viewer.sees(chunk);
+                boolean after = now.sees(chunk);
+                if (before && !after) {
+                    for (int marker : markersByChunk.get(chunk)) {
+                        gone.add(ids.get(marker));
+                    }
+                } else if (after && !before) {
+                    for (int marker : markersByChunk.get(chunk)) {
+                        spawn(player, marker);
+                    }
+                }
+            }
+            if (!gone.isEmpty()) {
+                player.sendPacket(new DestroyEntitiesPacket(gone));
+            }
+
+            viewers.put(player.getUuid(), now);
+        }
+
+        // Players that left the instance took its client-side entities with them
+        Iterator<UUID> known = viewers.keySet().iterator();
+        while (known.hasNext()) {
+            if (!present.contains(known.next())) {
+                known.remove();
+            }
+        }
+    }
+
+    private void spawn(Player player, int marker) {
+        int id = ids.get(marker);
+        player.sendPacket(new SpawnEntityPacket(id, new UUID(UUID_PREFIX, id), EntityType.BLOCK_DISPLAY,
+            positions.get(marker), 0f, 0, Vec.ZERO));
+        player.sendPacket(new EntityMetaDataPacket(id, metadata.get(marker)));
+    }
+
+    private List<Integer> idsIn(Iterable<Long> chunks) {
+        List<Integer> result = new ArrayList<>();
+        for (long chunk : chunks) {
+            List<Integer> markers = markersByChunk.get(chunk);
+            if (markers != null) {
+                for (int marker : markers) {
+                    result.add(ids.get(marker));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static long chunkIndex(Pos position) {
+        return ((long) chunkCoordinate(position.x()) << 32) | (chunkCoordinate(position.z()) & 0xFFFFFFFFL);
+    }
+
+    private static int chunkCoordinate(double blockCoordinate) {
+        return (int) Math.floor(blockCoordinate) >> 4;
+    }
+
+    private static int allocateId() {
+        synchronized (freeIds) {
+            Integer id = freeIds.poll();
+            return id != null ? id : Entity.generateId();
+        }
+    }
+
+    /**
+     * The metadata of a block display with the given look, built once from an entity that is
+     * never spawned and shared by every marker that looks the same.
+     */
+    private static Map<Integer, Metadata.Entry<?>> look(Block block, double scale) {
+        synchronized (looks) {
+            return looks.computeIfAbsent(block.stateId() + "@" + scale, key -> {
+                Entity template = new Entity(EntityType.BLOCK_DISPLAY);
+                BlockDisplayMeta meta = (BlockDisplayMeta) template.getEntityMeta();
+                meta.setBlockState(block);
+                meta.setScale(new Vec(scale, scale, scale));
+                meta.setHasNoGravity(true);
+                return Map.copyOf(template.getMetadataPacket().entries());
+            });
+        }
+    }
+
+    /**
+     * The chunk a player was last refreshed in; it sees the markers within the view distance.
+     */
+    private record Viewer(int chunkX, int chunkZ) {
+        boolean sees(long chunk) {
+            return Math.abs((int) (chunk >> 32) - chunkX) <= VIEW_CHUNKS && Math.abs((int) chunk - chunkZ) <= VIEW_CHUNKS;
+        }
+
+        List<Long> visibleChunks(Set<Long> chunks) {
+            List<Long> result = new ArrayList<>();
+            for (long chunk : chunks) {
+                if (sees(chunk)) {
+                    result.add(chunk);
+                }
+            }
+            return result;
+        }
+    }
+}
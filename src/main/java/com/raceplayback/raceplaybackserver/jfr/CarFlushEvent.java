@@ -0,0 +1,24 @@
+package com.raceplayback.raceplaybackserver.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("raceplayback.CarFlush")
+@Label("Car Flush")
+@Description("The end of a tick: working out the part transforms of every car and sending them to viewers")
+@Category({"RacePlayback", "Replay"})
+@StackTrace(false)
+public class CarFlushEvent extends Event {
+    @Label("Cars")
+    public int cars;
+
+    @Label("Parts Updated")
+    public int partsUpdated;
+
+    @Label("Packets")
+    public long packets;
+}
@@ -0,0 +1,30 @@
+package com.raceplayback.raceplaybackserver.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("raceplayback.LapFetch")
+@Label("Lap Fetch")
+@Description("HTTP request to the race data API, from send until the response headers arrive; the body is streamed into the parser afterwards")
+@Category({"RacePlayback", "Network"})
+@StackTrace(false)
+public class LapFetchEvent extends Event {
+    @Label("URI")
+    public String uri;
+
+    @Label("Model Type")
+    public String modelType;
+
+    @Label("Status")
+    public int status;
+
+    @Label("Wire Bytes")
+    @Description("Body size as received, before decompression")
+    @DataAmount
+    public long bytes;
+}
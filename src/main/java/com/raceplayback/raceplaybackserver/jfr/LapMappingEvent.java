@@ -0,0 +1,27 @@
+package com.raceplayback.raceplaybackserver.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("raceplayback.LapMapping")
+@Label("Lap Mapping")
+@Description("Mapping a lap of telemetry coordinates onto world positions")
+@Category({"RacePlayback", "Mapping"})
+@StackTrace(false)
+public class LapMappingEvent extends Event {
+    @Label("Mapper")
+    public String mapper;
+
+    @Label("Points")
+    public int points;
+
+    @Label("Cache Hits")
+    public int cacheHits;
+
+    @Label("Cache Misses")
+    public int cacheMisses;
+}
@@ -0,0 +1,83 @@
+package com.raceplayback.raceplaybackserver.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Starts and stops flight recordings using the bundled raceplayback.jfc profile.
+ */
+public class ReplayRecorder {
+    private static final Logger logger = LoggerFactory.getLogger(ReplayRecorder.class);
+    private static final String PROFILE_RESOURCE = "/jfr/raceplayback.jfc";
+    private static final String RECORDINGS_DIR = "data/recordings";
+    private static final DateTimeFormatter FILE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private static Recording recording;
+
+    public static synchronized boolean isRecording() {
+        return recording != null;
+    }
+
+    public static synchronized void start() throws IOException, ParseException {
+        if (recording != null) {
+            throw new IllegalStateException("A recording is already running");
+        }
+
+        Recording newRecording = new Recording(loadProfile());
+        newRecording.setName("RacePlayback");
+        newRecording.setToDisk(true);
+        newRecording.start();
+        recording = newRecording;
+
+        logger.info("Started flight recording with the RacePlayback profile");
+    }
+
+    /**
+     * Stops the running recording and writes it to data/recordings.
+     *
+     * @return the path of the written .jfr file
+     */
+    public static synchronized Path stop() throws IOException {
+        if (recording == null) {
+            throw new IllegalStateException("No recording is running");
+        }
+
+        Files.createDirectories(Paths.get(RECORDINGS_DIR));
+        Path output = Paths.get(RECORDINGS_DIR, "raceplayback-" + LocalDateTime.now().format(FILE_FORMAT) + ".jfr");
+
+        try {
+            recording.stop();
+            recording.dump(output);
+        } finally {
+            recording.close();
+            recording = null;
+        }
+
+        logger.info("Wrote flight recording to {}", output);
+        return output;
+    }
+
+    public static Configuration loadProfile() throws IOException, ParseException {
+        InputStream stream = ReplayRecorder.class.getResourceAsStream(PROFILE_RESOURCE);
+        if (stream == null) {
+            throw new IOException("Missing bundled JFR profile " + PROFILE_RESOURCE);
+        }
+        try (Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+            return Configuration.create(reader);
+        }
+    }
+}
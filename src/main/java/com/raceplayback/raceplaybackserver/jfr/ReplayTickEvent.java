@@ -0,0 +1,24 @@
+package com.raceplayback.raceplaybackserver.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("raceplayback.ReplayTick")
+@Label("Replay Tick")
+@Description("One replay update: advancing the timeline and setting the car's pose, which raceplayback.CarFlush sends at the end of the tick")
+@Category({"RacePlayback", "Replay"})
+@StackTrace(false)
+public class ReplayTickEvent extends Event {
+    @Label("Driver")
+    public String driver;
+
+    @Label("Lap")
+    public int lap;
+
+    @Label("Cars")
+    public int cars;
+}
@@ -0,0 +1,21 @@
+package com.raceplayback.raceplaybackserver.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("raceplayback.TelemetryParse")
+@Label("Telemetry Parse")
+@Description("Parsing an API response body into data models")
+@Category({"RacePlayback", "Network"})
+@StackTrace(false)
+public class TelemetryParseEvent extends Event {
+    @Label("Model Type")
+    public String modelType;
+
+    @Label("Points")
+    public int points;
+}
@@ -0,0 +1,24 @@
+package com.raceplayback.raceplaybackserver.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("raceplayback.TrackLoad")
+@Label("Track Load")
+@Description("Reading scanned track edges from disk and building the centerline")
+@Category({"RacePlayback", "Mapping"})
+@StackTrace(false)
+public class TrackLoadEvent extends Event {
+    @Label("Track")
+    public String track;
+
+    @Label("Edge Points")
+    public int edgePoints;
+
+    @Label("Success")
+    public boolean success;
+}
@@ -0,0 +1,46 @@
+package com.raceplayback.raceplaybackserver.loadtest;
+
+/**
+ * Packet ids used by {@link SpectatorClient}, for Minecraft 1.21.10 (protocol 773).
+ * These have to be updated together with the Minestom version in the pom; every other
+ * packet the server sends is counted and skipped without being decoded.
+ */
+final class ProtocolIds {
+    static final int PROTOCOL_VERSION = 773;
+    static final int INTENT_LOGIN = 2;
+
+    static final int HANDSHAKE = 0x00;
+
+    static final int LOGIN_CLIENTBOUND_DISCONNECT = 0x00;
+    static final int LOGIN_CLIENTBOUND_ENCRYPTION_REQUEST = 0x01;
+    static final int LOGIN_CLIENTBOUND_SUCCESS = 0x02;
+    static final int LOGIN_CLIENTBOUND_SET_COMPRESSION = 0x03;
+    static final int LOGIN_CLIENTBOUND_PLUGIN_REQUEST = 0x04;
+
+    static final int LOGIN_SERVERBOUND_START = 0x00;
+    static final int LOGIN_SERVERBOUND_PLUGIN_RESPONSE = 0x02;
+    static final int LOGIN_SERVERBOUND_ACKNOWLEDGED = 0x03;
+
+    static final int CONFIG_CLIENTBOUND_DISCONNECT = 0x02;
+    static final int CONFIG_CLIENTBOUND_FINISH = 0x03;
+    static final int CONFIG_CLIENTBOUND_KEEP_ALIVE = 0x04;
+    static final int CONFIG_CLIENTBOUND_PING = 0x05;
+    static final int CONFIG_CLIENTBOUND_KNOWN_PACKS = 0x0E;
+
+    static final int CONFIG_SERVERBOUND_CLIENT_INFORMATION = 0x00;
+    static final int CONFIG_SERVERBOUND_ACK_FINISH = 0x03;
+    static final int CONFIG_SERVERBOUND_KEEP_ALIVE = 0x04;
+    static final int CONFIG_SERVERBOUND_PONG = 0x05;
+    static final int CONFIG_SERVERBOUND_KNOWN_PACKS = 0x07;
+
+    static final int PLAY_CLIENTBOUND_CHUNK_BATCH_FINISHED = 0x0B;
+    static final int PLAY_CLIENTBOUND_KEEP_ALIVE = 0x2B;
+    static final int PLAY_CLIENTBOUND_SYNCHRONIZE_POSITION = 0x46;
+
+    static final int PLAY_SERVERBOUND_CONFIRM_TELEPORT = 0x00;
+    static final int PLAY_SERVERBOUND_CHAT_COMMAND = 0x06;
+    static final int PLAY_SERVERBOUND_CHUNK_BATCH_RECEIVED = 0x0A;
+    static final int PLAY_SERVERBOUND_KEEP_ALIVE = 0x1B;
+
+    private ProtocolIds() {}
+}
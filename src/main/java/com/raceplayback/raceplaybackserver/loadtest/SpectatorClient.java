@@ -0,0 +1,364 @@
+package com.raceplayback.raceplaybackserver.loadtest;
+
+import com.raceplayback.raceplaybackserver.metrics.Histogram;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Minimal offline-mode client that logs in, answers the handful of packets the server
+ * waits for, and otherwise just counts what it receives. Play packets are only inflated
+ * far enough to read their id, so hundreds of clients fit in one JVM.
+ */
+public class SpectatorClient implements Runnable {
+    private static final int PEEK_BYTES = 16;
+    private static final long KEEP_ALIVE_WINDOW_MS = 300_000L;
+
+    private enum State { LOGIN, CONFIGURATION, PLAY, CLOSED }
+
+    private final String host;
+    private final int port;
+    private final String name;
+    private final UUID uuid;
+    private final Histogram deliveryGap;
+
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicLong packetsReceived = new AtomicLong();
+
+    private volatile State state = State.LOGIN;
+    private volatile String disconnectReason;
+
+    private Socket socket;
+    private OutputStream out;
+    private int compressionThreshold = -1;
+    private final Inflater inflater = new Inflater();
+    private byte[] frame = new byte[8192];
+    private byte[] payload = new byte[8192];
+    private long lastFrameNanos;
+
+    public SpectatorClient(String host, int port, String name, Histogram deliveryGap) {
+        this.host = host;
+        this.port = port;
+        this.name = name;
+        this.uuid = UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes(StandardCharsets.UTF_8));
+        this.deliveryGap = deliveryGap;
+    }
+
+    @Override
+    public void run() {
+        try {
+            socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(host, port), 5000);
+            out = socket.getOutputStream();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 65536));
+
+            sendHandshake();
+            sendLoginStart();
+
+            while (state != State.CLOSED) {
+                readFrame(in);
+            }
+        } catch (EOFException e) {
+            if (disconnectReason == null) {
+                disconnectReason = "Connection closed by server";
+            }
+        } catch (IOException | DataFormatException e) {
+            if (state != State.CLOSED && disconnectReason == null) {
+                disconnectReason = e.getClass().getSimpleName() + ": " + e.getMessage();
+            }
+        } finally {
+            state = State.CLOSED;
+            inflater.end();
+            closeQuietly();
+        }
+    }
+
+    public void sendCommand(String command) throws IOException {
+        if (state != State.PLAY) {
+            throw new IllegalStateException(name + " is not in play state");
+        }
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        writeString(data, command.startsWith("/") ? command.substring(1) : command);
+        sendPacket(ProtocolIds.PLAY_SERVERBOUND_CHAT_COMMAND, data.toByteArray());
+    }
+
+    public void close() {
+        state = State.CLOSED;
+        closeQuietly();
+    }
+
+    private void readFrame(DataInputStream in) throws IOException, DataFormatException {
+        int length = readVarInt(in);
+        if (frame.length < length) {
+            frame = new byte[Math.max(length, frame.length * 2)];
+        }
+        in.readFully(frame, 0, length);
+
+        long now = System.nanoTime();
+        if (state == State.PLAY && lastFrameNanos != 0) {
+            deliveryGap.record(now - lastFrameNanos);
+        }
+        lastFrameNanos = now;
+        bytesReceived.addAndGet(length + varIntSize(length));
+        packetsReceived.incrementAndGet();
+
+        ByteBuffer packet;
+        if (compressionThreshold >= 0) {
+            ByteBuffer framed = ByteBuffer.wrap(frame, 0, length);
+            int dataLength = readVarInt(framed);
+            if (dataLength == 0) {
+                packet = framed.slice();
+            } else {
+                int wanted = state == State.PLAY ? Math.min(dataLength, PEEK_BYTES) : dataLength;
+                if (payload.length < wanted) {
+                    payload = new byte[Math.max(wanted, payload.length * 2)];
+                }
+                inflater.reset();
+                inflater.setInput(frame, framed.position(), framed.remaining());
+                int inflated = 0;
+                while (inflated < wanted && !inflater.finished()) {
+                    int count = inflater.inflate(payload, inflated, wanted - inflated);
+                    if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    inflated += count;
+                }
+                packet = ByteBuffer.wrap(payload, 0, inflated);
+            }
+        } else {
+            packet = ByteBuffer.wrap(frame, 0, length);
+        }
+
+        int id = readVarInt(packet);
+        switch (state) {
+            case LOGIN -> handleLogin(id, packet);
+            case CONFIGURATION -> handleConfiguration(id, packet);
+            case PLAY -> handlePlay(id, packet);
+            default -> {}
+        }
+    }
+
+    private void handleLogin(int id, ByteBuffer packet) throws IOException {
+        switch (id) {
+            case ProtocolIds.LOGIN_CLIENTBOUND_DISCONNECT -> {
+                disconnectReason = readString(packet);
+                state = State.CLOSED;
+            }
+            case ProtocolIds.LOGIN_CLIENTBOUND_ENCRYPTION_REQUEST -> {
+                disconnectReason = "Server is in online mode, start it with ONLINE_MODE=false";
+                state = State.CLOSED;
+            }
+            case ProtocolIds.LOGIN_CLIENTBOUND_SET_COMPRESSION -> compressionThreshold = readVarInt(packet);
+            case ProtocolIds.LOGIN_CLIENTBOUND_PLUGIN_REQUEST -> {
+                ByteArrayOutputStream data = new ByteArrayOutputStream();
+                writeVarInt(data, readVarInt(packet));
+                data.write(0);
+                sendPacket(ProtocolIds.LOGIN_SERVERBOUND_PLUGIN_RESPONSE, data.toByteArray());
+            }
+            case ProtocolIds.LOGIN_CLIENTBOUND_SUCCESS -> {
+                sendPacket(ProtocolIds.LOGIN_SERVERBOUND_ACKNOWLEDGED, new byte[0]);
+                state = State.CONFIGURATION;
+                sendClientInformation();
+            }
+            default -> {}
+        }
+    }
+
+    private void handleConfiguration(int id, ByteBuffer packet) throws IOException {
+        switch (id) {
+            case ProtocolIds.CONFIG_CLIENTBOUND_DISCONNECT -> {
+                disconnectReason = "Disconnected during configuration";
+                state = State.CLOSED;
+            }
+            case ProtocolIds.CONFIG_CLIENTBOUND_KEEP_ALIVE -> sendPacket(ProtocolIds.CONFIG_SERVERBOUND_KEEP_ALIVE, remaining(packet));
+            case ProtocolIds.CONFIG_CLIENTBOUND_PING -> sendPacket(ProtocolIds.CONFIG_SERVERBOUND_PONG, remaining(packet));
+            // Claiming the same packs as the server lets it skip sending their registry contents
+            case ProtocolIds.CONFIG_CLIENTBOUND_KNOWN_PACKS -> sendPacket(ProtocolIds.CONFIG_SERVERBOUND_KNOWN_PACKS, remaining(packet));
+            case ProtocolIds.CONFIG_CLIENTBOUND_FINISH -> {
+                sendPacket(ProtocolIds.CONFIG_SERVERBOUND_ACK_FINISH, new byte[0]);
+                state = State.PLAY;
+            }
+            default -> {}
+        }
+    }
+
+    private void handlePlay(int id, ByteBuffer packet) throws IOException {
+        if (id == ProtocolIds.PLAY_CLIENTBOUND_KEEP_ALIVE || looksLikeKeepAlive(packet)) {
+            sendPacket(ProtocolIds.PLAY_SERVERBOUND_KEEP_ALIVE, remaining(packet));
+        } else if (id == ProtocolIds.PLAY_CLIENTBOUND_SYNCHRONIZE_POSITION && packet.hasRemaining()) {
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            writeVarInt(data, readVarInt(packet));
+            sendPacket(ProtocolIds.PLAY_SERVERBOUND_CONFIRM_TELEPORT, data.toByteArray());
+        } else if (id == ProtocolIds.PLAY_CLIENTBOUND_CHUNK_BATCH_FINISHED) {
+            sendPacket(ProtocolIds.PLAY_SERVERBOUND_CHUNK_BATCH_RECEIVED, ByteBuffer.allocate(4).putFloat(25.0f).array());
+        }
+    }
+
+    /**
+     * Minestom uses the current time as the keep-alive id, so an 8-byte packet holding a
+     * timestamp close to now is answered even if the keep-alive packet id has moved.
+     */
+    private boolean looksLikeKeepAlive(ByteBuffer packet) {
+        if (packet.remaining() != 8) {
+            return false;
+        }
+        long value = packet.getLong(packet.position());
+        return Math.abs(System.currentTimeMillis() - value) < KEEP_ALIVE_WINDOW_MS;
+    }
+
+    private void sendHandshake() throws IOException {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        writeVarInt(data, ProtocolIds.PROTOCOL_VERSION);
+        writeString(data, host);
+        data.write((port >> 8) & 0xFF);
+        data.write(port & 0xFF);
+        writeVarInt(data, ProtocolIds.INTENT_LOGIN);
+        sendPacket(ProtocolIds.HANDSHAKE, data.toByteArray());
+    }
+
+    private void sendLoginStart() throws IOException {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        writeString(data, name);
+        data.write(ByteBuffer.allocate(16)
+            .putLong(uuid.getMostSignificantBits())
+            .putLong(uuid.getLeastSignificantBits())
+            .array());
+        sendPacket(ProtocolIds.LOGIN_SERVERBOUND_START, data.toByteArray());
+    }
+
+    private void sendClientInformation() throws IOException {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        writeString(data, "en_us");
+        data.write(2);             // view distance, spectators only need the chunks around the car
+        writeVarInt(data, 0);      // chat mode: enabled
+        data.write(1);             // chat colors
+        data.write(0x7F);          // displayed skin parts
+        writeVarInt(data, 1);      // main hand: right
+        data.write(0);             // text filtering
+        data.write(1);             // allow server listings
+        writeVarInt(data, 2);      // particles: minimal
+        sendPacket(ProtocolIds.CONFIG_SERVERBOUND_CLIENT_INFORMATION, data.toByteArray());
+    }
+
+    private synchronized void sendPacket(int id, byte[] data) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(data.length + 5);
+        if (compressionThreshold >= 0) {
+            // Our packets are always below the threshold, so they are sent uncompressed
+            writeVarInt(body, 0);
+        }
+        writeVarInt(body, id);
+        body.write(data);
+
+        ByteArrayOutputStream packet = new ByteArrayOutputStream(body.size() + 5);
+        writeVarInt(packet, body.size());
+        body.writeTo(packet);
+        out.write(packet.toByteArray());
+        out.flush();
+    }
+
+    private void closeQuietly() {
+        try {
+            if (socket != null) {
+                socket.close();
+            }
+        } catch (IOException ignored) {
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isInPlay() {
+        return state == State.PLAY;
+    }
+
+    public boolean isClosed() {
+        return state == State.CLOSED;
+    }
+
+    public String getDisconnectReason() {
+        return disconnectReason;
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    public long getPacketsReceived() {
+        return packetsReceived.get();
+    }
+
+    private static byte[] remaining(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("VarInt too big");
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35 && buffer.hasRemaining(); shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        return value;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = Math.min(readVarInt(buffer), buffer.remaining());
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            size++;
+            value >>>= 7;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,253 @@
+package com.raceplayback.raceplaybackserver.loadtest;
+
+import com.raceplayback.raceplaybackserver.metrics.Histogram;
+import com.raceplayback.raceplaybackserver.metrics.MetricsRegistry;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Ramps up fake spectators against a local server running with ONLINE_MODE=false and
+ * METRICS_PORT set, and reports at which spectator count a replay starts to degrade.
+ *
+ * <pre>
+ * java -cp RacePlaybackServer.jar com.raceplayback.raceplaybackserver.loadtest.SpectatorLoadTest \
+ *     --clients 400 --step 50 --step-seconds 30 --metrics http://127.0.0.1:9400/metrics
+ * </pre>
+ */
+public class SpectatorLoadTest {
+    private static final String DEFAULT_DRIVERS = "VER,PER,HAM,RUS,LEC,SAI,NOR,PIA,ALO,STR,GAS,OCO,ALB,SAR,TSU,RIC,BOT,ZHO,HUL,MAG";
+    private static final double TICK_BUDGET_SECONDS = 0.05;
+    private static final double MAX_DELIVERY_GAP_SECONDS = 0.25;
+
+    private final Map<String, String> options;
+    private final String host;
+    private final int port;
+    private final String metricsUrl;
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Histogram deliveryGap = MetricsRegistry.timer("loadtest_delivery_gap_seconds", "Gap between consecutive packets seen by one spectator");
+    private final List<SpectatorClient> spectators = new ArrayList<>();
+
+    private SpectatorClient director;
+
+    public SpectatorLoadTest(Map<String, String> options) {
+        this.options = options;
+        this.host = options.getOrDefault("host", "127.0.0.1");
+        this.port = Integer.parseInt(options.getOrDefault("port", "25565"));
+        this.metricsUrl = options.get("metrics");
+    }
+
+    public void run() throws Exception {
+        int maxClients = Integer.parseInt(options.getOrDefault("clients", "200"));
+        int step = Integer.parseInt(options.getOrDefault("step", "25"));
+        int stepSeconds = Integer.parseInt(options.getOrDefault("step-seconds", "30"));
+
+        director = connect("LoadDirector");
+        if (director == null) {
+            return;
+        }
+
+        if (!options.containsKey("no-replay")) {
+            startReplays();
+        }
+
+        System.out.println();
+        System.out.println("clients  tick p50  tick p99  tick max  replay p99  flush p99  cpu%   KiB/s/client  pkts/s/client  gap p99   dropped");
+
+        Integer degradedAt = null;
+        for (int target = step; target <= maxClients; target += step) {
+            while (spectators.size() < target) {
+                String name = "Spec" + spectators.size();
+                SpectatorClient client = new SpectatorClient(host, port, name, deliveryGap);
+                spectators.add(client);
+                executor.submit(() -> {
+                    client.run();
+                    if (client.getDisconnectReason() != null) {
+                        System.err.println(client.getName() + " disconnected: " + client.getDisconnectReason());
+                    }
+                });
+                executor.submit(() -> followWhenJoined(client));
+            }
+
+            Thread.sleep(5000);
+            director.sendCommand("perf reset");
+            deliveryGap.reset();
+
+            long[] bytesBefore = new long[spectators.size()];
+            long[] packetsBefore = new long[spectators.size()];
+            for (int i = 0; i < spectators.size(); i++) {
+                bytesBefore[i] = spectators.get(i).getBytesReceived();
+                packetsBefore[i] = spectators.get(i).getPacketsReceived();
+            }
+
+            Thread.sleep(stepSeconds * 1000L);
+
+            long bytes = 0;
+            long packets = 0;
+            int connected = 0;
+            for (int i = 0; i < bytesBefore.length; i++) {
+                SpectatorClient client = spectators.get(i);
+                if (client.isClosed()) {
+                    continue;
+                }
+                connected++;
+                bytes += client.getBytesReceived() - bytesBefore[i];
+                packets += client.getPacketsReceived() - packetsBefore[i];
+            }
+            int dropped = spectators.size() - connected;
+
+            Map<String, Double> server = scrapeMetrics();
+            double tickP50 = server.getOrDefault("raceplayback_server_tick_seconds{quantile=\"0.5\"}", Double.NaN);
+            double tickP99 = server.getOrDefault("raceplayback_server_tick_seconds{quantile=\"0.99\"}", Double.NaN);
+            double tickMax = server.getOrDefault("raceplayback_server_tick_seconds_max", Double.NaN);
+            double replayP99 = server.getOrDefault("raceplayback_replay_tick_seconds{quantile=\"0.99\"}", Double.NaN);
+            double flushP99 = server.getOrDefault("raceplayback_car_flush_seconds{quantile=\"0.99\"}", Double.NaN);
+            double cpu = server.getOrDefault("raceplayback_process_cpu_permille", Double.NaN) / 10.0;
+            double gapP99 = deliveryGap.snapshot().quantile(0.99);
+
+            double perClient = Math.max(connected, 1) * (double) stepSeconds;
+            System.out.println(String.format(Locale.ROOT, "%7d  %8s  %8s  %8s  %10s  %9s  %5.1f  %12.1f  %13.1f  %8s  %7d",
+                spectators.size(), millis(tickP50), millis(tickP99), millis(tickMax), millis(replayP99), millis(flushP99), cpu,
+                bytes / 1024.0 / perClient, packets / perClient, millis(gapP99), dropped));
+
+            boolean degraded = tickP99 > TICK_BUDGET_SECONDS || gapP99 > MAX_DELIVERY_GAP_SECONDS || dropped > 0;
+            if (degraded && degradedAt == null) {
+                degradedAt = spectators.size();
+                if (!options.containsKey("keep-going")) {
+                    break;
+                }
+            }
+        }
+
+        System.out.println();
+        if (degradedAt != null) {
+            System.out.println("Replay degraded at " + degradedAt + " spectators");
+        } else {
+            System.out.println("No degradation up to " + spectators.size() + " spectators");
+        }
+
+        spectators.forEach(SpectatorClient::close);
+        director.close();
+        executor.shutdownNow();
+    }
+
+    private SpectatorClient connect(String name) throws InterruptedException {
+        SpectatorClient client = new SpectatorClient(host, port, name, deliveryGap);
+        executor.submit(client);
+
+        long deadline = System.currentTimeMillis() + 15_000;
+        while (!client.isInPlay()) {
+            if (client.isClosed() || System.currentTimeMillis() > deadline) {
+                System.err.println(name + " could not join: " + client.getDisconnectReason());
+                client.close();
+                return null;
+            }
+            Thread.sleep(100);
+        }
+        Thread.sleep(1000);
+        return client;
+    }
+
+    private void startReplays() throws Exception {
+        String track = options.getOrDefault("track", "silverstone");
+        String year = options.getOrDefault("year", "2024");
+        String[] drivers = options.getOrDefault("drivers", DEFAULT_DRIVERS).split(",");
+
+        System.out.println("Starting " + drivers.length + " replays at " + track + " " + year + "...");
+        for (String driver : drivers) {
+            director.sendCommand("sessiontest " + track + " " + year + " " + driver.trim());
+            Thread.sleep(250);
+        }
+
+        long deadline = System.currentTimeMillis() + Long.parseLong(options.getOrDefault("replay-timeout", "180")) * 1000L;
+        while (System.currentTimeMillis() < deadline) {
+            Double active = scrapeMetrics().get("raceplayback_active_replays");
+            if (metricsUrl == null || (active != null && active >= drivers.length)) {
+                break;
+            }
+            Thread.sleep(1000);
+        }
+
+        if (metricsUrl == null) {
+            // Without metrics there is no way to see the countdown finish, so wait it out
+            Thread.sleep(20_000);
+        }
+    }
+
+    private void followWhenJoined(SpectatorClient client) {
+        try {
+            while (!client.isInPlay()) {
+                if (client.isClosed()) {
+                    return;
+                }
+                Thread.sleep(100);
+            }
+            Thread.sleep(1000);
+            client.sendCommand("follow");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | IllegalStateException e) {
+            System.err.println(client.getName() + " could not follow: " + e.getMessage());
+        }
+    }
+
+    private Map<String, Double> scrapeMetrics() {
+        Map<String, Double> values = new HashMap<>();
+        if (metricsUrl == null) {
+            return values;
+        }
+
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(metricsUrl)).timeout(Duration.ofSeconds(5)).GET().build();
+            String body = httpClient.send(request, HttpResponse.BodyHandlers.ofString()).body();
+            for (String line : body.split("\n")) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                int split = line.lastIndexOf(' ');
+                values.put(line.substring(0, split), Double.parseDouble(line.substring(split + 1)));
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Failed to scrape " + metricsUrl + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return values;
+    }
+
+    private static String millis(double seconds) {
+        return Double.isNaN(seconds) ? "-" : String.format(Locale.ROOT, "%.1fms", seconds * 1000);
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                continue;
+            }
+            String key = args[i].substring(2);
+            if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                options.put(key, args[++i]);
+            } else {
+                options.put(key, "true");
+            }
+        }
+        return options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new SpectatorLoadTest(parseArgs(args)).run();
+    }
+}
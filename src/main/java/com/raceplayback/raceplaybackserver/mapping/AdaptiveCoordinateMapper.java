@@ -2,6 +2,10 @@ package com.raceplayback.raceplaybackserver.mapping;
 
 import com.raceplayback.raceplaybackserver.data.TelemetryPoint;
 import com.raceplayback.raceplaybackserver.mapping.RacingLineExtractor.RacingLine;
+import com.raceplayback.raceplaybackserver.metrics.Counter;
+import com.raceplayback.raceplaybackserver.metrics.Histogram;
+import com.raceplayback.raceplaybackserver.metrics.MetricsRegistry;
+import com.raceplayback.raceplaybackserver.util.EnvConfig;
 import net.minestom.server.coordinate.Pos;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,12 +17,25 @@ import java.util.Map;
 
 public class AdaptiveCoordinateMapper {
     private static final Logger logger = LoggerFactory.getLogger(AdaptiveCoordinateMapper.class);
+    private static final Counter cacheHits = MetricsRegistry.counter("raceplayback_mapping_cache_hits_total", "Telemetry points served from the mapping cache");
+    private static final Counter cacheMisses = MetricsRegistry.counter("raceplayback_mapping_cache_misses_total", "Telemetry points mapped from scratch");
+    private static final Histogram mappingTime = MetricsRegistry.timer("raceplayback_mapping_point_seconds", "Time spent mapping one uncached telemetry point onto the track");
+
+    // Bump whenever a change here moves mapped samples, so laps cached on disk are mapped again
+    private static final int MAPPING_VERSION = 2;
+
+    // Place samples by their lap distance rather than by the closest point of the racing line
+    private static final boolean mapByDistance = EnvConfig.getBoolean("MAPPING_BY_DISTANCE", true);
 
     private final TrackCenterline trackCenterline;
     private RacingLine racingLine;
+    private DistanceTable distanceTable;
 
     private final Map<Integer, MappingResult> mappingCache = new HashMap<>();
 
+    private int cacheHitCount;
+    private int cacheMissCount;
+
     private final double heightOffset;
     private final boolean enableCurvatureScaling;
 
@@ -35,9 +52,19 @@ public class AdaptiveCoordinateMapper {
     }
 
     public void initializeWithTelemetry(List<TelemetryPoint> telemetry) {
+        initializeWithTelemetry(telemetry, null);
+    }
+
+    /**
+     * @param referenceLine the track's shared line to measure the lap against, or null to build
+     *                      one from the lap itself
+     */
+    public void initializeWithTelemetry(List<TelemetryPoint> telemetry, Polyline referenceLine) {
         logger.info("Initializing mapper with {} telemetry points", telemetry.size());
 
-        this.racingLine = RacingLineExtractor.extractFromTelemetry(telemetry);
+        this.racingLine = referenceLine != null
+            ? new RacingLine(referenceLine, telemetry)
+            : RacingLineExtractor.extractFromTelemetry(telemetry);
 
         if (racingLine == null) {
             logger.error("Failed to extract racing line from telemetry");
@@ -47,6 +74,14 @@ public class AdaptiveCoordinateMapper {
         logger.info("Racing line extracted: {} points, total length: {} units",
             racingLine.size(), racingLine.getTotalLength());
 
+        distanceTable = mapByDistance ? DistanceTable.build(telemetry, racingLine.getPolyline()) : null;
+        if (distanceTable != null) {
+            logger.info("Mapping by lap distance ({} to {} m)",
+                String.format("%.1f", distanceTable.getStartDistance()), String.format("%.1f", distanceTable.getEndDistance()));
+        } else {
+            logger.info("Mapping by closest point on the racing line");
+        }
+
         mappingCache.clear();
     }
 
@@ -56,10 +91,16 @@ public class AdaptiveCoordinateMapper {
         }
 
         if (mappingCache.containsKey(telemetryIndex)) {
+            cacheHits.increment();
+            cacheHitCount++;
             MappingResult cached = mappingCache.get(telemetryIndex);
             return cached.position;
         }
 
+        cacheMisses.increment();
+        cacheMissCount++;
+        long mappingStart = System.nanoTime();
+
         TelemetryPoint telemetry = racingLine.getTelemetryAt(telemetryIndex);
         if (telemetry == null) {
             logger.warn("Invalid telemetry index: {}", telemetryIndex);
@@ -72,11 +113,47 @@ public class AdaptiveCoordinateMapper {
             telemetry.y().doubleValue()
         );
 
-        int nearestIndex = racingLine.findClosestIndex(telemetryPos);
+        MappingResult result = distanceTable != null
+            ? mapAtDistance(telemetryPos, telemetry.distance().doubleValue())
+            : mapPosition(telemetryPos);
+        mappingCache.put(telemetryIndex, result);
+        mappingTime.recordSince(mappingStart);
 
-        double racingLinePercent = racingLine.getPercentAtIndex(nearestIndex);
+        return result.position;
+    }
 
-        double lateralOffset = racingLine.calculateLateralOffset(telemetryPos, nearestIndex);
+    public Pos mapCoordinates(BigDecimal telemetryX, BigDecimal telemetryY) {
+        if (racingLine == null) {
+            throw new IllegalStateException("Mapper not initialized with telemetry");
+        }
+
+        Pos telemetryPos = new Pos(
+            telemetryX.doubleValue(),
+            0,
+            telemetryY.doubleValue()
+        );
+
+        return mapPosition(telemetryPos).position;
+    }
+
+    private MappingResult mapPosition(Pos telemetryPos) {
+        int nearestSegment = racingLine.findClosestSegment(telemetryPos);
+        double racingLinePercent = racingLine.getPercentOnSegment(nearestSegment, telemetryPos);
+        return placeOnCenterline(racingLinePercent, telemetryPos, nearestSegment);
+    }
+
+    private MappingResult mapAtDistance(Pos telemetryPos, double distance) {
+        double racingLinePercent = distanceTable.percentAt(distance);
+        int segment = racingLine.getSegmentAtPercent(racingLinePercent);
+        return placeOnCenterline(racingLinePercent, telemetryPos, segment);
+    }
+
+    private MappingResult placeOnCenterline(double racingLinePercent, Pos telemetryPos, int segment) {
+        // Scaled to the scanned track, and flipped since telemetry Y runs the opposite way to Minecraft Z
+        double blocksPerUnit = racingLine.getTotalLength() > 0 ? trackCenterline.getTotalLength() / racingLine.getTotalLength() : 0.0;
+        double halfWidth = trackCenterline.getTrackWidthAtPercent(racingLinePercent) / 2.0;
+        double lateralOffset = -racingLine.calculateLateralOffset(telemetryPos, segment) * blocksPerUnit;
+        lateralOffset = Math.max(-halfWidth, Math.min(halfWidth, lateralOffset));
 
         Pos centerlinePosition = trackCenterline.getPositionAtPercent(racingLinePercent);
         Pos normal = trackCenterline.getNormalAtPercent(racingLinePercent);
@@ -94,34 +171,50 @@ public class AdaptiveCoordinateMapper {
             centerlinePosition.z() + normal.z() * scaledOffset
         );
 
-        MappingResult result = new MappingResult(
+        return new MappingResult(
             finalPosition,
             racingLinePercent,
             lateralOffset,
-            nearestIndex
+            segment
         );
-        mappingCache.put(telemetryIndex, result);
-
-        return finalPosition;
     }
 
-    public Pos mapCoordinates(BigDecimal telemetryX, BigDecimal telemetryY) {
+    /**
+     * Maps every sample of the lap, for storing or replaying as a whole.
+     */
+    public MappedLap mapLap() {
         if (racingLine == null) {
-            throw new IllegalStateException("Mapper not initialized with telemetry");
+            throw new IllegalStateException("Mapper not initialized with telemetry. Call initializeWithTelemetry() first.");
         }
 
-        Pos telemetryPos = new Pos(
-            telemetryX.doubleValue(),
-            0,
-            telemetryY.doubleValue()
-        );
+        int n = racingLine.telemetrySize();
+        double[] x = new double[n];
+        double[] z = new double[n];
+        float[] yaw = new float[n];
+        float[] percent = new float[n];
+        float[] offset = new float[n];
+        for (int i = 0; i < n; i++) {
+            MappingResult result = getMappingResult(i);
+            x[i] = result.position.x();
+            z[i] = result.position.z();
+            yaw[i] = calculateYaw(i);
+            percent[i] = (float) result.trackPercent;
+            offset[i] = (float) result.lateralOffset;
+        }
+        return new MappedLap(x, z, yaw, percent, offset);
+    }
 
-        int nearestIndex = racingLine.findClosestIndex(telemetryPos);
-        return mapTelemetryPoint(nearestIndex);
+    /**
+     * @return everything besides the track, the reference line and the telemetry that decides
+     *         where the mapper puts a sample, for keying cached laps
+     */
+    public static String describeParameters(double heightOffset, boolean enableCurvatureScaling) {
+        return "v" + MAPPING_VERSION + " height=" + heightOffset + " curvature=" + enableCurvatureScaling
+            + " byDistance=" + mapByDistance;
     }
 
     public float calculateYaw(int telemetryIndex) {
-        if (racingLine == null || telemetryIndex >= racingLine.size() - 1) {
+        if (racingLine == null || telemetryIndex >= racingLine.telemetrySize() - 1) {
             return 0f;
         }
 
@@ -165,6 +258,21 @@ public class AdaptiveCoordinateMapper {
         return racingLine;
     }
 
+    /**
+     * @return the lap's distance table, or null when samples are placed by closest point
+     */
+    public DistanceTable getDistanceTable() {
+        return distanceTable;
+    }
+
+    public int getCacheHitCount() {
+        return cacheHitCount;
+    }
+
+    public int getCacheMissCount() {
+        return cacheMissCount;
+    }
+
     public void clearCache() {
         mappingCache.clear();
     }
@@ -0,0 +1,110 @@
+package com.raceplayback.raceplaybackserver.mapping;
+
+import com.raceplayback.raceplaybackserver.data.TelemetryPoint;
+import net.minestom.server.coordinate.Pos;
+
+import java.util.List;
+
+/**
+ * Turns a lap's Distance channel into how far along a racing line the car is, as a fraction
+ * from 0 to 1. Each sample is matched to the line once, searching only a little ahead of where
+ * the previous sample was matched; the table pairs those fractions with the samples' distances
+ * and resamples the pairs onto an even distance grid, so a lookup is one index plus one
+ * interpolation.
+ * <p>
+ * Both sides only ever grow along the lap, so unlike searching the whole line for the closest
+ * point this cannot jump to another part of the track where two sections pass close together.
+ */
+public final class DistanceTable {
+    // In telemetry units: how far past the last match a sample is looked for, on top of twice its step
+    private static final double MIN_LOOKAHEAD = 100.0;
+
+    private final double startDistance;
+    private final double step;
+    private final double[] percents;
+
+    private DistanceTable(double startDistance, double step, double[] percents) {
+        this.startDistance = startDistance;
+        this.step = step;
+        this.percents = percents;
+    }
+
+    /**
+     * @param line the racing line the fractions are measured along, in telemetry units
+     * @return the table for the lap, or null if its distances never advance
+     */
+    public static DistanceTable build(List<TelemetryPoint> telemetry, Polyline line) {
+        int n = telemetry.size();
+        if (n < 2 || line.getTotalLength() <= 0) {
+            return null;
+        }
+
+        double[] distances = new double[n];
+        double[] percents = new double[n];
+        double maxDistance = Double.NEGATIVE_INFINITY;
+        double maxPercent = 0.0;
+        int segment = 0;
+        Pos previous = null;
+
+        for (int i = 0; i < n; i++) {
+            TelemetryPoint point = telemetry.get(i);
+            // The channel is integrated from speed and can dip by a rounding step; never let it go back
+            maxDistance = Math.max(maxDistance, point.distance().doubleValue());
+            distances[i] = maxDistance;
+
+            Pos position = new Pos(point.x().doubleValue(), 0, point.y().doubleValue());
+            double lookahead = MIN_LOOKAHEAD + (previous != null ? 2 * previous.distance(position) : 0);
+            segment = line.findClosestSegmentAhead(position, segment, lookahead);
+            maxPercent = Math.max(maxPercent, line.projectOnto(segment, position) / line.getTotalLength());
+            percents[i] = maxPercent;
+            previous = position;
+        }
+
+        double span = distances[n - 1] - distances[0];
+        if (span <= 0) {
+            return null;
+        }
+
+        // One cell per sample on average keeps the grid as fine as the data
+        double step = span / (n - 1);
+        double[] grid = new double[n];
+        int knot = 0;
+        for (int k = 0; k < n; k++) {
+            double distance = distances[0] + k * step;
+            while (knot < n - 2 && distances[knot + 1] < distance) {
+                knot++;
+            }
+
+            double knotSpan = distances[knot + 1] - distances[knot];
+            double t = knotSpan > 0 ? (distance - distances[knot]) / knotSpan : 1.0;
+            t = Math.max(0.0, Math.min(1.0, t));
+            grid[k] = percents[knot] + (percents[knot + 1] - percents[knot]) * t;
+        }
+
+        return new DistanceTable(distances[0], step, grid);
+    }
+
+    /**
+     * @return the fraction of the racing line behind the given lap distance, clamped to the lap
+     */
+    public double percentAt(double distance) {
+        double cell = (distance - startDistance) / step;
+        if (cell <= 0) {
+            return percents[0];
+        }
+        int index = (int) cell;
+        if (index >= percents.length - 1) {
+            return percents[percents.length - 1];
+        }
+        double t = cell - index;
+        return percents[index] + (percents[index + 1] - percents[index]) * t;
+    }
+
+    public double getStartDistance() {
+        return startDistance;
+    }
+
+    public double getEndDistance() {
+        return startDistance + step * (percents.length - 1);
+    }
+}
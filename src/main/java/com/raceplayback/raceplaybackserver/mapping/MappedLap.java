@@ -0,0 +1,63 @@
+package com.raceplayback.raceplaybackserver.mapping;
+
+import net.minestom.server.coordinate.Pos;
+
+/**
+ * A lap of telemetry already placed on the scanned track, one frame per sample, held as
+ * parallel arrays. This is everything a replay needs from the adaptive mapper, so a lap loaded
+ * from {@link MappedLapCache} skips the track geometry entirely.
+ */
+public final class MappedLap {
+    private final double[] x;
+    private final double[] z;
+    private final float[] yaw;
+    private final float[] percent;
+    private final float[] offset;
+
+    /**
+     * Takes ownership of the arrays, which must all have the same length.
+     *
+     * @param yaw     heading towards the next frame, 0 for the last one
+     * @param percent how far round the track each frame is, from 0 to 1
+     * @param offset  how far each frame is from the centerline, in blocks
+     */
+    public MappedLap(double[] x, double[] z, float[] yaw, float[] percent, float[] offset) {
+        int n = x.length;
+        if (z.length != n || yaw.length != n || percent.length != n || offset.length != n) {
+            throw new IllegalArgumentException("Mapped lap columns differ in length");
+        }
+        this.x = x;
+        this.z = z;
+        this.yaw = yaw;
+        this.percent = percent;
+        this.offset = offset;
+    }
+
+    public int size() {
+        return x.length;
+    }
+
+    public Pos getPosition(int i, double y) {
+        return new Pos(x[i], y, z[i]);
+    }
+
+    public double getX(int i) {
+        return x[i];
+    }
+
+    public double getZ(int i) {
+        return z[i];
+    }
+
+    public float getYaw(int i) {
+        return yaw[i];
+    }
+
+    public float getPercent(int i) {
+        return percent[i];
+    }
+
+    public float getOffset(int i) {
+        return offset[i];
+    }
+}
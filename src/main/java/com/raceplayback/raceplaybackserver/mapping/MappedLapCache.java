@@ -0,0 +1,196 @@
+package com.raceplayback.raceplaybackserver.mapping;
+
+import com.raceplayback.raceplaybackserver.data.SessionType;
+import com.raceplayback.raceplaybackserver.data.TrackName;
+import com.raceplayback.raceplaybackserver.metrics.Counter;
+import com.raceplayback.raceplaybackserver.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Mapped laps kept on disk under data/mapped-laps/&lt;track&gt;, one file per session, driver and
+ * lap. A mapped lap depends only on the lap's telemetry and on what it was mapped with, so each
+ * file carries a key hashed from the track file, the reference line and the mapping parameters,
+ * and is only used while they all still match. Rescanning a track deletes its laps outright.
+ * <p>
+ * Files are little-endian:
+ *
+ * <pre>
+ * int32 magic "RPM1", int32 keyLength, byte[keyLength] key (UTF-8), int32 n
+ * float64[n] X, Z
+ * float32[n] Yaw, Percent, Offset
+ * </pre>
+ */
+public final class MappedLapCache {
+    private static final Logger logger = LoggerFactory.getLogger(MappedLapCache.class);
+    private static final String CACHE_DIR = "data/mapped-laps";
+
+    private static final int MAGIC = 0x314D5052;
+    private static final int BYTES_PER_FRAME = 2 * 8 + 3 * 4;
+
+    private static final Counter diskHits = MetricsRegistry.counter("raceplayback_mapped_lap_disk_hits_total", "Mapped laps read from data/mapped-laps instead of being mapped again");
+    private static final Counter diskMisses = MetricsRegistry.counter("raceplayback_mapped_lap_disk_misses_total", "Mapped laps that were missing or stale on disk");
+
+    private MappedLapCache() {}
+
+    /**
+     * @param trackHash     hash of the track file the centerline was built from
+     * @param referenceHash hash of the reference line file, or null if laps are measured against themselves
+     * @param parameters    the mapper's settings, as given by {@link AdaptiveCoordinateMapper#describeParameters}
+     */
+    public static String key(String trackHash, String referenceHash, String parameters) {
+        return sha256((trackHash + "|" + referenceHash + "|" + parameters).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param frames how many samples the lap's telemetry has now
+     * @return the cached lap, or null if there is none, it was mapped with anything else than
+     *         the given key, or from telemetry with a different number of samples
+     */
+    public static MappedLap load(int year, TrackName track, SessionType sessionType, String driverCode, int lap, String key, int frames) {
+        File file = file(year, track, sessionType, driverCode, lap);
+        if (!file.exists()) {
+            diskMisses.increment();
+            return null;
+        }
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a mapped lap file");
+            }
+            byte[] storedKey = new byte[buffer.getInt()];
+            buffer.get(storedKey);
+            if (!key.equals(new String(storedKey, StandardCharsets.UTF_8))) {
+                logger.info("Mapped lap {} of {} is stale, mapping it again", lap, driverCode);
+                diskMisses.increment();
+                return null;
+            }
+
+            int n = buffer.getInt();
+            if (n < 0 || buffer.remaining() != (long) n * BYTES_PER_FRAME) {
+                throw new IllegalArgumentException("Truncated mapped lap file");
+            }
+            if (n != frames) {
+                logger.info("Mapped lap {} of {} has {} samples but its telemetry has {}, mapping it again", lap, driverCode, n, frames);
+                diskMisses.increment();
+                return null;
+            }
+
+            double[] x = new double[n];
+            double[] z = new double[n];
+            float[] yaw = new float[n];
+            float[] percent = new float[n];
+            float[] offset = new float[n];
+            buffer.asDoubleBuffer().get(x);
+            buffer.position(buffer.position() + n * 8);
+            buffer.asDoubleBuffer().get(z);
+            buffer.position(buffer.position() + n * 8);
+            for (float[] column : new float[][]{yaw, percent, offset}) {
+                buffer.asFloatBuffer().get(column);
+                buffer.position(buffer.position() + n * 4);
+            }
+
+            diskHits.increment();
+            return new MappedLap(x, z, yaw, percent, offset);
+        } catch (IOException | IllegalArgumentException | BufferUnderflowException e) {
+            logger.warn("Could not read mapped lap {}, mapping it again", file.getPath(), e);
+            diskMisses.increment();
+            return null;
+        }
+    }
+
+    public static void store(int year, TrackName track, SessionType sessionType, String driverCode, int lap, String key, MappedLap mapped) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int n = mapped.size();
+        ByteBuffer buffer = ByteBuffer.allocate(12 + keyBytes.length + n * BYTES_PER_FRAME).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(keyBytes.length).put(keyBytes).putInt(n);
+        for (int i = 0; i < n; i++) {
+            buffer.putDouble(mapped.getX(i));
+        }
+        for (int i = 0; i < n; i++) {
+            buffer.putDouble(mapped.getZ(i));
+        }
+        for (int i = 0; i < n; i++) {
+            buffer.putFloat(mapped.getYaw(i));
+        }
+        for (int i = 0; i < n; i++) {
+            buffer.putFloat(mapped.getPercent(i));
+        }
+        for (int i = 0; i < n; i++) {
+            buffer.putFloat(mapped.getOffset(i));
+        }
+
+        try {
+            File file = file(year, track, sessionType, driverCode, lap);
+            File dir = file.getParentFile();
+            if (!dir.exists()) {
+                dir.mkdirs();
+            }
+
+            File temp = new File(dir, file.getName() + ".tmp");
+            Files.write(temp.toPath(), buffer.array());
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.error("Failed to save mapped lap {} of {} for {} {}", lap, driverCode, track, year, e);
+        }
+    }
+
+    /**
+     * Deletes every mapped lap of the track, for when its geometry has changed.
+     */
+    public static void invalidate(TrackName track) {
+        File[] files = new File(CACHE_DIR, track.name().toLowerCase()).listFiles();
+        if (files == null) {
+            return;
+        }
+
+        int deleted = 0;
+        for (File file : files) {
+            if (file.delete()) {
+                deleted++;
+            }
+        }
+        logger.info("Deleted {} mapped laps of {}", deleted, track);
+    }
+
+    /**
+     * @return the hex SHA-256 of the file, or null if it does not exist or cannot be read
+     */
+    static String hashFile(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            return sha256(Files.readAllBytes(file.toPath()));
+        } catch (IOException e) {
+            logger.warn("Failed to hash {}", file.getPath(), e);
+            return null;
+        }
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static File file(int year, TrackName track, SessionType sessionType, String driverCode, int lap) {
+        return new File(new File(CACHE_DIR, track.name().toLowerCase()),
+            year + "_" + sessionType.name().toLowerCase() + "_" + driverCode.toUpperCase() + "_" + lap + ".bin");
+    }
+}
@@ -0,0 +1,213 @@
+package com.raceplayback.raceplaybackserver.mapping;
+
+import net.minestom.server.coordinate.Pos;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An immutable polyline with cumulative arc lengths and a bucket table over them, so finding the
+ * segment at a given distance along the line is a table lookup plus, on average, less than one
+ * step instead of a scan from the start.
+ */
+public final class Polyline {
+    private final double[] x;
+    private final double[] y;
+    private final double[] z;
+    private final double[] arcLengths;
+    private final double totalLength;
+
+    // buckets[k] is the segment containing distance k * bucketLength
+    private final int[] buckets;
+    private final double bucketLength;
+
+    public Polyline(List<Pos> points) {
+        if (points.isEmpty()) {
+            throw new IllegalArgumentException("Polyline needs at least one point");
+        }
+
+        int n = points.size();
+        x = new double[n];
+        y = new double[n];
+        z = new double[n];
+        arcLengths = new double[n];
+
+        double cumulative = 0.0;
+        for (int i = 0; i < n; i++) {
+            Pos point = points.get(i);
+            x[i] = point.x();
+            y[i] = point.y();
+            z[i] = point.z();
+            if (i > 0) {
+                cumulative += distance(x[i - 1], y[i - 1], z[i - 1], x[i], y[i], z[i]);
+            }
+            arcLengths[i] = cumulative;
+        }
+        totalLength = cumulative;
+
+        int segments = Math.max(1, n - 1);
+        buckets = new int[segments];
+        bucketLength = totalLength > 0 ? totalLength / segments : 1.0;
+        int segment = 0;
+        for (int k = 0; k < segments; k++) {
+            double distance = k * bucketLength;
+            while (segment < n - 2 && arcLengths[segment + 1] <= distance) {
+                segment++;
+            }
+            buckets[k] = segment;
+        }
+    }
+
+    /**
+     * @return the index of the segment (from point i to i + 1) that contains the given distance
+     *         along the line, clamped to the first and last segment
+     */
+    public int segmentAt(double distance) {
+        if (x.length < 2 || distance <= 0) {
+            return 0;
+        }
+        int segment = buckets[Math.min((int) (distance / bucketLength), buckets.length - 1)];
+        while (segment < x.length - 2 && arcLengths[segment + 1] < distance) {
+            segment++;
+        }
+        return segment;
+    }
+
+    public Pos positionAt(double distance) {
+        if (x.length < 2 || distance <= 0) {
+            return getPoint(0);
+        }
+        if (distance >= totalLength) {
+            return getPoint(x.length - 1);
+        }
+
+        int segment = segmentAt(distance);
+        double segmentLength = arcLengths[segment + 1] - arcLengths[segment];
+        if (segmentLength < 0.001) {
+            return getPoint(segment);
+        }
+
+        double t = (distance - arcLengths[segment]) / segmentLength;
+        return new Pos(
+            x[segment] + (x[segment + 1] - x[segment]) * t,
+            y[segment] + (y[segment + 1] - y[segment]) * t,
+            z[segment] + (z[segment + 1] - z[segment]) * t
+        );
+    }
+
+    public Pos positionAtPercent(double percent) {
+        return positionAt(totalLength * percent);
+    }
+
+    /**
+     * @return the segment closest to the target, by distance to the segment rather than to its
+     *         end points, so sparse stretches of the line are measured correctly
+     */
+    public int findClosestSegment(Pos target) {
+        if (x.length < 2) {
+            return 0;
+        }
+
+        double minDist = Double.MAX_VALUE;
+        int closest = 0;
+        for (int i = 0; i < x.length - 1; i++) {
+            double dist = distanceToSegment(i, target.x(), target.y(), target.z());
+            if (dist < minDist) {
+                minDist = dist;
+                closest = i;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Like {@link #findClosestSegment(Pos)}, but only looks at segment {@code from} and the ones
+     * starting within {@code lookahead} past its end, for walking a path that follows the line
+     * without jumping to another part of it that passes close by.
+     */
+    public int findClosestSegmentAhead(Pos target, int from, double lookahead) {
+        if (x.length < 2) {
+            return 0;
+        }
+
+        double limit = arcLengths[from + 1] + lookahead;
+        double minDist = Double.MAX_VALUE;
+        int closest = from;
+        for (int i = from; i < x.length - 1 && arcLengths[i] <= limit; i++) {
+            double dist = distanceToSegment(i, target.x(), target.y(), target.z());
+            if (dist < minDist) {
+                minDist = dist;
+                closest = i;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * @return the distance along the line of the target's projection onto the given segment
+     */
+    public double projectOnto(int segment, Pos target) {
+        if (x.length < 2) {
+            return 0.0;
+        }
+        return arcLengths[segment] + segmentParameter(segment, target.x(), target.y(), target.z())
+            * (arcLengths[segment + 1] - arcLengths[segment]);
+    }
+
+    public double distanceToSegment(int segment, double px, double py, double pz) {
+        if (x.length < 2) {
+            return distance(x[0], y[0], z[0], px, py, pz);
+        }
+        double t = segmentParameter(segment, px, py, pz);
+        return distance(
+            x[segment] + (x[segment + 1] - x[segment]) * t,
+            y[segment] + (y[segment + 1] - y[segment]) * t,
+            z[segment] + (z[segment + 1] - z[segment]) * t,
+            px, py, pz
+        );
+    }
+
+    // Where the closest point of the segment lies, from 0 at its start to 1 at its end
+    private double segmentParameter(int segment, double px, double py, double pz) {
+        double dx = x[segment + 1] - x[segment];
+        double dy = y[segment + 1] - y[segment];
+        double dz = z[segment + 1] - z[segment];
+        double lengthSquared = dx * dx + dy * dy + dz * dz;
+        if (lengthSquared < 1e-12) {
+            return 0.0;
+        }
+        double t = ((px - x[segment]) * dx + (py - y[segment]) * dy + (pz - z[segment]) * dz) / lengthSquared;
+        return Math.max(0.0, Math.min(1.0, t));
+    }
+
+    static double distance(double ax, double ay, double az, double bx, double by, double bz) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double dz = bz - az;
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    public Pos getPoint(int i) {
+        return new Pos(x[i], y[i], z[i]);
+    }
+
+    public List<Pos> getPoints() {
+        List<Pos> points = new ArrayList<>(x.length);
+        for (int i = 0; i < x.length; i++) {
+            points.add(getPoint(i));
+        }
+        return points;
+    }
+
+    public double getArcLength(int i) {
+        return arcLengths[i];
+    }
+
+    public double getTotalLength() {
+        return totalLength;
+    }
+
+    public int size() {
+        return x.length;
+    }
+}
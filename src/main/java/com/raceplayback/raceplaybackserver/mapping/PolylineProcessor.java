@@ -0,0 +1,183 @@
+package com.raceplayback.raceplaybackserver.mapping;
+
+import net.minestom.server.coordinate.Pos;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cleans up raw lines before anything searches them: the line is first resampled to an even
+ * arc-length spacing, which removes clusters and gaps left by the source, and then simplified
+ * with Douglas-Peucker, which drops the points a straight segment can stand in for.
+ */
+public final class PolylineProcessor {
+    private static final Logger logger = LoggerFactory.getLogger(PolylineProcessor.class);
+
+    // How many segments ahead maxDeviation looks for the closest one to each original point
+    private static final int DEVIATION_WINDOW = 8;
+
+    private PolylineProcessor() {}
+
+    /**
+     * @param inputPoints points in the raw line
+     * @param maxError    furthest any raw point lies from the processed line
+     */
+    public record Result(Polyline polyline, int inputPoints, double maxError) {
+        public double reduction() {
+            return inputPoints > 0 ? 1.0 - polyline.size() / (double) inputPoints : 0.0;
+        }
+    }
+
+    /**
+     * @param name      used in the log line reporting the reduction
+     * @param spacing   arc length between points after resampling
+     * @param tolerance the most a dropped point may lie off the simplified line
+     */
+    public static Result process(String name, List<Pos> points, double spacing, double tolerance) {
+        List<Pos> simplified = simplify(resample(points, spacing), tolerance);
+        Polyline polyline = new Polyline(simplified);
+        Result result = new Result(polyline, points.size(), maxDeviation(points, polyline));
+
+        logger.info("Simplified {} from {} to {} points ({}% fewer), max error {}",
+            name, points.size(), polyline.size(), Math.round(result.reduction() * 100),
+            String.format("%.3f", result.maxError()));
+        return result;
+    }
+
+    /**
+     * Places points every {@code spacing} along the line, keeping both end points. The last
+     * segment may be shorter.
+     */
+    public static List<Pos> resample(List<Pos> points, double spacing) {
+        if (points.size() < 2 || spacing <= 0) {
+            return new ArrayList<>(points);
+        }
+
+        List<Pos> resampled = new ArrayList<>();
+        resampled.add(points.get(0));
+
+        double carried = 0.0;
+        for (int i = 1; i < points.size(); i++) {
+            Pos from = points.get(i - 1);
+            Pos to = points.get(i);
+            double length = from.distance(to);
+
+            double along = spacing - carried;
+            while (along <= length) {
+                double t = along / length;
+                resampled.add(new Pos(
+                    from.x() + (to.x() - from.x()) * t,
+                    from.y() + (to.y() - from.y()) * t,
+                    from.z() + (to.z() - from.z()) * t
+                ));
+                along += spacing;
+            }
+            carried = length - (along - spacing);
+        }
+
+        Pos last = points.get(points.size() - 1);
+        if (resampled.get(resampled.size() - 1).distance(last) > 1e-9) {
+            resampled.add(last);
+        }
+        return resampled;
+    }
+
+    /**
+     * Douglas-Peucker. Runs off an explicit stack, since a lap can have thousands of points.
+     */
+    public static List<Pos> simplify(List<Pos> points, double tolerance) {
+        int n = points.size();
+        if (n < 3 || tolerance <= 0) {
+            return new ArrayList<>(points);
+        }
+
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+
+        int[] stack = new int[2 * n];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = n - 1;
+
+        while (top > 0) {
+            int end = stack[--top];
+            int start = stack[--top];
+
+            double maxDist = -1;
+            int farthest = -1;
+            for (int i = start + 1; i < end; i++) {
+                double dist = distanceToSegment(points.get(i), points.get(start), points.get(end));
+                if (dist > maxDist) {
+                    maxDist = dist;
+                    farthest = i;
+                }
+            }
+
+            if (farthest >= 0 && maxDist > tolerance) {
+                keep[farthest] = true;
+                stack[top++] = start;
+                stack[top++] = farthest;
+                stack[top++] = farthest;
+                stack[top++] = end;
+            }
+        }
+
+        List<Pos> simplified = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (keep[i]) {
+                simplified.add(points.get(i));
+            }
+        }
+        return simplified;
+    }
+
+    /**
+     * @return the furthest any of the original points lies from the processed line. Both follow
+     *         the same path, so each point is only compared with the segments just ahead of the
+     *         previous point's closest one.
+     */
+    public static double maxDeviation(List<Pos> original, Polyline processed) {
+        if (processed.size() < 2) {
+            double maxError = 0.0;
+            for (Pos point : original) {
+                maxError = Math.max(maxError, point.distance(processed.getPoint(0)));
+            }
+            return maxError;
+        }
+
+        int segments = processed.size() - 1;
+        int cursor = 0;
+        double maxError = 0.0;
+        for (Pos point : original) {
+            double best = Double.MAX_VALUE;
+            int bestSegment = cursor;
+            for (int s = cursor; s < Math.min(segments, cursor + DEVIATION_WINDOW); s++) {
+                double dist = processed.distanceToSegment(s, point.x(), point.y(), point.z());
+                if (dist < best) {
+                    best = dist;
+                    bestSegment = s;
+                }
+            }
+            cursor = bestSegment;
+            maxError = Math.max(maxError, best);
+        }
+        return maxError;
+    }
+
+    private static double distanceToSegment(Pos point, Pos start, Pos end) {
+        double dx = end.x() - start.x();
+        double dy = end.y() - start.y();
+        double dz = end.z() - start.z();
+        double lengthSquared = dx * dx + dy * dy + dz * dz;
+        if (lengthSquared < 1e-12) {
+            return point.distance(start);
+        }
+
+        double t = ((point.x() - start.x()) * dx + (point.y() - start.y()) * dy + (point.z() - start.z()) * dz) / lengthSquared;
+        t = Math.max(0.0, Math.min(1.0, t));
+        return Polyline.distance(start.x() + dx * t, start.y() + dy * t, start.z() + dz * t, point.x(), point.y(), point.z());
+    }
+}
@@ -38,76 +38,45 @@ public class RacingLineExtractor {
     }
 
     public static class RacingLine {
-        private final List<Pos> points;
+        // In telemetry units (a tenth of a metre): a point every metre, dropped if within 0.4 m of the line
+        private static final double RESAMPLE_SPACING = 10.0;
+        private static final double SIMPLIFY_TOLERANCE = 4.0;
+
+        private final Polyline polyline;
         private final List<TelemetryPoint> telemetry;
-        private final List<Double> arcLengths;
-        private final double totalLength;
+        private final int rawPointCount;
+        private final double maxError;
 
         public RacingLine(List<Pos> points, List<TelemetryPoint> telemetry) {
-            this.points = points;
+            PolylineProcessor.Result processed = PolylineProcessor.process("racing line", points, RESAMPLE_SPACING, SIMPLIFY_TOLERANCE);
+            this.polyline = processed.polyline();
             this.telemetry = telemetry;
-            this.arcLengths = new ArrayList<>();
-            this.totalLength = computeArcLengths();
+            this.rawPointCount = processed.inputPoints();
+            this.maxError = processed.maxError();
         }
 
-        private double computeArcLengths() {
-            if (points.isEmpty()) {
-                return 0.0;
-            }
-
-            arcLengths.add(0.0);
-            double cumulative = 0.0;
-
-            for (int i = 1; i < points.size(); i++) {
-                Pos prev = points.get(i - 1);
-                Pos curr = points.get(i);
-
-                double dx = curr.x() - prev.x();
-                double dz = curr.z() - prev.z();
-                double dist = Math.sqrt(dx * dx + dz * dz);
-
-                cumulative += dist;
-                arcLengths.add(cumulative);
-            }
-
-            return cumulative;
+        /**
+         * Measures the lap against a line that has already been built, such as the track's
+         * reference line, without processing it again.
+         */
+        public RacingLine(Polyline polyline, List<TelemetryPoint> telemetry) {
+            this.polyline = polyline;
+            this.telemetry = telemetry;
+            this.rawPointCount = polyline.size();
+            this.maxError = 0.0;
         }
 
         public Pos getPositionAtPercent(double percent) {
-            if (points.isEmpty()) {
+            if (polyline.size() == 0) {
                 throw new IllegalStateException("Racing line has no points");
             }
-
-            if (percent <= 0.0) {
-                return points.get(0);
-            }
-            if (percent >= 1.0) {
-                return points.get(points.size() - 1);
-            }
-
-            double targetLength = totalLength * percent;
-
-            int index = 0;
-            for (int i = 0; i < arcLengths.size() - 1; i++) {
-                if (arcLengths.get(i) <= targetLength && targetLength <= arcLengths.get(i + 1)) {
-                    index = i;
-                    break;
-                }
-            }
-
-            double segmentStart = arcLengths.get(index);
-            double segmentEnd = arcLengths.get(index + 1);
-            double segmentLength = segmentEnd - segmentStart;
-
-            if (segmentLength < 0.001) {
-                return points.get(index);
-            }
-
-            double t = (targetLength - segmentStart) / segmentLength;
-            return interpolate(points.get(index), points.get(index + 1), t);
+            return polyline.positionAtPercent(percent);
         }
 
-
+        /**
+         * Telemetry is indexed as it was recorded; the line itself is simplified, so its point
+         * indices do not line up with these.
+         */
         public TelemetryPoint getTelemetryAt(int index) {
             if (index < 0 || index >= telemetry.size()) {
                 return null;
@@ -115,39 +84,44 @@ public class RacingLineExtractor {
             return telemetry.get(index);
         }
 
-        public int findClosestIndex(Pos target) {
-            if (points.isEmpty()) {
-                return 0;
-            }
+        /**
+         * @return the index of the line segment closest to the target
+         */
+        public int findClosestSegment(Pos target) {
+            return polyline.findClosestSegment(target);
+        }
 
-            double minDist = Double.MAX_VALUE;
-            int closestIndex = 0;
+        /**
+         * @return the index of the line segment the given fraction of the line falls on
+         */
+        public int getSegmentAtPercent(double percent) {
+            return polyline.segmentAt(polyline.getTotalLength() * percent);
+        }
 
-            for (int i = 0; i < points.size(); i++) {
-                double dist = distance2D(points.get(i), target);
-                if (dist < minDist) {
-                    minDist = dist;
-                    closestIndex = i;
-                }
+        /**
+         * @return how far along the line the target's projection onto the segment lies, from 0 to 1
+         */
+        public double getPercentOnSegment(int segment, Pos target) {
+            if (polyline.getTotalLength() <= 0) {
+                return 0.0;
             }
-
-            return closestIndex;
+            return polyline.projectOnto(segment, target) / polyline.getTotalLength();
         }
 
         public double getPercentAtIndex(int index) {
-            if (index < 0 || index >= arcLengths.size()) {
+            if (index < 0 || index >= polyline.size() || polyline.getTotalLength() <= 0) {
                 return 0.0;
             }
-            return arcLengths.get(index) / totalLength;
+            return polyline.getArcLength(index) / polyline.getTotalLength();
         }
 
-        public double calculateLateralOffset(Pos position, int nearestIndex) {
-            if (nearestIndex < 0 || nearestIndex >= points.size() - 1) {
+        public double calculateLateralOffset(Pos position, int segment) {
+            if (segment < 0 || segment >= polyline.size() - 1) {
                 return 0.0;
             }
 
-            Pos linePoint = points.get(nearestIndex);
-            Pos nextPoint = points.get(nearestIndex + 1);
+            Pos linePoint = polyline.getPoint(segment);
+            Pos nextPoint = polyline.getPoint(segment + 1);
 
             double dx = nextPoint.x() - linePoint.x();
             double dz = nextPoint.z() - linePoint.z();
@@ -166,22 +140,12 @@ public class RacingLineExtractor {
             return tx * (-dz) + tz * dx;
         }
 
-        private double distance2D(Pos a, Pos b) {
-            double dx = a.x() - b.x();
-            double dz = a.z() - b.z();
-            return Math.sqrt(dx * dx + dz * dz);
-        }
-
-        private Pos interpolate(Pos a, Pos b, double t) {
-            return new Pos(
-                a.x() + (b.x() - a.x()) * t,
-                a.y() + (b.y() - a.y()) * t,
-                a.z() + (b.z() - a.z()) * t
-            );
+        public List<Pos> getPoints() {
+            return polyline.getPoints();
         }
 
-        public List<Pos> getPoints() {
-            return new ArrayList<>(points);
+        public Polyline getPolyline() {
+            return polyline;
         }
 
         public List<TelemetryPoint> getTelemetry() {
@@ -189,11 +153,31 @@ public class RacingLineExtractor {
         }
 
         public double getTotalLength() {
-            return totalLength;
+            return polyline.getTotalLength();
+        }
+
+        /**
+         * @return how many telemetry samples the line was built from, which may be many more
+         *         than the points {@link #size()} kept
+         */
+        public int telemetrySize() {
+            return telemetry.size();
         }
 
         public int size() {
-            return points.size();
+            return polyline.size();
+        }
+
+        public int getRawPointCount() {
+            return rawPointCount;
+        }
+
+        /**
+         * @return the furthest any telemetry sample lies from the simplified line, in telemetry
+         *         units, or 0 for a line that was built elsewhere
+         */
+        public double getMaxError() {
+            return maxError;
         }
     }
 }
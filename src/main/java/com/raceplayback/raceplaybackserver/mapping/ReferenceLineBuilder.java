@@ -0,0 +1,389 @@
+package com.raceplayback.raceplaybackserver.mapping;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.raceplayback.raceplaybackserver.data.LapTable;
+import com.raceplayback.raceplaybackserver.data.LapTelemetry;
+import com.raceplayback.raceplaybackserver.data.SessionType;
+import com.raceplayback.raceplaybackserver.data.TrackName;
+import com.raceplayback.raceplaybackserver.metrics.Counter;
+import com.raceplayback.raceplaybackserver.metrics.Histogram;
+import com.raceplayback.raceplaybackserver.metrics.MetricsRegistry;
+import com.raceplayback.raceplaybackserver.network.LapCache;
+import com.raceplayback.raceplaybackserver.network.SessionBundle;
+import net.minestom.server.coordinate.Pos;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+/**
+ * Builds the racing line the adaptive mapper measures against from many laps of many drivers
+ * instead of the one lap being replayed. Every lap is resampled at the same fractions of its own
+ * Distance channel, so sample k of each lap is the same spot on track, and the line takes the
+ * median of all laps at each spot, which a lock-up or a lap in traffic cannot drag off.
+ * <p>
+ * A circuit's layout does not change within a season, so lines are kept per track and year, in
+ * memory and under data/reference-lines, and shared by every replay of that circuit. Building
+ * one fetches a few laps of every driver, so callers that cannot wait use
+ * {@link #getIfBuilt} and carry on without a line until the build in the background is done.
+ */
+public final class ReferenceLineBuilder {
+    private static final Logger logger = LoggerFactory.getLogger(ReferenceLineBuilder.class);
+    private static final String LINES_DIR = "data/reference-lines";
+    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+    private static final Counter cacheHits = MetricsRegistry.counter("raceplayback_reference_line_cache_hits_total", "Reference line lookups served from memory");
+    private static final Counter diskLoads = MetricsRegistry.counter("raceplayback_reference_line_disk_loads_total", "Reference lines read from data/reference-lines");
+    private static final Histogram buildTime = MetricsRegistry.timer("raceplayback_reference_line_build_seconds", "Time to fetch laps and merge them into a reference line");
+
+    // Slower laps than this over the driver's best are in and out laps, safety car laps or worse
+    private static final double MAX_LAP_TIME_RATIO = 1.07;
+    private static final int LAPS_PER_DRIVER = 3;
+    // Laps whose distance differs more than this from the median went through the pit lane or lost data
+    private static final double MAX_SPAN_DEVIATION = 0.03;
+    // In telemetry units, like the single-lap line: aligned every metre, simplified to within 0.4 m
+    private static final double SAMPLE_SPACING = 10.0;
+    private static final double SIMPLIFY_TOLERANCE = 4.0;
+
+    private static final ExecutorService fetcher = Executors.newVirtualThreadPerTaskExecutor();
+    private static final Map<String, Polyline> lineCache = new ConcurrentHashMap<>();
+    private static final Map<String, CompletableFuture<Polyline>> builds = new ConcurrentHashMap<>();
+
+    private ReferenceLineBuilder() {}
+
+    /**
+     * @param sessionType the session to take laps from if the line has to be built
+     * @return the track's reference line for the season, from memory, from disk or built from
+     *         the session's laps, or null if none of them has one
+     */
+    public static synchronized Polyline load(int year, TrackName track, SessionType sessionType) {
+        String key = key(track, year);
+        Polyline line = lineCache.get(key);
+        if (line != null) {
+            cacheHits.increment();
+            return line;
+        }
+
+        line = readLine(track, year);
+        if (line != null) {
+            diskLoads.increment();
+        } else {
+            line = buildFromSession(year, track, sessionType);
+            if (line == null) {
+                return null;
+            }
+            saveLine(track, year, line);
+        }
+
+        lineCache.put(key, line);
+        return line;
+    }
+
+    /**
+     * Loads the line in the background, with one build at a time per track and season.
+     */
+    public static CompletableFuture<Polyline> loadAsync(int year, TrackName track, SessionType sessionType) {
+        String key = key(track, year);
+        Polyline line = lineCache.get(key);
+        if (line != null) {
+            cacheHits.increment();
+            return CompletableFuture.completedFuture(line);
+        }
+
+        return builds.computeIfAbsent(key, k -> CompletableFuture.supplyAsync(() -> load(year, track, sessionType), fetcher)
+            .whenComplete((built, e) -> {
+                builds.remove(k);
+                if (e != null) {
+                    logger.error("Failed to build reference line for {} {}", track, year, e);
+                }
+            }));
+    }
+
+    /**
+     * @return the track's reference line for the season if it is in memory or on disk, without
+     *         waiting; otherwise null, with the line being built in the background for later
+     */
+    public static Polyline getIfBuilt(int year, TrackName track, SessionType sessionType) {
+        String key = key(track, year);
+        Polyline line = lineCache.get(key);
+        if (line != null) {
+            cacheHits.increment();
+            return line;
+        }
+
+        if (!builds.containsKey(key)) {
+            line = readLine(track, year);
+            if (line != null) {
+                diskLoads.increment();
+                lineCache.put(key, line);
+                return line;
+            }
+        }
+
+        loadAsync(year, track, sessionType);
+        return null;
+    }
+
+    /**
+     * @return the hex SHA-256 of the saved reference line, or null if there is none yet
+     */
+    public static String getLineFileHash(TrackName track, int year) {
+        return MappedLapCache.hashFile(file(track, year));
+    }
+
+    private static Polyline buildFromSession(int year, TrackName track, SessionType sessionType) {
+        long buildStart = System.nanoTime();
+
+        SessionBundle bundle = LapCache.getSessionBundle(year, track, sessionType);
+        if (bundle == null) {
+            logger.warn("No session to build a reference line for {} {} from", track, year);
+            return null;
+        }
+
+        List<CompletableFuture<LapTelemetry>> fetches = new ArrayList<>();
+        LapTable lapTable = bundle.getLapTable();
+        for (int driverNumber : lapTable.getDriverNumbers()) {
+            String driverCode = lapTable.getDriverCode(driverNumber);
+            for (int lap : selectLaps(lapTable, driverNumber)) {
+                fetches.add(CompletableFuture.supplyAsync(
+                    () -> LapCache.getLapTelemetry(year, track, sessionType, driverCode, lap), fetcher
+                ).exceptionally(e -> {
+                    logger.warn("Failed to fetch lap {} of {} for the reference line", lap, driverCode, e);
+                    return null;
+                }));
+            }
+        }
+
+        List<LapTelemetry> laps = new ArrayList<>();
+        for (CompletableFuture<LapTelemetry> fetch : fetches) {
+            LapTelemetry lap = fetch.join();
+            if (lap != null) {
+                laps.add(lap);
+            }
+        }
+
+        Polyline line = build(laps);
+        if (line != null) {
+            buildTime.recordSince(buildStart);
+            logger.info("Built reference line for {} {} from {} laps of {} drivers in {} ms",
+                track, year, laps.size(), lapTable.getDriverCount(), (System.nanoTime() - buildStart) / 1_000_000);
+        }
+        return line;
+    }
+
+    /**
+     * @return the driver's fastest laps within {@link #MAX_LAP_TIME_RATIO} of their best, leaving
+     *         out the first lap, which starts from the grid
+     */
+    private static List<Integer> selectLaps(LapTable lapTable, int driverNumber) {
+        float best = lapTable.getBestLapTime(driverNumber);
+        if (Float.isNaN(best)) {
+            return List.of();
+        }
+
+        List<Integer> laps = new ArrayList<>();
+        for (int lap = 2; lap <= lapTable.getLapCount(driverNumber); lap++) {
+            float time = lapTable.getLapTime(driverNumber, lap);
+            if (!Float.isNaN(time) && time <= best * MAX_LAP_TIME_RATIO) {
+                laps.add(lap);
+            }
+        }
+        laps.sort((a, b) -> Float.compare(lapTable.getLapTime(driverNumber, a), lapTable.getLapTime(driverNumber, b)));
+        return laps.subList(0, Math.min(LAPS_PER_DRIVER, laps.size()));
+    }
+
+    /**
+     * Aligns the laps by distance and merges them into their median line, both in parallel.
+     *
+     * @return the line in telemetry units, or null if no lap is usable
+     */
+    public static Polyline build(List<LapTelemetry> laps) {
+        List<LapTelemetry> usable = new ArrayList<>();
+        List<Double> spans = new ArrayList<>();
+        List<Double> pathLengths = new ArrayList<>();
+        for (LapTelemetry lap : laps) {
+            double span = lap.size() > 1 ? lap.getDistance(lap.size() - 1) - lap.getDistance(0) : 0;
+            if (span > 0) {
+                usable.add(lap);
+                spans.add(span);
+                pathLengths.add(pathLength(lap));
+            }
+        }
+        if (usable.isEmpty()) {
+            logger.warn("No laps with usable distance to build a reference line from");
+            return null;
+        }
+
+        double medianSpan = median(spans);
+        List<LapTelemetry> aligned = new ArrayList<>();
+        List<Double> alignedLengths = new ArrayList<>();
+        for (int i = 0; i < usable.size(); i++) {
+            if (Math.abs(spans.get(i) / medianSpan - 1.0) <= MAX_SPAN_DEVIATION) {
+                aligned.add(usable.get(i));
+                alignedLengths.add(pathLengths.get(i));
+            }
+        }
+        // With an even number of laps the median span falls between two, and may be near neither
+        if (aligned.isEmpty()) {
+            logger.warn("No laps within {}% of the median distance to build a reference line from", Math.round(MAX_SPAN_DEVIATION * 100));
+            return null;
+        }
+
+        int samples = Math.max(2, (int) Math.round(median(alignedLengths) / SAMPLE_SPACING) + 1);
+        float[][] xs = new float[aligned.size()][];
+        float[][] ys = new float[aligned.size()][];
+        IntStream.range(0, aligned.size()).parallel().forEach(i -> {
+            xs[i] = new float[samples];
+            ys[i] = new float[samples];
+            resampleByDistance(aligned.get(i), samples, xs[i], ys[i]);
+        });
+
+        double[] medianX = new double[samples];
+        double[] medianY = new double[samples];
+        double[] spread = new double[samples];
+        IntStream.range(0, samples).parallel().forEach(k -> {
+            double[] columnX = new double[xs.length];
+            double[] columnY = new double[xs.length];
+            for (int i = 0; i < xs.length; i++) {
+                columnX[i] = xs[i][k];
+                columnY[i] = ys[i][k];
+            }
+            medianX[k] = median(columnX);
+            medianY[k] = median(columnY);
+
+            double[] offsets = new double[xs.length];
+            for (int i = 0; i < xs.length; i++) {
+                offsets[i] = Math.hypot(xs[i][k] - medianX[k], ys[i][k] - medianY[k]);
+            }
+            spread[k] = median(offsets);
+        });
+
+        List<Pos> points = new ArrayList<>(samples);
+        for (int k = 0; k < samples; k++) {
+            points.add(new Pos(medianX[k], 0, medianY[k]));
+        }
+
+        logger.info("Merged {} of {} laps at {} aligned points, typical spread {} units",
+            aligned.size(), laps.size(), samples, String.format("%.1f", median(spread)));
+        return PolylineProcessor.process("reference line", points, SAMPLE_SPACING, SIMPLIFY_TOLERANCE).polyline();
+    }
+
+    // Position at evenly spaced fractions of the lap's distance, with the distance never going back
+    private static void resampleByDistance(LapTelemetry lap, int samples, float[] outX, float[] outY) {
+        int n = lap.size();
+        double start = lap.getDistance(0);
+        double span = lap.getDistance(n - 1) - start;
+
+        int i = 0;
+        double distanceAt = start;
+        double distanceNext = Math.max(distanceAt, lap.getDistance(1));
+        for (int k = 0; k < samples; k++) {
+            double target = start + span * k / (samples - 1);
+            while (i < n - 2 && distanceNext < target) {
+                i++;
+                distanceAt = distanceNext;
+                distanceNext = Math.max(distanceAt, lap.getDistance(i + 1));
+            }
+
+            double step = distanceNext - distanceAt;
+            double t = step > 0 ? Math.max(0.0, Math.min(1.0, (target - distanceAt) / step)) : 1.0;
+            outX[k] = (float) (lap.getX(i) + (lap.getX(i + 1) - lap.getX(i)) * t);
+            outY[k] = (float) (lap.getY(i) + (lap.getY(i + 1) - lap.getY(i)) * t);
+        }
+    }
+
+    private static double pathLength(LapTelemetry lap) {
+        double length = 0.0;
+        for (int i = 1; i < lap.size(); i++) {
+            length += Math.hypot(lap.getX(i) - lap.getX(i - 1), lap.getY(i) - lap.getY(i - 1));
+        }
+        return length;
+    }
+
+    private static double median(List<Double> values) {
+        return median(values.stream().mapToDouble(Double::doubleValue).toArray());
+    }
+
+    private static double median(double[] values) {
+        Arrays.sort(values);
+        int mid = values.length / 2;
+        return values.length % 2 == 1 ? values[mid] : (values[mid - 1] + values[mid]) / 2.0;
+    }
+
+    private static void saveLine(TrackName track, int year, Polyline line) {
+        try {
+            File dir = new File(LINES_DIR);
+            if (!dir.exists()) {
+                dir.mkdirs();
+            }
+
+            JsonObject json = new JsonObject();
+            json.addProperty("track", track.name());
+            json.addProperty("year", year);
+            json.addProperty("length", line.getTotalLength());
+
+            JsonArray points = new JsonArray();
+            for (Pos pos : line.getPoints()) {
+                JsonObject point = new JsonObject();
+                point.addProperty("x", pos.x());
+                point.addProperty("z", pos.z());
+                points.add(point);
+            }
+            json.add("points", points);
+
+            File file = file(track, year);
+            try (FileWriter writer = new FileWriter(file)) {
+                gson.toJson(json, writer);
+            }
+            logger.info("Saved reference line for {} {} to {} ({} points)", track, year, file.getPath(), line.size());
+        } catch (IOException e) {
+            logger.error("Failed to save reference line for {} {}", track, year, e);
+        }
+    }
+
+    private static Polyline readLine(TrackName track, int year) {
+        File file = file(track, year);
+        if (!file.exists()) {
+            return null;
+        }
+
+        try (FileReader reader = new FileReader(file)) {
+            JsonArray array = gson.fromJson(reader, JsonObject.class).getAsJsonArray("points");
+            List<Pos> points = new ArrayList<>(array.size());
+            for (int i = 0; i < array.size(); i++) {
+                JsonObject point = array.get(i).getAsJsonObject();
+                points.add(new Pos(point.get("x").getAsDouble(), 0, point.get("z").getAsDouble()));
+            }
+
+            Polyline line = new Polyline(points);
+            logger.info("Loaded reference line for {} {} from {} ({} points)", track, year, file.getPath(), line.size());
+            return line;
+        } catch (Exception e) {
+            logger.error("Failed to read reference line for {} {}, rebuilding it", track, year, e);
+            return null;
+        }
+    }
+
+    private static File file(TrackName track, int year) {
+        return new File(LINES_DIR, track.name().toLowerCase() + "_" + year + ".json");
+    }
+
+    private static String key(TrackName track, int year) {
+        return track.name() + ":" + year;
+    }
+}
@@ -7,22 +7,19 @@ import java.util.List;
 public class TrackCenterline {
     private final TrackEdge leftEdge;
     private final TrackEdge rightEdge;
-    private final List<Pos> centerlinePoints;
-    private final List<Double> arcLengths;
+    private final Polyline centerline;
     private final List<Double> trackWidths;
-    private final double totalLength;
 
     public TrackCenterline(TrackEdge leftEdge, TrackEdge rightEdge) {
         this.leftEdge = leftEdge;
         this.rightEdge = rightEdge;
-        this.centerlinePoints = new ArrayList<>();
-        this.arcLengths = new ArrayList<>();
         this.trackWidths = new ArrayList<>();
-        this.totalLength = computeCenterline();
+        this.centerline = computeCenterline();
     }
 
-    private double computeCenterline() {
+    private Polyline computeCenterline() {
         int samples = 1000;
+        List<Pos> centerlinePoints = new ArrayList<>(samples + 1);
 
         for (int i = 0; i <= samples; i++) {
             double percent = i / (double) samples;
@@ -42,52 +39,11 @@ public class TrackCenterline {
             trackWidths.add(width);
         }
 
-        arcLengths.add(0.0);
-        double cumulative = 0.0;
-
-        for (int i = 1; i < centerlinePoints.size(); i++) {
-            Pos prev = centerlinePoints.get(i - 1);
-            Pos curr = centerlinePoints.get(i);
-            double dist = prev.distance(curr);
-            cumulative += dist;
-            arcLengths.add(cumulative);
-        }
-
-        return cumulative;
+        return new Polyline(centerlinePoints);
     }
 
     public Pos getPositionAtPercent(double percent) {
-        if (centerlinePoints.isEmpty()) {
-            throw new IllegalStateException("Centerline has no points");
-        }
-
-        if (percent <= 0.0) {
-            return centerlinePoints.get(0);
-        }
-        if (percent >= 1.0) {
-            return centerlinePoints.get(centerlinePoints.size() - 1);
-        }
-
-        double targetLength = totalLength * percent;
-
-        int index = 0;
-        for (int i = 0; i < arcLengths.size() - 1; i++) {
-            if (arcLengths.get(i) <= targetLength && targetLength <= arcLengths.get(i + 1)) {
-                index = i;
-                break;
-            }
-        }
-
-        double segmentStart = arcLengths.get(index);
-        double segmentEnd = arcLengths.get(index + 1);
-        double segmentLength = segmentEnd - segmentStart;
-
-        if (segmentLength < 0.001) {
-            return centerlinePoints.get(index);
-        }
-
-        double t = (targetLength - segmentStart) / segmentLength;
-        return interpolate(centerlinePoints.get(index), centerlinePoints.get(index + 1), t);
+        return centerline.positionAtPercent(percent);
     }
 
     public Pos getNormalAtPercent(double percent) {
@@ -97,7 +53,7 @@ public class TrackCenterline {
     }
 
     public Pos getTangentAtPercent(double percent) {
-        if (centerlinePoints.size() < 2) {
+        if (centerline.size() < 2) {
             return new Pos(1, 0, 0);
         }
 
@@ -117,22 +73,12 @@ public class TrackCenterline {
     }
 
     public double findClosestPercent(Pos target) {
-        if (centerlinePoints.isEmpty()) {
+        if (centerline.getTotalLength() <= 0) {
             return 0.0;
         }
 
-        double minDist = Double.MAX_VALUE;
-        int closestIndex = 0;
-
-        for (int i = 0; i < centerlinePoints.size(); i++) {
-            double dist = centerlinePoints.get(i).distance(target);
-            if (dist < minDist) {
-                minDist = dist;
-                closestIndex = i;
-            }
-        }
-
-        return arcLengths.get(closestIndex) / totalLength;
+        int segment = centerline.findClosestSegment(target);
+        return centerline.projectOnto(segment, target) / centerline.getTotalLength();
     }
 
     public double getTrackWidthAtPercent(double percent) {
@@ -156,7 +102,7 @@ public class TrackCenterline {
         dot = Math.max(-1.0, Math.min(1.0, dot));
 
         double angle = Math.acos(dot);
-        double distance = totalLength * 2 * epsilon;
+        double distance = centerline.getTotalLength() * 2 * epsilon;
 
         if (distance < 0.001) {
             return 0.0;
@@ -165,20 +111,12 @@ public class TrackCenterline {
         return angle / distance;
     }
 
-    private Pos interpolate(Pos a, Pos b, double t) {
-        return new Pos(
-            a.x() + (b.x() - a.x()) * t,
-            a.y() + (b.y() - a.y()) * t,
-            a.z() + (b.z() - a.z()) * t
-        );
-    }
-
     public double getTotalLength() {
-        return totalLength;
+        return centerline.getTotalLength();
     }
 
     public List<Pos> getCenterlinePoints() {
-        return new ArrayList<>(centerlinePoints);
+        return centerline.getPoints();
     }
 
     public TrackEdge getLeftEdge() {
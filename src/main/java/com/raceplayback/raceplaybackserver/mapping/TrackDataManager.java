@@ -5,6 +5,10 @@ import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.raceplayback.raceplaybackserver.data.TrackName;
+import com.raceplayback.raceplaybackserver.jfr.TrackLoadEvent;
+import com.raceplayback.raceplaybackserver.metrics.Counter;
+import com.raceplayback.raceplaybackserver.metrics.Histogram;
+import com.raceplayback.raceplaybackserver.metrics.MetricsRegistry;
 import net.minestom.server.coordinate.Pos;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,6 +29,10 @@ public class TrackDataManager {
 
     private static final Map<TrackName, TrackCenterline> centerlineCache = new HashMap<>();
 
+    private static final Counter cacheHits = MetricsRegistry.counter("raceplayback_track_cache_hits_total", "Centerline lookups served from the cache");
+    private static final Counter cacheMisses = MetricsRegistry.counter("raceplayback_track_cache_misses_total", "Centerline lookups that had to read track data from disk");
+    private static final Histogram loadTime = MetricsRegistry.timer("raceplayback_track_load_seconds", "Time spent reading track edges and building a centerline");
+
     public static void saveTrackEdges(TrackName trackName, TrackEdge leftEdge, TrackEdge rightEdge) {
         try {
             File dir = new File(TRACKS_DIR);
@@ -37,35 +45,27 @@ public class TrackDataManager {
             JsonObject json = new JsonObject();
             json.addProperty("track", trackName.name());
 
-            JsonArray leftArray = new JsonArray();
-            for (Pos pos : leftEdge.getPoints()) {
-                JsonObject point = new JsonObject();
-                point.addProperty("x", pos.x());
-                point.addProperty("y", pos.y());
-                point.addProperty("z", pos.z());
-                leftArray.add(point);
-            }
-            json.add("leftEdge", leftArray);
-
-            JsonArray rightArray = new JsonArray();
-            for (Pos pos : rightEdge.getPoints()) {
-                JsonObject point = new JsonObject();
-                point.addProperty("x", pos.x());
-                point.addProperty("y", pos.y());
-                point.addProperty("z", pos.z());
-                rightArray.add(point);
-            }
-            json.add("rightEdge", rightArray);
+            json.add("leftEdge", toJson(leftEdge.getPoints()));
+            json.add("rightEdge", toJson(rightEdge.getPoints()));
+            // The scan, so edges can be rebuilt from it rather than from the processed points
+            json.add("leftEdgeScan", toJson(leftEdge.getRawPoints()));
+            json.add("rightEdgeScan", toJson(rightEdge.getRawPoints()));
 
             json.addProperty("leftEdgeLength", leftEdge.getTotalLength());
             json.addProperty("rightEdgeLength", rightEdge.getTotalLength());
             json.addProperty("leftEdgePoints", leftEdge.size());
             json.addProperty("rightEdgePoints", rightEdge.size());
+            json.addProperty("leftEdgeMaxError", leftEdge.getMaxError());
+            json.addProperty("rightEdgeMaxError", rightEdge.getMaxError());
 
             try (FileWriter writer = new FileWriter(file)) {
                 gson.toJson(json, writer);
             }
 
+            // Anything built from the old edges is now wrong
+            centerlineCache.remove(trackName);
+            MappedLapCache.invalidate(trackName);
+
             logger.info("Saved track edges for {} to {}", trackName, file.getPath());
             logger.info("  Left edge: {} points, {} blocks", leftEdge.size(), leftEdge.getTotalLength());
             logger.info("  Right edge: {} points, {} blocks", rightEdge.size(), rightEdge.getTotalLength());
@@ -77,16 +77,25 @@ public class TrackDataManager {
 
     public static TrackCenterline loadTrackCenterline(TrackName trackName) {
         if (centerlineCache.containsKey(trackName)) {
+            cacheHits.increment();
             logger.info("Loaded {} centerline from cache", trackName);
             return centerlineCache.get(trackName);
         }
 
+        cacheMisses.increment();
+        long loadStart = System.nanoTime();
+
+        TrackLoadEvent event = new TrackLoadEvent();
+        event.begin();
+        event.track = trackName.name();
+
         try {
             File file = new File(TRACKS_DIR, trackName.name().toLowerCase() + ".json");
 
             if (!file.exists()) {
                 logger.error("Track data file not found: {}", file.getPath());
                 logger.error("Please scan the track first using /scantack command");
+                event.commit();
                 return null;
             }
 
@@ -95,33 +104,16 @@ public class TrackDataManager {
                 json = gson.fromJson(reader, JsonObject.class);
             }
 
-            JsonArray leftArray = json.getAsJsonArray("leftEdge");
-            List<Pos> leftPoints = new ArrayList<>();
-            for (int i = 0; i < leftArray.size(); i++) {
-                JsonObject point = leftArray.get(i).getAsJsonObject();
-                leftPoints.add(new Pos(
-                    point.get("x").getAsDouble(),
-                    point.get("y").getAsDouble(),
-                    point.get("z").getAsDouble()
-                ));
-            }
-
-            JsonArray rightArray = json.getAsJsonArray("rightEdge");
-            List<Pos> rightPoints = new ArrayList<>();
-            for (int i = 0; i < rightArray.size(); i++) {
-                JsonObject point = rightArray.get(i).getAsJsonObject();
-                rightPoints.add(new Pos(
-                    point.get("x").getAsDouble(),
-                    point.get("y").getAsDouble(),
-                    point.get("z").getAsDouble()
-                ));
-            }
-
-            TrackEdge leftEdge = new TrackEdge(leftPoints);
-            TrackEdge rightEdge = new TrackEdge(rightPoints);
+            TrackEdge leftEdge = readEdge(json, "leftEdge");
+            TrackEdge rightEdge = readEdge(json, "rightEdge");
             TrackCenterline centerline = new TrackCenterline(leftEdge, rightEdge);
 
             centerlineCache.put(trackName, centerline);
+            loadTime.recordSince(loadStart);
+
+            event.edgePoints = leftEdge.size() + rightEdge.size();
+            event.success = true;
+            event.commit();
 
             logger.info("Loaded {} centerline from {}", trackName, file.getPath());
             logger.info("  Centerline length: {} blocks", centerline.getTotalLength());
@@ -130,10 +122,60 @@ public class TrackDataManager {
 
         } catch (Exception e) {
             logger.error("Failed to load track centerline for {}", trackName, e);
+            event.commit();
             return null;
         }
     }
 
+    /**
+     * Rebuilds the edge from its scan when the file has one, so it is processed exactly once and
+     * with the current settings. Files saved before scans were kept only have the processed
+     * points, which are used as they are.
+     */
+    private static TrackEdge readEdge(JsonObject json, String name) {
+        JsonArray scan = json.getAsJsonArray(name + "Scan");
+        if (scan != null && !scan.isEmpty()) {
+            return new TrackEdge(fromJson(scan));
+        }
+
+        List<Pos> points = fromJson(json.getAsJsonArray(name));
+        double maxError = json.has(name + "MaxError") ? json.get(name + "MaxError").getAsDouble() : 0.0;
+        return TrackEdge.fromProcessed(points, points.size(), maxError);
+    }
+
+    private static JsonArray toJson(List<Pos> points) {
+        JsonArray array = new JsonArray();
+        for (Pos pos : points) {
+            JsonObject point = new JsonObject();
+            point.addProperty("x", pos.x());
+            point.addProperty("y", pos.y());
+            point.addProperty("z", pos.z());
+            array.add(point);
+        }
+        return array;
+    }
+
+    private static List<Pos> fromJson(JsonArray array) {
+        List<Pos> points = new ArrayList<>();
+        for (int i = 0; i < array.size(); i++) {
+            JsonObject point = array.get(i).getAsJsonObject();
+            points.add(new Pos(
+                point.get("x").getAsDouble(),
+                point.get("y").getAsDouble(),
+                point.get("z").getAsDouble()
+            ));
+        }
+        return points;
+    }
+
+    /**
+     * @return the hex SHA-256 of the track's saved edges, which changes whenever the track is
+     *         scanned again, or null if it has not been scanned
+     */
+    public static String getTrackFileHash(TrackName trackName) {
+        return MappedLapCache.hashFile(new File(TRACKS_DIR, trackName.name().toLowerCase() + ".json"));
+    }
+
     public static boolean trackDataExists(TrackName trackName) {
         File file = new File(TRACKS_DIR, trackName.name().toLowerCase() + ".json");
         return file.exists();
@@ -1,75 +1,64 @@
 package com.raceplayback.raceplaybackserver.mapping;
 
 import net.minestom.server.coordinate.Pos;
-import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * One edge of the track. Edges are built from the scanned blocks, which are resampled and
+ * simplified once; the scan itself is kept so the edge can be saved with it and rebuilt from it.
+ */
 public class TrackEdge {
-    private final List<Pos> points;
-    private final List<Double> arcLengths;
-    private final double totalLength;
-
-    public TrackEdge(List<Pos> points) {
-        this.points = new ArrayList<>(points);
-        this.arcLengths = new ArrayList<>();
-        this.totalLength = computeArcLengths();
-    }
+    // Scanned edges are staircases of block positions; half a block keeps the shape and drops the steps
+    private static final double RESAMPLE_SPACING = 0.5;
+    private static final double SIMPLIFY_TOLERANCE = 0.5;
 
-    private double computeArcLengths() {
-        if (points.isEmpty()) {
-            return 0.0;
+    // Null for an edge with no points
+    private final Polyline polyline;
+    private final List<Pos> rawPoints;
+    private final int rawPointCount;
+    private final double maxError;
+
+    /**
+     * Builds the edge from scanned points.
+     */
+    public TrackEdge(List<Pos> rawPoints) {
+        this.rawPoints = List.copyOf(rawPoints);
+        this.rawPointCount = rawPoints.size();
+        if (rawPoints.isEmpty()) {
+            this.polyline = null;
+            this.maxError = 0.0;
+            return;
         }
 
-        arcLengths.add(0.0);
-        double cumulative = 0.0;
+        PolylineProcessor.Result processed = PolylineProcessor.process("track edge", rawPoints, RESAMPLE_SPACING, SIMPLIFY_TOLERANCE);
+        this.polyline = processed.polyline();
+        this.maxError = processed.maxError();
+    }
 
-        for (int i = 1; i < points.size(); i++) {
-            Pos prev = points.get(i - 1);
-            Pos curr = points.get(i);
-            double dist = prev.distance(curr);
-            cumulative += dist;
-            arcLengths.add(cumulative);
-        }
+    private TrackEdge(Polyline polyline, int rawPointCount, double maxError) {
+        this.polyline = polyline;
+        this.rawPoints = List.of();
+        this.rawPointCount = rawPointCount;
+        this.maxError = maxError;
+    }
 
-        return cumulative;
+    /**
+     * Wraps points that were already resampled and simplified, such as an edge saved without
+     * its scan, without processing them again.
+     */
+    public static TrackEdge fromProcessed(List<Pos> points, int rawPointCount, double maxError) {
+        return new TrackEdge(points.isEmpty() ? null : new Polyline(points), rawPointCount, maxError);
     }
 
     public Pos getPositionAtPercent(double percent) {
-        if (points.isEmpty()) {
+        if (polyline == null) {
             throw new IllegalStateException("Track edge has no points");
         }
-
-        if (percent <= 0.0) {
-            return points.get(0);
-        }
-        if (percent >= 1.0) {
-            return points.get(points.size() - 1);
-        }
-
-        double targetLength = totalLength * percent;
-
-        int index = 0;
-        for (int i = 0; i < arcLengths.size() - 1; i++) {
-            if (arcLengths.get(i) <= targetLength && targetLength <= arcLengths.get(i + 1)) {
-                index = i;
-                break;
-            }
-        }
-
-        double segmentStart = arcLengths.get(index);
-        double segmentEnd = arcLengths.get(index + 1);
-        double segmentLength = segmentEnd - segmentStart;
-
-        if (segmentLength < 0.001) {
-            return points.get(index);
-        }
-
-        double t = (targetLength - segmentStart) / segmentLength;
-        return interpolate(points.get(index), points.get(index + 1), t);
+        return polyline.positionAtPercent(percent);
     }
 
     public Pos getTangentAtPercent(double percent) {
-        if (points.size() < 2) {
+        if (size() < 2) {
             return new Pos(1, 0, 0);
         }
 
@@ -93,61 +82,45 @@ public class TrackEdge {
      * @return arc-length percentage (0.0 to 1.0)
      */
     public double findClosestPercent(Pos target) {
-        if (points.isEmpty()) {
+        if (getTotalLength() <= 0) {
             return 0.0;
         }
 
-        double minDist = Double.MAX_VALUE;
-        int closestIndex = 0;
-
-        for (int i = 0; i < points.size(); i++) {
-            double dist = points.get(i).distance(target);
-            if (dist < minDist) {
-                minDist = dist;
-                closestIndex = i;
-            }
-        }
-
-        int startIdx = Math.max(0, closestIndex - 1);
-        int endIdx = Math.min(points.size() - 1, closestIndex + 1);
-
-        double bestPercent = arcLengths.get(closestIndex) / totalLength;
-        minDist = points.get(closestIndex).distance(target);
-
-        for (int i = startIdx; i < endIdx; i++) {
-            for (int j = 0; j <= 10; j++) {
-                double t = j / 10.0;
-                Pos p = interpolate(points.get(i), points.get(i + 1), t);
-                double dist = p.distance(target);
-
-                if (dist < minDist) {
-                    minDist = dist;
-                    double segmentPercent = (arcLengths.get(i) + t * (arcLengths.get(i + 1) - arcLengths.get(i))) / totalLength;
-                    bestPercent = segmentPercent;
-                }
-            }
-        }
-
-        return bestPercent;
+        int segment = polyline.findClosestSegment(target);
+        return polyline.projectOnto(segment, target) / polyline.getTotalLength();
     }
 
-    private Pos interpolate(Pos a, Pos b, double t) {
-        return new Pos(
-            a.x() + (b.x() - a.x()) * t,
-            a.y() + (b.y() - a.y()) * t,
-            a.z() + (b.z() - a.z()) * t
-        );
+    public List<Pos> getPoints() {
+        return polyline != null ? polyline.getPoints() : List.of();
     }
 
-    public List<Pos> getPoints() {
-        return new ArrayList<>(points);
+    /**
+     * @return the scanned points the edge was built from, or an empty list if it was loaded
+     *         without them
+     */
+    public List<Pos> getRawPoints() {
+        return rawPoints;
     }
 
     public double getTotalLength() {
-        return totalLength;
+        return polyline != null ? polyline.getTotalLength() : 0.0;
     }
 
     public int size() {
-        return points.size();
+        return polyline != null ? polyline.size() : 0;
+    }
+
+    /**
+     * @return how many points the edge was built from, before simplification
+     */
+    public int getRawPointCount() {
+        return rawPointCount;
+    }
+
+    /**
+     * @return the furthest any of the original points lies from the simplified edge, in blocks
+     */
+    public double getMaxError() {
+        return maxError;
     }
 }
@@ -0,0 +1,44 @@
+package com.raceplayback.raceplaybackserver.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Either a settable value or a callback read at scrape time.
+ */
+public class Gauge {
+    private final String name;
+    private final String help;
+    private final AtomicLong value = new AtomicLong();
+    private final LongSupplier supplier;
+
+    Gauge(String name, String help, LongSupplier supplier) {
+        this.name = name;
+        this.help = help;
+        this.supplier = supplier;
+    }
+
+    public void set(long newValue) {
+        value.set(newValue);
+    }
+
+    public void increment() {
+        value.incrementAndGet();
+    }
+
+    public void decrement() {
+        value.decrementAndGet();
+    }
+
+    public long get() {
+        return supplier != null ? supplier.getAsLong() : value.get();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getHelp() {
+        return help;
+    }
+}
@@ -0,0 +1,83 @@
+package com.raceplayback.raceplaybackserver.metrics;
+
+import com.raceplayback.raceplaybackserver.util.EnvConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves {@link MetricsRegistry} in the Prometheus text format on /metrics.
+ * Binds to loopback unless METRICS_HOST says otherwise.
+ */
+public class MetricsHttpServer {
+    private static final Logger logger = LoggerFactory.getLogger(MetricsHttpServer.class);
+
+    private final String host;
+    private final int port;
+
+    private HttpServer httpServer;
+    private ExecutorService executor;
+
+    public MetricsHttpServer(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * @return the configured server, or null when METRICS_PORT is not set
+     */
+    public static MetricsHttpServer fromEnv() {
+        int port = EnvConfig.getInt("METRICS_PORT", 0);
+        if (port <= 0) {
+            return null;
+        }
+        return new MetricsHttpServer(EnvConfig.get("METRICS_HOST", "127.0.0.1"), port);
+    }
+
+    public void start() throws IOException {
+        httpServer = HttpServer.create(new InetSocketAddress(host, port), 0);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        httpServer.setExecutor(executor);
+        httpServer.createContext("/metrics", this::handle);
+        httpServer.start();
+
+        logger.info("Metrics available at http://{}:{}/metrics", host, port);
+    }
+
+    public void stop() {
+        if (httpServer != null) {
+            httpServer.stop(0);
+            httpServer = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            byte[] body = MetricsRegistry.renderPrometheus().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.raceplayback.raceplaybackserver.metrics;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+
+public class MetricsRegistry {
+    public static final double NANOS_TO_SECONDS = 1e-9;
+
+    private static final double[] EXPORTED_QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private static final Map<String, Counter> counters = new ConcurrentSkipListMap<>();
+    private static final Map<String, Gauge> gauges = new ConcurrentSkipListMap<>();
+    private static final Map<String, Histogram> histograms = new ConcurrentSkipListMap<>();
+
+    public static Counter counter(String name, String help) {
+        return counters.computeIfAbsent(name, key -> new Counter(key, help));
+    }
+
+    public static Gauge gauge(String name, String help) {
+        return gauges.computeIfAbsent(name, key -> new Gauge(key, help, null));
+    }
+
+    public static Gauge gauge(String name, String help, LongSupplier supplier) {
+        return gauges.computeIfAbsent(name, key -> new Gauge(key, help, supplier));
+    }
+
+    /**
+     * Histogram of nanosecond durations, exported in seconds.
+     */
+    public static Histogram timer(String name, String help) {
+        return histogram(name, help, NANOS_TO_SECONDS);
+    }
+
+    public static Histogram histogram(String name, String help, double unitScale) {
+        return histograms.computeIfAbsent(name, key -> new Histogram(key, help, unitScale));
+    }
+
+    public static Collection<Counter> getCounters() {
+        return counters.values();
+    }
+
+    public static Collection<Gauge> getGauges() {
+        return gauges.values();
+    }
+
+    public static Collection<Histogram> getHistograms() {
+        return histograms.values();
+    }
+
+    public static void reset() {
+        counters.values().forEach(Counter::reset);
+        histograms.values().forEach(Histogram::reset);
+    }
+
+    /**
+     * Renders every metric in the Prometheus text exposition format. Histograms are exported
+     * as summaries since their buckets are far too fine-grained to publish directly.
+     */
+    public static String renderPrometheus() {
+        StringBuilder out = new StringBuilder(4096);
+
+        for (Counter counter : counters.values()) {
+            header(out, counter.getName(), counter.getHelp(), "counter");
+            out.append(counter.getName()).append(' ').append(counter.get()).append('\n');
+        }
+
+        for (Gauge gauge : gauges.values()) {
+            header(out, gauge.getName(), gauge.getHelp(), "gauge");
+            out.append(gauge.getName()).append(' ').append(gauge.get()).append('\n');
+        }
+
+        for (Histogram histogram : histograms.values()) {
+            Histogram.Snapshot snapshot = histogram.snapshot();
+            header(out, histogram.getName(), histogram.getHelp(), "summary");
+            for (double quantile : EXPORTED_QUANTILES) {
+                out.append(histogram.getName())
+                    .append("{quantile=\"").append(quantile).append("\"} ")
+                    .append(format(snapshot.quantile(quantile))).append('\n');
+            }
+            out.append(histogram.getName()).append("_sum ").append(format(snapshot.getSum())).append('\n');
+            out.append(histogram.getName()).append("_count ").append(snapshot.getCount()).append('\n');
+
+            header(out, histogram.getName() + "_max", "Largest value recorded for " + histogram.getName(), "gauge");
+            out.append(histogram.getName()).append("_max ").append(format(snapshot.getMax())).append('\n');
+        }
+
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.9g", value);
+    }
+}
@@ -0,0 +1,156 @@
+package com.raceplayback.raceplaybackserver.network;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.raceplayback.raceplaybackserver.data.Compound;
+import com.raceplayback.raceplaybackserver.data.LapTelemetry;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Binary telemetry format negotiated with {@code Accept: application/x-raceplayback-columnar}.
+ * All values are little-endian:
+ *
+ * <pre>
+ * int32 magic "RPC1", int32 lapCount
+ * per lap:
+ *   int32 blockLength (bytes following this field), int32 lapNumber, int32 n
+ *   int64[n] SessionTime_ms
+ *   float32[n] Distance, Speed, RPM, Throttle, X, Y
+ *   int8[n] nGear, DRS, Compound (ordinal), flags (bit 0 = Brake)
+ * </pre>
+ *
+ * Each column is copied out of the buffer with a single bulk get, so decoding creates no
+ * objects besides the arrays themselves. Laps are concatenated, like the JSON parser does.
+ */
+public class ColumnarTelemetryCodec {
+    public static final String MEDIA_TYPE = "application/x-raceplayback-columnar";
+
+    private static final int MAGIC = 0x31435052;
+    private static final int BYTES_PER_SAMPLE = 8 + 6 * 4 + 4;
+
+    public static LapTelemetry decode(ByteBuffer buffer) {
+        buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a columnar telemetry payload");
+            }
+            int lapCount = buffer.getInt();
+            int blocksStart = buffer.position();
+
+            // First pass over the block headers only, to size the arrays
+            int total = 0;
+            for (int lap = 0; lap < lapCount; lap++) {
+                int blockLength = buffer.getInt();
+                int blockEnd = buffer.position() + blockLength;
+                buffer.getInt();
+                int n = buffer.getInt();
+                if (n < 0 || blockLength != 8 + (long) n * BYTES_PER_SAMPLE) {
+                    throw new IllegalArgumentException("Corrupt block for lap index " + lap);
+                }
+                total += n;
+                buffer.position(blockEnd);
+            }
+
+            long[] sessionTime = new long[total];
+            float[] distance = new float[total];
+            float[] speed = new float[total];
+            float[] rpm = new float[total];
+            float[] throttle = new float[total];
+            float[] x = new float[total];
+            float[] y = new float[total];
+            byte[] gear = new byte[total];
+            byte[] drs = new byte[total];
+            byte[] compound = new byte[total];
+            byte[] flags = new byte[total];
+
+            float[][] floatColumns = {distance, speed, rpm, throttle, x, y};
+            buffer.position(blocksStart);
+            int offset = 0;
+            for (int lap = 0; lap < lapCount; lap++) {
+                buffer.getInt();
+                buffer.getInt();
+                int n = buffer.getInt();
+
+                buffer.asLongBuffer().get(sessionTime, offset, n);
+                skip(buffer, n * 8);
+                for (float[] column : floatColumns) {
+                    buffer.asFloatBuffer().get(column, offset, n);
+                    skip(buffer, n * 4);
+                }
+                buffer.get(gear, offset, n);
+                buffer.get(drs, offset, n);
+                buffer.get(compound, offset, n);
+                buffer.get(flags, offset, n);
+
+                offset += n;
+            }
+
+            int compounds = Compound.values().length;
+            for (int i = 0; i < total; i++) {
+                if (compound[i] < 0 || compound[i] >= compounds) {
+                    throw new IllegalArgumentException("Unknown compound " + compound[i]);
+                }
+            }
+
+            return new LapTelemetry(sessionTime, distance, speed, rpm, throttle, x, y, gear, drs, compound, flags);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated columnar telemetry payload", e);
+        }
+    }
+
+    /**
+     * Encodes the JSON telemetry payload (an array of {"lap_number", "telemetry": [...]}) in the
+     * columnar format. Used by the local stand-in API.
+     */
+    public static byte[] encode(JsonArray laps) {
+        int size = 8;
+        for (JsonElement lap : laps) {
+            size += 12 + lap.getAsJsonObject().getAsJsonArray("telemetry").size() * BYTES_PER_SAMPLE;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putInt(laps.size());
+
+        for (JsonElement lapElement : laps) {
+            JsonObject lap = lapElement.getAsJsonObject();
+            JsonArray samples = lap.getAsJsonArray("telemetry");
+            int n = samples.size();
+
+            buffer.putInt(8 + n * BYTES_PER_SAMPLE);
+            buffer.putInt(lap.has("lap_number") ? lap.get("lap_number").getAsInt() : 0);
+            buffer.putInt(n);
+
+            for (JsonElement sample : samples) {
+                buffer.putLong(sample.getAsJsonObject().get("SessionTime_ms").getAsLong());
+            }
+            for (String key : new String[] {"Distance", "Speed", "RPM", "Throttle", "X", "Y"}) {
+                for (JsonElement sample : samples) {
+                    buffer.putFloat(sample.getAsJsonObject().get(key).getAsFloat());
+                }
+            }
+            for (JsonElement sample : samples) {
+                buffer.put((byte) sample.getAsJsonObject().get("nGear").getAsInt());
+            }
+            for (JsonElement sample : samples) {
+                buffer.put((byte) sample.getAsJsonObject().get("DRS").getAsInt());
+            }
+            for (JsonElement sample : samples) {
+                buffer.put((byte) Compound.valueOf(sample.getAsJsonObject().get("Compound").getAsString()).ordinal());
+            }
+            for (JsonElement sample : samples) {
+                buffer.put((byte) (sample.getAsJsonObject().get("Brake").getAsBoolean() ? LapTelemetry.FLAG_BRAKING : 0));
+            }
+        }
+
+        return buffer.array();
+    }
+
+    private static void skip(ByteBuffer buffer, int bytes) {
+        buffer.position(buffer.position() + bytes);
+    }
+}
@@ -1,20 +1,46 @@
 package com.raceplayback.raceplaybackserver.network;
 
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.math.BigDecimal;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 import org.slf4j.Logger;
 
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.raceplayback.raceplaybackserver.RacePlaybackServer;
@@ -22,69 +48,502 @@ import com.raceplayback.raceplaybackserver.data.Compound;
 import com.raceplayback.raceplaybackserver.data.DataModelType;
 import com.raceplayback.raceplaybackserver.data.Driver;
 import com.raceplayback.raceplaybackserver.data.LapData;
+import com.raceplayback.raceplaybackserver.data.LapTable;
+import com.raceplayback.raceplaybackserver.data.LapTelemetry;
+import com.raceplayback.raceplaybackserver.data.PitStop;
+import com.raceplayback.raceplaybackserver.data.RaceControlMessage;
 import com.raceplayback.raceplaybackserver.data.Session;
 import com.raceplayback.raceplaybackserver.data.SessionType;
 import com.raceplayback.raceplaybackserver.data.TeamRadio;
 import com.raceplayback.raceplaybackserver.data.TelemetryPoint;
 import com.raceplayback.raceplaybackserver.data.TrackName;
 import com.raceplayback.raceplaybackserver.data.WeatherData;
+import com.raceplayback.raceplaybackserver.jfr.LapFetchEvent;
+import com.raceplayback.raceplaybackserver.jfr.TelemetryParseEvent;
+import com.raceplayback.raceplaybackserver.metrics.Counter;
+import com.raceplayback.raceplaybackserver.metrics.Histogram;
+import com.raceplayback.raceplaybackserver.metrics.MetricsRegistry;
+import com.raceplayback.raceplaybackserver.util.EnvConfig;
 
 public class F1ApiClient {
+    public static final String DEFAULT_BASE_URL = "https://raceplayback.com/api/v1/sessions";
+
+    private static volatile String baseUrl = EnvConfig.get("API_BASE_URL", DEFAULT_BASE_URL);
+
+    private static final Histogram fetchTime = MetricsRegistry.timer("raceplayback_api_fetch_seconds", "Time from sending an API request to receiving the response headers");
+    private static final Histogram parseTime = MetricsRegistry.timer("raceplayback_api_parse_seconds", "Time spent parsing API responses into data models");
+    private static final Counter requests = MetricsRegistry.counter("raceplayback_api_requests_total", "API requests sent, including retries");
+    private static final Counter failures = MetricsRegistry.counter("raceplayback_api_failures_total", "API requests that still failed after all retries");
+    private static final Counter notFound = MetricsRegistry.counter("raceplayback_api_not_found_total", "API responses reporting 404");
+    private static final Counter notModified = MetricsRegistry.counter("raceplayback_api_not_modified_total", "API responses revalidated with 304 Not Modified");
+    private static final Counter wireBytes = MetricsRegistry.counter("raceplayback_api_wire_bytes_total", "Bytes of API response bodies received, before decompression");
+    private static final Counter responseBytes = MetricsRegistry.counter("raceplayback_api_response_bytes_total", "Bytes of API response bodies after decompression");
+
+    private static final Counter retries = MetricsRegistry.counter("raceplayback_api_retries_total", "API requests retried after a transient failure");
+    private static final Counter rejected = MetricsRegistry.counter("raceplayback_api_rejected_total", "API responses with a non-retryable error status other than 404");
+    private static final Counter hedged = MetricsRegistry.counter("raceplayback_api_hedged_total", "API requests duplicated because the first was slower than p95");
+    private static final Counter hedgeWins = MetricsRegistry.counter("raceplayback_api_hedge_wins_total", "Hedged API requests where the duplicate answered first");
+    private static final Counter columnarResponses = MetricsRegistry.counter("raceplayback_api_columnar_responses_total", "Telemetry responses received in the binary columnar format");
+    private static final Counter notFoundCacheHits = MetricsRegistry.counter("raceplayback_api_not_found_cache_hits_total", "API requests skipped because the resource recently returned 404");
+
+    private static final int maxAttempts = Math.max(1, EnvConfig.getInt("API_MAX_ATTEMPTS", 4));
+    private static final Duration requestTimeout = Duration.ofSeconds(EnvConfig.getLong("API_REQUEST_TIMEOUT_SECONDS", 30));
+    private static final long notFoundTtlNanos = TimeUnit.SECONDS.toNanos(EnvConfig.getLong("API_NOT_FOUND_TTL_SECONDS", 300));
+    private static final boolean hedgingEnabled = EnvConfig.getBoolean("API_HEDGE_ENABLED", true);
+    private static final boolean columnarTelemetry = EnvConfig.getBoolean("API_COLUMNAR_TELEMETRY", true);
+
+    private static final long BASE_BACKOFF_MS = 250;
+    private static final long MAX_BACKOFF_MS = 8_000;
+    private static final long MAX_RETRY_AFTER_MS = 30_000;
+    private static final int HEDGE_MIN_SAMPLES = 50;
+    private static final int HEDGE_REFRESH_REQUESTS = 32;
+    private static final long HEDGE_FLOOR_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private static final HttpClient client = HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(10))
+        .build();
+    private static final Map<URI, Long> knownMissing = new ConcurrentHashMap<>();
+    // Latency is tracked per kind of endpoint, since a telemetry download says nothing about how long info takes
+    private static final Map<String, HedgeTiming> hedgeTimings = new ConcurrentHashMap<>();
+    // The hedge budget, kept apart from the exported counters so /perf reset does not lift it
+    private static final AtomicLong budgetRequests = new AtomicLong();
+    private static final AtomicLong budgetHedged = new AtomicLong();
+    private static final int MAX_VALIDATED_RESPONSES = 256;
+
+    // Parsed session responses along with their validators, so an unchanged resource costs a 304 instead of a body.
+    // Keyed by model type too, since the same resource can be parsed into different models.
+    private static final Map<ValidatedKey, ValidatedResponse> validatedResponses = Collections.synchronizedMap(
+        new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ValidatedKey, ValidatedResponse> eldest) {
+                return size() > MAX_VALIDATED_RESPONSES;
+            }
+        });
+
     private URI uri;
-    private HttpClient client;
-    private HttpResponse<String> response;
+    private int statusCode;
+    private long receivedBytes;
     private Object dataObject;
 
     private RacePlaybackServer server = RacePlaybackServer.getInstance();
     private Logger logger = server.getLogger();
 
+    public F1ApiClient(int year, TrackName track, SessionType type, String endpoint, DataModelType modelType) {
+        this(baseUrl, year, track, type, endpoint, modelType);
+    }
+
     public F1ApiClient(String url, int year, TrackName track, SessionType type, String endpoint, DataModelType modelType) {
-        if (!(url.startsWith("https://"))) {
+        if (url.endsWith("/")) {
+            url = url.substring(0, url.length() - 1);
+        }
+
+        if (!(url.startsWith("https://") || url.startsWith("http://"))) {
             uri = URI.create("https://%s/%d/%s/%s/%s".formatted(url, year, track.toString().toLowerCase(), type.toString().toLowerCase(), endpoint));
         } else {
             uri = URI.create("%s/%d/%s/%s/%s".formatted(url, year, track.toString().toLowerCase(), type.toString().toLowerCase(), endpoint));
         }
 
-        HttpRequest request = HttpRequest.newBuilder().uri(uri).GET().build();
+        // Telemetry is cached by LapCache instead; revalidating it would mean keeping every lap twice
+        boolean revalidate = modelType != DataModelType.TELEMETRY_POINT && modelType != DataModelType.LAP_TELEMETRY
+            && modelType != DataModelType.NULL;
+        ValidatedResponse validated = revalidate ? validatedResponses.get(new ValidatedKey(uri, modelType)) : null;
+
+        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder().uri(uri)
+            .timeout(requestTimeout)
+            .header("Accept-Encoding", "gzip, deflate")
+            .GET();
+        if (modelType == DataModelType.LAP_TELEMETRY && columnarTelemetry) {
+            requestBuilder.header("Accept", ColumnarTelemetryCodec.MEDIA_TYPE + ", application/json;q=0.5");
+        }
+        if (validated != null && validated.etag() != null) {
+            requestBuilder.header("If-None-Match", validated.etag());
+        }
+        if (validated != null && validated.lastModified() != null) {
+            requestBuilder.header("If-Modified-Since", validated.lastModified());
+        }
+        HttpRequest request = requestBuilder.build();
+
+        if (isKnownMissing(uri)) {
+            statusCode = 404;
+            notFoundCacheHits.increment();
+            return;
+        }
+
+        fetch(request, validated, revalidate, type, endpoint, modelType);
+    }
+
+    /**
+     * Sends the request until it gets a definitive answer. Connection errors, timeouts, 408, 429
+     * and 5xx are retried with jittered exponential backoff (or the server's Retry-After, if longer).
+     * Anything else, including 404, is final.
+     */
+    private void fetch(HttpRequest request, ValidatedResponse validated, boolean revalidate,
+                       SessionType type, String endpoint, DataModelType modelType) {
+        Exception lastError = null;
+
+        for (int attempt = 1; ; attempt++) {
+            long retryAfterMillis = 0;
+            receivedBytes = 0;
+
+            LapFetchEvent fetchEvent = new LapFetchEvent();
+            fetchEvent.begin();
+            try {
+                requests.increment();
+                HttpResponse<InputStream> response = send(request, endpointKind(endpoint));
+                fetchEvent.end();
+                statusCode = response.statusCode();
+
+                if (!isTransient(statusCode)) {
+                    handle(response, validated, revalidate, type, endpoint, modelType);
+                    return;
+                }
+
+                retryAfterMillis = retryAfterMillis(response);
+                response.body().close();
+                lastError = null;
+            } catch (IOException | JsonIOException e) {
+                statusCode = 0;
+                lastError = e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failures.increment();
+                return;
+            } finally {
+                if (fetchEvent.shouldCommit()) {
+                    fetchEvent.uri = uri.toString();
+                    fetchEvent.modelType = modelType.name();
+                    fetchEvent.status = statusCode;
+                    fetchEvent.bytes = receivedBytes;
+                    fetchEvent.commit();
+                }
+            }
+
+            String reason = lastError != null ? lastError.getClass().getSimpleName() + ": " + lastError.getMessage() : "status " + statusCode;
+            if (attempt >= maxAttempts) {
+                failures.increment();
+                logger.error("Giving up on '{}' after {} attempts ({})", uri, attempt, reason);
+                return;
+            }
+
+            long delay = Math.max(backoffMillis(attempt), retryAfterMillis);
+            retries.increment();
+            logger.warn("Request to '{}' failed ({}), retrying in {} ms", uri, reason, delay);
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failures.increment();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sends the request and, once it has been outstanding for longer than the recent p95 of its
+     * kind of endpoint, sends it a second time. Whichever answers first wins and the other is
+     * cancelled. Hedges are capped at a tenth of all requests so a slow API is not hit twice as hard.
+     */
+    private static HttpResponse<InputStream> send(HttpRequest request, String kind) throws IOException, InterruptedException {
+        long fetchStart = System.nanoTime();
+        CompletableFuture<HttpResponse<InputStream>> primary = client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+
+        HedgeTiming timing = hedgeTimings.computeIfAbsent(kind, k -> new HedgeTiming());
+        long requestCount = budgetRequests.incrementAndGet();
+        long hedgeDelay = hedgingEnabled ? timing.delayNanos() : 0;
+        if (hedgeDelay > 0 && budgetHedged.get() * 10 < requestCount) {
+            try {
+                HttpResponse<InputStream> response = primary.get(hedgeDelay, TimeUnit.NANOSECONDS);
+                timing.record(fetchStart);
+                return response;
+            } catch (TimeoutException e) {
+                // Slower than usual; fall through and race a second copy
+            } catch (ExecutionException e) {
+                throw unwrap(e);
+            }
+
+            hedged.increment();
+            budgetHedged.incrementAndGet();
+            CompletableFuture<HttpResponse<InputStream>> hedge = client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+            CompletableFuture<HttpResponse<InputStream>> winner = new CompletableFuture<>();
+            AtomicInteger outstanding = new AtomicInteger(2);
+            BiConsumer<HttpResponse<InputStream>, Throwable> race = (response, error) -> {
+                if (error == null) {
+                    if (!winner.complete(response)) {
+                        closeQuietly(response.body());
+                    }
+                } else if (outstanding.decrementAndGet() == 0) {
+                    winner.completeExceptionally(error);
+                }
+            };
+            primary.whenComplete(race);
+            hedge.whenComplete(race);
+
+            try {
+                HttpResponse<InputStream> response = winner.get();
+                timing.record(fetchStart);
+                if (response == hedge.getNow(null)) {
+                    hedgeWins.increment();
+                }
+                return response;
+            } catch (ExecutionException e) {
+                throw unwrap(e);
+            } finally {
+                primary.cancel(true);
+                hedge.cancel(true);
+            }
+        }
 
-        client = HttpClient.newHttpClient();
         try {
-            response = client.send(request, HttpResponse.BodyHandlers.ofString());
-            if (response.body().contains("404")) {
-                logger.warn("URL '" + uri.toString() + "' returned 404");
+            HttpResponse<InputStream> response = primary.get();
+            timing.record(fetchStart);
+            return response;
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private void handle(HttpResponse<InputStream> response, ValidatedResponse validated, boolean revalidate,
+                        SessionType type, String endpoint, DataModelType modelType) throws IOException {
+        if (statusCode == 304 && validated != null) {
+            response.body().close();
+            notModified.increment();
+            dataObject = validated.data();
+            return;
+        }
+
+        if (statusCode == 404) {
+            response.body().close();
+            notFound.increment();
+            knownMissing.put(uri, System.nanoTime() + notFoundTtlNanos);
+            logger.warn("URL '" + uri.toString() + "' returned 404");
+            return;
+        }
+
+        if (statusCode != 200) {
+            response.body().close();
+            rejected.increment();
+            logger.error("URL '" + uri.toString() + "' returned " + statusCode);
+            return;
+        }
+
+        CountingInputStream wire = new CountingInputStream(response.body());
+        CountingInputStream decoded = null;
+        String encoding = response.headers().firstValue("Content-Encoding").orElse("identity");
+
+        try (InputStream body = decode(wire, encoding)) {
+            decoded = new CountingInputStream(body);
+
+            TelemetryParseEvent parseEvent = new TelemetryParseEvent();
+            parseEvent.begin();
+            long parseStart = System.nanoTime();
+
+            String contentType = response.headers().firstValue("Content-Type").orElse("");
+            if (modelType == DataModelType.LAP_TELEMETRY && contentType.startsWith(ColumnarTelemetryCodec.MEDIA_TYPE)) {
+                columnarResponses.increment();
+                try {
+                    dataObject = ColumnarTelemetryCodec.decode(ByteBuffer.wrap(decoded.readAllBytes()));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Invalid columnar telemetry from '" + uri + "'", e);
+                }
+                parseTime.recordSince(parseStart);
+                commitParseEvent(parseEvent, modelType);
+                return;
             }
 
+            // Decompression and parsing both happen as the body streams in, so this includes transfer time
+            JsonElement json = JsonParser.parseReader(new InputStreamReader(decoded, StandardCharsets.UTF_8));
+
             switch (modelType) {
                 case SESSION:
-                    dataObject = parseAsSession(response.body(), type);
+                    dataObject = parseAsSession(json, type);
                     break;
                 case DRIVER:
                     int driverNumber = Integer.parseInt(endpoint.substring(endpoint.lastIndexOf('/') + 1));
-                    dataObject = parseAsDriver(response.body(), driverNumber);
+                    dataObject = parseAsDriver(json, driverNumber);
+                    break;
+                case DRIVER_LIST:
+                    dataObject = parseAsDriverList(json);
                     break;
                 case TELEMETRY_POINT:
-                    dataObject = parseAsTelemetryPoints(response.body());
+                    dataObject = parseAsTelemetryPoints(json);
+                    break;
+                case LAP_TELEMETRY:
+                    dataObject = LapTelemetry.fromPoints(parseAsTelemetryPoints(json));
                     break;
                 case LAP_DATA:
-                    dataObject = parseAsLapDataList(response.body());
+                    dataObject = parseAsLapDataList(json);
+                    break;
+                case LAP_TABLE:
+                    dataObject = parseAsLapTable(json);
                     break;
                 case TEAM_RADIO:
-                    dataObject = parseAsTeamRadioList(response.body());
+                    dataObject = parseAsTeamRadioList(json);
                     break;
                 case WEATHER_DATA:
-                    dataObject = parseAsWeatherDataList(response.body());
+                    dataObject = parseAsWeatherDataList(json);
+                    break;
+                case PIT_STOP:
+                    dataObject = parseAsPitStopList(json);
+                    break;
+                case RACE_CONTROL_MESSAGE:
+                    dataObject = parseAsRaceControlMessageList(json);
                     break;
                 case NULL:
                     break;
             }
-        } catch (IOException | InterruptedException e) {
-            logger.error("Error while fetching session data from '" + uri.toString() + "': " + e.getMessage());
-            e.printStackTrace();
+            parseTime.recordSince(parseStart);
+            commitParseEvent(parseEvent, modelType);
+        } finally {
+            receivedBytes = wire.getCount();
+            wireBytes.add(receivedBytes);
+            responseBytes.add(decoded != null ? decoded.getCount() : 0);
+        }
+
+        if (revalidate && dataObject != null) {
+            String etag = response.headers().firstValue("ETag").orElse(null);
+            String lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+            if (etag != null || lastModified != null) {
+                // Shared by every later caller that gets a 304, so it must not be modifiable
+                if (dataObject instanceof List<?> list) {
+                    dataObject = List.copyOf(list);
+                }
+                validatedResponses.put(new ValidatedKey(uri, modelType), new ValidatedResponse(etag, lastModified, dataObject));
+            }
+        }
+    }
+
+    private void commitParseEvent(TelemetryParseEvent parseEvent, DataModelType modelType) {
+        parseEvent.end();
+        if (parseEvent.shouldCommit()) {
+            parseEvent.modelType = modelType.name();
+            if (dataObject instanceof List<?> list) {
+                parseEvent.points = list.size();
+            } else if (dataObject instanceof LapTelemetry telemetry) {
+                parseEvent.points = telemetry.size();
+            } else if (dataObject instanceof LapTable table) {
+                parseEvent.points = table.getDriverCount() * table.getMaxLaps();
+            } else {
+                parseEvent.points = dataObject != null ? 1 : 0;
+            }
+            parseEvent.commit();
+        }
+    }
+
+    private static boolean isTransient(int status) {
+        return status == 408 || status == 425 || status == 429 || status == 500 || status == 502 || status == 503 || status == 504;
+    }
+
+    private static boolean isKnownMissing(URI uri) {
+        Long expiresAt = knownMissing.get(uri);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (System.nanoTime() - expiresAt < 0) {
+            return true;
+        }
+        knownMissing.remove(uri, expiresAt);
+        return false;
+    }
+
+    private static long backoffMillis(int attempt) {
+        long cap = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(cap / 2, cap + 1);
+    }
+
+    private static long retryAfterMillis(HttpResponse<?> response) {
+        String retryAfter = response.headers().firstValue("Retry-After").orElse(null);
+        if (retryAfter == null) {
+            return 0;
+        }
+        try {
+            return Math.min(MAX_RETRY_AFTER_MS, Long.parseLong(retryAfter.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            try {
+                long at = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+                return Math.min(MAX_RETRY_AFTER_MS, Math.max(0, at - System.currentTimeMillis()));
+            } catch (DateTimeParseException ignored) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * @return the endpoint without its parameters, such as "telemetry" for "telemetry/VER/12"
+     */
+    private static String endpointKind(String endpoint) {
+        int slash = endpoint.indexOf('/');
+        return slash >= 0 ? endpoint.substring(0, slash) : endpoint;
+    }
+
+    /**
+     * Fetch latency of one kind of endpoint, and the hedge delay taken from it.
+     */
+    private static final class HedgeTiming {
+        private final Histogram latency = Histogram.detached(MetricsRegistry.NANOS_TO_SECONDS);
+        private final AtomicInteger refreshCountdown = new AtomicInteger();
+        private volatile long delayNanos;
+
+        void record(long fetchStart) {
+            long elapsed = System.nanoTime() - fetchStart;
+            latency.record(elapsed);
+            fetchTime.record(elapsed);
+        }
+
+        /**
+         * p95 of recent fetch latency, recomputed every {@link #HEDGE_REFRESH_REQUESTS} requests.
+         * 0 (no hedging) until there are enough samples to trust it.
+         */
+        long delayNanos() {
+            if (refreshCountdown.decrementAndGet() <= 0) {
+                refreshCountdown.set(HEDGE_REFRESH_REQUESTS);
+                Histogram.Snapshot snapshot = latency.snapshot();
+                delayNanos = snapshot.getCount() < HEDGE_MIN_SAMPLES
+                    ? 0
+                    : Math.max(HEDGE_FLOOR_NANOS, (long) (snapshot.quantile(0.95) * 1e9));
+            }
+            return delayNanos;
+        }
+    }
+
+    private static IOException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException io) {
+            return io;
+        }
+        return new IOException(cause != null ? cause : e);
+    }
+
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException ignored) {
         }
     }
 
-    private Session parseAsSession(String responseBody, SessionType sessionType) {
-        JsonObject json = JsonParser.parseString(responseBody).getAsJsonObject();
+    /**
+     * Wraps the body in a decompressing stream for its Content-Encoding. "deflate" is meant to be
+     * zlib-wrapped, but some servers send a raw deflate stream, so the header is sniffed first.
+     */
+    private static InputStream decode(InputStream body, String encoding) throws IOException {
+        switch (encoding.trim().toLowerCase()) {
+            case "gzip":
+            case "x-gzip":
+                return new GZIPInputStream(body, 8192);
+            case "deflate":
+                BufferedInputStream buffered = new BufferedInputStream(body, 8192);
+                buffered.mark(2);
+                int cmf = buffered.read();
+                int flg = buffered.read();
+                buffered.reset();
+                boolean zlib = cmf >= 0 && flg >= 0 && (cmf & 0x0F) == 8 && ((cmf << 8) | flg) % 31 == 0;
+                return new InflaterInputStream(buffered, new Inflater(!zlib), 8192);
+            default:
+                return body;
+        }
+    }
+
+    private Session parseAsSession(JsonElement body, SessionType sessionType) {
+        JsonObject json = body.getAsJsonObject();
         String circuitName = json.get("CircuitName").getAsString();
         String dateString = json.get("Date").getAsString();
         String grandPrix = json.get("GrandPrix").getAsString();
@@ -96,8 +555,8 @@ public class F1ApiClient {
         return new Session(circuitName, date, grandPrix, numberOfLaps, sessionType, year);
     }
 
-    private Driver parseAsDriver(String responseBody, int driverNumber) {
-        JsonObject json = JsonParser.parseString(responseBody).getAsJsonObject();
+    private Driver parseAsDriver(JsonElement body, int driverNumber) {
+        JsonObject json = body.getAsJsonObject();
         String abbreviation = json.get("Abbreviation").getAsString();
         String name = json.get("Name").getAsString();
         String team = json.get("Team").getAsString();
@@ -105,9 +564,36 @@ public class F1ApiClient {
         return new Driver(name, abbreviation, driverNumber, team);
     }
 
-    private List<TelemetryPoint> parseAsTelemetryPoints(String responseBody) {
+    /**
+     * The list endpoint only carries the racing number (as "Code") and full name; abbreviation
+     * and team are read if present and left null otherwise.
+     */
+    private List<Driver> parseAsDriverList(JsonElement body) {
+        List<Driver> drivers = new ArrayList<>();
+        JsonArray jsonArray = body.getAsJsonArray();
+
+        for (int i = 0; i < jsonArray.size(); i++) {
+            JsonObject json = jsonArray.get(i).getAsJsonObject();
+            int number;
+            try {
+                number = Integer.parseInt(json.get("Code").getAsString().trim());
+            } catch (NumberFormatException e) {
+                logger.warn("Skipping driver with non-numeric code '{}'", json.get("Code"));
+                continue;
+            }
+            String name = json.get("Name").getAsString();
+            String abbreviation = optionalString(json, "Abbreviation");
+            String team = optionalString(json, "Team");
+
+            drivers.add(new Driver(name, abbreviation, number, team));
+        }
+
+        return drivers;
+    }
+
+    private List<TelemetryPoint> parseAsTelemetryPoints(JsonElement body) {
         List<TelemetryPoint> telemetryPoints = new ArrayList<>();
-        JsonArray outerArray = JsonParser.parseString(responseBody).getAsJsonArray();
+        JsonArray outerArray = body.getAsJsonArray();
 
         for (int i = 0; i < outerArray.size(); i++) {
             JsonObject lapObj = outerArray.get(i).getAsJsonObject();
@@ -135,9 +621,9 @@ public class F1ApiClient {
         return telemetryPoints;
     }
 
-    private List<LapData> parseAsLapDataList(String responseBody) {
+    private List<LapData> parseAsLapDataList(JsonElement body) {
         List<LapData> lapDataList = new ArrayList<>();
-        JsonArray jsonArray = JsonParser.parseString(responseBody).getAsJsonArray();
+        JsonArray jsonArray = body.getAsJsonArray();
 
         for (int i = 0; i < jsonArray.size(); i++) {
             JsonObject json = jsonArray.get(i).getAsJsonObject();
@@ -168,9 +654,33 @@ public class F1ApiClient {
         return lapDataList;
     }
 
-    private List<TeamRadio> parseAsTeamRadioList(String responseBody) {
+    /**
+     * Same payload as {@link #parseAsLapDataList}, read straight into primitive columns.
+     */
+    private LapTable parseAsLapTable(JsonElement body) {
+        LapTable.Builder builder = new LapTable.Builder();
+        JsonArray jsonArray = body.getAsJsonArray();
+
+        for (int i = 0; i < jsonArray.size(); i++) {
+            JsonObject json = jsonArray.get(i).getAsJsonObject();
+            builder.add(
+                json.get("Driver").getAsString(),
+                json.get("DriverNumber").getAsInt(),
+                json.get("LapNumber").getAsInt(),
+                optionalSeconds(json, "LapTime"),
+                optionalSeconds(json, "Sector1Time"),
+                optionalSeconds(json, "Sector2Time"),
+                optionalSeconds(json, "Sector3Time"),
+                json.has("IsPersonalBest") && !json.get("IsPersonalBest").isJsonNull() && json.get("IsPersonalBest").getAsBoolean()
+            );
+        }
+
+        return builder.build();
+    }
+
+    private List<TeamRadio> parseAsTeamRadioList(JsonElement body) {
         List<TeamRadio> teamRadioList = new ArrayList<>();
-        JsonObject responseJson = JsonParser.parseString(responseBody).getAsJsonObject();
+        JsonObject responseJson = body.getAsJsonObject();
         JsonArray messagesArray = responseJson.getAsJsonArray("Messages");
 
         for (int i = 0; i < messagesArray.size(); i++) {
@@ -203,9 +713,9 @@ public class F1ApiClient {
         return teamRadioList;
     }
 
-    private List<WeatherData> parseAsWeatherDataList(String responseBody) {
+    private List<WeatherData> parseAsWeatherDataList(JsonElement body) {
         List<WeatherData> weatherDataList = new ArrayList<>();
-        JsonArray jsonArray = JsonParser.parseString(responseBody).getAsJsonArray();
+        JsonArray jsonArray = body.getAsJsonArray();
 
         for (int i = 0; i < jsonArray.size(); i++) {
             JsonObject json = jsonArray.get(i).getAsJsonObject();
@@ -219,7 +729,156 @@ public class F1ApiClient {
         return weatherDataList;
     }
 
+    private List<PitStop> parseAsPitStopList(JsonElement body) {
+        List<PitStop> pitStops = new ArrayList<>();
+        JsonArray jsonArray = body.getAsJsonArray();
+
+        for (int i = 0; i < jsonArray.size(); i++) {
+            JsonObject json = jsonArray.get(i).getAsJsonObject();
+            String driverCode = json.get("Driver").getAsString();
+            int lapNumber = json.get("LapNumber").getAsInt();
+            Long pitInTime = optionalMillis(json, "PitInTime");
+            Long pitOutTime = optionalMillis(json, "PitOutTime");
+            Long duration = optionalMillis(json, "Duration");
+
+            pitStops.add(new PitStop(driverCode, lapNumber, pitInTime, pitOutTime, duration));
+        }
+
+        return pitStops;
+    }
+
+    private List<RaceControlMessage> parseAsRaceControlMessageList(JsonElement body) {
+        List<RaceControlMessage> messages = new ArrayList<>();
+        JsonArray jsonArray = body.getAsJsonArray();
+
+        for (int i = 0; i < jsonArray.size(); i++) {
+            JsonObject json = jsonArray.get(i).getAsJsonObject();
+            LocalDateTime time = parseMessageTime(json.get("Time").getAsString());
+            String category = optionalString(json, "Category");
+            String message = optionalString(json, "Message");
+            String status = optionalString(json, "Status");
+            String flag = optionalString(json, "Flag");
+            String scope = optionalString(json, "Scope");
+            Integer sector = optionalInt(json, "Sector");
+            Integer racingNumber = optionalInt(json, "RacingNumber");
+            Integer lap = optionalInt(json, "Lap");
+
+            messages.add(new RaceControlMessage(time, category, message, status, flag, scope, sector, racingNumber, lap));
+        }
+
+        return messages;
+    }
+
+    /**
+     * Cached messages come back as "2024-07-07 14:03:12[.123456]", freshly loaded ones as an
+     * RFC 1123 date.
+     */
+    private static LocalDateTime parseMessageTime(String value) {
+        try {
+            return LocalDateTime.parse(value.trim().replace(' ', 'T'));
+        } catch (DateTimeParseException e) {
+            return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toLocalDateTime();
+        }
+    }
+
+    // pandas sends missing values as null or NaN, and integers as floats or strings
+    private static String optionalString(JsonObject json, String key) {
+        JsonElement value = json.get(key);
+        if (value == null || value.isJsonNull()) {
+            return null;
+        }
+        String string = value.getAsString();
+        return string.isEmpty() || string.equals("NaN") ? null : string;
+    }
+
+    private static Integer optionalInt(JsonObject json, String key) {
+        String value = optionalString(json, key);
+        if (value == null) {
+            return null;
+        }
+        try {
+            double number = Double.parseDouble(value);
+            return Double.isNaN(number) ? null : (int) number;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static float optionalSeconds(JsonObject json, String key) {
+        JsonElement value = json.get(key);
+        return value == null || value.isJsonNull() ? Float.NaN : value.getAsFloat();
+    }
+
+    private static Long optionalMillis(JsonObject json, String key) {
+        JsonElement value = json.get(key);
+        if (value == null || value.isJsonNull()) {
+            return null;
+        }
+        double seconds = value.getAsDouble();
+        return Double.isNaN(seconds) ? null : Math.round(seconds * 1000);
+    }
+
     public Object getData() {
         return dataObject;
     }
-}
\ No newline at end of file
+
+    /**
+     * @return the final HTTP status, or 0 if no response was received
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public boolean isNotFound() {
+        return statusCode == 404;
+    }
+
+    public static String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public static void setBaseUrl(String url) {
+        baseUrl = url;
+    }
+
+    private record ValidatedKey(URI uri, DataModelType modelType) {}
+
+    private record ValidatedResponse(String etag, String lastModified, Object data) {}
+
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
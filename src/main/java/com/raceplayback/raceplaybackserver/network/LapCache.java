@@ -0,0 +1,202 @@
+package com.raceplayback.raceplaybackserver.network;
+
+import com.raceplayback.raceplaybackserver.data.DataModelType;
+import com.raceplayback.raceplaybackserver.data.LapTelemetry;
+import com.raceplayback.raceplaybackserver.data.Session;
+import com.raceplayback.raceplaybackserver.data.SessionType;
+import com.raceplayback.raceplaybackserver.data.TelemetryPoint;
+import com.raceplayback.raceplaybackserver.data.TrackName;
+import com.raceplayback.raceplaybackserver.metrics.Counter;
+import com.raceplayback.raceplaybackserver.metrics.MetricsRegistry;
+import com.raceplayback.raceplaybackserver.util.EnvConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide cache of decoded laps, session info and {@link SessionBundle}s, shared by every replay. Concurrent
+ * misses for the same key wait on a single fetch instead of each hitting the API, and
+ * entries are evicted least-recently-used once their estimated size exceeds
+ * LAP_CACHE_MAX_MB. Laps are kept as immutable {@link LapTelemetry} columns, so any number
+ * of replays can share them. A bundle with endpoints missing is only kept for
+ * LAP_CACHE_PARTIAL_TTL_SECONDS, so a passing API error does not leave a session without
+ * laps for the life of the process.
+ */
+public class LapCache {
+    private static final Logger logger = LoggerFactory.getLogger(LapCache.class);
+
+    private static final long ENTRY_OVERHEAD_BYTES = 256;
+
+    private static final long maxBytes = EnvConfig.getLong("LAP_CACHE_MAX_MB", 256) * 1024 * 1024;
+    private static final long partialTtlNanos = EnvConfig.getLong("LAP_CACHE_PARTIAL_TTL_SECONDS", 60) * 1_000_000_000L;
+
+    private static final Counter hits = MetricsRegistry.counter("raceplayback_lap_cache_hits_total", "Lap cache lookups served from memory");
+    private static final Counter misses = MetricsRegistry.counter("raceplayback_lap_cache_misses_total", "Lap cache lookups that fetched from the API");
+    private static final Counter coalesced = MetricsRegistry.counter("raceplayback_lap_cache_coalesced_total", "Lap cache lookups that waited on another caller's fetch");
+    private static final Counter evictions = MetricsRegistry.counter("raceplayback_lap_cache_evictions_total", "Lap cache entries evicted to stay under the size limit");
+    private static final Counter expirations = MetricsRegistry.counter("raceplayback_lap_cache_expired_total", "Partial session bundles dropped from the lap cache to be fetched again");
+
+    private static final Map<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private static final Map<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private static long currentBytes;
+
+    static {
+        MetricsRegistry.gauge("raceplayback_lap_cache_bytes", "Estimated size of the lap cache", LapCache::getCurrentBytes);
+    }
+
+    // Session-wide entries have no driver; the lap tells session info (0) and bundles (-1) apart
+    private static final int SESSION_INFO = 0;
+    private static final int SESSION_BUNDLE = -1;
+
+    public record Key(int year, TrackName track, SessionType sessionType, String driverCode, int lap) {}
+
+    // Entries that never expire have an expiry of Long.MAX_VALUE
+    private record Entry(Object value, long bytes, long expiresAt) {}
+
+    public static Session getSession(int year, TrackName track, SessionType sessionType) {
+        Key key = new Key(year, track, sessionType, null, SESSION_INFO);
+        return (Session) get(key, () -> new F1ApiClient(year, track, sessionType, "info", DataModelType.SESSION).getData());
+    }
+
+    public static SessionBundle getSessionBundle(int year, TrackName track, SessionType sessionType) {
+        Key key = new Key(year, track, sessionType, null, SESSION_BUNDLE);
+        return (SessionBundle) get(key, () -> SessionBundle.load(year, track, sessionType));
+    }
+
+    /**
+     * @return the lap as a read-only list of records; prefer {@link #getLapTelemetry} in new code
+     */
+    public static List<TelemetryPoint> getTelemetry(int year, TrackName track, SessionType sessionType, String driverCode, int lap) {
+        LapTelemetry telemetry = getLapTelemetry(year, track, sessionType, driverCode, lap);
+        return telemetry != null ? telemetry.asPoints() : null;
+    }
+
+    public static LapTelemetry getLapTelemetry(int year, TrackName track, SessionType sessionType, String driverCode, int lap) {
+        Key key = new Key(year, track, sessionType, driverCode, lap);
+        return (LapTelemetry) get(key, () -> {
+            String endpoint = String.format("telemetry/%s/%d", driverCode, lap);
+            return new F1ApiClient(year, track, sessionType, endpoint, DataModelType.LAP_TELEMETRY).getData();
+        });
+    }
+
+    /**
+     * Returns the cached value for the key, or loads it. Only one loader runs per key at a
+     * time; anyone else asking meanwhile gets its result. Null results are not cached.
+     */
+    private static Object get(Key key, Supplier<Object> loader) {
+        Object cached = lookup(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalesced.increment();
+            return await(key, existing);
+        }
+
+        try {
+            // The previous loader may have finished between the lookup and claiming the key
+            cached = lookup(key);
+            if (cached != null) {
+                hits.increment();
+                future.complete(cached);
+                return cached;
+            }
+
+            misses.increment();
+            Object value = loader.get();
+            if (value != null) {
+                store(key, value);
+            }
+            future.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private static Object await(Key key, CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            logger.warn("Shared fetch for {} failed: {}", key, e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+            return null;
+        }
+    }
+
+    private static synchronized Object lookup(Key key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() != Long.MAX_VALUE && System.nanoTime() - entry.expiresAt() >= 0) {
+            entries.remove(key);
+            currentBytes -= entry.bytes();
+            expirations.increment();
+            return null;
+        }
+        return entry.value();
+    }
+
+    private static synchronized void store(Key key, Object value) {
+        long bytes = estimateBytes(value);
+        if (bytes > maxBytes) {
+            return;
+        }
+
+        long expiresAt = value instanceof SessionBundle bundle && !bundle.isComplete()
+            ? System.nanoTime() + partialTtlNanos
+            : Long.MAX_VALUE;
+
+        Entry previous = entries.put(key, new Entry(value, bytes, expiresAt));
+        if (previous != null) {
+            currentBytes -= previous.bytes();
+        }
+        currentBytes += bytes;
+
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (currentBytes > maxBytes && eldest.hasNext()) {
+            currentBytes -= eldest.next().bytes();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private static long estimateBytes(Object value) {
+        if (value instanceof LapTelemetry telemetry) {
+            return ENTRY_OVERHEAD_BYTES + telemetry.estimateBytes();
+        }
+        if (value instanceof SessionBundle bundle) {
+            return ENTRY_OVERHEAD_BYTES + bundle.estimateBytes();
+        }
+        return ENTRY_OVERHEAD_BYTES;
+    }
+
+    public static synchronized long getCurrentBytes() {
+        return currentBytes;
+    }
+
+    public static synchronized int size() {
+        return entries.size();
+    }
+
+    public static synchronized void clear() {
+        entries.clear();
+        currentBytes = 0;
+        logger.info("Cleared lap cache");
+    }
+}
@@ -0,0 +1,273 @@
+package com.raceplayback.raceplaybackserver.network;
+
+import com.raceplayback.raceplaybackserver.data.DataModelType;
+import com.raceplayback.raceplaybackserver.data.Driver;
+import com.raceplayback.raceplaybackserver.data.LapTable;
+import com.raceplayback.raceplaybackserver.data.PitStop;
+import com.raceplayback.raceplaybackserver.data.RaceControlMessage;
+import com.raceplayback.raceplaybackserver.data.Session;
+import com.raceplayback.raceplaybackserver.data.SessionType;
+import com.raceplayback.raceplaybackserver.data.TeamRadio;
+import com.raceplayback.raceplaybackserver.data.TrackName;
+import com.raceplayback.raceplaybackserver.data.WeatherData;
+import com.raceplayback.raceplaybackserver.metrics.Counter;
+import com.raceplayback.raceplaybackserver.metrics.Histogram;
+import com.raceplayback.raceplaybackserver.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Everything about a session except telemetry, fetched in one go: info, driver roster, laps,
+ * pit stops, weather, team radio and race control messages. All requests are sent at once and
+ * each response is decoded on the thread that fetched it, so loading takes as long as the
+ * slowest endpoint rather than the sum of them.
+ * <p>
+ * Instances are immutable. Only the session info is required; any other endpoint that fails or
+ * does not exist for the session leaves its part empty and is listed by {@link #getMissing()}.
+ */
+public final class SessionBundle {
+    private static final Logger logger = LoggerFactory.getLogger(SessionBundle.class);
+
+    private static final Histogram loadTime = MetricsRegistry.timer("raceplayback_session_bundle_load_seconds", "Time to fetch and index all metadata for a session");
+    private static final Counter partialLoads = MetricsRegistry.counter("raceplayback_session_bundle_partial_total", "Session bundles loaded with at least one endpoint missing");
+
+    // Virtual threads, so blocking on the API costs nothing and decoding runs on the carrier pool
+    private static final ExecutorService loader = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Rough size of one driver, pit stop, weather sample, radio or message record with its strings
+    private static final long RECORD_BYTES = 160;
+
+    private final Session session;
+    private final List<Driver> drivers;
+    private final Map<Integer, Driver> driversByNumber;
+    private final Map<String, Driver> driversByCode;
+    private final LapTable lapTable;
+    private final List<PitStop> pitStops;
+    private final Map<String, List<PitStop>> pitStopsByDriver;
+    private final List<WeatherData> weather;
+    private final List<TeamRadio> radios;
+    private final List<RaceControlMessage> raceControlMessages;
+    private final List<String> missing;
+
+    private SessionBundle(Session session, List<Driver> drivers, LapTable lapTable, List<PitStop> pitStops,
+                          List<WeatherData> weather, List<TeamRadio> radios, List<RaceControlMessage> raceControlMessages,
+                          List<String> missing) {
+        this.session = session;
+        this.lapTable = lapTable;
+        this.missing = List.copyOf(missing);
+
+        // The list endpoint has no abbreviations, but every lap carries one
+        Map<Integer, Driver> byNumber = new LinkedHashMap<>();
+        for (Driver driver : drivers) {
+            String code = driver.abbreviation() != null ? driver.abbreviation() : lapTable.getDriverCode(driver.number());
+            byNumber.put(driver.number(), new Driver(driver.name(), code, driver.number(), driver.team()));
+        }
+        for (int number : lapTable.getDriverNumbers()) {
+            String code = lapTable.getDriverCode(number);
+            byNumber.putIfAbsent(number, new Driver(code, code, number, null));
+        }
+
+        Map<String, Driver> byCode = new HashMap<>();
+        for (Driver driver : byNumber.values()) {
+            if (driver.abbreviation() != null) {
+                byCode.put(driver.abbreviation().toUpperCase(), driver);
+            }
+        }
+        this.drivers = List.copyOf(byNumber.values());
+        this.driversByNumber = Map.copyOf(byNumber);
+        this.driversByCode = Map.copyOf(byCode);
+
+        List<PitStop> sortedStops = new ArrayList<>(pitStops);
+        sortedStops.sort(Comparator.comparing(PitStop::pitOutTime, Comparator.nullsLast(Comparator.naturalOrder())));
+        this.pitStops = List.copyOf(sortedStops);
+        Map<String, List<PitStop>> stopsByDriver = new HashMap<>();
+        for (PitStop stop : sortedStops) {
+            stopsByDriver.computeIfAbsent(stop.driverCode().toUpperCase(), c -> new ArrayList<>()).add(stop);
+        }
+        stopsByDriver.replaceAll((code, stops) -> List.copyOf(stops));
+        this.pitStopsByDriver = Map.copyOf(stopsByDriver);
+
+        List<WeatherData> sortedWeather = new ArrayList<>(weather);
+        sortedWeather.sort(Comparator.comparing(WeatherData::time, Comparator.nullsFirst(Comparator.naturalOrder())));
+        this.weather = List.copyOf(sortedWeather);
+
+        List<TeamRadio> sortedRadios = new ArrayList<>(radios);
+        sortedRadios.sort(Comparator.comparing(TeamRadio::timestamp, Comparator.nullsFirst(Comparator.naturalOrder())));
+        this.radios = List.copyOf(sortedRadios);
+
+        List<RaceControlMessage> sortedMessages = new ArrayList<>(raceControlMessages);
+        sortedMessages.sort(Comparator.comparing(RaceControlMessage::time));
+        this.raceControlMessages = List.copyOf(sortedMessages);
+    }
+
+    /**
+     * Fetches every endpoint of the session concurrently.
+     *
+     * @return the bundle, or a future of null if the session itself could not be loaded
+     */
+    public static CompletableFuture<SessionBundle> loadAsync(int year, TrackName track, SessionType sessionType) {
+        long loadStart = System.nanoTime();
+
+        CompletableFuture<Session> session = fetch(year, track, sessionType, "info", DataModelType.SESSION);
+        CompletableFuture<List<Driver>> drivers = fetch(year, track, sessionType, "drivers", DataModelType.DRIVER_LIST);
+        CompletableFuture<LapTable> laps = fetch(year, track, sessionType, "laps", DataModelType.LAP_TABLE);
+        CompletableFuture<List<PitStop>> pitStops = fetch(year, track, sessionType, "pits", DataModelType.PIT_STOP);
+        CompletableFuture<List<WeatherData>> weather = fetch(year, track, sessionType, "weather", DataModelType.WEATHER_DATA);
+        CompletableFuture<List<TeamRadio>> radios = fetch(year, track, sessionType, "radios", DataModelType.TEAM_RADIO);
+        CompletableFuture<List<RaceControlMessage>> messages = fetch(year, track, sessionType, "messages", DataModelType.RACE_CONTROL_MESSAGE);
+
+        return CompletableFuture.allOf(session, drivers, laps, pitStops, weather, radios, messages).thenApply(ignored -> {
+            if (session.join() == null) {
+                logger.error("Could not load session info for {} {} {}", year, track, sessionType);
+                return null;
+            }
+
+            List<String> missing = new ArrayList<>();
+            SessionBundle bundle = new SessionBundle(
+                session.join(),
+                orEmpty(drivers.join(), "drivers", missing),
+                laps.join() != null ? laps.join() : missing(new LapTable.Builder().build(), "laps", missing),
+                orEmpty(pitStops.join(), "pits", missing),
+                orEmpty(weather.join(), "weather", missing),
+                orEmpty(radios.join(), "radios", missing),
+                orEmpty(messages.join(), "messages", missing),
+                missing
+            );
+
+            loadTime.recordSince(loadStart);
+            if (!missing.isEmpty()) {
+                partialLoads.increment();
+                logger.warn("Session bundle for {} {} {} is missing {}", year, track, sessionType, missing);
+            }
+            logger.info("Loaded session bundle for {} {} {} in {} ms ({} drivers, {} pit stops, {} radios, {} messages)",
+                year, track, sessionType, (System.nanoTime() - loadStart) / 1_000_000,
+                bundle.driversByNumber.size(), bundle.pitStops.size(), bundle.radios.size(), bundle.raceControlMessages.size());
+            return bundle;
+        });
+    }
+
+    public static SessionBundle load(int year, TrackName track, SessionType sessionType) {
+        return loadAsync(year, track, sessionType).join();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> CompletableFuture<T> fetch(int year, TrackName track, SessionType sessionType, String endpoint, DataModelType modelType) {
+        return CompletableFuture.supplyAsync(
+            () -> (T) new F1ApiClient(year, track, sessionType, endpoint, modelType).getData(), loader
+        ).exceptionally(e -> {
+            logger.warn("Failed to load {} for {} {} {}", endpoint, year, track, sessionType, e);
+            return null;
+        });
+    }
+
+    private static <T> List<T> orEmpty(List<T> list, String endpoint, List<String> missing) {
+        return list != null ? list : missing(List.of(), endpoint, missing);
+    }
+
+    private static <T> T missing(T empty, String endpoint, List<String> missing) {
+        missing.add(endpoint);
+        return empty;
+    }
+
+    /**
+     * @return whether every endpoint loaded; a bundle with parts missing may only have hit a
+     *         passing error, so it should not be kept for long
+     */
+    public boolean isComplete() {
+        return missing.isEmpty();
+    }
+
+    /**
+     * @return the endpoints that failed or do not exist for the session
+     */
+    public List<String> getMissing() {
+        return missing;
+    }
+
+    public long estimateBytes() {
+        long records = drivers.size() + pitStops.size() + weather.size() + radios.size() + raceControlMessages.size();
+        return lapTable.estimateBytes() + records * RECORD_BYTES;
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    public Driver getDriver(int number) {
+        return driversByNumber.get(number);
+    }
+
+    public Driver getDriver(String code) {
+        return code != null ? driversByCode.get(code.toUpperCase()) : null;
+    }
+
+    public List<Driver> getDrivers() {
+        return drivers;
+    }
+
+    public LapTable getLapTable() {
+        return lapTable;
+    }
+
+    /**
+     * @return all pit stops, ordered by the time the car left the pit lane
+     */
+    public List<PitStop> getPitStops() {
+        return pitStops;
+    }
+
+    public List<PitStop> getPitStops(String driverCode) {
+        return driverCode != null ? pitStopsByDriver.getOrDefault(driverCode.toUpperCase(), List.of()) : List.of();
+    }
+
+    /**
+     * @return weather samples ordered by session time
+     */
+    public List<WeatherData> getWeather() {
+        return weather;
+    }
+
+    /**
+     * @return the latest weather sample at or before the given session time, or null if there is none
+     */
+    public WeatherData getWeatherAt(long sessionTime) {
+        int low = 0;
+        int high = weather.size() - 1;
+        WeatherData found = null;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            WeatherData sample = weather.get(mid);
+            if (sample.time() != null && sample.time() > sessionTime) {
+                high = mid - 1;
+            } else {
+                found = sample;
+                low = mid + 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return team radio ordered by session time
+     */
+    public List<TeamRadio> getRadios() {
+        return radios;
+    }
+
+    /**
+     * @return race control messages ordered by time
+     */
+    public List<RaceControlMessage> getRaceControlMessages() {
+        return raceControlMessages;
+    }
+}
@@ -0,0 +1,395 @@
+package com.raceplayback.raceplaybackserver.network.local;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.raceplayback.raceplaybackserver.network.ColumnarTelemetryCodec;
+import com.raceplayback.raceplaybackserver.util.EnvConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Embedded stand-in for the race data API, serving fixture files when present and
+ * synthetic sessions otherwise. Latency and bandwidth can be shaped to benchmark fetching offline.
+ */
+public class LocalApiServer {
+    private static final Logger logger = LoggerFactory.getLogger(LocalApiServer.class);
+    private static final String BASE_PATH = "/api/v1/sessions";
+    private static final int CHUNK_SIZE = 16 * 1024;
+    private static final int MIN_COMPRESS_BYTES = 1024;
+
+    private final int port;
+    private final Path fixturesDir;
+    private final SyntheticSessionGenerator generator;
+    // Synthetic sessions are a pure function of the seed, so they last changed when the server started
+    private final long startedAt = System.currentTimeMillis() / 1000 * 1000;
+
+    private volatile long latencyMs;
+    private volatile long bandwidthBytesPerSecond;
+    private volatile double failureRate;
+    private volatile double stallRate;
+    private volatile long stallMs;
+
+    private HttpServer httpServer;
+    private ExecutorService executor;
+
+    public LocalApiServer(int port, Path fixturesDir, long seed, long latencyMs, long bandwidthBytesPerSecond) {
+        this.port = port;
+        this.fixturesDir = fixturesDir;
+        this.generator = new SyntheticSessionGenerator(seed);
+        this.latencyMs = latencyMs;
+        this.bandwidthBytesPerSecond = bandwidthBytesPerSecond;
+    }
+
+    public static LocalApiServer fromEnv() {
+        return new LocalApiServer(
+            EnvConfig.getInt("LOCAL_API_PORT", 8085),
+            Paths.get(EnvConfig.get("LOCAL_API_FIXTURES_DIR", "data/fixtures")),
+            EnvConfig.getLong("LOCAL_API_SEED", 2024L),
+            EnvConfig.getLong("LOCAL_API_LATENCY_MS", 0L),
+            EnvConfig.getLong("LOCAL_API_BANDWIDTH_KBPS", 0L) * 1024L
+        ).withFaults(
+            EnvConfig.getDouble("LOCAL_API_FAILURE_RATE", 0),
+            EnvConfig.getDouble("LOCAL_API_STALL_RATE", 0),
+            EnvConfig.getLong("LOCAL_API_STALL_MS", 2000L)
+        );
+    }
+
+    /**
+     * Makes a fraction of requests fail with 503 and another fraction take stallMs longer,
+     * to exercise retries and hedging in the client.
+     */
+    public LocalApiServer withFaults(double failureRate, double stallRate, long stallMs) {
+        this.failureRate = failureRate;
+        this.stallRate = stallRate;
+        this.stallMs = stallMs;
+        return this;
+    }
+
+    public void start() throws IOException {
+        httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        httpServer.setExecutor(executor);
+        httpServer.createContext(BASE_PATH, this::handle);
+        httpServer.start();
+
+        logger.info("Local race data API listening on {} (latency: {}ms, bandwidth: {})",
+            getBaseUrl(), latencyMs, bandwidthBytesPerSecond > 0 ? bandwidthBytesPerSecond / 1024 + " KiB/s" : "unlimited");
+    }
+
+    public void stop() {
+        if (httpServer != null) {
+            httpServer.stop(0);
+            httpServer = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:%d%s".formatted(port, BASE_PATH);
+    }
+
+    public void setLatencyMs(long latencyMs) {
+        this.latencyMs = latencyMs;
+    }
+
+    public void setBandwidthBytesPerSecond(long bandwidthBytesPerSecond) {
+        this.bandwidthBytesPerSecond = bandwidthBytesPerSecond;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                send(exchange, new Response(405, error("Method not allowed"), 0), "identity");
+                return;
+            }
+
+            String path = exchange.getRequestURI().getPath().substring(BASE_PATH.length());
+            String query = exchange.getRequestURI().getQuery();
+            Response response = route(path, query);
+            if (response.status() == 200 && isTelemetry(path) && acceptsColumnar(exchange.getRequestHeaders().getFirst("Accept"))) {
+                JsonArray laps = JsonParser.parseString(new String(response.body(), StandardCharsets.UTF_8)).getAsJsonArray();
+                response = new Response(200, ColumnarTelemetryCodec.encode(laps), response.lastModified(), ColumnarTelemetryCodec.MEDIA_TYPE);
+            }
+
+            if (latencyMs > 0) {
+                Thread.sleep(latencyMs);
+            }
+            if (stallRate > 0 && ThreadLocalRandom.current().nextDouble() < stallRate) {
+                Thread.sleep(stallMs);
+            }
+            if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+                exchange.getResponseHeaders().set("Retry-After", "0");
+                send(exchange, new Response(503, error("Injected failure"), 0), "identity");
+                return;
+            }
+
+            if (response.status() == 200 && isNotModified(exchange, response)) {
+                sendNotModified(exchange, response);
+                return;
+            }
+
+            send(exchange, response, negotiateEncoding(exchange.getRequestHeaders().getFirst("Accept-Encoding")));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("Local API failed to handle {}", exchange.getRequestURI(), e);
+            send(exchange, new Response(500, error(e.getMessage()), 0), "identity");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Response route(String path, String query) throws IOException {
+        String[] segments = path.replaceAll("^/+|/+$", "").split("/");
+        if (segments.length < 4) {
+            return new Response(404, error("Not found"), 0);
+        }
+
+        int year;
+        try {
+            year = Integer.parseInt(segments[0]);
+        } catch (NumberFormatException e) {
+            return new Response(404, error("Not found"), 0);
+        }
+
+        String gp = segments[1];
+        String sessionType = segments[2];
+        String endpoint = String.join("/", Arrays.copyOfRange(segments, 3, segments.length));
+
+        // The segments are already decoded, so "..", or an encoded slash, could step out of the fixtures
+        Path root = fixturesDir.toAbsolutePath().normalize();
+        Path fixture = root.resolve("%d/%s/%s/%s.json".formatted(year, gp.toLowerCase(), sessionType.toLowerCase(), endpoint)).normalize();
+        if (!fixture.startsWith(root)) {
+            return new Response(404, error("Not found"), 0);
+        }
+        if (Files.isRegularFile(fixture)) {
+            return new Response(200, Files.readAllBytes(fixture), Files.getLastModifiedTime(fixture).toMillis() / 1000 * 1000);
+        }
+
+        JsonElement body = switch (segments[3]) {
+            case "info" -> generator.sessionInfo(year, gp, sessionType);
+            case "drivers" -> segments.length > 4 ? generator.driver(parseIntOrDefault(segments[4], -1)) : generator.drivers();
+            case "laps" -> segments.length > 4 && !generator.hasDriver(segments[4])
+                ? null
+                : generator.laps(year, gp, sessionType, segments.length > 4 ? segments[4] : null);
+            case "telemetry" -> segments.length > 5
+                ? generator.telemetry(year, gp, sessionType, segments[4], parseIntOrDefault(segments[5], -1))
+                : null;
+            case "weather" -> generator.weather(year, gp, sessionType);
+            case "radios" -> generator.radios(year, gp, sessionType, driverFilter(query));
+            case "pits" -> generator.pits(year, gp, sessionType);
+            case "messages" -> generator.messages(year, gp, sessionType);
+            default -> null;
+        };
+
+        if (body == null) {
+            return new Response(404, error(segments[3].equals("telemetry") || segments[3].equals("laps") || segments[3].equals("drivers")
+                ? "Driver not found" : "Not found"), 0);
+        }
+
+        return new Response(200, body.toString().getBytes(StandardCharsets.UTF_8), startedAt);
+    }
+
+    private boolean isNotModified(HttpExchange exchange, Response response) {
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch != null) {
+            String etag = response.etag();
+            for (String candidate : ifNoneMatch.split(",")) {
+                candidate = candidate.trim();
+                if (candidate.equals("*") || candidate.equals(etag) || candidate.equals("W/" + etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        String ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+        if (ifModifiedSince != null && response.lastModified() > 0) {
+            try {
+                long since = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+                return response.lastModified() <= since;
+            } catch (DateTimeParseException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private void sendNotModified(HttpExchange exchange, Response response) throws IOException {
+        setValidators(exchange, response);
+        exchange.sendResponseHeaders(304, -1);
+    }
+
+    private static void setValidators(HttpExchange exchange, Response response) {
+        exchange.getResponseHeaders().set("ETag", response.etag());
+        if (response.lastModified() > 0) {
+            exchange.getResponseHeaders().set("Last-Modified", DateTimeFormatter.RFC_1123_DATE_TIME.format(
+                Instant.ofEpochMilli(response.lastModified()).atZone(ZoneOffset.UTC)));
+        }
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+    }
+
+    /**
+     * Picks gzip or deflate if the client accepts it, ignoring anything offered with q=0.
+     */
+    private static String negotiateEncoding(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return "identity";
+        }
+
+        boolean gzip = false;
+        boolean deflate = false;
+        for (String offer : acceptEncoding.split(",")) {
+            String[] parts = offer.trim().split(";");
+            String coding = parts[0].trim().toLowerCase();
+            boolean refused = parts.length > 1 && parts[1].trim().replace(" ", "").matches("q=0(\\.0*)?");
+            if (refused) {
+                continue;
+            }
+            gzip |= coding.equals("gzip") || coding.equals("*");
+            deflate |= coding.equals("deflate");
+        }
+        return gzip ? "gzip" : deflate ? "deflate" : "identity";
+    }
+
+    private static byte[] compress(byte[] body, String encoding) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (OutputStream out = encoding.equals("gzip") ? new GZIPOutputStream(buffer) : new DeflaterOutputStream(buffer)) {
+            out.write(body);
+        }
+        return buffer.toByteArray();
+    }
+
+    private void send(HttpExchange exchange, Response response, String encoding) throws IOException {
+        byte[] body = response.body();
+        exchange.getResponseHeaders().set("Content-Type", response.contentType());
+        exchange.getResponseHeaders().set("Vary", "Accept, Accept-Encoding");
+        if (response.status() == 200) {
+            setValidators(exchange, response);
+        }
+        if (!encoding.equals("identity") && body.length >= MIN_COMPRESS_BYTES) {
+            body = compress(body, encoding);
+            exchange.getResponseHeaders().set("Content-Encoding", encoding);
+        }
+        exchange.sendResponseHeaders(response.status(), body.length);
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            long bandwidth = bandwidthBytesPerSecond;
+            if (bandwidth <= 0) {
+                out.write(body);
+                return;
+            }
+
+            long start = System.nanoTime();
+            int written = 0;
+            while (written < body.length) {
+                int length = Math.min(CHUNK_SIZE, body.length - written);
+                out.write(body, written, length);
+                out.flush();
+                written += length;
+
+                long expectedNanos = written * 1_000_000_000L / bandwidth;
+                long aheadNanos = expectedNanos - (System.nanoTime() - start);
+                if (aheadNanos > 0) {
+                    try {
+                        Thread.sleep(aheadNanos / 1_000_000L, (int) (aheadNanos % 1_000_000L));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private static Integer driverFilter(String query) {
+        if (query == null) {
+            return null;
+        }
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith("driver=")) {
+                int number = parseIntOrDefault(parameter.substring("driver=".length()), -1);
+                return number >= 0 ? number : null;
+            }
+        }
+        return null;
+    }
+
+    private static int parseIntOrDefault(String value, int defaultValue) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static byte[] error(String message) {
+        JsonObject json = new JsonObject();
+        json.addProperty("Error", message);
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static boolean isTelemetry(String path) {
+        String[] segments = path.replaceAll("^/+|/+$", "").split("/");
+        return segments.length > 3 && segments[3].equals("telemetry");
+    }
+
+    private static boolean acceptsColumnar(String accept) {
+        if (accept == null) {
+            return false;
+        }
+        for (String range : accept.split(",")) {
+            String[] parts = range.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase(ColumnarTelemetryCodec.MEDIA_TYPE)) {
+                return !(parts.length > 1 && parts[1].trim().replace(" ", "").matches("q=0(\\.0*)?"));
+            }
+        }
+        return false;
+    }
+
+    private record Response(int status, byte[] body, long lastModified, String contentType) {
+        Response(int status, byte[] body, long lastModified) {
+            this(status, body, lastModified, "application/json");
+        }
+
+        String etag() {
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            return "\"%08x-%x\"".formatted(crc.getValue(), body.length);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        LocalApiServer server = fromEnv();
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+    }
+}
@@ -0,0 +1,582 @@
+package com.raceplayback.raceplaybackserver.network.local;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Deterministic stand-in for the race data API. Every response is derived from the seed,
+ * so the same (seed, year, gp, session) always yields the same circuit, lap times and telemetry.
+ */
+public class SyntheticSessionGenerator {
+    private static final int TRACK_VERTICES = 2000;
+    private static final double MAX_SPEED = 92.0;
+    private static final double LATERAL_ACCEL = 39.0;
+    private static final double ACCELERATION = 11.0;
+    private static final double BRAKING = 38.0;
+    private static final double RACE_DISTANCE = 305_000.0;
+    private static final double SPRINT_DISTANCE = 100_000.0;
+    private static final int PRACTICE_LAPS = 18;
+    private static final long SESSION_START_MS = 3_600_000L;
+    private static final double MIN_SAMPLE_HZ = 4.0;
+    private static final double MAX_SAMPLE_HZ = 10.0;
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final String[] RADIO_TRANSCRIPTS = {
+        "Box box, box box",
+        "Copy, we are looking at plan B",
+        "Gap behind is one point two",
+        "Tyres are starting to go",
+        "Push now, push now",
+        "Watch out for debris in turn four",
+        "Good job, keep it clean",
+        "What is the gap to the car ahead?"
+    };
+
+    private static final List<SyntheticDriver> ROSTER = List.of(
+        new SyntheticDriver(1, "VER", "Max Verstappen", "Red Bull Racing", 0.000),
+        new SyntheticDriver(11, "PER", "Sergio Perez", "Red Bull Racing", 0.009),
+        new SyntheticDriver(44, "HAM", "Lewis Hamilton", "Mercedes", 0.004),
+        new SyntheticDriver(63, "RUS", "George Russell", "Mercedes", 0.005),
+        new SyntheticDriver(16, "LEC", "Charles Leclerc", "Ferrari", 0.003),
+        new SyntheticDriver(55, "SAI", "Carlos Sainz", "Ferrari", 0.004),
+        new SyntheticDriver(4, "NOR", "Lando Norris", "McLaren", 0.001),
+        new SyntheticDriver(81, "PIA", "Oscar Piastri", "McLaren", 0.003),
+        new SyntheticDriver(14, "ALO", "Fernando Alonso", "Aston Martin", 0.011),
+        new SyntheticDriver(18, "STR", "Lance Stroll", "Aston Martin", 0.016),
+        new SyntheticDriver(10, "GAS", "Pierre Gasly", "Alpine", 0.014),
+        new SyntheticDriver(31, "OCO", "Esteban Ocon", "Alpine", 0.015),
+        new SyntheticDriver(23, "ALB", "Alexander Albon", "Williams", 0.013),
+        new SyntheticDriver(2, "SAR", "Logan Sargeant", "Williams", 0.021),
+        new SyntheticDriver(22, "TSU", "Yuki Tsunoda", "RB", 0.012),
+        new SyntheticDriver(3, "RIC", "Daniel Ricciardo", "RB", 0.014),
+        new SyntheticDriver(77, "BOT", "Valtteri Bottas", "Kick Sauber", 0.019),
+        new SyntheticDriver(24, "ZHO", "Zhou Guanyu", "Kick Sauber", 0.020),
+        new SyntheticDriver(27, "HUL", "Nico Hulkenberg", "Haas F1 Team", 0.015),
+        new SyntheticDriver(20, "MAG", "Kevin Magnussen", "Haas F1 Team", 0.017)
+    );
+
+    private final long seed;
+    private final Map<String, SyntheticTrack> tracks = new ConcurrentHashMap<>();
+
+    public SyntheticSessionGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public JsonObject sessionInfo(int year, String gp, String sessionType) {
+        SyntheticTrack track = track(year, gp);
+
+        JsonObject json = new JsonObject();
+        json.addProperty("Year", year);
+        json.addProperty("GrandPrix", titleCase(gp));
+        json.addProperty("SessionType", sessionType.toUpperCase());
+        json.addProperty("Date", sessionDate(year, gp).format(DATE_FORMAT));
+        json.addProperty("CircuitName", titleCase(gp) + " Circuit");
+        json.addProperty("Location", titleCase(gp));
+        json.addProperty("NumberOfLaps", numberOfLaps(track, sessionType));
+        return json;
+    }
+
+    public JsonArray drivers() {
+        JsonArray array = new JsonArray();
+        for (SyntheticDriver driver : ROSTER) {
+            JsonObject json = new JsonObject();
+            json.addProperty("Code", String.valueOf(driver.number()));
+            json.addProperty("Name", driver.name());
+            array.add(json);
+        }
+        return array;
+    }
+
+    public JsonObject driver(int number) {
+        SyntheticDriver driver = findDriver(number);
+        if (driver == null) {
+            return null;
+        }
+
+        JsonObject json = new JsonObject();
+        json.addProperty("Code", String.valueOf(driver.number()));
+        json.addProperty("Name", driver.name());
+        json.addProperty("Abbreviation", driver.code());
+        json.addProperty("Team", driver.team());
+        return json;
+    }
+
+    public JsonArray laps(int year, String gp, String sessionType, String driverCode) {
+        SyntheticTrack track = track(year, gp);
+        int totalLaps = numberOfLaps(track, sessionType);
+        JsonArray array = new JsonArray();
+
+        for (int d = 0; d < ROSTER.size(); d++) {
+            SyntheticDriver driver = ROSTER.get(d);
+            if (driverCode != null && !driver.code().equalsIgnoreCase(driverCode)) {
+                continue;
+            }
+
+            double personalBest = Double.MAX_VALUE;
+            for (int lap = 1; lap <= totalLaps; lap++) {
+                double scale = lapScale(track, d, lap, totalLaps);
+                double lapTime = track.baseLapTime * scale;
+                boolean isPersonalBest = lapTime < personalBest;
+                personalBest = Math.min(personalBest, lapTime);
+
+                JsonObject json = new JsonObject();
+                json.addProperty("Driver", driver.code());
+                json.addProperty("DriverNumber", driver.number());
+                json.addProperty("LapNumber", lap);
+                json.addProperty("LapTime", round3(lapTime));
+                json.addProperty("Sector1Time", round3(track.sectorBaseTime[0] * scale));
+                json.addProperty("Sector2Time", round3((track.sectorBaseTime[1] - track.sectorBaseTime[0]) * scale));
+                json.addProperty("Sector3Time", round3((track.baseLapTime - track.sectorBaseTime[1]) * scale));
+                json.addProperty("IsPersonalBest", isPersonalBest);
+                array.add(json);
+            }
+        }
+
+        return array;
+    }
+
+    /**
+     * @return the telemetry payload in the same shape as the real API, or null if the driver or lap does not exist
+     */
+    public JsonArray telemetry(int year, String gp, String sessionType, String driverCode, int lap) {
+        SyntheticTrack track = track(year, gp);
+        int totalLaps = numberOfLaps(track, sessionType);
+        int driverIndex = findDriverIndex(driverCode);
+
+        if (driverIndex < 0 || lap < 1 || lap > totalLaps) {
+            return null;
+        }
+
+        double scale = lapScale(track, driverIndex, lap, totalLaps);
+        double lapTime = track.baseLapTime * scale;
+        long lapStart = lapStartMs(track, driverIndex, lap, totalLaps);
+        String compound = compoundFor(driverIndex, lap, totalLaps);
+
+        Random random = new Random(seed ^ (track.hash * 31L) ^ (driverIndex * 7919L) ^ (lap * 104729L));
+        double hz = MIN_SAMPLE_HZ + random.nextDouble() * (MAX_SAMPLE_HZ - MIN_SAMPLE_HZ);
+        double meanInterval = 1.0 / hz;
+        double lineOffset = (driverIndex % 5 - 2) * 0.35;
+
+        JsonArray samples = new JsonArray();
+        int segment = 0;
+        double t = 0.0;
+
+        while (t < lapTime) {
+            double baseT = t / scale;
+            while (segment < TRACK_VERTICES - 1 && track.time[segment + 1] <= baseT) {
+                segment++;
+            }
+
+            int next = segment + 1;
+            double segmentTime = track.time[next] - track.time[segment];
+            double f = segmentTime > 0 ? (baseT - track.time[segment]) / segmentTime : 0.0;
+            int wrapped = next % TRACK_VERTICES;
+
+            double normalX = -(track.y[wrapped] - track.y[segment]);
+            double normalY = track.x[wrapped] - track.x[segment];
+            double normalLength = Math.hypot(normalX, normalY);
+            double offset = lineOffset + Math.sin(track.distance[segment] / 180.0 + lap) * 0.4;
+
+            double x = lerp(track.x[segment], track.x[wrapped], f);
+            double y = lerp(track.y[segment], track.y[wrapped], f);
+            if (normalLength > 0) {
+                x += normalX / normalLength * offset;
+                y += normalY / normalLength * offset;
+            }
+
+            double speed = lerp(track.speed[segment], track.speed[wrapped], f) / scale;
+            double accel = segmentTime > 0 ? (track.speed[wrapped] - track.speed[segment]) / segmentTime : 0.0;
+            double speedKph = speed * 3.6;
+            boolean braking = accel < -4.0;
+            int gear = gearFor(speedKph);
+
+            double throttle;
+            if (braking) {
+                throttle = 0.0;
+            } else if (accel > 0.5 || track.speed[segment] >= MAX_SPEED * 0.98) {
+                throttle = 100.0;
+            } else {
+                throttle = 35.0 + 50.0 * (track.speed[segment] / MAX_SPEED);
+            }
+
+            int drs = lap >= 3 && track.drsZone[segment] ? 12 : (lap >= 3 ? 8 : 0);
+
+            JsonObject point = new JsonObject();
+            point.addProperty("SessionTime_ms", lapStart + Math.round(t * 1000.0));
+            point.addProperty("X", round3(x * 10.0));
+            point.addProperty("Y", round3(y * 10.0));
+            point.addProperty("nGear", gear);
+            point.addProperty("Distance", round3(lerp(track.distance[segment], track.distance[next], f)));
+            point.addProperty("Speed", Math.round(speedKph));
+            point.addProperty("Throttle", Math.round(throttle));
+            point.addProperty("Brake", braking);
+            point.addProperty("RPM", Math.round(rpmFor(speedKph, gear)));
+            point.addProperty("DRS", drs);
+            point.addProperty("Compound", compound);
+            samples.add(point);
+
+            t += meanInterval * (0.85 + random.nextDouble() * 0.3);
+        }
+
+        JsonObject lapObject = new JsonObject();
+        lapObject.addProperty("lap_number", lap);
+        lapObject.add("telemetry", samples);
+
+        JsonArray array = new JsonArray();
+        array.add(lapObject);
+        return array;
+    }
+
+    public JsonArray weather(int year, String gp, String sessionType) {
+        SyntheticTrack track = track(year, gp);
+        int totalLaps = numberOfLaps(track, sessionType);
+        double sessionEnd = (SESSION_START_MS / 1000.0) + track.baseLapTime * totalLaps * 1.1 + 600.0;
+
+        Random random = new Random(seed ^ track.hash ^ 0x5EA7E5L);
+        boolean shower = random.nextDouble() < 0.3;
+        double showerStart = SESSION_START_MS / 1000.0 + (sessionEnd - SESSION_START_MS / 1000.0) * (0.35 + random.nextDouble() * 0.2);
+        double showerEnd = showerStart + 600.0 + random.nextDouble() * 900.0;
+
+        JsonArray array = new JsonArray();
+        for (double time = 0; time <= sessionEnd; time += 60.0) {
+            JsonObject json = new JsonObject();
+            json.addProperty("Time", Math.round(time));
+            json.addProperty("Rainfall", shower && time >= showerStart && time <= showerEnd ? 1 : 0);
+            array.add(json);
+        }
+        return array;
+    }
+
+    public JsonObject radios(int year, String gp, String sessionType, Integer racingNumber) {
+        SyntheticTrack track = track(year, gp);
+        int totalLaps = numberOfLaps(track, sessionType);
+        LocalDateTime sessionDate = sessionDate(year, gp);
+        long raceLength = Math.round(track.baseLapTime * totalLaps * 1000.0);
+
+        JsonArray messages = new JsonArray();
+        for (int d = 0; d < ROSTER.size(); d++) {
+            SyntheticDriver driver = ROSTER.get(d);
+            if (racingNumber != null && driver.number() != racingNumber) {
+                continue;
+            }
+
+            Random random = new Random(seed ^ track.hash ^ (driver.number() * 6151L));
+            int count = 2 + random.nextInt(3);
+            for (int i = 0; i < count; i++) {
+                long sessionTime = SESSION_START_MS + (long) (random.nextDouble() * raceLength);
+                LocalDateTime utc = sessionDate.plusNanos((sessionTime - SESSION_START_MS) * 1_000_000L);
+
+                JsonObject json = new JsonObject();
+                json.addProperty("Timestamp", formatSessionTime(sessionTime));
+                json.addProperty("Utc", utc.atOffset(ZoneOffset.UTC).toString());
+                json.addProperty("RacingNumber", driver.number());
+                json.addProperty("AudioUrl", "https://livetiming.formula1.com/static/%d/synthetic/%s_%d.mp3"
+                    .formatted(year, driver.code(), i));
+                json.addProperty("Transcript", RADIO_TRANSCRIPTS[random.nextInt(RADIO_TRANSCRIPTS.length)]);
+                messages.add(json);
+            }
+        }
+
+        JsonObject json = new JsonObject();
+        json.addProperty("TotalMessages", messages.size());
+        json.add("Messages", messages);
+        return json;
+    }
+
+    /**
+     * One stop per driver, on the lap whose time includes the pit loss. Times are in seconds,
+     * like the real API.
+     */
+    public JsonArray pits(int year, String gp, String sessionType) {
+        SyntheticTrack track = track(year, gp);
+        int totalLaps = numberOfLaps(track, sessionType);
+
+        JsonArray array = new JsonArray();
+        for (int d = 0; d < ROSTER.size(); d++) {
+            int pitLap = pitLap(d, totalLaps);
+            if (pitLap > totalLaps) {
+                continue;
+            }
+
+            Random random = new Random(seed ^ track.hash ^ (d * 3571L) ^ 0x917L);
+            double pitIn = lapStartMs(track, d, pitLap, totalLaps) / 1000.0 - 4.0;
+            double duration = 19.5 + random.nextDouble() * 4.0;
+
+            JsonObject json = new JsonObject();
+            json.addProperty("Driver", ROSTER.get(d).code());
+            json.addProperty("LapNumber", pitLap);
+            json.addProperty("PitInTime", round3(pitIn));
+            json.addProperty("PitOutTime", round3(pitIn + duration));
+            json.addProperty("Duration", round3(duration));
+            array.add(json);
+        }
+        return array;
+    }
+
+    /**
+     * Race control messages in the shape the API serves from its cache, with "Time" as wall
+     * clock time.
+     */
+    public JsonArray messages(int year, String gp, String sessionType) {
+        SyntheticTrack track = track(year, gp);
+        int totalLaps = numberOfLaps(track, sessionType);
+        LocalDateTime sessionDate = sessionDate(year, gp);
+
+        JsonArray array = new JsonArray();
+        array.add(message(sessionDate, SESSION_START_MS - 600_000L, "Flag", "GREEN LIGHT - PIT EXIT OPEN", null, "GREEN", "Track", null, null, null));
+        if (totalLaps >= 3) {
+            array.add(message(sessionDate, lapStartMs(track, 0, 3, totalLaps), "Drs", "DRS ENABLED", "ENABLED", null, null, null, null, 3));
+        }
+
+        Random random = new Random(seed ^ track.hash ^ 0xF1A6L);
+        int incidents = 1 + random.nextInt(3);
+        for (int i = 0; i < incidents; i++) {
+            int driverIndex = random.nextInt(ROSTER.size());
+            int lap = 2 + random.nextInt(Math.max(1, totalLaps - 2));
+            int sector = 1 + random.nextInt(20);
+            long time = lapStartMs(track, driverIndex, Math.min(lap, totalLaps), totalLaps) + random.nextInt(60_000);
+            SyntheticDriver driver = ROSTER.get(driverIndex);
+
+            array.add(message(sessionDate, time, "Flag", "YELLOW IN TRACK SECTOR " + sector, null, "YELLOW", "Sector", sector, null, lap));
+            array.add(message(sessionDate, time + 45_000L, "Flag", "CLEAR IN TRACK SECTOR " + sector, null, "CLEAR", "Sector", sector, null, lap));
+            array.add(message(sessionDate, time + 90_000L, "Other",
+                "CAR %d (%s) TIME %s DELETED - TRACK LIMITS AT TURN %d".formatted(driver.number(), driver.code(), formatSessionTime(time).substring(3), sector / 2 + 1),
+                null, null, null, null, driver.number(), lap));
+        }
+
+        array.add(message(sessionDate, lapStartMs(track, 0, totalLaps, totalLaps) + Math.round(track.baseLapTime * 1000.0),
+            "Flag", "CHEQUERED FLAG", null, "CHEQUERED", "Track", null, null, totalLaps));
+        return array;
+    }
+
+    private JsonObject message(LocalDateTime sessionDate, long sessionTime, String category, String text, String status,
+                               String flag, String scope, Integer sector, Integer racingNumber, Integer lap) {
+        JsonObject json = new JsonObject();
+        json.addProperty("Time", sessionDate.plusNanos((sessionTime - SESSION_START_MS) * 1_000_000L).format(DATE_FORMAT));
+        json.addProperty("Category", category);
+        json.addProperty("Message", text);
+        json.addProperty("Status", status);
+        json.addProperty("Flag", flag);
+        json.addProperty("Scope", scope);
+        json.addProperty("Sector", sector);
+        json.addProperty("RacingNumber", racingNumber != null ? String.valueOf(racingNumber) : null);
+        json.addProperty("Lap", lap);
+        return json;
+    }
+
+    public boolean hasDriver(String driverCode) {
+        return findDriverIndex(driverCode) >= 0;
+    }
+
+    private SyntheticTrack track(int year, String gp) {
+        return tracks.computeIfAbsent(year + "/" + gp.toLowerCase(), key -> new SyntheticTrack(seed ^ key.hashCode()));
+    }
+
+    private int numberOfLaps(SyntheticTrack track, String sessionType) {
+        return switch (sessionType.toLowerCase()) {
+            case "r" -> (int) Math.ceil(RACE_DISTANCE / track.lapLength);
+            case "s" -> (int) Math.ceil(SPRINT_DISTANCE / track.lapLength);
+            default -> PRACTICE_LAPS;
+        };
+    }
+
+    private double lapScale(SyntheticTrack track, int driverIndex, int lap, int totalLaps) {
+        Random random = new Random(seed ^ (track.hash * 17L) ^ (driverIndex * 1009L) ^ (lap * 7L));
+        double scale = 1.0 + ROSTER.get(driverIndex).pace() + random.nextGaussian() * 0.003;
+        scale += (totalLaps - lap) * 0.0004;
+
+        if (lap == 1) {
+            scale += 0.06;
+        }
+        if (lap == pitLap(driverIndex, totalLaps)) {
+            scale += 0.22;
+        }
+        return scale;
+    }
+
+    private long lapStartMs(SyntheticTrack track, int driverIndex, int lap, int totalLaps) {
+        long start = SESSION_START_MS + driverIndex * 150L;
+        for (int previous = 1; previous < lap; previous++) {
+            start += Math.round(track.baseLapTime * lapScale(track, driverIndex, previous, totalLaps) * 1000.0);
+        }
+        return start;
+    }
+
+    private int pitLap(int driverIndex, int totalLaps) {
+        return Math.max(2, (int) (totalLaps * 0.4) + (driverIndex * 7) % 10 - 5);
+    }
+
+    private String compoundFor(int driverIndex, int lap, int totalLaps) {
+        if (lap > pitLap(driverIndex, totalLaps)) {
+            return "HARD";
+        }
+        return driverIndex % 4 == 0 ? "SOFT" : "MEDIUM";
+    }
+
+    private int gearFor(double speedKph) {
+        double[] thresholds = {85, 115, 145, 175, 210, 245, 280};
+        int gear = 1;
+        for (double threshold : thresholds) {
+            if (speedKph >= threshold) {
+                gear++;
+            }
+        }
+        return gear;
+    }
+
+    private double rpmFor(double speedKph, int gear) {
+        double[] lower = {0, 85, 115, 145, 175, 210, 245, 280};
+        double[] upper = {85, 115, 145, 175, 210, 245, 280, 340};
+        double band = (speedKph - lower[gear - 1]) / (upper[gear - 1] - lower[gear - 1]);
+        return 10500 + Math.max(0, Math.min(1, band)) * 1500;
+    }
+
+    private LocalDateTime sessionDate(int year, String gp) {
+        int hash = Math.abs(gp.toLowerCase().hashCode());
+        return LocalDateTime.of(year, 3 + hash % 9, 1 + hash % 27, 14, 0, 0);
+    }
+
+    private SyntheticDriver findDriver(int number) {
+        for (SyntheticDriver driver : ROSTER) {
+            if (driver.number() == number) {
+                return driver;
+            }
+        }
+        return null;
+    }
+
+    private int findDriverIndex(String driverCode) {
+        for (int i = 0; i < ROSTER.size(); i++) {
+            if (ROSTER.get(i).code().equalsIgnoreCase(driverCode)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String formatSessionTime(long sessionTimeMs) {
+        long hours = sessionTimeMs / 3_600_000L;
+        long minutes = (sessionTimeMs / 60_000L) % 60;
+        long seconds = (sessionTimeMs / 1_000L) % 60;
+        long millis = sessionTimeMs % 1_000L;
+        return "%02d:%02d:%02d.%03d".formatted(hours, minutes, seconds, millis);
+    }
+
+    private static String titleCase(String gp) {
+        String[] words = gp.toLowerCase().split("_");
+        for (int i = 0; i < words.length; i++) {
+            if (!words[i].isEmpty()) {
+                words[i] = words[i].substring(0, 1).toUpperCase() + words[i].substring(1);
+            }
+        }
+        return String.join(" ", words);
+    }
+
+    private static double lerp(double a, double b, double t) {
+        return a + (b - a) * t;
+    }
+
+    private static double round3(double value) {
+        return Math.round(value * 1000.0) / 1000.0;
+    }
+
+    private record SyntheticDriver(int number, String code, String name, String team, double pace) {}
+
+    private static final class SyntheticTrack {
+        final long hash;
+        final double[] x = new double[TRACK_VERTICES];
+        final double[] y = new double[TRACK_VERTICES];
+        final double[] distance = new double[TRACK_VERTICES + 1];
+        final double[] time = new double[TRACK_VERTICES + 1];
+        final double[] speed = new double[TRACK_VERTICES];
+        final boolean[] drsZone = new boolean[TRACK_VERTICES];
+        final double[] sectorBaseTime = new double[2];
+        final double lapLength;
+        final double baseLapTime;
+
+        SyntheticTrack(long trackSeed) {
+            this.hash = trackSeed;
+            Random random = new Random(trackSeed);
+
+            double radius = 700 + random.nextDouble() * 250;
+            double[] amplitude = new double[16];
+            double[] phase = new double[16];
+            for (int k = 0; k < amplitude.length; k++) {
+                amplitude[k] = (0.03 + random.nextDouble() * 0.07) / Math.sqrt(k + 1);
+                phase[k] = random.nextDouble() * Math.PI * 2;
+            }
+
+            double centerX = (random.nextDouble() - 0.5) * 400;
+            double centerY = (random.nextDouble() - 0.5) * 400;
+
+            for (int i = 0; i < TRACK_VERTICES; i++) {
+                double theta = i * Math.PI * 2 / TRACK_VERTICES;
+                double r = 1.0;
+                for (int k = 0; k < amplitude.length; k++) {
+                    r += amplitude[k] * Math.cos((k + 2) * theta + phase[k]);
+                }
+                x[i] = centerX + radius * r * Math.cos(theta);
+                y[i] = centerY + radius * r * Math.sin(theta);
+            }
+
+            for (int i = 0; i < TRACK_VERTICES; i++) {
+                int next = (i + 1) % TRACK_VERTICES;
+                distance[i + 1] = distance[i] + Math.hypot(x[next] - x[i], y[next] - y[i]);
+            }
+            lapLength = distance[TRACK_VERTICES];
+
+            double[] curvature = new double[TRACK_VERTICES];
+            for (int i = 0; i < TRACK_VERTICES; i++) {
+                int prev = (i - 1 + TRACK_VERTICES) % TRACK_VERTICES;
+                int next = (i + 1) % TRACK_VERTICES;
+                double a1 = Math.atan2(y[i] - y[prev], x[i] - x[prev]);
+                double a2 = Math.atan2(y[next] - y[i], x[next] - x[i]);
+                double turn = Math.abs(Math.atan2(Math.sin(a2 - a1), Math.cos(a2 - a1)));
+                curvature[i] = turn / (distance[i + 1] - distance[i] + 1e-9);
+            }
+
+            for (int i = 0; i < TRACK_VERTICES; i++) {
+                double smoothed = 0;
+                for (int w = -3; w <= 3; w++) {
+                    smoothed += curvature[(i + w + TRACK_VERTICES) % TRACK_VERTICES];
+                }
+                speed[i] = Math.min(MAX_SPEED, Math.sqrt(LATERAL_ACCEL / Math.max(smoothed / 7.0, 1e-6)));
+            }
+
+            for (int pass = 0; pass < TRACK_VERTICES * 2; pass++) {
+                int i = pass % TRACK_VERTICES;
+                int next = (i + 1) % TRACK_VERTICES;
+                double ds = distance[i + 1] - distance[i];
+                speed[next] = Math.min(speed[next], Math.sqrt(speed[i] * speed[i] + 2 * ACCELERATION * ds));
+            }
+            for (int pass = TRACK_VERTICES * 2 - 1; pass >= 0; pass--) {
+                int i = pass % TRACK_VERTICES;
+                int next = (i + 1) % TRACK_VERTICES;
+                double ds = distance[i + 1] - distance[i];
+                speed[i] = Math.min(speed[i], Math.sqrt(speed[next] * speed[next] + 2 * BRAKING * ds));
+            }
+
+            for (int i = 0; i < TRACK_VERTICES; i++) {
+                int next = (i + 1) % TRACK_VERTICES;
+                double ds = distance[i + 1] - distance[i];
+                time[i + 1] = time[i] + ds / ((speed[i] + speed[next]) / 2.0);
+                drsZone[i] = speed[i] >= MAX_SPEED * 0.93;
+            }
+            baseLapTime = time[TRACK_VERTICES];
+
+            int sector1 = TRACK_VERTICES / 3;
+            int sector2 = TRACK_VERTICES * 2 / 3;
+            sectorBaseTime[0] = time[sector1];
+            sectorBaseTime[1] = time[sector2];
+        }
+    }
+}
@@ -2,22 +2,24 @@ package com.raceplayback.raceplaybackserver.playback;
 
 import com.raceplayback.raceplaybackserver.RacePlaybackServer;
 import com.raceplayback.raceplaybackserver.data.Compound;
-import com.raceplayback.raceplaybackserver.data.DataModelType;
 import com.raceplayback.raceplaybackserver.data.Session;
 import com.raceplayback.raceplaybackserver.data.SessionType;
 import com.raceplayback.raceplaybackserver.data.TelemetryPoint;
 import com.raceplayback.raceplaybackserver.data.TrackName;
+import com.raceplayback.raceplaybackserver.entity.car.CarTransformSystem;
 import com.raceplayback.raceplaybackserver.entity.car.F1Car;
-import com.raceplayback.raceplaybackserver.network.F1ApiClient;
+import com.raceplayback.raceplaybackserver.entity.debug.DebugVisualizer;
+import com.raceplayback.raceplaybackserver.jfr.LapMappingEvent;
+import com.raceplayback.raceplaybackserver.network.LapCache;
 import com.raceplayback.raceplaybackserver.util.CoordinateConverter;
 import com.raceplayback.raceplaybackserver.mapping.AdaptiveCoordinateMapper;
+import com.raceplayback.raceplaybackserver.mapping.MappedLap;
+import com.raceplayback.raceplaybackserver.mapping.MappedLapCache;
+import com.raceplayback.raceplaybackserver.mapping.Polyline;
+import com.raceplayback.raceplaybackserver.mapping.ReferenceLineBuilder;
 import com.raceplayback.raceplaybackserver.mapping.TrackCenterline;
 import com.raceplayback.raceplaybackserver.mapping.TrackDataManager;
 import net.minestom.server.coordinate.Pos;
-import net.minestom.server.coordinate.Vec;
-import net.minestom.server.entity.Entity;
-import net.minestom.server.entity.EntityType;
-import net.minestom.server.entity.metadata.display.BlockDisplayMeta;
 import net.minestom.server.instance.Instance;
 import net.minestom.server.instance.block.Block;
 
@@ -29,11 +31,18 @@ public class DebugPlaybackController {
 
     private F1Car car;
     private CoordinateConverter converter;
-    private AdaptiveCoordinateMapper adaptiveMapper;
+    private MappedLap mappedLap;
     private boolean useAdaptiveMapper = false;
     private List<TelemetryPoint> telemetry;
+    // Legacy positions and the yaw of every sample, worked out once per lap
+    private double[] mcX;
+    private double[] mcZ;
+    private float[] yaws;
+    private float[] yawRates;
+    private float[] steeringAngles;
+    private float[] wheelAngles;
     private int currentIndex = 0;
-    private List<Entity> visualizationEntities = new ArrayList<>();
+    private DebugVisualizer visualizer;
 
     private int year;
     private TrackName track;
@@ -51,16 +60,7 @@ public class DebugPlaybackController {
         this.rotationOffset = rotationOffset;
         this.converter = new CoordinateConverter(startPosition, rotationOffset);
 
-        F1ApiClient sessionClient = new F1ApiClient(
-            "https://raceplayback.com/api/v1/sessions",
-            year,
-            track,
-            sessionType,
-            "info",
-            DataModelType.SESSION
-        );
-
-        Session session = (Session) sessionClient.getData();
+        Session session = LapCache.getSession(year, track, sessionType);
         this.totalLaps = session != null ? session.numberOfLaps() : 57;
 
         server.getLogger().info("Debug session has {} laps", totalLaps);
@@ -76,15 +76,9 @@ public class DebugPlaybackController {
             return;
         }
 
-        TrackCenterline centerline = TrackDataManager.loadTrackCenterline(track);
-        if (centerline != null) {
-            server.getLogger().info("✓ Loaded track centerline for {} (length: {} blocks)",
-                track, String.format("%.1f", centerline.getTotalLength()));
-
-            adaptiveMapper = new AdaptiveCoordinateMapper(centerline, 66.0);
-            adaptiveMapper.initializeWithTelemetry(telemetry);
+        mappedLap = loadMappedLap();
+        if (mappedLap != null) {
             useAdaptiveMapper = true;
-
             server.getLogger().info("✓ Using ADAPTIVE COORDINATE MAPPING (arc-length parameterization)");
         } else {
             server.getLogger().warn("⚠ No track data found for {}. Using legacy linear mapping.", track);
@@ -92,18 +86,17 @@ public class DebugPlaybackController {
             useAdaptiveMapper = false;
         }
 
+        mapCoordinates();
+        computeSteering();
+
         Compound compound = telemetry.get(0).compound();
         car = new F1Car(driverCode, compound);
 
         Pos startPos;
         if (useAdaptiveMapper) {
-            startPos = adaptiveMapper.mapTelemetryPoint(0);
+            startPos = mappedLap.getPosition(0, 66);
         } else {
-            startPos = converter.toMinecraftPos(
-                telemetry.get(0).x(),
-                telemetry.get(0).y(),
-                66
-            );
+            startPos = new Pos(mcX[0], 66, mcZ[0]);
         }
 
         car.spawn(instance, startPos);
@@ -147,33 +140,28 @@ public class DebugPlaybackController {
         float nextYaw = 0;
 
         if (useAdaptiveMapper) {
-            position = adaptiveMapper.mapTelemetryPoint(currentIndex);
+            position = mappedLap.getPosition(currentIndex, 66);
 
             server.getLogger().info("=== ADAPTIVE COORDINATE MAPPING ===");
             server.getLogger().info("  Minecraft X: {}", position.x());
             server.getLogger().info("  Minecraft Y: {}", position.y());
             server.getLogger().info("  Minecraft Z: {}", position.z());
 
-            var mappingResult = adaptiveMapper.getMappingResult(currentIndex);
-            server.getLogger().info("  Track Progress: {}%", String.format("%.2f", mappingResult.trackPercent * 100));
-            server.getLogger().info("  Lateral Offset: {} blocks", String.format("%.2f", mappingResult.lateralOffset));
+            server.getLogger().info("  Track Progress: {}%", String.format("%.2f", mappedLap.getPercent(currentIndex) * 100));
+            server.getLogger().info("  Lateral Offset: {} blocks", String.format("%.2f", mappedLap.getOffset(currentIndex)));
 
             if (currentIndex < telemetry.size() - 1) {
-                yaw = adaptiveMapper.calculateYaw(currentIndex);
+                yaw = yaws[currentIndex];
 
                 if (currentIndex < telemetry.size() - 2) {
-                    nextYaw = adaptiveMapper.calculateYaw(currentIndex + 1);
+                    nextYaw = yaws[currentIndex + 1];
                     server.getLogger().info("  Yaw: {}°", String.format("%.2f", yaw));
                     server.getLogger().info("  Next Yaw: {}°", String.format("%.2f", nextYaw));
                     server.getLogger().info("  Yaw Delta (turn rate): {}°", String.format("%.2f", nextYaw - yaw));
                 }
             }
         } else {
-            position = converter.toMinecraftPos(
-                current.x(),
-                current.y(),
-                66
-            );
+            position = new Pos(mcX[currentIndex], 66, mcZ[currentIndex]);
 
             server.getLogger().info("=== LEGACY COORDINATE CONVERSION ===");
             server.getLogger().info("  Minecraft X: {}", position.x());
@@ -181,24 +169,11 @@ public class DebugPlaybackController {
             server.getLogger().info("  Minecraft Z: {}", position.z());
 
             if (currentIndex < telemetry.size() - 1) {
-                TelemetryPoint next = telemetry.get(currentIndex + 1);
-                Pos nextPos = converter.toMinecraftPos(
-                    next.x(),
-                    next.y(),
-                    66
-                );
-
-                yaw = converter.calculateYaw(position, nextPos);
+                yaw = yaws[currentIndex];
                 server.getLogger().info("  Calculated Yaw: {}°", yaw);
 
                 if (currentIndex < telemetry.size() - 2) {
-                    TelemetryPoint nextNext = telemetry.get(currentIndex + 2);
-                    Pos nextNextPos = converter.toMinecraftPos(
-                        nextNext.x(),
-                        nextNext.y(),
-                        66
-                    );
-                    nextYaw = converter.calculateYaw(nextPos, nextNextPos);
+                    nextYaw = yaws[currentIndex + 1];
                     server.getLogger().info("  Yaw Delta (turn rate): {}°", nextYaw - yaw);
                 }
             }
@@ -217,17 +192,19 @@ public class DebugPlaybackController {
         car.update(posWithYaw);
         car.setDRS(current.isDRS());
 
-        float yawDelta = nextYaw - yaw;
-        float steeringAngle = yawDelta * 10.0f;
-        car.setSteeringAngle(steeringAngle);
+        float steeringAngle = steeringAngles[currentIndex];
+        car.setSteering(steeringAngle, wheelAngles[currentIndex]);
+        // Send now rather than at the end of the tick, so the rotations logged below are the new ones
+        CarTransformSystem.flush();
 
         server.getLogger().info("=== FINAL APPLIED VALUES ===");
         server.getLogger().info("  Car position after update: {}", car.getPosition());
         server.getLogger().info("  Position: ({}, {}, {})", posWithYaw.x(), posWithYaw.y(), posWithYaw.z());
         server.getLogger().info("  Yaw: {}°", yaw);
         server.getLogger().info("  Next Yaw: {}°", nextYaw);
-        server.getLogger().info("  Yaw Delta (turn rate): {}°", yawDelta);
+        server.getLogger().info("  Yaw Rate (smoothed): {}°/s", String.format("%.2f", yawRates[currentIndex]));
         server.getLogger().info("  Steering Angle: {}°", steeringAngle);
+        server.getLogger().info("  Front Wheel Angle: {}°", wheelAngles[currentIndex]);
         server.getLogger().info("  DRS Open: {}", current.isDRS());
 
         float[] cockpitRotation = car.getCockpitMiddle().getLeftRotation();
@@ -258,20 +235,110 @@ public class DebugPlaybackController {
             currentIndex, telemetry.size());
     }
 
-    @SuppressWarnings("unchecked")
+    // Positions and yaws for the whole lap up front, in one batch transform over its coordinate columns
+    private void mapCoordinates() {
+        int n = telemetry.size();
+        yaws = new float[n];
+        if (useAdaptiveMapper) {
+            for (int i = 0; i < n - 1; i++) {
+                yaws[i] = mappedLap.getYaw(i);
+            }
+            // Nothing to aim at from the last sample, so it keeps the heading it came in with
+            yaws[n - 1] = n > 1 ? yaws[n - 2] : 0f;
+            return;
+        }
+
+        float[] x = new float[n];
+        float[] y = new float[n];
+        for (int i = 0; i < n; i++) {
+            TelemetryPoint point = telemetry.get(i);
+            x[i] = point.x().floatValue();
+            y[i] = point.y().floatValue();
+        }
+        mcX = new double[n];
+        mcZ = new double[n];
+        converter.transform(x, y, n, mcX, mcZ, yaws);
+    }
+
+    // Steering for the whole lap up front, from the same yaws the car is shown with
+    private void computeSteering() {
+        int n = telemetry.size();
+        long[] sessionTime = new long[n];
+        float[] speed = new float[n];
+        for (int i = 0; i < n; i++) {
+            TelemetryPoint point = telemetry.get(i);
+            sessionTime[i] = point.sessionTime();
+            speed[i] = point.speed().floatValue();
+        }
+
+        yawRates = new float[n];
+        steeringAngles = new float[n];
+        wheelAngles = new float[n];
+        SteeringModel.compute(sessionTime, yaws, speed, n, yawRates, steeringAngles, wheelAngles);
+    }
+
+    /**
+     * @return the lap placed on the scanned track, from disk if it was mapped before with the
+     *         same track, reference line and settings, or null if the track has not been scanned
+     */
+    private MappedLap loadMappedLap() {
+        String trackHash = TrackDataManager.getTrackFileHash(track);
+        if (trackHash == null) {
+            return null;
+        }
+
+        // Building the line fetches laps of every driver, so this lap does without it until it is done.
+        // It is resolved before the lookup, so a lap mapped without it is mapped again once it exists
+        Polyline referenceLine = ReferenceLineBuilder.getIfBuilt(year, track, sessionType);
+        String referenceHash = referenceLine != null ? ReferenceLineBuilder.getLineFileHash(track, year) : null;
+
+        String parameters = AdaptiveCoordinateMapper.describeParameters(66.0, false);
+        String cacheKey = MappedLapCache.key(trackHash, referenceHash, parameters);
+        MappedLap cached = MappedLapCache.load(year, track, sessionType, driverCode, currentLap, cacheKey, telemetry.size());
+        if (cached != null) {
+            server.getLogger().info("✓ Loaded mapped lap {} of {} from disk", currentLap, driverCode);
+            LapMappingEvent mappingEvent = new LapMappingEvent();
+            if (mappingEvent.shouldCommit()) {
+                mappingEvent.mapper = "MappedLapCache";
+                mappingEvent.points = cached.size();
+                mappingEvent.cacheHits = cached.size();
+                mappingEvent.commit();
+            }
+            return cached;
+        }
+
+        TrackCenterline centerline = TrackDataManager.loadTrackCenterline(track);
+        if (centerline == null) {
+            return null;
+        }
+        server.getLogger().info("✓ Loaded track centerline for {} (length: {} blocks)",
+            track, String.format("%.1f", centerline.getTotalLength()));
+
+        if (referenceLine == null) {
+            server.getLogger().warn("⚠ No reference line for {} {} yet, measuring against this lap only", track, year);
+        }
+
+        LapMappingEvent mappingEvent = new LapMappingEvent();
+        mappingEvent.begin();
+
+        AdaptiveCoordinateMapper adaptiveMapper = new AdaptiveCoordinateMapper(centerline, 66.0);
+        adaptiveMapper.initializeWithTelemetry(telemetry, referenceLine);
+        MappedLap mapped = adaptiveMapper.mapLap();
+
+        mappingEvent.end();
+        if (mappingEvent.shouldCommit()) {
+            mappingEvent.mapper = "AdaptiveCoordinateMapper";
+            mappingEvent.points = mapped.size();
+            mappingEvent.cacheMisses = mapped.size();
+            mappingEvent.commit();
+        }
+
+        MappedLapCache.store(year, track, sessionType, driverCode, currentLap, cacheKey, mapped);
+        return mapped;
+    }
+
     private List<TelemetryPoint> fetchTelemetry(int lap) {
-        String endpoint = String.format("telemetry/%s/%d", driverCode, lap);
-
-        F1ApiClient client = new F1ApiClient(
-            "https://raceplayback.com/api/v1/sessions",
-            year,
-            track,
-            sessionType,
-            endpoint,
-            DataModelType.TELEMETRY_POINT
-        );
-
-        return (List<TelemetryPoint>) client.getData();
+        return LapCache.getTelemetry(year, track, sessionType, driverCode, lap);
     }
 
     private void drawLapVisualization(Instance instance) {
@@ -282,31 +349,37 @@ public class DebugPlaybackController {
 
         server.getLogger().info("Drawing lap visualization with {} points...", telemetry.size());
 
+        LapMappingEvent mappingEvent = new LapMappingEvent();
+        mappingEvent.begin();
+
+        List<Pos> points = new ArrayList<>(telemetry.size());
         for (int i = 0; i < telemetry.size(); i++) {
             Pos pos;
 
             if (useAdaptiveMapper) {
-                pos = adaptiveMapper.mapTelemetryPoint(i).withY(65);
+                pos = mappedLap.getPosition(i, 65);
             } else {
-                TelemetryPoint point = telemetry.get(i);
-                pos = converter.toMinecraftPos(
-                    point.x(),
-                    point.y(),
-                    65
-                );
+                pos = new Pos(mcX[i], 65, mcZ[i]);
             }
 
-            Entity blockDisplay = new Entity(EntityType.BLOCK_DISPLAY);
-            BlockDisplayMeta meta = (BlockDisplayMeta) blockDisplay.getEntityMeta();
-            meta.setBlockState(Block.GOLD_BLOCK);
-            meta.setScale(new Vec(0.25, 0.25, 0.25));
-            meta.setHasNoGravity(true);
+            points.add(pos);
+        }
+
+        mappingEvent.end();
+        if (mappingEvent.shouldCommit()) {
+            mappingEvent.mapper = useAdaptiveMapper ? "MappedLap" : "CoordinateConverter";
+            mappingEvent.points = telemetry.size();
+            mappingEvent.cacheHits = useAdaptiveMapper ? telemetry.size() : 0;
+            mappingEvent.cacheMisses = useAdaptiveMapper ? 0 : telemetry.size();
+            mappingEvent.commit();
+        }
 
-            blockDisplay.setInstance(instance, pos);
-            visualizationEntities.add(blockDisplay);
+        if (visualizer == null) {
+            visualizer = new DebugVisualizer(instance);
         }
+        visualizer.addPolyline(points, Block.GOLD_BLOCK, 0.25);
 
-        server.getLogger().info("Lap visualization complete! Drew {} gold block displays", telemetry.size());
+        server.getLogger().info("Lap visualization complete! Drew {} gold markers", telemetry.size());
         if (useAdaptiveMapper) {
             server.getLogger().info("Using ADAPTIVE mapping - racing line follows track centerline");
         } else {
@@ -319,10 +392,9 @@ public class DebugPlaybackController {
             car.remove();
         }
 
-        for (Entity entity : visualizationEntities) {
-            entity.remove();
+        if (visualizer != null) {
+            visualizer.clear();
         }
-        visualizationEntities.clear();
     }
 
     public int getCurrentIndex() {
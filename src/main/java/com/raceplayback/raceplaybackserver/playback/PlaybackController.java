@@ -2,27 +2,60 @@ package com.raceplayback.raceplaybackserver.playback;
 
 import com.raceplayback.raceplaybackserver.RacePlaybackServer;
 import com.raceplayback.raceplaybackserver.data.Compound;
-import com.raceplayback.raceplaybackserver.data.DataModelType;
-import com.raceplayback.raceplaybackserver.data.Session;
+import com.raceplayback.raceplaybackserver.data.Driver;
 import com.raceplayback.raceplaybackserver.data.SessionType;
-import com.raceplayback.raceplaybackserver.data.TelemetryPoint;
+import com.raceplayback.raceplaybackserver.data.LapTelemetry;
 import com.raceplayback.raceplaybackserver.data.TrackName;
 import com.raceplayback.raceplaybackserver.entity.car.F1Car;
-import com.raceplayback.raceplaybackserver.network.F1ApiClient;
+import com.raceplayback.raceplaybackserver.jfr.ReplayTickEvent;
+import com.raceplayback.raceplaybackserver.metrics.Counter;
+import com.raceplayback.raceplaybackserver.metrics.Gauge;
+import com.raceplayback.raceplaybackserver.metrics.Histogram;
+import com.raceplayback.raceplaybackserver.metrics.MetricsRegistry;
+import com.raceplayback.raceplaybackserver.network.LapCache;
+import com.raceplayback.raceplaybackserver.network.SessionBundle;
 import com.raceplayback.raceplaybackserver.util.CoordinateConverter;
 import net.minestom.server.coordinate.Pos;
 import net.minestom.server.instance.Instance;
 import net.minestom.server.timer.TaskSchedule;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class PlaybackController {
+    private static final Histogram tickTime = MetricsRegistry.timer("raceplayback_replay_tick_seconds", "Time spent updating a replay car per tick");
+    private static final Histogram preloadTime = MetricsRegistry.timer("raceplayback_lap_preload_seconds", "Time spent fetching and building the next lap");
+    private static final Counter preloadFailures = MetricsRegistry.counter("raceplayback_lap_preload_failures_total", "Laps that could not be preloaded");
+    private static final Counter lapStalls = MetricsRegistry.counter("raceplayback_lap_stalls_total", "Times a replay reached the end of a lap before the next one was loaded");
+    private static final Gauge activeReplays = MetricsRegistry.gauge("raceplayback_active_replays", "Replays currently running");
+
+    private static final List<PlaybackController> runningControllers = new CopyOnWriteArrayList<>();
+    private static final ExecutorService preloadExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private static final int MAX_CONSECUTIVE_MISSING_LAPS = 3;
+    private static final long MAX_SAMPLE_GAP_MS = 2_000;
+    private static final long TICK_MILLIS = 50;
+
     private final RacePlaybackServer server = RacePlaybackServer.getInstance();
 
     private F1Car car;
-    private SessionTimeline currentTimeline;
-    private SessionTimeline nextTimeline;
+    private SessionTimeline timeline;
+    private CompletableFuture<SessionTimeline.TimelineLap> preload;
+    private int preloadingLap;
+    private boolean waitingForLap;
+    private int missingLaps;
     private CoordinateConverter converter;
+    private final SessionBundle bundle;
+    private ReplayClock clock;
+    private SessionEventTrack events;
+    private SessionEventAnnouncer announcer;
+    private long lastPointTime;
+    private double lastSpeed;
+    private long startedAtNanos;
+    private final PredictiveMotion motion = PredictiveMotion.fromConfig();
+    private long tick;
 
     private int year;
     private TrackName track;
@@ -30,7 +63,6 @@ public class PlaybackController {
     private String driverCode;
     private int currentLap = 1;
     private int totalLaps;
-    private double rotationOffset;
 
     private boolean running = false;
 
@@ -39,20 +71,10 @@ public class PlaybackController {
         this.track = track;
         this.sessionType = sessionType;
         this.driverCode = driverCode;
-        this.rotationOffset = rotationOffset;
         this.converter = new CoordinateConverter(startPosition, rotationOffset);
         
-        F1ApiClient sessionClient = new F1ApiClient(
-            "https://raceplayback.com/api/v1/sessions",
-            year,
-            track,
-            sessionType,
-            "info",
-            DataModelType.SESSION
-        );
-        
-        Session session = (Session) sessionClient.getData();
-        this.totalLaps = session != null ? session.numberOfLaps() : 57;
+        this.bundle = LapCache.getSessionBundle(year, track, sessionType);
+        this.totalLaps = bundle != null ? bundle.getSession().numberOfLaps() : 57;
         
         server.getLogger().info("Session has {} laps", totalLaps);
     }
@@ -60,28 +82,39 @@ public class PlaybackController {
     public void initialize(Instance instance) {
         server.getLogger().info("Loading lap 1 for driver {}...", driverCode);
 
-        List<TelemetryPoint> telemetry = fetchTelemetry(currentLap);
+        LapTelemetry telemetry = fetchTelemetry(currentLap);
 
-        if (telemetry == null || telemetry.isEmpty()) {
+        if (telemetry == null || telemetry.size() == 0) {
             server.getLogger().error("No telemetry data for lap 1!");
             return;
         }
 
-        Compound compound = telemetry.get(0).compound();
+        Compound compound = telemetry.getCompound(0);
 
         car = new F1Car(driverCode, compound);
         Pos startPos = converter.toMinecraftPos(
-            telemetry.get(0).x(),
-            telemetry.get(0).y(),
+            telemetry.getX(0),
+            telemetry.getY(0),
             42
         );
         car.spawn(instance, startPos);
 
-        currentTimeline = new SessionTimeline(converter, 42);
-        currentTimeline.buildFromTelemetry(telemetry);
+        timeline = new SessionTimeline(converter, 42);
+        timeline.append(currentLap, timeline.mapLap(telemetry));
+        preloadingLap = currentLap;
 
         server.getLogger().info("Lap 1 loaded with {} telemetry points", telemetry.size());
 
+        clock = new ReplayClock(timeline.getStartSessionTime());
+        lastPointTime = timeline.getStartSessionTime();
+        if (bundle != null) {
+            Driver driver = bundle.getDriver(driverCode);
+            events = SessionEventTrack.fromBundle(bundle, driver != null ? driver.number() : -1);
+            events.seek(clock.now());
+            announcer = new SessionEventAnnouncer(instance, bundle);
+            server.getLogger().info("{} session events scheduled for {}", events.size(), driverCode);
+        }
+
         preloadNextLap();
     }
     
@@ -105,113 +138,210 @@ public class PlaybackController {
     }
     
     private void start(Instance instance) {
+        if (!running) {
+            activeReplays.increment();
+            runningControllers.add(this);
+        }
         running = true;
-        currentTimeline.start();
+        clock.start();
+        startedAtNanos = System.nanoTime();
         
         server.getLogger().info("Replay started! Timeline has {} points", 
-            currentTimeline.getTotalPoints());
+            timeline.getTotalPoints());
         
         instance.scheduler().buildTask(() -> {
             if (!running) return;
             
-            update();
+            ReplayTickEvent tickEvent = new ReplayTickEvent();
+            tickEvent.begin();
+
+            long tickStart = System.nanoTime();
+            tick++;
+            appendPreloadedLap();
+            if (!running) return;
+
+            long now = clock.now();
+            update(now);
+            if (events != null) {
+                events.advance(clock.now(), announcer);
+            }
+            tickTime.recordSince(tickStart);
+
+            tickEvent.end();
+            if (tickEvent.shouldCommit()) {
+                tickEvent.driver = driverCode;
+                tickEvent.lap = currentLap;
+                tickEvent.cars = 1;
+                tickEvent.commit();
+            }
             
-            if (currentTimeline.isFinished()) {
-                onLapFinished(instance);
+            if (timeline.isExhausted(now)) {
+                onTimelineExhausted();
             }
-        }).repeat(TaskSchedule.millis(50)).schedule();
+        }).repeat(TaskSchedule.millis(TICK_MILLIS)).schedule();
     }
     
-    private void update() {
-        TimelinePoint point = currentTimeline.getCurrentPoint();
+    private void update(long now) {
+        TimelinePoint point = timeline.advance(now);
         
         if (point != null) {
-            if (currentTimeline.getCurrentIndex() < 5) {
-                server.getLogger().info("Update {}: pos={}, yaw={}, timestamp={}ms", 
-                    currentTimeline.getCurrentIndex(),
-                    point.getPosition(),
-                    point.getYaw(),
-                    point.getTimestamp()
-                );
+            lastPointTime = point.getTimestamp();
+            lastSpeed = point.getSpeed();
+            int lap = timeline.getLapAt(lastPointTime);
+            if (lap != currentLap) {
+                server.getLogger().info("Starting lap {}", lap);
+                currentLap = lap;
             }
-            
-            Pos posWithYaw = point.getPosition().withYaw(point.getYaw());
-            
-            car.update(posWithYaw);
-            
+
             car.setDRS(point.isDrsOpen());
-            
-            float steeringAngle = point.getYaw() * 0.3f;
-            car.setSteeringAngle(steeringAngle);
+
+            if (motion == null) {
+                Pos posWithYaw = point.getPosition().withYaw(point.getYaw());
+
+                car.update(posWithYaw);
+                float[] steering = timeline.getSteeringAt(point.getTimestamp());
+                car.setSteering(steering[0], steering[1]);
+            }
+        } else if (!timeline.isExhausted(now) && now - lastPointTime > MAX_SAMPLE_GAP_MS) {
+            // A lap in between could not be loaded; jump the gap rather than parking the car
+            long next = timeline.getNextPointTime();
+            server.getLogger().info("Skipping {} ms of missing telemetry for {}", next - now, driverCode);
+            seek(next);
         }
+
+        if (motion != null) {
+            movePredictively(now);
+        }
+
+        // The wheels roll as fast as the replay plays, and stop while it is paused
+        car.setWheelSpeed(clock.isPaused() ? 0 : lastSpeed * clock.getSpeed());
     }
-    
-    private void onLapFinished(Instance instance) {
-        server.getLogger().info("Lap {} finished!", currentLap);
-        
-        currentLap++;
-        
-        if (currentLap > totalLaps) {
-            server.getLogger().info("Session finished!");
-            stop();
-            return;
+
+    /**
+     * Sends the car only when viewers' interpolation would drift from the replay, aiming each
+     * send at where the car will be once the interpolation is over.
+     */
+    private void movePredictively(long now) {
+        double sessionMillisPerTick = clock.isPaused() ? 0 : TICK_MILLIS * clock.getSpeed();
+        Pos target = motion.plan(tick, ticks -> timeline.getPoseAt(now + Math.round(ticks * sessionMillisPerTick)));
+        if (target != null) {
+            int ticks = motion.getInterpolationTicks();
+            float[] steering = timeline.getSteeringAt(now + Math.round(ticks * sessionMillisPerTick));
+            car.moveTo(target, steering[0], steering[1], ticks);
         }
-        
-        if (nextTimeline != null) {
-            currentTimeline = nextTimeline;
-            currentTimeline.start();
-            
-            server.getLogger().info("Starting lap {}", currentLap);
-            
+    }
+
+    /**
+     * Appends the preloaded lap to the timeline once it is ready, and starts loading the one
+     * after it when the car reaches the last lap appended so far. At most one lap is buffered
+     * ahead of the car.
+     */
+    private void appendPreloadedLap() {
+        if (preload != null && preload.isDone()) {
+            SessionTimeline.TimelineLap lap = preload.join();
+            preload = null;
+
+            if (lap == null || lap.isEmpty()) {
+                missingLaps++;
+                if (missingLaps > MAX_CONSECUTIVE_MISSING_LAPS) {
+                    server.getLogger().error("{} laps in a row could not be loaded, stopping replay of {}", missingLaps, driverCode);
+                    stop();
+                    return;
+                }
+                server.getLogger().warn("Skipping lap {} of {}, it could not be loaded", preloadingLap, driverCode);
+            } else {
+                missingLaps = 0;
+                timeline.append(preloadingLap, lap);
+                if (waitingForLap) {
+                    waitingForLap = false;
+                    clock.start();
+                }
+            }
+        }
+
+        boolean carReachedLastLap = clock.now() >= timeline.getLastLapStartTime();
+        if (preload == null && preloadingLap < totalLaps && (carReachedLastLap || waitingForLap)) {
             preloadNextLap();
-        } else {
-            server.getLogger().error("Next lap not preloaded!");
+        }
+    }
+
+    private void onTimelineExhausted() {
+        if (preloadingLap >= totalLaps && preload == null) {
+            long sessionMillis = timeline.getEndSessionTime() - timeline.getStartSessionTime();
+            long wallMillis = (System.nanoTime() - startedAtNanos) / 1_000_000;
+            server.getLogger().info("Session finished! Replayed {} ms of session time in {} ms", sessionMillis, wallMillis);
             stop();
+            return;
+        }
+
+        // Hold the car, and the clock with it, rather than ending the replay; the lap is still on its way
+        if (!waitingForLap) {
+            waitingForLap = true;
+            clock.pause();
+            lapStalls.increment();
+            server.getLogger().warn("Lap {} is not loaded yet, holding {} until it is", preloadingLap, driverCode);
         }
     }
-    
+
+    private void seek(long sessionTime) {
+        clock.seek(sessionTime);
+        if (events != null) {
+            events.seek(sessionTime);
+        }
+        lastPointTime = sessionTime;
+    }
+
+    /**
+     * Fetches and maps the next lap on a virtual thread, so a slow or retried request never
+     * holds up the tick. Laps go through the replay's one converter, so they line up exactly.
+     */
     private void preloadNextLap() {
-        if (currentLap >= totalLaps) {
+        if (preloadingLap >= totalLaps) {
             return;
         }
-        
-        int nextLap = currentLap + 1;
-        
+
+        int nextLap = preloadingLap + 1;
+        preloadingLap = nextLap;
+
         server.getLogger().info("Preloading lap {}...", nextLap);
-        
-        List<TelemetryPoint> telemetry = fetchTelemetry(nextLap);
-        
-        if (telemetry != null && !telemetry.isEmpty()) {
-            CoordinateConverter lapConverter = new CoordinateConverter(car.getPosition(), rotationOffset);
-            
-            nextTimeline = new SessionTimeline(lapConverter, 42);
-            nextTimeline.buildFromTelemetry(telemetry);
+
+        preload = CompletableFuture.supplyAsync(() -> {
+            long preloadStart = System.nanoTime();
+            LapTelemetry telemetry = fetchTelemetry(nextLap);
+
+            if (telemetry == null || telemetry.size() == 0) {
+                preloadFailures.increment();
+                server.getLogger().warn("Failed to preload lap {}", nextLap);
+                return null;
+            }
+
+            SessionTimeline.TimelineLap lap = timeline.mapLap(telemetry);
+            preloadTime.recordSince(preloadStart);
             server.getLogger().info("Lap {} preloaded with {} points", nextLap, telemetry.size());
-        } else {
-            server.getLogger().warn("Failed to preload lap {}", nextLap);
-        }
+            return lap;
+        }, preloadExecutor).exceptionally(e -> {
+            preloadFailures.increment();
+            server.getLogger().error("Failed to preload lap {}", nextLap, e);
+            return null;
+        });
     }
-    
-    @SuppressWarnings("unchecked")
-    private List<TelemetryPoint> fetchTelemetry(int lap) {
-        String endpoint = String.format("telemetry/%s/%d", driverCode, lap);
-        
-        F1ApiClient client = new F1ApiClient(
-            "https://raceplayback.com/api/v1/sessions",
-            year,
-            track,
-            sessionType,
-            endpoint,
-            DataModelType.TELEMETRY_POINT
-        );
-        
-        return (List<TelemetryPoint>) client.getData();
+
+    private LapTelemetry fetchTelemetry(int lap) {
+        return LapCache.getLapTelemetry(year, track, sessionType, driverCode, lap);
     }
     
     public void stop() {
+        if (running) {
+            activeReplays.decrement();
+            runningControllers.remove(this);
+        }
         running = false;
-        if (currentTimeline != null) {
-            currentTimeline.stop();
+        if (preload != null) {
+            preload.cancel(false);
+            preload = null;
+        }
+        if (clock != null) {
+            clock.pause();
         }
         if (car != null) {
             car.remove();
@@ -221,4 +351,16 @@ public class PlaybackController {
     public boolean isRunning() {
         return running;
     }
+
+    public F1Car getCar() {
+        return car;
+    }
+
+    public String getDriverCode() {
+        return driverCode;
+    }
+
+    public static List<PlaybackController> getRunningControllers() {
+        return runningControllers;
+    }
 }
\ No newline at end of file
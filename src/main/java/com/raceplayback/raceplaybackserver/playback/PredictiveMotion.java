@@ -0,0 +1,134 @@
+package com.raceplayback.raceplaybackserver.playback;
+
+import com.raceplayback.raceplaybackserver.metrics.Counter;
+import com.raceplayback.raceplaybackserver.metrics.MetricsRegistry;
+import com.raceplayback.raceplaybackserver.util.EnvConfig;
+import net.minestom.server.coordinate.Pos;
+
+import java.util.function.IntFunction;
+
+/**
+ * Decides when a car's pose has to be sent to viewers. Each send carries the pose the car will
+ * have a few ticks ahead, together with an interpolation duration of that many ticks, so the
+ * client moves the car there at the right speed on its own. This class runs the same
+ * interpolation to know what viewers are showing, and only asks for another send once that
+ * would be off from the replay by more than the allowed error.
+ * <p>
+ * All viewers of a car are sent the same packets, so one model stands in for every one of them.
+ */
+public class PredictiveMotion {
+    private static final Counter suppressedUpdates = MetricsRegistry.counter("raceplayback_car_updates_suppressed_total", "Ticks where viewers' interpolation was close enough that a car was not sent");
+    private static final Counter predictedUpdates = MetricsRegistry.counter("raceplayback_car_updates_predicted_total", "Car updates sent because viewers' interpolation would have drifted");
+
+    // Clients cap the position interpolation of display entities at 59 ticks
+    private static final int CLIENT_MAX_INTERPOLATION_TICKS = 59;
+    // Further off than this and interpolating there would visibly sweep the car across the track
+    private static final double SNAP_DISTANCE = 8.0;
+
+    private final double maxPositionError;
+    private final double maxYawError;
+    private final int maxHorizonTicks;
+
+    // What viewers are showing: moving from one pose to the other over the given ticks
+    private Pos from;
+    private Pos to;
+    private long startTick;
+    private int durationTicks;
+
+    public PredictiveMotion(double maxPositionError, double maxYawError, int maxHorizonTicks) {
+        this.maxPositionError = maxPositionError;
+        this.maxYawError = maxYawError;
+        this.maxHorizonTicks = Math.max(1, Math.min(CLIENT_MAX_INTERPOLATION_TICKS, maxHorizonTicks));
+    }
+
+    /**
+     * @return the configured predictor, or null if MOTION_PREDICTION_ENABLED is off and every
+     *         sample should be sent as it comes
+     */
+    public static PredictiveMotion fromConfig() {
+        if (!EnvConfig.getBoolean("MOTION_PREDICTION_ENABLED", false)) {
+            return null;
+        }
+        return new PredictiveMotion(
+            EnvConfig.getDouble("MOTION_MAX_ERROR_BLOCKS", 0.25),
+            EnvConfig.getDouble("MOTION_MAX_ERROR_DEGREES", 3.0),
+            EnvConfig.getInt("MOTION_MAX_HORIZON_TICKS", 40)
+        );
+    }
+
+    /**
+     * @param tick        the current tick
+     * @param poseInTicks the replay's true pose the given number of ticks from now, 0 being now
+     * @return the pose to send, interpolated over {@link #getInterpolationTicks()}, or null if
+     *         viewers are close enough to the replay now and on the next tick
+     */
+    public Pos plan(long tick, IntFunction<Pos> poseInTicks) {
+        Pos truth = poseInTicks.apply(0);
+
+        if (to != null && within(predict(tick), truth) && within(predict(tick + 1), poseInTicks.apply(1))) {
+            suppressedUpdates.increment();
+            return null;
+        }
+
+        Pos shown = to != null ? predict(tick) : null;
+        if (shown == null || shown.distance(truth) > SNAP_DISTANCE) {
+            record(tick, truth, truth, 0);
+            return truth;
+        }
+
+        // The longest horizon whose straight line stays within the error of the real path
+        int horizon = maxHorizonTicks;
+        Pos target = poseInTicks.apply(horizon);
+        while (horizon > 1 && !followsPath(shown, target, horizon, poseInTicks)) {
+            horizon /= 2;
+            target = poseInTicks.apply(horizon);
+        }
+
+        predictedUpdates.increment();
+        record(tick, shown, target, horizon);
+        return target;
+    }
+
+    public int getInterpolationTicks() {
+        return durationTicks;
+    }
+
+    private boolean followsPath(Pos start, Pos target, int horizon, IntFunction<Pos> poseInTicks) {
+        for (int k = 1; k < horizon; k++) {
+            if (!within(interpolate(start, target, k / (double) horizon), poseInTicks.apply(k))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void record(long tick, Pos from, Pos to, int durationTicks) {
+        this.from = from;
+        this.to = to;
+        this.startTick = tick;
+        this.durationTicks = durationTicks;
+    }
+
+    private Pos predict(long tick) {
+        if (durationTicks == 0 || tick >= startTick + durationTicks) {
+            return to;
+        }
+        return interpolate(from, to, (tick - startTick) / (double) durationTicks);
+    }
+
+    private boolean within(Pos shown, Pos truth) {
+        return shown.distance(truth) <= maxPositionError
+            && Math.abs(SessionTimeline.wrapDegrees(shown.yaw() - truth.yaw())) <= maxYawError;
+    }
+
+    private static Pos interpolate(Pos a, Pos b, double t) {
+        float yawDelta = SessionTimeline.wrapDegrees(b.yaw() - a.yaw());
+        return new Pos(
+            a.x() + (b.x() - a.x()) * t,
+            a.y() + (b.y() - a.y()) * t,
+            a.z() + (b.z() - a.z()) * t,
+            SessionTimeline.wrapDegrees((float) (a.yaw() + yawDelta * t)),
+            0
+        );
+    }
+}
@@ -0,0 +1,68 @@
+package com.raceplayback.raceplaybackserver.playback;
+
+/**
+ * Maps wall-clock time to session time (SessionTime_ms). The clock keeps an anchor, the session
+ * time at a known wall time, and moves forward from it at the playback speed. Pausing, seeking
+ * and changing speed only move the anchor, so session time never jumps by accident.
+ */
+public class ReplayClock {
+    private long anchorNanos;
+    private long anchorSessionTime;
+    private double speed = 1.0;
+    private boolean paused = true;
+
+    public ReplayClock(long sessionTime) {
+        this.anchorSessionTime = sessionTime;
+        this.anchorNanos = System.nanoTime();
+    }
+
+    /**
+     * @return the current session time in milliseconds
+     */
+    public synchronized long now() {
+        if (paused) {
+            return anchorSessionTime;
+        }
+        return anchorSessionTime + (long) ((System.nanoTime() - anchorNanos) / 1_000_000.0 * speed);
+    }
+
+    public synchronized void start() {
+        if (paused) {
+            anchorNanos = System.nanoTime();
+            paused = false;
+        }
+    }
+
+    public synchronized void pause() {
+        if (!paused) {
+            reanchor();
+            paused = true;
+        }
+    }
+
+    public synchronized void seek(long sessionTime) {
+        anchorSessionTime = sessionTime;
+        anchorNanos = System.nanoTime();
+    }
+
+    public synchronized void setSpeed(double speed) {
+        if (speed <= 0 || Double.isNaN(speed)) {
+            throw new IllegalArgumentException("Playback speed must be positive, use pause() to stop");
+        }
+        reanchor();
+        this.speed = speed;
+    }
+
+    public synchronized double getSpeed() {
+        return speed;
+    }
+
+    public synchronized boolean isPaused() {
+        return paused;
+    }
+
+    private void reanchor() {
+        anchorSessionTime = now();
+        anchorNanos = System.nanoTime();
+    }
+}
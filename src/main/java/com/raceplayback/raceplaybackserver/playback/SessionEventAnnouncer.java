@@ -0,0 +1,80 @@
+package com.raceplayback.raceplaybackserver.playback;
+
+import com.raceplayback.raceplaybackserver.data.Driver;
+import com.raceplayback.raceplaybackserver.data.PitStop;
+import com.raceplayback.raceplaybackserver.data.RaceControlMessage;
+import com.raceplayback.raceplaybackserver.data.TeamRadio;
+import com.raceplayback.raceplaybackserver.data.WeatherData;
+import com.raceplayback.raceplaybackserver.network.SessionBundle;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.minestom.server.instance.Instance;
+
+/**
+ * Posts session events to the chat of everyone in the replay's instance.
+ */
+public class SessionEventAnnouncer implements SessionEventTrack.Listener {
+    private final Instance instance;
+    private final SessionBundle bundle;
+
+    public SessionEventAnnouncer(Instance instance, SessionBundle bundle) {
+        this.instance = instance;
+        this.bundle = bundle;
+    }
+
+    @Override
+    public void onTeamRadio(TeamRadio radio) {
+        String transcript = radio.transcript() != null && !radio.transcript().isBlank() ? radio.transcript() : "(no transcript)";
+        instance.sendMessage(Component.text("[TEAM RADIO] ", NamedTextColor.AQUA)
+            .append(Component.text("(" + driverCode(radio.driverNumber()) + ") ", NamedTextColor.WHITE))
+            .append(Component.text(transcript, NamedTextColor.GRAY)));
+    }
+
+    @Override
+    public void onWeatherChange(WeatherData weather) {
+        String text = weather.rainfall() > 0 ? "Rain is falling" : "Rain has stopped";
+        instance.sendMessage(Component.text("[WEATHER] ", NamedTextColor.DARK_AQUA)
+            .append(Component.text(text, NamedTextColor.GRAY)));
+    }
+
+    @Override
+    public void onPitIn(PitStop pitStop) {
+        instance.sendMessage(Component.text("[PIT] ", NamedTextColor.GOLD)
+            .append(Component.text(pitStop.driverCode() + " into the pits on lap " + pitStop.lapNumber(), NamedTextColor.GRAY)));
+    }
+
+    @Override
+    public void onPitOut(PitStop pitStop) {
+        String duration = pitStop.duration() != null ? " (%.1fs)".formatted(pitStop.duration() / 1000.0) : "";
+        instance.sendMessage(Component.text("[PIT] ", NamedTextColor.GOLD)
+            .append(Component.text(pitStop.driverCode() + " out of the pits" + duration, NamedTextColor.GRAY)));
+    }
+
+    @Override
+    public void onRaceControlMessage(RaceControlMessage message) {
+        if (message.message() == null) {
+            return;
+        }
+        instance.sendMessage(Component.text("[RACE CONTROL] ", flagColor(message.flag()))
+            .append(Component.text(message.message(), NamedTextColor.WHITE)));
+    }
+
+    private String driverCode(int driverNumber) {
+        Driver driver = bundle.getDriver(driverNumber);
+        return driver != null && driver.abbreviation() != null ? driver.abbreviation() : "#" + driverNumber;
+    }
+
+    private static NamedTextColor flagColor(String flag) {
+        if (flag == null) {
+            return NamedTextColor.GOLD;
+        }
+        return switch (flag.toUpperCase()) {
+            case "YELLOW", "DOUBLE YELLOW" -> NamedTextColor.YELLOW;
+            case "RED" -> NamedTextColor.RED;
+            case "GREEN", "CLEAR" -> NamedTextColor.GREEN;
+            case "BLUE" -> NamedTextColor.BLUE;
+            case "CHEQUERED" -> NamedTextColor.WHITE;
+            default -> NamedTextColor.GOLD;
+        };
+    }
+}
@@ -0,0 +1,267 @@
+package com.raceplayback.raceplaybackserver.playback;
+
+import com.raceplayback.raceplaybackserver.data.Driver;
+import com.raceplayback.raceplaybackserver.data.PitStop;
+import com.raceplayback.raceplaybackserver.data.RaceControlMessage;
+import com.raceplayback.raceplaybackserver.data.TeamRadio;
+import com.raceplayback.raceplaybackserver.data.WeatherData;
+import com.raceplayback.raceplaybackserver.network.SessionBundle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Team radio, rain changes, pit stops and race control messages merged into one index sorted
+ * by session time. The index is three parallel arrays (time, kind, position in the source list)
+ * and a cursor, so a tick only looks at the events that are due and a seek is a binary search.
+ * <p>
+ * Not thread-safe; advance and seek it from the replay's tick.
+ */
+public class SessionEventTrack {
+    private static final Logger logger = LoggerFactory.getLogger(SessionEventTrack.class);
+
+    private static final byte TEAM_RADIO = 0;
+    private static final byte WEATHER = 1;
+    private static final byte PIT_IN = 2;
+    private static final byte PIT_OUT = 3;
+    private static final byte RACE_CONTROL = 4;
+
+    // Live timing starts about an hour before a race; only used when there is no radio to sync on
+    private static final Duration FEED_LEAD_TIME = Duration.ofHours(1);
+    // Bits below the time in the sort keys; leaves times of up to 2^39 ms, about 17 years, either side of 0
+    private static final int ORDER_INDEX_BITS = 24;
+    private static final long ORDER_INDEX_MASK = (1L << ORDER_INDEX_BITS) - 1;
+
+    private final long[] times;
+    private final byte[] kinds;
+    private final int[] refs;
+
+    private final List<TeamRadio> radios;
+    private final List<WeatherData> weather;
+    private final List<PitStop> pitStops;
+    private final List<RaceControlMessage> messages;
+
+    private int cursor;
+    private long lastTime = Long.MIN_VALUE;
+
+    public interface Listener {
+        default void onTeamRadio(TeamRadio radio) {}
+
+        default void onWeatherChange(WeatherData weather) {}
+
+        default void onPitIn(PitStop pitStop) {}
+
+        default void onPitOut(PitStop pitStop) {}
+
+        default void onRaceControlMessage(RaceControlMessage message) {}
+    }
+
+    private SessionEventTrack(long[] times, byte[] kinds, int[] refs, List<TeamRadio> radios, List<WeatherData> weather,
+                              List<PitStop> pitStops, List<RaceControlMessage> messages) {
+        this.times = times;
+        this.kinds = kinds;
+        this.refs = refs;
+        this.radios = radios;
+        this.weather = weather;
+        this.pitStops = pitStops;
+        this.messages = messages;
+    }
+
+    /**
+     * @param driverNumber only keep radios, pit stops and car-specific messages for this driver,
+     *                     or -1 for every driver
+     */
+    public static SessionEventTrack fromBundle(SessionBundle bundle, int driverNumber) {
+        Driver driver = driverNumber >= 0 ? bundle.getDriver(driverNumber) : null;
+        String driverCode = driver != null ? driver.abbreviation() : null;
+
+        List<TeamRadio> radios = new ArrayList<>();
+        for (TeamRadio radio : bundle.getRadios()) {
+            if (radio.timestamp() != null && (driverNumber < 0 || radio.driverNumber() == driverNumber)) {
+                radios.add(radio);
+            }
+        }
+
+        // Only changes are events; the state at any time is SessionBundle.getWeatherAt
+        List<WeatherData> weather = new ArrayList<>();
+        WeatherData previous = null;
+        for (WeatherData sample : bundle.getWeather()) {
+            if (sample.time() == null) {
+                continue;
+            }
+            if (previous != null && (sample.rainfall() > 0) != (previous.rainfall() > 0)) {
+                weather.add(sample);
+            }
+            previous = sample;
+        }
+
+        List<PitStop> pitStops = new ArrayList<>();
+        for (PitStop stop : bundle.getPitStops()) {
+            if (driverNumber < 0 || stop.driverCode().equalsIgnoreCase(driverCode)) {
+                pitStops.add(stop);
+            }
+        }
+
+        LocalDateTime feedStart = feedStart(bundle);
+        List<RaceControlMessage> messages = new ArrayList<>();
+        List<Long> messageTimes = new ArrayList<>();
+        for (RaceControlMessage message : bundle.getRaceControlMessages()) {
+            if (driverNumber >= 0 && message.racingNumber() != null && message.racingNumber() != driverNumber) {
+                continue;
+            }
+            messages.add(message);
+            messageTimes.add(Duration.between(feedStart, message.time()).toMillis());
+        }
+
+        int count = radios.size() + weather.size() + messages.size();
+        for (PitStop stop : pitStops) {
+            count += (stop.pitInTime() != null ? 1 : 0) + (stop.pitOutTime() != null ? 1 : 0);
+        }
+
+        long[] times = new long[count];
+        byte[] kinds = new byte[count];
+        int[] refs = new int[count];
+        int n = 0;
+        for (int i = 0; i < radios.size(); i++, n++) {
+            times[n] = radios.get(i).timestamp();
+            kinds[n] = TEAM_RADIO;
+            refs[n] = i;
+        }
+        for (int i = 0; i < weather.size(); i++, n++) {
+            times[n] = weather.get(i).time();
+            kinds[n] = WEATHER;
+            refs[n] = i;
+        }
+        for (int i = 0; i < pitStops.size(); i++) {
+            PitStop stop = pitStops.get(i);
+            if (stop.pitInTime() != null) {
+                times[n] = stop.pitInTime();
+                kinds[n] = PIT_IN;
+                refs[n++] = i;
+            }
+            if (stop.pitOutTime() != null) {
+                times[n] = stop.pitOutTime();
+                kinds[n] = PIT_OUT;
+                refs[n++] = i;
+            }
+        }
+        for (int i = 0; i < messages.size(); i++, n++) {
+            times[n] = messageTimes.get(i);
+            kinds[n] = RACE_CONTROL;
+            refs[n] = i;
+        }
+
+        // Sort the three columns together by sorting the time with the index packed below it, so
+        // simultaneous events keep the order above
+        if (count > 1 << ORDER_INDEX_BITS) {
+            throw new IllegalStateException("Too many session events to sort: " + count);
+        }
+        long[] order = new long[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = (times[i] << ORDER_INDEX_BITS) | i;
+        }
+        Arrays.sort(order);
+
+        long[] sortedTimes = new long[count];
+        byte[] sortedKinds = new byte[count];
+        int[] sortedRefs = new int[count];
+        for (int i = 0; i < count; i++) {
+            int index = (int) (order[i] & ORDER_INDEX_MASK);
+            sortedTimes[i] = times[index];
+            sortedKinds[i] = kinds[index];
+            sortedRefs[i] = refs[index];
+        }
+
+        return new SessionEventTrack(sortedTimes, sortedKinds, sortedRefs, List.copyOf(radios), List.copyOf(weather),
+            List.copyOf(pitStops), List.copyOf(messages));
+    }
+
+    /**
+     * Race control messages only carry wall-clock time. Each radio has both, which gives the
+     * wall-clock time of session time 0.
+     */
+    private static LocalDateTime feedStart(SessionBundle bundle) {
+        for (TeamRadio radio : bundle.getRadios()) {
+            if (radio.utc() != null && radio.timestamp() != null) {
+                return radio.utc().minus(Duration.ofMillis(radio.timestamp()));
+            }
+        }
+        logger.debug("No team radio to sync race control messages on, assuming the feed started {} before the session", FEED_LEAD_TIME);
+        return bundle.getSession().date().minus(FEED_LEAD_TIME);
+    }
+
+    /**
+     * Dispatches every event up to and including the given session time that has not been
+     * dispatched yet. If time went backwards, the cursor moves back without dispatching.
+     *
+     * @return the number of events dispatched
+     */
+    public int advance(long sessionTime, Listener listener) {
+        if (sessionTime < lastTime) {
+            cursor = upperBound(sessionTime);
+        }
+        lastTime = sessionTime;
+
+        int dispatched = 0;
+        while (cursor < times.length && times[cursor] <= sessionTime) {
+            dispatch(cursor++, listener);
+            dispatched++;
+        }
+        return dispatched;
+    }
+
+    /**
+     * Moves the cursor so that the next {@link #advance} only dispatches events at or after the
+     * given session time. Use it whenever the replay jumps, so skipped events are not replayed.
+     */
+    public void seek(long sessionTime) {
+        cursor = lowerBound(sessionTime);
+        lastTime = sessionTime;
+    }
+
+    private void dispatch(int index, Listener listener) {
+        int ref = refs[index];
+        switch (kinds[index]) {
+            case TEAM_RADIO -> listener.onTeamRadio(radios.get(ref));
+            case WEATHER -> listener.onWeatherChange(weather.get(ref));
+            case PIT_IN -> listener.onPitIn(pitStops.get(ref));
+            case PIT_OUT -> listener.onPitOut(pitStops.get(ref));
+            case RACE_CONTROL -> listener.onRaceControlMessage(messages.get(ref));
+            default -> throw new IllegalStateException("Unknown event kind " + kinds[index]);
+        }
+    }
+
+    private int lowerBound(long sessionTime) {
+        int low = 0;
+        int high = times.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] < sessionTime) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int upperBound(long sessionTime) {
+        return sessionTime == Long.MAX_VALUE ? times.length : lowerBound(sessionTime + 1);
+    }
+
+    public int size() {
+        return times.length;
+    }
+
+    /**
+     * @return the session time of the next event, or -1 if there are none left
+     */
+    public long getNextEventTime() {
+        return cursor < times.length ? times[cursor] : -1;
+    }
+}
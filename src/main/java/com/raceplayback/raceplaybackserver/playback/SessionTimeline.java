@@ -1,131 +1,326 @@
 package com.raceplayback.raceplaybackserver.playback;
 
-import com.raceplayback.raceplaybackserver.data.TelemetryPoint;
+import com.raceplayback.raceplaybackserver.data.LapTelemetry;
+import com.raceplayback.raceplaybackserver.jfr.LapMappingEvent;
 import com.raceplayback.raceplaybackserver.util.CoordinateConverter;
 import net.minestom.server.coordinate.Pos;
 
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * One continuous timeline for a whole replay, keyed on absolute SessionTime_ms. Laps are
+ * appended as they arrive and all go through the same converter, so lap boundaries are just
+ * consecutive samples. Playback follows a {@link ReplayClock}: {@link #advance} returns the
+ * latest point that is due at the clock's session time.
+ * <p>
+ * Yaw rate, steering and wheel angles are kept as the {@link SteeringModel}'s primitive columns,
+ * one set per appended lap, and looked up by where a point sits on the timeline.
+ */
 public class SessionTimeline {
-    private final List<TimelinePoint> points;
+    private static final int COMPACT_THRESHOLD = 4096;
+
+    private final List<TimelinePoint> points = new ArrayList<>();
     private final CoordinateConverter converter;
     private final double trackHeight;
-    
+
+    private final List<Long> lapStartTimes = new ArrayList<>();
+    private final List<Integer> lapNumbers = new ArrayList<>();
+    private final List<SteeringColumns> steeringColumns = new ArrayList<>();
+    // Points compact() has dropped, so a point's place on the whole timeline is this plus its index
+    private long compactedPoints;
+
     private int currentIndex = 0;
-    private long startTime = 0;
-    private boolean playing = false;
-    
+    private long startSessionTime = -1;
+    private long endSessionTime = -1;
+    private int totalPoints;
+
     public SessionTimeline(CoordinateConverter converter, double trackHeight) {
-        this.points = new ArrayList<>();
         this.converter = converter;
         this.trackHeight = trackHeight;
     }
-    
-    public void buildFromTelemetry(List<TelemetryPoint> telemetry) {
-        points.clear();
-
-        if (telemetry.isEmpty()) return;
-
-        long baseTimestamp = telemetry.get(0).sessionTime();
-
-        for (int i = 0; i < telemetry.size(); i++) {
-            TelemetryPoint current = telemetry.get(i);
-
-            Pos position = converter.toMinecraftPos(
-                current.x(),
-                current.y(),
-                trackHeight
-            );
-
-            float yaw = 0;
-            if (i < telemetry.size() - 1) {
-                TelemetryPoint next = telemetry.get(i + 1);
-                Pos nextPos = converter.toMinecraftPos(
-                    next.x(),
-                    next.y(),
-                    trackHeight
-                );
-
-                if (i < 5) {
-                    System.out.println(String.format("[TIMELINE] Point %d: Tel(%.2f, %.2f) -> MC(%.2f, %.2f)",
-                        i, current.x(), current.y(), position.x(), position.z()));
-                    System.out.println(String.format("[TIMELINE] Point %d Next: Tel(%.2f, %.2f) -> MC(%.2f, %.2f)",
-                        i, next.x(), next.y(), nextPos.x(), nextPos.z()));
-                }
-
-                yaw = converter.calculateYaw(position, nextPos);
-
-                if (i < 5) {
-                    System.out.println(String.format("[TIMELINE] Point %d: Calculated yaw = %.2f°", i, yaw));
-                }
-            } else if (i > 0) {
-                yaw = points.get(i - 1).getYaw();
+
+    /**
+     * A lap mapped by {@link #mapLap}: its points, and the steering columns that go with them.
+     */
+    public record TimelineLap(List<TimelinePoint> points, float[] yawRates, float[] steeringAngles, float[] wheelAngles) {
+        public boolean isEmpty() {
+            return points.isEmpty();
+        }
+    }
+
+    // The columns of one appended lap; column index first is the point at timeline position start
+    private record SteeringColumns(long start, int first, float[] yawRates, float[] steeringAngles, float[] wheelAngles) {}
+
+    /**
+     * Maps a lap to timeline points without touching the timeline, so it can run off the tick.
+     * Positions and yaws come out of one batch transform over the lap's coordinate columns, and
+     * steering out of one pass over the yaws. The last point's yaw is fixed up by
+     * {@link #append} once the following lap is known.
+     */
+    public TimelineLap mapLap(LapTelemetry telemetry) {
+        int count = telemetry.size();
+        List<TimelinePoint> mapped = new ArrayList<>(count);
+        if (count == 0) {
+            return new TimelineLap(mapped, new float[0], new float[0], new float[0]);
+        }
+
+        LapMappingEvent event = new LapMappingEvent();
+        event.begin();
+
+        float[] x = new float[count];
+        float[] y = new float[count];
+        double[] mcX = new double[count];
+        double[] mcZ = new double[count];
+        float[] yaw = new float[count];
+        telemetry.copyCoordinates(x, y);
+        converter.transform(x, y, count, mcX, mcZ, yaw);
+
+        long[] sessionTime = new long[count];
+        float[] speed = new float[count];
+        for (int i = 0; i < count; i++) {
+            sessionTime[i] = telemetry.getSessionTime(i);
+            speed[i] = telemetry.getSpeed(i);
+        }
+        float[] yawRate = new float[count];
+        float[] steering = new float[count];
+        float[] wheelAngle = new float[count];
+        SteeringModel.compute(sessionTime, yaw, speed, count, yawRate, steering, wheelAngle);
+
+        for (int i = 0; i < count; i++) {
+            mapped.add(new TimelinePoint(new Pos(mcX[i], trackHeight, mcZ[i]), yaw[i], telemetry, i));
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.mapper = CoordinateConverter.isVectorized() ? "CoordinateConverter (vector)" : "CoordinateConverter";
+            event.points = count;
+            event.cacheMisses = count;
+            event.commit();
+        }
+
+        return new TimelineLap(mapped, yawRate, steering, wheelAngle);
+    }
+
+    /**
+     * Appends a mapped lap. Samples at or before the current end of the timeline are dropped,
+     * so laps that overlap at the boundary do not step back in time.
+     */
+    public void append(int lapNumber, TimelineLap mapped) {
+        List<TimelinePoint> lap = mapped.points();
+        int first = 0;
+        while (first < lap.size() && lap.get(first).getTimestamp() <= endSessionTime) {
+            first++;
+        }
+        if (first == lap.size()) {
+            return;
+        }
+
+        if (!points.isEmpty()) {
+            int last = points.size() - 1;
+            TimelinePoint previous = points.get(last);
+            points.set(last, previous.withYaw(converter.calculateYaw(previous.getPosition(), lap.get(first).getPosition())));
+        } else {
+            startSessionTime = lap.get(first).getTimestamp();
+        }
+
+        lapStartTimes.add(lap.get(first).getTimestamp());
+        lapNumbers.add(lapNumber);
+        steeringColumns.add(new SteeringColumns(compactedPoints + points.size(), first,
+            mapped.yawRates(), mapped.steeringAngles(), mapped.wheelAngles()));
+        points.addAll(lap.subList(first, lap.size()));
+        totalPoints += lap.size() - first;
+        endSessionTime = points.get(points.size() - 1).getTimestamp();
+    }
+
+    /**
+     * Moves past every point due at the given session time.
+     *
+     * @return the latest point that became due, or null if none did
+     */
+    public TimelinePoint advance(long sessionTime) {
+        TimelinePoint due = null;
+        while (currentIndex < points.size() && points.get(currentIndex).getTimestamp() <= sessionTime) {
+            due = points.get(currentIndex++);
+        }
+        compact();
+        return due;
+    }
+
+    // Drop points that have been played so a long race does not keep every lap mapped. The last
+    // one played stays, since getPoseAt interpolates from it.
+    private void compact() {
+        if (currentIndex > COMPACT_THRESHOLD && currentIndex * 2 > points.size()) {
+            points.subList(0, currentIndex - 1).clear();
+            compactedPoints += currentIndex - 1;
+            currentIndex = 1;
+
+            while (steeringColumns.size() > 1 && steeringColumns.get(1).start() <= compactedPoints) {
+                steeringColumns.remove(0);
             }
+        }
+    }
 
-            TimelinePoint point = new TimelinePoint(
-                position,
-                yaw,
-                current,
-                current.sessionTime() - baseTimestamp
-            );
-            points.add(point);
+    /**
+     * @return the car's pose at the given session time, interpolated between the samples either
+     *         side of it and clamped to the points still held, with the yaw set on the Pos
+     */
+    public Pos getPoseAt(long sessionTime) {
+        if (points.isEmpty()) {
+            return null;
+        }
+
+        int low = indexAt(sessionTime);
+        TimelinePoint from = points.get(low);
+        if (low == points.size() - 1 || sessionTime <= from.getTimestamp()) {
+            return from.getPosition().withYaw(from.getYaw());
         }
 
-        System.out.println("Timeline built: " + points.size() + " points, duration: " +
-            points.get(points.size() - 1).getTimestamp() + "ms"
+        TimelinePoint to = points.get(low + 1);
+        double t = (sessionTime - from.getTimestamp()) / (double) (to.getTimestamp() - from.getTimestamp());
+        Pos a = from.getPosition();
+        Pos b = to.getPosition();
+        float yawDelta = wrapDegrees(to.getYaw() - from.getYaw());
+        return new Pos(
+            a.x() + (b.x() - a.x()) * t,
+            a.y() + (b.y() - a.y()) * t,
+            a.z() + (b.z() - a.z()) * t,
+            wrapDegrees((float) (from.getYaw() + yawDelta * t)),
+            0
         );
     }
-    
-    public void start() {
-        this.playing = true;
-        this.startTime = System.currentTimeMillis();
-        this.currentIndex = 0;
+
+    /**
+     * @return the steering wheel and front-wheel angles at the given session time, interpolated
+     *         like {@link #getPoseAt}, or null if the timeline is empty
+     */
+    public float[] getSteeringAt(long sessionTime) {
+        if (points.isEmpty()) {
+            return null;
+        }
+
+        int low = indexAt(sessionTime);
+        SteeringColumns fromColumns = columnsAt(low);
+        int from = column(fromColumns, low);
+        TimelinePoint fromPoint = points.get(low);
+        if (low == points.size() - 1 || sessionTime <= fromPoint.getTimestamp()) {
+            return new float[] {fromColumns.steeringAngles()[from], fromColumns.wheelAngles()[from]};
+        }
+
+        SteeringColumns toColumns = columnsAt(low + 1);
+        int to = column(toColumns, low + 1);
+        TimelinePoint toPoint = points.get(low + 1);
+        float t = (float) ((sessionTime - fromPoint.getTimestamp()) / (double) (toPoint.getTimestamp() - fromPoint.getTimestamp()));
+        float steeringFrom = fromColumns.steeringAngles()[from];
+        float wheelFrom = fromColumns.wheelAngles()[from];
+        return new float[] {
+            steeringFrom + (toColumns.steeringAngles()[to] - steeringFrom) * t,
+            wheelFrom + (toColumns.wheelAngles()[to] - wheelFrom) * t
+        };
     }
 
-    public void stop() {
-        this.playing = false;
+    /**
+     * @return how fast the car was turning at the last sample at or before the given session
+     *         time, in degrees per second, positive as yaw grows, or 0 if the timeline is empty
+     */
+    public float getYawRateAt(long sessionTime) {
+        if (points.isEmpty()) {
+            return 0f;
+        }
+        int index = indexAt(sessionTime);
+        SteeringColumns columns = columnsAt(index);
+        return columns.yawRates()[column(columns, index)];
     }
 
-    public TimelinePoint getCurrentPoint() {
-        if (!playing || points.isEmpty()) {
-            return null;
+    // The columns of the lap the point at the given index came from
+    private SteeringColumns columnsAt(int index) {
+        long position = compactedPoints + index;
+        int lap = steeringColumns.size() - 1;
+        while (lap > 0 && steeringColumns.get(lap).start() > position) {
+            lap--;
         }
-        
-        long elapsed = System.currentTimeMillis() - startTime;
-        
-        while (currentIndex < points.size()) {
-            TimelinePoint point = points.get(currentIndex);
-            
-            if (point.getTimestamp() <= elapsed) {
-                currentIndex++;
-                return point;
+        return steeringColumns.get(lap);
+    }
+
+    private int column(SteeringColumns columns, int index) {
+        return columns.first() + (int) (compactedPoints + index - columns.start());
+    }
+
+    // The last point at or before the given time, or the first point if there is none
+    private int indexAt(long sessionTime) {
+        int low = 0;
+        int high = points.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (points.get(mid).getTimestamp() <= sessionTime) {
+                low = mid;
             } else {
-                break;
+                high = mid - 1;
             }
         }
-        
-        if (currentIndex >= points.size()) {
-            stop();
-            return null;
+        return low;
+    }
+
+    static float wrapDegrees(float degrees) {
+        degrees %= 360;
+        if (degrees > 180) degrees -= 360;
+        if (degrees < -180) degrees += 360;
+        return degrees;
+    }
+
+    /**
+     * @return whether the given session time is past the last point appended so far
+     */
+    public boolean isExhausted(long sessionTime) {
+        return points.isEmpty() || sessionTime > endSessionTime;
+    }
+
+    /**
+     * @return the SessionTime_ms of the next point to be played, or -1 if all have been
+     */
+    public long getNextPointTime() {
+        return currentIndex < points.size() ? points.get(currentIndex).getTimestamp() : -1;
+    }
+
+    public boolean isEmpty() {
+        return points.isEmpty();
+    }
+
+    /**
+     * @return the lap being played at the given session time, or 0 before the first lap
+     */
+    public int getLapAt(long sessionTime) {
+        for (int i = lapStartTimes.size() - 1; i >= 0; i--) {
+            if (lapStartTimes.get(i) <= sessionTime) {
+                return lapNumbers.get(i);
+            }
         }
-        
-        return null;
+        return 0;
     }
-    
-    public boolean isFinished() {
-        return !playing || currentIndex >= points.size();
+
+    public int getLastAppendedLap() {
+        return lapNumbers.isEmpty() ? 0 : lapNumbers.get(lapNumbers.size() - 1);
     }
-    
-    public boolean isPlaying() {
-        return playing;
+
+    public long getLastLapStartTime() {
+        return lapStartTimes.isEmpty() ? -1 : lapStartTimes.get(lapStartTimes.size() - 1);
     }
-    
+
     public int getTotalPoints() {
-        return points.size();
+        return totalPoints;
+    }
+
+    /**
+     * @return the SessionTime_ms of the first point, or -1 if nothing has been appended
+     */
+    public long getStartSessionTime() {
+        return startSessionTime;
     }
-    
-    public int getCurrentIndex() {
-        return currentIndex;
+
+    /**
+     * @return the SessionTime_ms of the last point appended so far, or -1
+     */
+    public long getEndSessionTime() {
+        return endSessionTime;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,59 @@
+package com.raceplayback.raceplaybackserver.playback;
+
+/**
+ * Works out how a car was being steered from how fast it was turning. The front-wheel angle
+ * follows the kinematic bicycle model, atan(wheelbase * yawRate / speed), and the steering
+ * wheel turns that angle times the steering ratio. The yaw rate is taken over a few samples
+ * either side, which smooths out the jitter of the position data.
+ * <p>
+ * Runs once per lap over primitive arrays, so playback only reads the results.
+ */
+public final class SteeringModel {
+    private static final double WHEELBASE_METRES = 3.6;
+    private static final double STEERING_RATIO = 10.0;
+    private static final double MAX_WHEEL_ANGLE = 20.0;
+    // 18 km/h; slower than that, as in the pit lane or after a spin, yaw rate noise would swing the wheels to full lock
+    private static final double MIN_SPEED_MS = 5.0;
+    // Samples either side the yaw rate is measured over, about half a second at the usual rate
+    private static final int SMOOTHING_SAMPLES = 2;
+
+    private SteeringModel() {}
+
+    /**
+     * @param sessionTime    sample times in milliseconds
+     * @param yaw            the heading at each sample, in Minecraft degrees
+     * @param speed          speed at each sample in km/h
+     * @param outYawRate     receives the smoothed yaw rate in degrees per second, positive as yaw grows
+     * @param outSteering    receives the steering wheel angle in degrees, with the same sign
+     * @param outWheelAngle  receives the front wheels' angle in degrees, with the same sign
+     */
+    public static void compute(long[] sessionTime, float[] yaw, float[] speed, int count,
+                               float[] outYawRate, float[] outSteering, float[] outWheelAngle) {
+        if (count == 0) {
+            return;
+        }
+
+        // Unwrapped, so a heading that crosses ±180 does not read as a full turn
+        double[] heading = new double[count];
+        heading[0] = yaw[0];
+        for (int i = 1; i < count; i++) {
+            double delta = yaw[i] - yaw[i - 1];
+            heading[i] = heading[i - 1] + delta - 360.0 * Math.rint(delta / 360.0);
+        }
+
+        for (int i = 0; i < count; i++) {
+            int from = Math.max(0, i - SMOOTHING_SAMPLES);
+            int to = Math.min(count - 1, i + SMOOTHING_SAMPLES);
+            double seconds = Math.max(1, sessionTime[to] - sessionTime[from]) / 1000.0;
+            double yawRate = (heading[to] - heading[from]) / seconds;
+
+            double metresPerSecond = Math.max(MIN_SPEED_MS, speed[i] / 3.6);
+            double wheelAngle = Math.toDegrees(Math.atan(WHEELBASE_METRES * Math.toRadians(yawRate) / metresPerSecond));
+            wheelAngle = Math.max(-MAX_WHEEL_ANGLE, Math.min(MAX_WHEEL_ANGLE, wheelAngle));
+
+            outYawRate[i] = (float) yawRate;
+            outWheelAngle[i] = (float) wheelAngle;
+            outSteering[i] = (float) (wheelAngle * STEERING_RATIO);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.raceplayback.raceplaybackserver.playback;
 
+import com.raceplayback.raceplaybackserver.data.LapTelemetry;
 import com.raceplayback.raceplaybackserver.data.TelemetryPoint;
 import net.minestom.server.coordinate.Pos;
 
@@ -13,16 +14,42 @@ public class TimelinePoint {
     private final double throttle;
     private final boolean braking;
     
-    public TimelinePoint(Pos position, float yaw, TelemetryPoint telemetry, long relativeTimestamp) {
+    public TimelinePoint(Pos position, float yaw, TelemetryPoint telemetry, long sessionTime) {
         this.position = position;
         this.yaw = yaw;
-        this.timestamp = relativeTimestamp;
+        this.timestamp = sessionTime;
         this.drsOpen = telemetry.isDRS();
         this.gear = telemetry.gear();
         this.speed = telemetry.speed().doubleValue();
         this.throttle = telemetry.throttle().doubleValue();
         this.braking = telemetry.braking();
     }
+
+    public TimelinePoint(Pos position, float yaw, LapTelemetry telemetry, int index) {
+        this.position = position;
+        this.yaw = yaw;
+        this.timestamp = telemetry.getSessionTime(index);
+        this.drsOpen = telemetry.isDRS(index);
+        this.gear = telemetry.getGear(index);
+        this.speed = telemetry.getSpeed(index);
+        this.throttle = telemetry.getThrottle(index);
+        this.braking = telemetry.isBraking(index);
+    }
+
+    private TimelinePoint(TimelinePoint point, float yaw) {
+        this.position = point.position;
+        this.yaw = yaw;
+        this.timestamp = point.timestamp;
+        this.drsOpen = point.drsOpen;
+        this.gear = point.gear;
+        this.speed = point.speed;
+        this.throttle = point.throttle;
+        this.braking = point.braking;
+    }
+
+    public TimelinePoint withYaw(float yaw) {
+        return new TimelinePoint(this, yaw);
+    }
     
     public Pos getPosition() {
         return position;
@@ -32,6 +59,9 @@ public class TimelinePoint {
         return yaw;
     }
     
+    /**
+     * @return the absolute SessionTime_ms of the sample
+     */
     public long getTimestamp() {
         return timestamp;
     }
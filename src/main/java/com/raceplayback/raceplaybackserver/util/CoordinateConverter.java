@@ -1,14 +1,45 @@
 package com.raceplayback.raceplaybackserver.util;
 
 import net.minestom.server.coordinate.Pos;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.math.BigDecimal;
 
 public class CoordinateConverter {
+    private static final Logger logger = LoggerFactory.getLogger(CoordinateConverter.class);
+
     private static final double SCALE = 0.125;
+    static final double MIN_YAW_STEP = 0.001;
+
+    private static final boolean VECTORIZED = probeKernel();
+
+    // Loads the kernel once, so a platform it cannot run on falls back here instead of failing every transform
+    private static boolean probeKernel() {
+        // The Vector API is an incubator module and only resolves with --add-modules jdk.incubator.vector
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            logger.info("Batch coordinate transform is scalar (jdk.incubator.vector not loaded)");
+            return false;
+        }
+        try {
+            int lanes = VectorTransformKernel.lanes();
+            logger.info("Batch coordinate transform is vectorized ({} lanes)", lanes);
+            return true;
+        } catch (LinkageError | IllegalArgumentException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            logger.warn("Batch coordinate transform is scalar (vector kernel unavailable: {})", cause.toString());
+            return false;
+        }
+    }
 
     private final double originX;
     private final double originZ;
-    private final double rotationOffset;
+
+    // Scale, mirror and rotation folded into one matrix, so the trig is done once per converter
+    private final double xx;
+    private final double xy;
+    private final double zx;
+    private final double zy;
 
     private Double firstTelemetryX = null;
     private Double firstTelemetryY = null;
@@ -16,36 +47,87 @@ public class CoordinateConverter {
     public CoordinateConverter(Pos trackOrigin, double rotationOffset) {
         this.originX = trackOrigin.x();
         this.originZ = trackOrigin.z();
-        this.rotationOffset = rotationOffset;
+
+        double rotationRad = Math.toRadians(rotationOffset);
+        double cos = Math.cos(rotationRad);
+        double sin = Math.sin(rotationRad);
+        this.xx = -SCALE * cos;
+        this.xy = -SCALE * sin;
+        this.zx = -SCALE * sin;
+        this.zy = SCALE * cos;
     }
 
     public Pos toMinecraftPos(BigDecimal telemetryX, BigDecimal telemetryY, double height) {
-        double telX = telemetryX.doubleValue();
-        double telY = telemetryY.doubleValue();
+        return toMinecraftPos(telemetryX.doubleValue(), telemetryY.doubleValue(), height);
+    }
 
-        if (firstTelemetryX == null) {
-            firstTelemetryX = telX;
-            firstTelemetryY = telY;
+    public Pos toMinecraftPos(double telemetryX, double telemetryY, double height) {
+        anchor(telemetryX, telemetryY);
+
+        double deltaX = telemetryX - firstTelemetryX;
+        double deltaY = telemetryY - firstTelemetryY;
+
+        return new Pos(originX + deltaX * xx + deltaY * xy, height, originZ + deltaX * zx + deltaY * zy);
+    }
+
+    /**
+     * Transforms a whole run of telemetry coordinates in one pass and works out each sample's
+     * yaw towards the next one along the way. The last sample keeps the yaw of the one before
+     * it, since there is nothing to aim at yet.
+     *
+     * @param x      telemetry X of each sample
+     * @param y      telemetry Y of each sample
+     * @param count  number of samples to transform, starting at index 0
+     * @param outX   receives Minecraft X
+     * @param outZ   receives Minecraft Z
+     * @param outYaw receives the yaw from each sample to the next, as {@link #calculateYaw} would
+     */
+    public void transform(float[] x, float[] y, int count, double[] outX, double[] outZ, float[] outYaw) {
+        if (count == 0) {
+            return;
         }
+        anchor(x[0], y[0]);
+        double firstX = firstTelemetryX;
+        double firstY = firstTelemetryY;
 
-        double deltaX = -(telX - firstTelemetryX) * SCALE;
-        double deltaZ = (telY - firstTelemetryY) * SCALE;
+        int i = 0;
+        if (VECTORIZED) {
+            i = VectorTransformKernel.transform(x, y, count, firstX, firstY, originX, originZ, xx, xy, zx, zy, outX, outZ, outYaw);
+        }
 
-        double rotationRad = Math.toRadians(rotationOffset);
-        double rotatedX = deltaX * Math.cos(rotationRad) - deltaZ * Math.sin(rotationRad);
-        double rotatedZ = deltaX * Math.sin(rotationRad) + deltaZ * Math.cos(rotationRad);
+        for (; i < count; i++) {
+            double deltaX = x[i] - firstX;
+            double deltaY = y[i] - firstY;
+            outX[i] = originX + deltaX * xx + deltaY * xy;
+            outZ[i] = originZ + deltaX * zx + deltaY * zy;
+
+            if (i < count - 1) {
+                double stepX = (double) x[i + 1] - x[i];
+                double stepY = (double) y[i + 1] - y[i];
+                outYaw[i] = yaw(stepX * xx + stepY * xy, stepX * zx + stepY * zy);
+            } else {
+                outYaw[i] = i > 0 ? outYaw[i - 1] : 0;
+            }
+        }
+    }
 
-        double mcX = originX + rotatedX;
-        double mcZ = originZ + rotatedZ;
+    public static boolean isVectorized() {
+        return VECTORIZED;
+    }
 
-        return new Pos(mcX, height, mcZ);
+    private void anchor(double telemetryX, double telemetryY) {
+        if (firstTelemetryX == null) {
+            firstTelemetryX = telemetryX;
+            firstTelemetryY = telemetryY;
+        }
     }
 
     public float calculateYaw(Pos from, Pos to) {
-        double dx = to.x() - from.x();
-        double dz = to.z() - from.z();
+        return yaw(to.x() - from.x(), to.z() - from.z());
+    }
 
-        if (Math.abs(dx) < 0.001 && Math.abs(dz) < 0.001) {
+    private static float yaw(double dx, double dz) {
+        if (Math.abs(dx) < MIN_YAW_STEP && Math.abs(dz) < MIN_YAW_STEP) {
             return 0f;
         }
 
@@ -58,4 +140,4 @@ public class CoordinateConverter {
 
         return yaw;
     }
-}
\ No newline at end of file
+}
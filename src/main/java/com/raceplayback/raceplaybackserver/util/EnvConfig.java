@@ -0,0 +1,140 @@
+package com.raceplayback.raceplaybackserver.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+public class EnvConfig {
+    private static final Logger logger = LoggerFactory.getLogger(EnvConfig.class);
+    private static final Path ENV_FILE = Paths.get(".env");
+
+    private static volatile Map<String, String> values;
+
+    public static String get(String key) {
+        String value = load().get(key);
+        if (value == null) {
+            value = System.getenv(key);
+        }
+        return value;
+    }
+
+    public static String get(String key, String defaultValue) {
+        String value = get(key);
+        return value != null && !value.isBlank() ? value : defaultValue;
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        String value = get(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid integer for {}: '{}', using {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public static long getLong(String key, long defaultValue) {
+        String value = get(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid number for {}: '{}', using {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public static double getDouble(String key, double defaultValue) {
+        String value = get(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid number for {}: '{}', using {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = get(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        return value.trim().equalsIgnoreCase("true") || value.trim().equals("1");
+    }
+
+    public static void reload() {
+        values = null;
+    }
+
+    private static Map<String, String> load() {
+        Map<String, String> loaded = values;
+        if (loaded != null) {
+            return loaded;
+        }
+
+        synchronized (EnvConfig.class) {
+            if (values != null) {
+                return values;
+            }
+
+            loaded = new HashMap<>();
+            if (Files.exists(ENV_FILE)) {
+                try {
+                    for (String line : Files.readAllLines(ENV_FILE)) {
+                        line = line.trim();
+                        if (line.isEmpty() || line.startsWith("#")) {
+                            continue;
+                        }
+
+                        int separator = line.indexOf('=');
+                        if (separator <= 0) {
+                            continue;
+                        }
+
+                        String key = line.substring(0, separator).trim();
+                        loaded.put(key, parseValue(line.substring(separator + 1).trim()));
+                    }
+                } catch (IOException e) {
+                    logger.error("Failed to read .env file", e);
+                }
+            }
+
+            values = Map.copyOf(loaded);
+            return values;
+        }
+    }
+
+    /**
+     * Unquotes a double-quoted value, or drops a trailing comment from an unquoted one. A
+     * comment starts at a # that begins the value or follows whitespace, so KEY=a#b keeps the #.
+     */
+    private static String parseValue(String value) {
+        if (value.startsWith("\"")) {
+            int closing = value.indexOf('"', 1);
+            if (closing > 0) {
+                return value.substring(1, closing);
+            }
+        }
+
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == '#' && (i == 0 || Character.isWhitespace(value.charAt(i - 1)))) {
+                return value.substring(0, i).trim();
+            }
+        }
+        return value;
+    }
+}
@@ -0,0 +1,88 @@
+package com.raceplayback.raceplaybackserver.util;
+
+import com.raceplayback.raceplaybackserver.metrics.Counter;
+import com.raceplayback.raceplaybackserver.metrics.MetricsRegistry;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-player token bucket. Each bucket is a single {@link AtomicLong} holding the time at which
+ * it will be full again (the GCRA form of a token bucket), so taking a token is one CAS and
+ * needs no lock. A full bucket carries no information, which is what lets idle ones be dropped.
+ * <p>
+ * Configured from .env as {@code RATE_LIMIT_<NAME>_BURST} (tokens a player can spend at once)
+ * and {@code RATE_LIMIT_<NAME>_INTERVAL_SECONDS} (time to earn one token back).
+ */
+public class RateLimiter {
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final Map<UUID, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweep = new AtomicLong(System.nanoTime() + SWEEP_INTERVAL_NANOS);
+    private final Counter throttled;
+
+    public RateLimiter(String name, int burst, long intervalSeconds) {
+        this.intervalNanos = TimeUnit.SECONDS.toNanos(Math.max(intervalSeconds, 1));
+        this.burstNanos = intervalNanos * Math.max(burst, 1);
+        this.throttled = MetricsRegistry.counter("raceplayback_" + name + "_throttled_total",
+            "Submissions of /" + name + " rejected by the rate limiter");
+    }
+
+    public static RateLimiter fromEnv(String name, int defaultBurst, long defaultIntervalSeconds) {
+        String prefix = "RATE_LIMIT_" + name.toUpperCase() + "_";
+        return new RateLimiter(name,
+            EnvConfig.getInt(prefix + "BURST", defaultBurst),
+            EnvConfig.getLong(prefix + "INTERVAL_SECONDS", defaultIntervalSeconds));
+    }
+
+    /**
+     * Takes a token for the given player.
+     *
+     * @return 0 if the player may go ahead, otherwise the milliseconds until a token is available
+     */
+    public long tryAcquire(UUID player) {
+        long now = System.nanoTime();
+        sweepIfDue(now);
+
+        if (player == null) {
+            return 0;
+        }
+
+        AtomicLong bucket = buckets.computeIfAbsent(player, p -> new AtomicLong(now));
+        while (true) {
+            long fullAt = bucket.get();
+            long next = Math.max(fullAt, now) + intervalNanos;
+            long debt = next - now;
+            if (debt > burstNanos) {
+                throttled.increment();
+                return TimeUnit.NANOSECONDS.toMillis(debt - burstNanos) + 1;
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                return 0;
+            }
+        }
+    }
+
+    public static String formatWait(long millis) {
+        long seconds = Math.max(1, (millis + 999) / 1000);
+        return seconds < 60 ? seconds + "s" : (seconds / 60) + "m " + (seconds % 60) + "s";
+    }
+
+    public int getTrackedPlayers() {
+        return buckets.size();
+    }
+
+    private void sweepIfDue(long now) {
+        long due = nextSweep.get();
+        if (now - due < 0 || !nextSweep.compareAndSet(due, now + SWEEP_INTERVAL_NANOS)) {
+            return;
+        }
+        // A player acquiring while their full bucket is dropped may get one extra token, which is harmless
+        buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+    }
+}
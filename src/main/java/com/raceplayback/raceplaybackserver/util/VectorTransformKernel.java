@@ -0,0 +1,87 @@
+package com.raceplayback.raceplaybackserver.util;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD body of {@link CoordinateConverter#transform}. Kept in its own class so nothing from
+ * jdk.incubator.vector is linked unless the module is present; the converter falls back to its
+ * scalar loop otherwise.
+ * <p>
+ * Telemetry comes in as floats and is widened to doubles on load, so the output matches the
+ * scalar path to within rounding.
+ */
+final class VectorTransformKernel {
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Float> FLOATS = halfWidthFloats();
+
+    private VectorTransformKernel() {}
+
+    /**
+     * Half the width of {@link #DOUBLES}, so one load of floats widens into exactly one vector of
+     * doubles.
+     *
+     * @throws IllegalArgumentException if there is no float shape that narrow, as when doubles
+     *         are only 64 bits wide; {@link CoordinateConverter} then uses its scalar loop
+     */
+    private static VectorSpecies<Float> halfWidthFloats() {
+        int bits = DOUBLES.vectorBitSize() / 2;
+        VectorSpecies<Float> largest = VectorSpecies.ofLargestShape(float.class);
+        if (bits < VectorShape.S_64_BIT.vectorBitSize() || bits > largest.vectorBitSize()) {
+            throw new IllegalArgumentException("No float species half the width of " + DOUBLES);
+        }
+        return largest.withShape(VectorShape.forBitSize(bits));
+    }
+
+    static int lanes() {
+        return DOUBLES.length();
+    }
+
+    /**
+     * Transforms samples [0, bound) and their yaws, where bound is a multiple of the lane count
+     * that leaves at least one sample after it to aim at.
+     *
+     * @return bound, for the caller to finish the rest
+     */
+    static int transform(float[] x, float[] y, int count, double firstX, double firstY,
+                         double originX, double originZ, double xx, double xy, double zx, double zy,
+                         double[] outX, double[] outZ, float[] outYaw) {
+        int bound = count > 1 ? DOUBLES.loopBound(count - 1) : 0;
+
+        for (int i = 0; i < bound; i += DOUBLES.length()) {
+            DoubleVector x0 = widen(x, i);
+            DoubleVector y0 = widen(y, i);
+            DoubleVector x1 = widen(x, i + 1);
+            DoubleVector y1 = widen(y, i + 1);
+
+            DoubleVector dx = x0.sub(firstX);
+            DoubleVector dy = y0.sub(firstY);
+            dx.mul(xx).add(dy.mul(xy)).add(originX).intoArray(outX, i);
+            dx.mul(zx).add(dy.mul(zy)).add(originZ).intoArray(outZ, i);
+
+            // The step to the next sample is a linear map of the raw step, so no need to re-load the outputs
+            DoubleVector stepX = x1.sub(x0);
+            DoubleVector stepY = y1.sub(y0);
+            DoubleVector moveX = stepX.mul(xx).add(stepY.mul(xy));
+            DoubleVector moveZ = stepX.mul(zx).add(stepY.mul(zy));
+
+            DoubleVector yaw = DoubleVector.broadcast(DOUBLES, 90)
+                .sub(moveZ.lanewise(VectorOperators.ATAN2, moveX).mul(180 / Math.PI));
+            yaw = yaw.sub(360, yaw.compare(VectorOperators.GT, 180));
+
+            VectorMask<Double> stationary = moveX.abs().compare(VectorOperators.LT, CoordinateConverter.MIN_YAW_STEP)
+                .and(moveZ.abs().compare(VectorOperators.LT, CoordinateConverter.MIN_YAW_STEP));
+            ((FloatVector) yaw.blend(0, stationary).convertShape(VectorOperators.D2F, FLOATS, 0)).intoArray(outYaw, i);
+        }
+
+        return bound;
+    }
+
+    private static DoubleVector widen(float[] values, int offset) {
+        return (DoubleVector) FloatVector.fromArray(FLOATS, values, offset).convertShape(VectorOperators.F2D, DOUBLES, 0);
+    }
+}